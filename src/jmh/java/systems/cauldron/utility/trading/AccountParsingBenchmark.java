@@ -0,0 +1,106 @@
+package systems.cauldron.utility.trading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import systems.cauldron.utility.trading.core.Account;
+import systems.cauldron.utility.trading.core.AccountsDecoder;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the old JsonReader DOM path against the streaming decoders on accounts responses scaled up from the test
+ * fixture, which the jmh source set sees through the test output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountParsingBenchmark {
+
+    @Param({"4"})
+    public int accounts;
+
+    @Param({"10", "300"})
+    public int positionsPerAccount;
+
+    private byte[] response;
+
+    @Setup
+    public void setup() throws IOException {
+        JsonObject template;
+        try (InputStream is = AccountParsingBenchmark.class.getResourceAsStream("/accounts-response.json");
+             JsonReader reader = Json.createReader(is)) {
+            template = reader.readArray().getJsonObject(0);
+        }
+        JsonObject securitiesAccount = template.getJsonObject("securitiesAccount");
+        JsonObject position = securitiesAccount.getJsonArray("positions").getJsonObject(0);
+        JsonArrayBuilder list = Json.createArrayBuilder();
+        for (int a = 0; a < accounts; a++) {
+            JsonArrayBuilder positions = Json.createArrayBuilder();
+            for (int p = 0; p < positionsPerAccount; p++) {
+                positions.add(Json.createObjectBuilder(position)
+                        .add("instrument", Json.createObjectBuilder(position.getJsonObject("instrument"))
+                                .add("symbol", "SYM" + p)));
+            }
+            list.add(Json.createObjectBuilder()
+                    .add("securitiesAccount", Json.createObjectBuilder(securitiesAccount)
+                            .add("accountId", String.valueOf(100000000 + a))
+                            .add("positions", positions)));
+        }
+        JsonArray built = list.build();
+        response = built.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> domCashBalances() {
+        try (JsonReader reader = Json.createReader(new ByteArrayInputStream(response))) {
+            return reader.readArray().stream()
+                    .map(JsonValue::asJsonObject)
+                    .map(o -> o.getJsonObject("securitiesAccount"))
+                    .collect(Collectors.toMap(
+                            o -> o.getString("accountId"),
+                            o -> o.getJsonObject("initialBalances").getJsonNumber("totalCash").bigDecimalValue()
+                    ));
+        }
+    }
+
+    @Benchmark
+    public List<Account> streamingCashBalances() {
+        try (JsonParser parser = Json.createParser(new ByteArrayInputStream(response))) {
+            return AccountsDecoder.BALANCES.apply(parser);
+        }
+    }
+
+    @Benchmark
+    public List<Account> streamingPositions() {
+        try (JsonParser parser = Json.createParser(new ByteArrayInputStream(response))) {
+            return AccountsDecoder.WITH_POSITIONS.apply(parser);
+        }
+    }
+}
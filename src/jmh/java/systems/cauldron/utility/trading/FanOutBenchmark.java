@@ -0,0 +1,100 @@
+package systems.cauldron.utility.trading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import systems.cauldron.utility.trading.core.AccessTokenSource;
+import systems.cauldron.utility.trading.core.BlockingGateway;
+import systems.cauldron.utility.trading.core.BlockingOrderService;
+import systems.cauldron.utility.trading.core.FixedPoint;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.OrderPayload;
+import systems.cauldron.utility.trading.core.OrderTemplate;
+import systems.cauldron.utility.trading.core.RequestThreads;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to submit one order to each of many accounts against the {@link BrokerStandIn} with a realistic round trip,
+ * in three threading modes: callback chains on the gateway ({@code async}), blocking calls on a pool of one platform
+ * thread per account ({@code platform}) and blocking calls on {@link RequestThreads} ({@code virtual}). Both blocking
+ * modes run every call at once, so only the kind of thread differs. The last only gets virtual threads when the
+ * multi-release classes are built and run on JDK 21, i.e. {@code gradle jmh -Pjava21 -PjmhJavaVersion=21}; otherwise
+ * it falls back to a platform thread per request and prints as much.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FanOutBenchmark {
+
+    private static final FixedPoint PRICE = FixedPoint.parse("100.00");
+
+    @Param({"async", "platform", "virtual"})
+    public String mode;
+
+    @Param({"100", "1000"})
+    public int accounts;
+
+    private BrokerStandIn standIn;
+    private HttpGateway gateway;
+    private BlockingGateway blocking;
+    private BlockingOrderService orders;
+    private AccessTokenSource tokenSource;
+    private String accountOrdersEndpoint;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        standIn = BrokerStandIn.builder().accounts(accounts).latency(Duration.ofMillis(20L)).build().start();
+        gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).metrics(new MetricsRegistry("benchmark")).build();
+        blocking = "platform".equals(mode)
+                ? new BlockingGateway(gateway, Executors.newFixedThreadPool(accounts))
+                : new BlockingGateway(gateway);
+        orders = new BlockingOrderService(blocking, () -> BrokerStandIn.ACCESS_TOKEN);
+        tokenSource = AccessTokenSource.of(() -> BrokerStandIn.ACCESS_TOKEN);
+        accountOrdersEndpoint = gateway.resolve("/v1/accounts/%s/orders");
+        if ("virtual".equals(mode) && !RequestThreads.isVirtual()) {
+            System.out.println("virtual threads unavailable, running a platform thread per request");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        blocking.close();
+        standIn.close();
+    }
+
+    @Benchmark
+    public int submitToEveryAccount() {
+        List<String> accountIds = standIn.getAccountIds();
+        if ("async".equals(mode)) {
+            CompletableFuture<?>[] submitted = new CompletableFuture<?>[accountIds.size()];
+            for (int i = 0; i < submitted.length; i++) {
+                OrderPayload payload = OrderTemplate.of(OrderTemplate.Type.LIMIT, OrderTemplate.Instruction.BUY, "QQQ").render(PRICE, 1);
+                submitted[i] = gateway.doAuthorizedJsonPost(String.format(accountOrdersEndpoint, accountIds.get(i)), tokenSource, payload.array(), payload.length())
+                        .whenComplete((orderId, ex) -> payload.release());
+            }
+            CompletableFuture.allOf(submitted).join();
+            return submitted.length;
+        }
+        return blocking.fanOut(accountIds, accountId ->
+                orders.createEquityOrder(accountId, OrderTemplate.Type.LIMIT, OrderTemplate.Instruction.BUY, PRICE, 1, "QQQ")).size();
+    }
+}
@@ -0,0 +1,64 @@
+package systems.cauldron.utility.trading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import systems.cauldron.utility.trading.core.FixedPoint;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizing a thousand accounts off balance text as it arrives from the broker: parse the cash, divide by the ask,
+ * sum the quantities. The BigDecimal path is what {@link systems.cauldron.utility.trading.core.Slinger} did before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixedPointBenchmark {
+
+    private static final int ACCOUNTS = 1_000;
+    private static final double ASK = 280.37;
+
+    private String[] balances;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42L);
+        balances = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            balances[i] = random.nextInt(1_000_000) + "." + (10 + random.nextInt(90));
+        }
+    }
+
+    @Benchmark
+    public long bigDecimal() {
+        BigDecimal price = BigDecimal.valueOf(ASK);
+        long total = 0L;
+        for (String balance : balances) {
+            total += new BigDecimal(balance).divideToIntegralValue(price).intValue();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long fixedPoint() {
+        FixedPoint price = FixedPoint.valueOf(ASK);
+        long total = 0L;
+        for (String balance : balances) {
+            total += (int) FixedPoint.parse(balance).divideToIntegral(price);
+        }
+        return total;
+    }
+}
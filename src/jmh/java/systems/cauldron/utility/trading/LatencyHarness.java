@@ -0,0 +1,146 @@
+package systems.cauldron.utility.trading;
+
+import systems.cauldron.utility.trading.core.AccountService;
+import systems.cauldron.utility.trading.core.FixedPoint;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.OrderScheduler;
+import systems.cauldron.utility.trading.core.OrderService;
+import systems.cauldron.utility.trading.core.QuoteBook;
+import systems.cauldron.utility.trading.core.QuoteSnapshot;
+import systems.cauldron.utility.trading.core.Slinger;
+import systems.cauldron.utility.trading.core.StreamerConfig;
+import systems.cauldron.utility.trading.core.StreamerService;
+import systems.cauldron.utility.trading.core.UserPrincipalsService;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * End-to-end latency harness against the in-process {@link BrokerStandIn}. Reports p50/p99/p999 of a full
+ * {@link Slinger#execute} (balances round trip plus every order acknowledged) for growing account counts, then the
+ * streamer throughput at rising push rates.
+ * <p>
+ * Tunables are system properties: {@code harness.accounts}, {@code harness.latencyMillis},
+ * {@code harness.jitterMillis}, {@code harness.errorRate} and {@code harness.rates}.
+ */
+public class LatencyHarness {
+
+    private static final String SYMBOL = "QQQ";
+    private static final FixedPoint PRICE = FixedPoint.parse("100.00");
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] accountCounts = intList(System.getProperty("harness.accounts", "1,10,100,1000"));
+        int[] rates = intList(System.getProperty("harness.rates", "1000,5000,10000,25000,50000,100000"));
+        Duration latency = Duration.ofMillis(Long.getLong("harness.latencyMillis", 0L));
+        Duration jitter = Duration.ofMillis(Long.getLong("harness.jitterMillis", 0L));
+        double errorRate = Double.parseDouble(System.getProperty("harness.errorRate", "0"));
+
+        System.out.printf("%nslinger execute (latency %dms + %dms jitter, error rate %.3f)%n", latency.toMillis(), jitter.toMillis(), errorRate);
+        System.out.printf("%10s %10s %10s %12s %12s %12s %12s%n", "accounts", "samples", "failures", "p50 (ms)", "p99 (ms)", "p999 (ms)", "max (ms)");
+        for (int accounts : accountCounts) {
+            try (BrokerStandIn standIn = BrokerStandIn.builder()
+                    .accounts(accounts)
+                    .latency(latency)
+                    .latencyJitter(jitter)
+                    .errorRate(errorRate)
+                    .build()
+                    .start()) {
+                measureSlinger(standIn, accounts);
+            }
+        }
+
+        System.out.printf("%nstreamer throughput%n");
+        System.out.printf("%12s %12s %14s %14s%n", "target/s", "sent", "delivered/s", "drain lag (ms)");
+        try (BrokerStandIn standIn = BrokerStandIn.builder().build().start()) {
+            measureStreamer(standIn, rates);
+        }
+
+        System.out.printf("%nclient metrics%n%s%n", MetricsRegistry.global().snapshot());
+    }
+
+    private static void measureSlinger(BrokerStandIn standIn, int accounts) {
+        HttpGateway gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).build();
+        Supplier<String> tokenSupplier = () -> BrokerStandIn.ACCESS_TOKEN;
+        try (OrderScheduler scheduler = OrderScheduler.builder()
+                .requestsPerMinute(60_000_000.0)
+                .burst(Math.max(accounts, 10))
+                .maxInFlight(64)
+                .listener(report -> {
+                })
+                .build()) {
+            Slinger slinger = new Slinger(new AccountService(gateway, tokenSupplier), new OrderService(gateway, tokenSupplier, scheduler));
+            int iterations = Math.max(50, Math.min(2_000, 10_000 / accounts));
+            for (int i = 0; i < iterations / 5; i++) {
+                executeOnce(slinger);
+            }
+            long[] samples = new long[iterations];
+            int failures = 0;
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                if (!executeOnce(slinger)) {
+                    failures++;
+                }
+                samples[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(samples);
+            System.out.printf("%10d %10d %10d %12.3f %12.3f %12.3f %12.3f%n", accounts, iterations, failures,
+                    millis(percentile(samples, 0.50)), millis(percentile(samples, 0.99)),
+                    millis(percentile(samples, 0.999)), millis(samples[samples.length - 1]));
+        }
+    }
+
+    private static boolean executeOnce(Slinger slinger) {
+        try {
+            CompletableFuture<?>[] orders = slinger.execute(SYMBOL, PRICE).join();
+            CompletableFuture.allOf(orders).join();
+            return true;
+        } catch (RuntimeException ex) {
+            return false;
+        }
+    }
+
+    private static void measureStreamer(BrokerStandIn standIn, int[] rates) throws InterruptedException {
+        HttpGateway gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).build();
+        StreamerConfig config = new UserPrincipalsService(gateway, () -> BrokerStandIn.ACCESS_TOKEN).getStreamerConfig().join();
+        StreamerService streamer = new StreamerService(gateway, config);
+        streamer.start();
+        try {
+            QuoteBook book = new QuoteBook(16);
+            streamer.subscribeQuotes(List.of(SYMBOL), book).join();
+            QuoteSnapshot quote = new QuoteSnapshot();
+            for (int rate : rates) {
+                long start = System.nanoTime();
+                long sent = standIn.getStreamer().publishQuotes(rate, Duration.ofSeconds(2L));
+                long published = System.nanoTime();
+                long target = standIn.getStreamer().getQuoteSequence();
+                long deadline = published + TimeUnit.SECONDS.toNanos(30L);
+                while ((!book.read(SYMBOL, quote) || quote.getVolume() < target) && System.nanoTime() < deadline) {
+                    Thread.onSpinWait();
+                }
+                long drained = System.nanoTime();
+                System.out.printf("%12d %12d %14.0f %14.3f%n", rate, sent,
+                        sent / ((drained - start) / 1e9), millis(drained - published));
+            }
+        } finally {
+            streamer.stop();
+        }
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static int[] intList(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
@@ -0,0 +1,62 @@
+package systems.cauldron.utility.trading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import systems.cauldron.utility.trading.core.FixedPoint;
+import systems.cauldron.utility.trading.core.OrderPayload;
+import systems.cauldron.utility.trading.core.OrderTemplate;
+
+import javax.json.Json;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderPayloadBenchmark {
+
+    private final FixedPoint price = FixedPoint.parse("280.37");
+    private final int quantity = 35;
+    private final String symbol = "QQQ";
+
+    @Benchmark
+    public byte[] objectBuilder() {
+        return Json.createObjectBuilder()
+                .add("orderType", "LIMIT")
+                .add("session", "NORMAL")
+                .add("price", price.toString())
+                .add("duration", "DAY")
+                .add("orderStrategyType", "SINGLE")
+                .add("orderLegCollection", Json.createArrayBuilder()
+                        .add(Json.createObjectBuilder()
+                                .add("instruction", "BUY")
+                                .add("quantity", quantity)
+                                .add("instrument", Json.createObjectBuilder()
+                                        .add("symbol", symbol)
+                                        .add("assetType", "EQUITY")
+                                )
+                        )
+                )
+                .build()
+                .toString()
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int template() {
+        OrderPayload payload = OrderTemplate.of(OrderTemplate.Type.LIMIT, OrderTemplate.Instruction.BUY, symbol).render(price, quantity);
+        int length = payload.length();
+        payload.release();
+        return length;
+    }
+}
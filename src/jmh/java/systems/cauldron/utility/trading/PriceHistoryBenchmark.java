@@ -0,0 +1,76 @@
+package systems.cauldron.utility.trading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import systems.cauldron.utility.trading.core.Candles;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.PriceHistoryService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loading three years of minute bars (about 300k candles) once the cache holds them. Setup downloads them from the
+ * {@link BrokerStandIn} in 30 day windows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceHistoryBenchmark {
+
+    private static final Instant FROM = Instant.parse("2021-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2024-01-01T00:00:00Z");
+
+    private BrokerStandIn standIn;
+    private Path directory;
+    private PriceHistoryService history;
+
+    @Setup
+    public void setup() throws IOException {
+        standIn = BrokerStandIn.builder().build().start();
+        directory = Files.createTempDirectory("history");
+        history = PriceHistoryService.builder()
+                .gateway(HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).metrics(new MetricsRegistry("benchmark")).build())
+                .accessTokenSource(() -> BrokerStandIn.ACCESS_TOKEN)
+                .cacheDirectory(directory)
+                .window(Duration.ofDays(30L))
+                .clock(Clock.fixed(TO, ZoneOffset.UTC))
+                .build();
+        history.getCandles("QQQ", FROM, TO).join();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        standIn.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int cachedLoad() {
+        Candles candles = history.getCandles("QQQ", FROM, TO).join();
+        return candles.size();
+    }
+}
@@ -0,0 +1,89 @@
+package systems.cauldron.utility.trading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import systems.cauldron.utility.trading.core.Account;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.Position;
+import systems.cauldron.utility.trading.core.ProfitLossEngine;
+import systems.cauldron.utility.trading.core.QuoteBook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quote ticks per second the P&L engine absorbs with every account holding every symbol, the worst case for the
+ * per-symbol chains, against re-summing all positions per tick as a polling loop would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfitLossBenchmark {
+
+    private static final int SYMBOLS = 500;
+    private static final int TICKS = 1 << 16;
+
+    @Param({"10", "50"})
+    public int accounts;
+
+    private QuoteBook book;
+    private ProfitLossEngine engine;
+    private List<Account> seed;
+    private int[] tickSymbols;
+    private double[] tickPrices;
+    private int next;
+
+    @Setup
+    public void setup() {
+        book = new QuoteBook(SYMBOLS);
+        engine = new ProfitLossEngine(book.getSymbols(), new MetricsRegistry("benchmark"));
+        SplittableRandom random = new SplittableRandom(42L);
+        seed = new ArrayList<>(accounts);
+        for (int a = 0; a < accounts; a++) {
+            List<Position> positions = new ArrayList<>(SYMBOLS);
+            for (int s = 0; s < SYMBOLS; s++) {
+                double held = 1 + random.nextInt(1_000);
+                double price = 10.0 + random.nextInt(500);
+                positions.add(Position.builder().symbol("SYM" + s).assetType("EQUITY").longQuantity(held)
+                        .averagePrice(price).marketValue(held * price).build());
+            }
+            seed.add(Account.builder().accountId(String.valueOf(a)).positions(positions).build());
+        }
+        engine.seed(seed);
+        tickSymbols = new int[TICKS];
+        tickPrices = new double[TICKS];
+        for (int i = 0; i < TICKS; i++) {
+            tickSymbols[i] = book.getSymbols().lookup("SYM" + random.nextInt(SYMBOLS));
+            tickPrices[i] = 10.0 + random.nextInt(50_000) / 100.0;
+        }
+    }
+
+    @Benchmark
+    public double incremental() {
+        int i = next++ & (TICKS - 1);
+        engine.onPrice(tickSymbols[i], tickPrices[i]);
+        return engine.getTotal().getUnrealized();
+    }
+
+    @Benchmark
+    public double resum() {
+        int i = next++ & (TICKS - 1);
+        engine.onPrice(tickSymbols[i], tickPrices[i]);
+        engine.recompute();
+        return engine.getTotal().getUnrealized();
+    }
+}
@@ -0,0 +1,47 @@
+package systems.cauldron.utility.trading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import systems.cauldron.utility.trading.core.StreamerFramePipeline;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passes per second of the frame pipeline over the recorded streamer feed the unit tests use, a mix of heartbeats,
+ * responses and quote data in whole frames.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordedFeedBenchmark {
+
+    private String[] feed;
+    private StreamerFramePipeline pipeline;
+    private long fields;
+
+    @Setup
+    public void setup() throws IOException {
+        feed = StreamerFramePipelineTest.loadRecordedFeed().toArray(String[]::new);
+        pipeline = new StreamerFramePipeline(e -> fields += e.getContentCount());
+    }
+
+    @Benchmark
+    public long recordedFeed() {
+        for (String frame : feed) {
+            pipeline.onFragment(frame, true);
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,99 @@
+package systems.cauldron.utility.trading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import systems.cauldron.utility.trading.core.StreamerFramePipeline;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import java.io.StringReader;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of turning synthetic level one quote frames into handler callbacks, old DOM path against the frame
+ * pipeline, whole and split into websocket fragments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamerMessageBenchmark {
+
+    @Param({"1", "50"})
+    public int quotesPerFrame;
+
+    private String frame;
+    private String[] fragments;
+    private StreamerFramePipeline pipeline;
+    private double checksum;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("{\"data\":[{\"service\":\"QUOTE\",\"timestamp\":1618000001000,\"command\":\"SUBS\",\"content\":[");
+        for (int i = 0; i < quotesPerFrame; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            double bid = 100.0 + i * 0.37;
+            sb.append(String.format(Locale.ROOT, "{\"key\":\"SYM%d\",\"1\":%.2f,\"2\":%.2f,\"3\":%.2f,\"4\":%d,\"5\":%d,\"8\":%d,\"9\":%d}",
+                    i, bid, bid + 0.01, bid, 1 + i % 7, 2 + i % 5, 1_000_000 + i, 100));
+        }
+        frame = sb.append("]}]}").toString();
+        int fragmentSize = Math.max(16, frame.length() / 4);
+        int count = (frame.length() + fragmentSize - 1) / fragmentSize;
+        fragments = new String[count];
+        for (int i = 0; i < count; i++) {
+            fragments[i] = frame.substring(i * fragmentSize, Math.min(frame.length(), (i + 1) * fragmentSize));
+        }
+        pipeline = new StreamerFramePipeline(e -> {
+            for (int c = 0; c < e.getContentCount(); c++) {
+                checksum += e.getNumber(c, "1", 0.0);
+            }
+        });
+    }
+
+    @Benchmark
+    public void domReader(Blackhole blackhole) {
+        JsonObject message;
+        try (JsonReader reader = Json.createReader(new StringReader(frame))) {
+            message = reader.readObject();
+        }
+        JsonArray data = message.getJsonArray("data");
+        JsonObject entry = data.getJsonObject(0);
+        JsonArray content = entry.getJsonArray("content");
+        for (int c = 0; c < content.size(); c++) {
+            blackhole.consume(content.getJsonObject(c).getJsonNumber("1").doubleValue());
+        }
+    }
+
+    @Benchmark
+    public double pipelineWholeFrame() {
+        pipeline.onFragment(frame, true);
+        return checksum;
+    }
+
+    @Benchmark
+    public double pipelineFragmentedFrame() {
+        int last = fragments.length - 1;
+        for (int i = 0; i < last; i++) {
+            pipeline.onFragment(fragments[i], false);
+        }
+        pipeline.onFragment(fragments[last], true);
+        return checksum;
+    }
+}
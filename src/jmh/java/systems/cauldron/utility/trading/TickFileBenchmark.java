@@ -0,0 +1,86 @@
+package systems.cauldron.utility.trading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.QuoteBook;
+import systems.cauldron.utility.trading.core.TickFileReader;
+import systems.cauldron.utility.trading.core.TickFileWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ticks per second a full scan of a tick file decodes, with every column and with last prices only. A full-market
+ * day is in the order of a billion ticks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickFileBenchmark {
+
+    private static final int SYMBOLS = 500;
+    private static final int TICKS = 10_000_000;
+
+    private Path file;
+    private TickFileReader reader;
+    private long checksum;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("ticks", ".dat");
+        SplittableRandom random = new SplittableRandom(42L);
+        double[] prices = new double[SYMBOLS];
+        long[] volumes = new long[SYMBOLS];
+        for (int s = 0; s < SYMBOLS; s++) {
+            prices[s] = 10.0 + random.nextInt(500);
+        }
+        try (TickFileWriter writer = TickFileWriter.builder().path(file).metrics(new MetricsRegistry("benchmark")).build()) {
+            long timestamp = 1_618_000_000_000L;
+            for (int i = 0; i < TICKS; i++) {
+                int s = random.nextInt(SYMBOLS);
+                prices[s] = Math.max(0.01, prices[s] + (random.nextInt(5) - 2) * 0.01);
+                long size = 100L * (1 + random.nextInt(10));
+                volumes[s] += size;
+                timestamp += random.nextInt(3);
+                writer.append("SYM" + s, timestamp, prices[s] - 0.01, prices[s] + 0.01, prices[s], size, size, size, volumes[s]);
+            }
+        }
+        reader = new TickFileReader(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public long scanAllColumns() {
+        return reader.scanAll(TickFileReader.ALL_COLUMNS, columns -> checksum += columns.getVolumes()[columns.getEnd() - 1]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public long scanLastPrices() {
+        return reader.scanAll(QuoteBook.LAST, columns -> checksum += columns.getLasts()[columns.getEnd() - 1]);
+    }
+}
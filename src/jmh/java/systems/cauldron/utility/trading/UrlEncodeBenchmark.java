@@ -0,0 +1,56 @@
+package systems.cauldron.utility.trading;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import systems.cauldron.utility.trading.core.HttpGateway;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlEncodeBenchmark {
+
+    private final Map<String, List<String>> accountFields = Map.of(
+            "fields", Collections.singletonList("positions")
+    );
+
+    private final Map<String, List<String>> userPrincipalsFields = Map.of(
+            "fields", Arrays.asList("streamerConnectionInfo", "streamerSubscriptionKeys")
+    );
+
+    private final Map<String, List<String>> refreshTokenForm = Map.of(
+            "grant_type", Collections.singletonList("refresh_token"),
+            "refresh_token", Collections.singletonList("0Ab1Cd2Ef3Gh4Ij5Kl6Mn7Op8Qr9St+Uv/Wx=Yz0Ab1Cd2Ef3Gh4Ij5Kl6Mn7Op8Qr9St+Uv/Wx=Yz100212FD3x19z9sWBHDJACbC00B75E"),
+            "client_id", Collections.singletonList("EXAMPLECLIENTID@AMER.OAUTHAP")
+    );
+
+    @Benchmark
+    public String accountQuery() {
+        return HttpGateway.urlEncode(accountFields);
+    }
+
+    @Benchmark
+    public String userPrincipalsQuery() {
+        return HttpGateway.urlEncode(userPrincipalsFields);
+    }
+
+    @Benchmark
+    public String refreshTokenForm() {
+        return HttpGateway.urlEncode(refreshTokenForm);
+    }
+}
@@ -1,8 +1,11 @@
 module systems.cauldron.utility.trading {
     requires java.net.http;
     requires java.json;
+    requires java.xml;
+    requires java.management;
     requires org.apache.logging.log4j;
     requires javafx.controls;
     requires static lombok;
     exports systems.cauldron.utility.trading;
-}
\ No newline at end of file
+    exports systems.cauldron.utility.trading.core to java.management;
+}
@@ -1,22 +1,64 @@
 package systems.cauldron.utility.trading;
 
-import javafx.scene.Parent;
+import javafx.application.Platform;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+
+import java.time.Duration;
 
 public class Application extends javafx.application.Application {
 
+    private final static Logger LOG = LogManager.getLogger(Application.class);
+
+    private Daemon daemon;
+    private LiveGrid grid;
+    private PulseMonitor monitor;
+
     public static void main(String[] args) {
+        MetricsRegistry.global().exposeMBeans();
+        MetricsRegistry.global().startSnapshotDump(Duration.ofMinutes(1L));
         launch(args);
     }
 
+    /**
+     * Streams the symbols given as arguments, or else those held across all accounts, into a {@link LiveGrid}.
+     */
     @Override
     public void start(Stage stage) throws Exception {
-        Parent root = new StackPane();
-        Scene scene = new Scene(root);
+        MetricsRegistry metrics = MetricsRegistry.global();
+        daemon = Daemon.builder().symbols(getParameters().getRaw()).build();
+        grid = new LiveGrid(daemon.getBook(), metrics);
+        monitor = new PulseMonitor(metrics, metrics.counter("grid", "rows applied")::getCount);
+        StackPane root = new StackPane(grid.getTable(), monitor.getOverlay());
+        StackPane.setAlignment(monitor.getOverlay(), Pos.BOTTOM_RIGHT);
+        Scene scene = new Scene(root, 1200, 800);
         stage.setTitle("Trading Utility");
         stage.setScene(scene);
         stage.show();
+        monitor.start(scene);
+        grid.start();
+        daemon.start().exceptionally(ex -> {
+            LOG.error("failed to start streaming", ex);
+            return null;
+        });
+        daemon.getAccounts().whenComplete((accounts, ex) -> {
+            if (ex != null) {
+                LOG.error("failed to load positions", ex);
+            } else {
+                Platform.runLater(() -> grid.setPositions(accounts));
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        grid.stop();
+        monitor.stop();
+        daemon.stop();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,183 @@
+package systems.cauldron.utility.trading;
+
+import lombok.Builder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import systems.cauldron.utility.trading.core.AccessTokenSource;
+import systems.cauldron.utility.trading.core.Account;
+import systems.cauldron.utility.trading.core.AccountService;
+import systems.cauldron.utility.trading.core.AuthenticationService;
+import systems.cauldron.utility.trading.core.ConfigurationFactory;
+import systems.cauldron.utility.trading.core.Counter;
+import systems.cauldron.utility.trading.core.Histogram;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.Position;
+import systems.cauldron.utility.trading.core.QuoteBook;
+import systems.cauldron.utility.trading.core.StreamerConfig;
+import systems.cauldron.utility.trading.core.StreamerService;
+import systems.cauldron.utility.trading.core.UserPrincipalsService;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Headless entry point that streams quotes without starting JavaFX. Startup runs as a graph rather than a sequence:
+ * a streamer config saved by an earlier run connects the socket right away while the access token is still being
+ * fetched, and only the steps that need the token wait for it. The time from {@link #start} to the first quote written
+ * into the book is recorded as {@code startup/time to first quote}; with a valid saved config that is one socket
+ * handshake plus the subscription, well under a second.
+ */
+public class Daemon {
+
+    private final static Logger LOG = LogManager.getLogger(Daemon.class);
+
+    private static final Duration STREAMER_CONFIG_MARGIN = Duration.ofMinutes(1L);
+    private static final int DEFAULT_QUOTE_CAPACITY = 4096;
+
+    private final HttpGateway gateway;
+    private final AuthenticationService authentication;
+    private final boolean ownsAuthentication;
+    private final AccountService accounts;
+    private final Supplier<Optional<StreamerConfig>> streamerConfigLoader;
+    private final Consumer<StreamerConfig> streamerConfigStore;
+    private final List<String> symbols;
+    private final QuoteBook book;
+    private final Histogram timeToFirstQuote;
+    private final Counter streamerConfigReuses;
+    private final Counter streamerConfigFetches;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private volatile CompletableFuture<AccessTokenSource> token;
+    private volatile StreamerService streamer;
+
+    public static void main(String[] args) throws InterruptedException {
+        MetricsRegistry.global().exposeMBeans();
+        MetricsRegistry.global().startSnapshotDump(Duration.ofMinutes(1L));
+        Daemon daemon = Daemon.builder().symbols(Arrays.asList(args)).build();
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop, "daemon-shutdown"));
+        daemon.start().join();
+        daemon.awaitStop();
+    }
+
+    /**
+     * @param gateway              defaults to one against the broker
+     * @param authentication       stopped along with the daemon but left to the caller to close; defaults to one with
+     *                             the configuration on disk, which the daemon closes
+     * @param streamerConfigLoader supplies the config saved by an earlier run, defaults to reading it from disk
+     * @param streamerConfigStore  called with every freshly fetched config, defaults to writing it to disk
+     * @param symbols              quotes to stream, defaults to the symbols held across all accounts
+     * @param quoteCapacity        most symbols the book can hold, defaults to 4096
+     */
+    @Builder
+    private Daemon(HttpGateway gateway, AuthenticationService authentication, Supplier<Optional<StreamerConfig>> streamerConfigLoader,
+                   Consumer<StreamerConfig> streamerConfigStore, List<String> symbols, Integer quoteCapacity) {
+        this.gateway = Optional.ofNullable(gateway).orElseGet(() -> HttpGateway.builder().build());
+        this.ownsAuthentication = authentication == null;
+        this.authentication = Optional.ofNullable(authentication).orElseGet(() -> new AuthenticationService(this.gateway));
+        this.accounts = new AccountService(this.gateway, this.authentication.getTokenSource());
+        this.streamerConfigLoader = Optional.ofNullable(streamerConfigLoader).orElse(ConfigurationFactory::loadStreamerConfig);
+        this.streamerConfigStore = Optional.ofNullable(streamerConfigStore).orElse(ConfigurationFactory::saveStreamerConfig);
+        this.symbols = Optional.ofNullable(symbols).orElse(List.of());
+        this.book = new QuoteBook(Optional.ofNullable(quoteCapacity).orElse(DEFAULT_QUOTE_CAPACITY));
+        MetricsRegistry metrics = this.gateway.getMetrics();
+        this.timeToFirstQuote = metrics.histogram("startup", "time to first quote", MetricsRegistry.NANOSECONDS);
+        this.streamerConfigReuses = metrics.counter("startup", "streamer config reuses");
+        this.streamerConfigFetches = metrics.counter("startup", "streamer config fetches");
+    }
+
+    /**
+     * @return completes with the nanoseconds until the first quote arrived
+     */
+    public CompletableFuture<Long> start() {
+        long begin = System.nanoTime();
+        CompletableFuture<Optional<StreamerConfig>> saved = CompletableFuture.supplyAsync(() ->
+                streamerConfigLoader.get().filter(config -> config.isValidFor(STREAMER_CONFIG_MARGIN)));
+        CompletableFuture<AccessTokenSource> token = authentication.startAsync();
+        this.token = token;
+        UserPrincipalsService principals = new UserPrincipalsService(gateway, authentication.getTokenSource());
+        Supplier<CompletableFuture<StreamerConfig>> fetch = () -> token
+                .thenCompose(x -> principals.getStreamerConfig())
+                .thenApply(config -> {
+                    streamerConfigFetches.increment();
+                    streamerConfigStore.accept(config);
+                    return config;
+                });
+
+        CompletableFuture<StreamerService> connected = saved
+                .thenCompose(config -> config.map(x -> {
+                    streamerConfigReuses.increment();
+                    return CompletableFuture.completedFuture(x);
+                }).orElseGet(fetch))
+                .thenCompose(config -> {
+                    StreamerService started = StreamerService.builder()
+                            .gateway(gateway)
+                            .config(config)
+                            .configSource(fetch)
+                            .build();
+                    started.routeQuotes(book);
+                    streamer = started;
+                    return started.startAsync().thenApply(x -> started);
+                });
+        CompletableFuture<Collection<String>> universe = symbols.isEmpty()
+                ? token.thenCompose(x -> accounts.getAccounts()).thenApply(Daemon::heldSymbols)
+                : CompletableFuture.completedFuture(symbols);
+
+        return connected.thenCombine(universe, (started, subscribed) -> {
+            if (subscribed.isEmpty()) {
+                throw new IllegalStateException("no symbols to stream");
+            }
+            return started.subscribeQuotes(subscribed, book).thenCompose(x -> started.firstQuote());
+        }).thenCompose(x -> x).thenApply(firstQuoteNanos -> {
+            long elapsed = firstQuoteNanos - begin;
+            timeToFirstQuote.record(elapsed);
+            LOG.info("first quote {} ms after start", TimeUnit.NANOSECONDS.toMillis(elapsed));
+            return elapsed;
+        });
+    }
+
+    public QuoteBook getBook() {
+        return book;
+    }
+
+    /**
+     * Fetches all accounts once the access token of the current start is in.
+     */
+    public CompletableFuture<List<Account>> getAccounts() {
+        return Optional.ofNullable(token)
+                .orElseThrow(() -> new IllegalStateException("daemon not started"))
+                .thenCompose(x -> accounts.getAccounts());
+    }
+
+    public void stop() {
+        Optional.ofNullable(streamer).ifPresent(StreamerService::close);
+        if (ownsAuthentication) {
+            authentication.close();
+        } else {
+            authentication.stop();
+        }
+        stopped.countDown();
+    }
+
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    private static Collection<String> heldSymbols(List<Account> accounts) {
+        return accounts.stream()
+                .flatMap(account -> account.getPositions().stream())
+                .filter(position -> "EQUITY".equals(position.getAssetType()))
+                .map(Position::getSymbol)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+}
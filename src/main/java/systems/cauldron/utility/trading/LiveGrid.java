@@ -0,0 +1,155 @@
+package systems.cauldron.utility.trading;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.util.Callback;
+import systems.cauldron.utility.trading.core.Account;
+import systems.cauldron.utility.trading.core.Counter;
+import systems.cauldron.utility.trading.core.DirtyIds;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.Position;
+import systems.cauldron.utility.trading.core.QuoteBook;
+import systems.cauldron.utility.trading.core.QuoteSnapshot;
+import systems.cauldron.utility.trading.core.SymbolTable;
+
+import java.util.Collection;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Live positions and quotes for every symbol of a {@link QuoteBook}, one {@link QuoteRow} per symbol across all
+ * accounts. A quote update only marks its row in a {@link DirtyIds} on the streamer thread; once per pulse the FX
+ * thread drains the marks and copies the latest quote of each marked row into its properties. A burst of ticks thus
+ * costs at most one update per row per frame, and nothing is queued onto the FX thread with {@code runLater}. The
+ * {@link TableView} only keeps cells for the visible rows, which observe the row properties.
+ */
+public class LiveGrid {
+
+    private final QuoteBook book;
+    private final SymbolTable symbols;
+    private final DirtyIds dirty;
+    private final QuoteRow[] rowsById;
+    private final QuoteSnapshot quote = new QuoteSnapshot();
+    private final TableView<QuoteRow> table = new TableView<>();
+    private final Counter rowsApplied;
+    private final Counter batches;
+    private final IntConsumer mark;
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            applyDirtyRows();
+        }
+    };
+
+    public LiveGrid(QuoteBook book, MetricsRegistry metrics) {
+        this.book = book;
+        this.symbols = book.getSymbols();
+        this.dirty = new DirtyIds(symbols.capacity());
+        this.mark = dirty::mark;
+        this.rowsById = new QuoteRow[symbols.capacity()];
+        this.rowsApplied = metrics.counter("grid", "rows applied");
+        this.batches = metrics.counter("grid", "batches");
+        table.setPlaceholder(new Label("waiting for quotes"));
+        table.getColumns().add(textColumn("Symbol", QuoteRow::getSymbol));
+        table.getColumns().add(numberColumn("Quantity", QuoteRow::quantityProperty, "%,.0f"));
+        table.getColumns().add(numberColumn("Avg Price", QuoteRow::averagePriceProperty, "%,.2f"));
+        table.getColumns().add(numberColumn("Bid", QuoteRow::bidProperty, "%,.2f"));
+        table.getColumns().add(numberColumn("Ask", QuoteRow::askProperty, "%,.2f"));
+        table.getColumns().add(numberColumn("Last", QuoteRow::lastProperty, "%,.2f"));
+        table.getColumns().add(numberColumn("Volume", QuoteRow::volumeProperty, "%,d"));
+        table.getColumns().add(numberColumn("Market Value", QuoteRow::marketValueProperty, "%,.2f"));
+        table.getColumns().add(numberColumn("Unrealized P&L", QuoteRow::unrealizedProfitLossProperty, "%,.2f"));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+    }
+
+    public TableView<QuoteRow> getTable() {
+        return table;
+    }
+
+    /**
+     * Starts marking quote updates and applying them every pulse; call on the FX thread.
+     */
+    public void start() {
+        book.addUpdateListener(mark);
+        // rows the book already holds quotes for
+        for (int id = 0; id < symbols.size(); id++) {
+            dirty.mark(id);
+        }
+        pulse.start();
+    }
+
+    public void stop() {
+        pulse.stop();
+        book.removeUpdateListener(mark);
+    }
+
+    /**
+     * Replaces the position columns with the given accounts' holdings, summed per symbol; call on the FX thread.
+     * Symbols no longer held keep their row with a zero position.
+     */
+    public void setPositions(Collection<Account> accounts) {
+        double[] quantities = new double[rowsById.length];
+        double[] costs = new double[rowsById.length];
+        for (Account account : accounts) {
+            for (Position position : account.getPositions()) {
+                int id = symbols.intern(position.getSymbol());
+                double quantity = position.getLongQuantity() - position.getShortQuantity();
+                quantities[id] += quantity;
+                costs[id] += quantity * position.getAveragePrice();
+            }
+        }
+        for (int id = 0; id < symbols.size(); id++) {
+            if (quantities[id] != 0.0 || rowsById[id] != null) {
+                row(id).setPosition(quantities[id], quantities[id] != 0.0 ? costs[id] / quantities[id] : 0.0);
+            }
+        }
+    }
+
+    private void applyDirtyRows() {
+        int applied = dirty.drain(id -> {
+            if (book.read(id, quote)) {
+                row(id).setQuote(quote);
+            }
+        });
+        if (applied > 0) {
+            rowsApplied.add(applied);
+            batches.increment();
+        }
+    }
+
+    private QuoteRow row(int id) {
+        QuoteRow row = rowsById[id];
+        if (row == null) {
+            row = new QuoteRow(symbols.symbol(id));
+            rowsById[id] = row;
+            table.getItems().add(row);
+        }
+        return row;
+    }
+
+    private static TableColumn<QuoteRow, String> textColumn(String title, Function<QuoteRow, String> value) {
+        TableColumn<QuoteRow, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(features -> new ReadOnlyStringWrapper(value.apply(features.getValue())));
+        return column;
+    }
+
+    private static TableColumn<QuoteRow, Number> numberColumn(String title, Function<QuoteRow, ObservableValue<Number>> property, String format) {
+        TableColumn<QuoteRow, Number> column = new TableColumn<>(title);
+        column.setCellValueFactory(features -> property.apply(features.getValue()));
+        Callback<TableColumn<QuoteRow, Number>, TableCell<QuoteRow, Number>> cells = c -> new TableCell<>() {
+            @Override
+            protected void updateItem(Number item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null || Double.isNaN(item.doubleValue()) ? null : String.format(format, item));
+            }
+        };
+        column.setCellFactory(cells);
+        column.setStyle("-fx-alignment: CENTER-RIGHT;");
+        return column;
+    }
+}
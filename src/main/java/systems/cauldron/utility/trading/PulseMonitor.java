@@ -0,0 +1,117 @@
+package systems.cauldron.utility.trading;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import systems.cauldron.utility.trading.core.Counter;
+import systems.cauldron.utility.trading.core.Histogram;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * On-screen readout of how hard the FX thread works. Each pulse is timed from its animation phase to the end of its
+ * layout phase, which covers animation timers (including {@link LiveGrid} batches), CSS and layout; utilization is
+ * that time over wall time. A frame counts as dropped for every nominal frame interval (60 per second unless set
+ * with {@code javafx.animation.pulse}) beyond the first between two pulses. Start it before any other animation timer
+ * so that their work falls inside the measured span.
+ */
+public class PulseMonitor {
+
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1L);
+
+    private final Label overlay = new Label();
+    private final LongSupplier rowsApplied;
+    private final long frameNanos;
+    private final Histogram pulseTime;
+    private final Counter droppedFrames;
+    private final Runnable pulseEnd = this::onPulseEnd;
+    private final AnimationTimer pulseStart = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            onPulseStart();
+        }
+    };
+
+    // only touched on the FX thread
+    private Scene scene;
+    private long currentPulseStart;
+    private long lastPulseStart;
+    private long windowStart;
+    private long windowBusy;
+    private long windowDropped;
+    private long windowRowsApplied;
+
+    /**
+     * @param rowsApplied running total of grid rows updated, shown as a rate
+     */
+    public PulseMonitor(MetricsRegistry metrics, LongSupplier rowsApplied) {
+        this.rowsApplied = rowsApplied;
+        this.frameNanos = TimeUnit.SECONDS.toNanos(1L) / Integer.getInteger("javafx.animation.pulse", 60);
+        this.pulseTime = metrics.histogram("fx", "pulse", MetricsRegistry.NANOSECONDS);
+        this.droppedFrames = metrics.counter("fx", "dropped frames");
+        overlay.setMouseTransparent(true);
+        overlay.setStyle("-fx-background-color: rgba(0, 0, 0, 0.6); -fx-text-fill: white; -fx-padding: 4 8; -fx-font-family: monospace;");
+    }
+
+    public Label getOverlay() {
+        return overlay;
+    }
+
+    /**
+     * Call on the FX thread.
+     */
+    public void start(Scene scene) {
+        this.scene = scene;
+        scene.addPostLayoutPulseListener(pulseEnd);
+        windowStart = System.nanoTime();
+        windowRowsApplied = rowsApplied.getAsLong();
+        pulseStart.start();
+    }
+
+    public void stop() {
+        pulseStart.stop();
+        if (scene != null) {
+            scene.removePostLayoutPulseListener(pulseEnd);
+            scene = null;
+        }
+    }
+
+    private void onPulseStart() {
+        long now = System.nanoTime();
+        if (lastPulseStart != 0L) {
+            long missed = (now - lastPulseStart - frameNanos / 2) / frameNanos;
+            if (missed > 0L) {
+                windowDropped += missed;
+                droppedFrames.add(missed);
+            }
+        }
+        lastPulseStart = now;
+        currentPulseStart = now;
+        if (now - windowStart >= REPORT_INTERVAL_NANOS) {
+            report(now);
+        }
+    }
+
+    private void onPulseEnd() {
+        if (currentPulseStart == 0L) {
+            return;
+        }
+        long busy = System.nanoTime() - currentPulseStart;
+        currentPulseStart = 0L;
+        windowBusy += busy;
+        pulseTime.record(busy);
+    }
+
+    private void report(long now) {
+        long elapsed = now - windowStart;
+        long applied = rowsApplied.getAsLong();
+        overlay.setText(String.format("FX %3.0f%% busy  %d dropped  %,d rows/s",
+                100.0 * windowBusy / elapsed, windowDropped, (applied - windowRowsApplied) * REPORT_INTERVAL_NANOS / elapsed));
+        windowStart = now;
+        windowBusy = 0L;
+        windowDropped = 0L;
+        windowRowsApplied = applied;
+    }
+}
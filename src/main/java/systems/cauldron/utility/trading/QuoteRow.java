@@ -0,0 +1,92 @@
+package systems.cauldron.utility.trading;
+
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyLongProperty;
+import javafx.beans.property.ReadOnlyLongWrapper;
+import systems.cauldron.utility.trading.core.QuoteSnapshot;
+
+/**
+ * One symbol of the {@link LiveGrid}, aggregated across all accounts. Created once per symbol and updated in place on
+ * the FX thread, so visible cells only see property changes and nothing is ever re-created.
+ */
+public class QuoteRow {
+
+    private final String symbol;
+    private final ReadOnlyDoubleWrapper quantity = new ReadOnlyDoubleWrapper();
+    private final ReadOnlyDoubleWrapper averagePrice = new ReadOnlyDoubleWrapper();
+    private final ReadOnlyDoubleWrapper bid = new ReadOnlyDoubleWrapper(Double.NaN);
+    private final ReadOnlyDoubleWrapper ask = new ReadOnlyDoubleWrapper(Double.NaN);
+    private final ReadOnlyDoubleWrapper last = new ReadOnlyDoubleWrapper(Double.NaN);
+    private final ReadOnlyLongWrapper volume = new ReadOnlyLongWrapper();
+    private final ReadOnlyDoubleWrapper marketValue = new ReadOnlyDoubleWrapper();
+    private final ReadOnlyDoubleWrapper unrealizedProfitLoss = new ReadOnlyDoubleWrapper();
+
+    QuoteRow(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public ReadOnlyDoubleProperty quantityProperty() {
+        return quantity.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty averagePriceProperty() {
+        return averagePrice.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty bidProperty() {
+        return bid.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty askProperty() {
+        return ask.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty lastProperty() {
+        return last.getReadOnlyProperty();
+    }
+
+    public ReadOnlyLongProperty volumeProperty() {
+        return volume.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty marketValueProperty() {
+        return marketValue.getReadOnlyProperty();
+    }
+
+    public ReadOnlyDoubleProperty unrealizedProfitLossProperty() {
+        return unrealizedProfitLoss.getReadOnlyProperty();
+    }
+
+    /**
+     * @param quantity     net quantity across all accounts, short positions negative
+     * @param averagePrice quantity-weighted across all accounts
+     */
+    void setPosition(double quantity, double averagePrice) {
+        this.quantity.set(quantity);
+        this.averagePrice.set(averagePrice);
+        revalue();
+    }
+
+    void setQuote(QuoteSnapshot quote) {
+        bid.set(quote.getBid());
+        ask.set(quote.getAsk());
+        last.set(quote.getLast());
+        volume.set(quote.getVolume());
+        revalue();
+    }
+
+    private void revalue() {
+        double price = last.get();
+        if (Double.isNaN(price)) {
+            return;
+        }
+        double held = quantity.get();
+        marketValue.set(held * price);
+        unrealizedProfitLoss.set(held * (price - averagePrice.get()));
+    }
+}
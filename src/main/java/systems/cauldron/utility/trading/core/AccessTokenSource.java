@@ -0,0 +1,43 @@
+package systems.cauldron.utility.trading.core;
+
+import java.util.function.Supplier;
+
+/**
+ * Current access token plus the {@code Authorization} header value carrying it.
+ */
+@FunctionalInterface
+public interface AccessTokenSource extends Supplier<String> {
+
+    default String authorizationHeader() {
+        return "Bearer " + get();
+    }
+
+    /**
+     * Adapts a plain token supplier so that the header is only rebuilt when the supplied token instance changes.
+     */
+    static AccessTokenSource of(Supplier<String> tokens) {
+        if (tokens instanceof AccessTokenSource) {
+            return (AccessTokenSource) tokens;
+        }
+        return new AccessTokenSource() {
+
+            private volatile String[] last = new String[2];
+
+            @Override
+            public String get() {
+                return tokens.get();
+            }
+
+            @Override
+            public String authorizationHeader() {
+                String token = tokens.get();
+                String[] current = last;
+                if (current[0] != token) {
+                    current = new String[]{token, "Bearer " + token};
+                    last = current;
+                }
+                return current[1];
+            }
+        };
+    }
+}
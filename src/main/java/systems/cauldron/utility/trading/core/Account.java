@@ -0,0 +1,15 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@Builder
+public class Account {
+    private final String accountId;
+    private final String type;
+    private final FixedPoint totalCash;
+    private final List<Position> positions;
+}
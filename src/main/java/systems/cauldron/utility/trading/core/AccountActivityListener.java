@@ -0,0 +1,10 @@
+package systems.cauldron.utility.trading.core;
+
+/**
+ * Receives each {@code ACCT_ACTIVITY} content item: the account number, the message type (e.g. {@code OrderFill},
+ * {@code OrderEntryRequest}, {@code UROUT}) and the raw XML message body.
+ */
+@FunctionalInterface
+public interface AccountActivityListener {
+    void onActivity(String accountId, String messageType, String messageContent);
+}
@@ -0,0 +1,244 @@
+package systems.cauldron.utility.trading.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Account snapshots loaded once and then kept current by {@code ACCT_ACTIVITY} events: every order entry, fill or
+ * cancel invalidates the affected account and refetches it in the background. A periodic full resync guards against
+ * missed events.
+ */
+public class AccountCache implements AccountActivityListener, StreamerGapListener, AutoCloseable {
+
+    private final static Logger LOG = LogManager.getLogger(AccountCache.class);
+
+    public enum Freshness {
+        /**
+         * Serve whatever is cached, loading only if nothing has been loaded yet.
+         */
+        CACHED,
+        /**
+         * Go to the broker and update the cache with the result.
+         */
+        FRESH
+    }
+
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(5L);
+
+    private static final Set<String> INVALIDATING_MESSAGE_TYPES = Set.of(
+            "OrderEntryRequest",
+            "OrderFill",
+            "OrderPartialFill",
+            "OrderCancelReplaceRequest",
+            "OrderRejection",
+            "UROUT",
+            "BrokenTrade",
+            "ManualExecution"
+    );
+
+    private final Supplier<CompletableFuture<List<Account>>> loader;
+    private final Function<String, CompletableFuture<Account>> reloader;
+    private final ScheduledExecutorService resyncer;
+
+    private final Map<String, Loaded> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Refresh> refreshing = new ConcurrentHashMap<>();
+    private final AtomicLong loadSequence = new AtomicLong();
+    private volatile CompletableFuture<Map<String, Account>> fullSync;
+
+    public AccountCache(AccountService accountService) {
+        this(accountService, DEFAULT_TTL);
+    }
+
+    /**
+     * Loads always go past any response cache in the gateway, as they are made exactly because something changed.
+     */
+    public AccountCache(AccountService accountService, Duration ttl) {
+        this(() -> {
+            accountService.invalidate();
+            return accountService.getAccounts();
+        }, accountId -> {
+            accountService.invalidate(accountId);
+            return accountService.getAccount(accountId);
+        }, ttl);
+    }
+
+    public AccountCache(Supplier<CompletableFuture<List<Account>>> loader, Function<String, CompletableFuture<Account>> reloader, Duration ttl) {
+        this.loader = loader;
+        this.reloader = reloader;
+        this.resyncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "account-cache-resync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long ttlMillis = ttl.toMillis();
+        this.resyncer.scheduleAtFixedRate(() -> resync().exceptionally(ex -> {
+            LOG.error("scheduled account resync failed", ex);
+            return null;
+        }), ttlMillis, ttlMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<Map<String, Account>> getAccounts(Freshness freshness) {
+        CompletableFuture<Map<String, Account>> loaded = fullSync;
+        if (freshness == Freshness.FRESH || loaded == null || loaded.isCompletedExceptionally()) {
+            return resync();
+        }
+        return loaded.isDone() ? CompletableFuture.completedFuture(snapshot()) : loaded;
+    }
+
+    public CompletableFuture<Map<String, FixedPoint>> getAvailableCashBalances(Freshness freshness) {
+        return getAccounts(freshness).thenApply(snapshot -> snapshot.values().stream()
+                .collect(Collectors.toMap(Account::getAccountId, Account::getTotalCash)));
+    }
+
+    /**
+     * Replaces the whole cache with a full reload, except for accounts refreshed since the reload was sent.
+     */
+    public synchronized CompletableFuture<Map<String, Account>> resync() {
+        CompletableFuture<Map<String, Account>> current = fullSync;
+        if (current != null && !current.isDone()) {
+            return current;
+        }
+        long sequence = loadSequence.incrementAndGet();
+        CompletableFuture<Map<String, Account>> next = loader.get().thenApply(loaded -> {
+            Set<String> ids = loaded.stream().map(Account::getAccountId).collect(Collectors.toSet());
+            accounts.entrySet().removeIf(e -> !ids.contains(e.getKey()) && e.getValue().sequence < sequence);
+            loaded.forEach(a -> store(a, sequence));
+            LOG.info("resynchronized {} accounts", loaded.size());
+            return snapshot();
+        });
+        fullSync = next;
+        return next;
+    }
+
+    @Override
+    public void onActivity(String accountId, String messageType, String messageContent) {
+        if (accountId != null && INVALIDATING_MESSAGE_TYPES.contains(messageType)) {
+            invalidate(accountId);
+        }
+    }
+
+    /**
+     * Activity may have been missed, so nothing cached can be trusted until a full reload.
+     */
+    @Override
+    public void onGap(String service, Cause cause) {
+        if (service == null || "ACCT_ACTIVITY".equals(service)) {
+            LOG.info("resyncing accounts after streamer gap ({})", cause);
+            resync();
+        }
+    }
+
+    /**
+     * Refetches one account in the background; invalidations arriving mid-refresh trigger one more refresh after it,
+     * and are answered with that one, since the refresh in flight may have been sent before what they invalidate for.
+     */
+    public CompletableFuture<Account> invalidate(String accountId) {
+        Refresh started = new Refresh(new CompletableFuture<>());
+        // joining a refresh and ending one both happen inside compute, so an invalidation is either seen by the
+        // refresh in flight or starts the next one
+        Refresh refresh = refreshing.compute(accountId, (id, current) -> {
+            if (current == null) {
+                return started;
+            }
+            if (current.next == null) {
+                current.next = new CompletableFuture<>();
+            }
+            return current;
+        });
+        if (refresh != started) {
+            return refresh.next;
+        }
+        refresh(accountId, started);
+        return started.pending;
+    }
+
+    private void refresh(String accountId, Refresh refresh) {
+        long sequence = loadSequence.incrementAndGet();
+        CompletableFuture<Account> loading;
+        try {
+            loading = reloader.apply(accountId);
+        } catch (RuntimeException ex) {
+            loading = CompletableFuture.failedFuture(ex);
+        }
+        loading.whenComplete((account, ex) -> {
+            if (ex != null) {
+                LOG.error("failed to refresh account {}", accountId, ex);
+            } else {
+                store(account, sequence);
+            }
+            Refresh[] next = new Refresh[1];
+            refreshing.compute(accountId, (id, current) -> {
+                if (current.next == null) {
+                    return null;
+                }
+                next[0] = new Refresh(current.next);
+                return next[0];
+            });
+            if (next[0] != null) {
+                refresh(accountId, next[0]);
+            }
+            if (ex != null) {
+                refresh.pending.completeExceptionally(ex);
+            } else {
+                refresh.pending.complete(account);
+            }
+        });
+    }
+
+    /**
+     * Keeps whichever of the cached and the given snapshot was requested last.
+     */
+    private void store(Account account, long sequence) {
+        accounts.merge(account.getAccountId(), new Loaded(account, sequence),
+                (cached, loaded) -> cached.sequence > loaded.sequence ? cached : loaded);
+    }
+
+    private Map<String, Account> snapshot() {
+        return accounts.values().stream().collect(Collectors.toUnmodifiableMap(l -> l.account.getAccountId(), l -> l.account));
+    }
+
+    @Override
+    public void close() {
+        resyncer.shutdownNow();
+    }
+
+    private static class Loaded {
+        private final Account account;
+        /**
+         * Order in which the load was sent, shared by full and single account loads.
+         */
+        private final long sequence;
+
+        private Loaded(Account account, long sequence) {
+            this.account = account;
+            this.sequence = sequence;
+        }
+    }
+
+    private static class Refresh {
+        private final CompletableFuture<Account> pending;
+        /**
+         * Handed to invalidations arriving mid-refresh and completed by the refresh they cause; set once, inside
+         * {@code compute}.
+         */
+        private CompletableFuture<Account> next;
+
+        private Refresh(CompletableFuture<Account> pending) {
+            this.pending = pending;
+        }
+    }
+}
@@ -5,7 +5,6 @@ import javax.json.JsonObject;
 import javax.json.JsonWriter;
 import javax.json.JsonWriterFactory;
 import javax.json.stream.JsonGenerator;
-import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -15,12 +14,19 @@ import java.util.stream.Collectors;
 
 public class AccountService {
 
-    private static final String ACCOUNTS_ENDPOINT = "https://api.tdameritrade.com/v1/accounts";
+    private static final String ACCOUNTS_PATH = "/v1/accounts";
+    private static final String ACCOUNT_PATH = "/v1/accounts/%s";
 
-    private final Supplier<String> accessTokenSource;
+    private final HttpGateway gateway;
+    private final AccessTokenSource accessTokenSource;
+    private final String accountsEndpoint;
+    private final String accountEndpoint;
 
-    public AccountService(Supplier<String> accessTokenSource) {
-        this.accessTokenSource = accessTokenSource;
+    public AccountService(HttpGateway gateway, Supplier<String> accessTokenSource) {
+        this.gateway = gateway;
+        this.accessTokenSource = AccessTokenSource.of(accessTokenSource);
+        this.accountsEndpoint = gateway.resolve(ACCOUNTS_PATH);
+        this.accountEndpoint = gateway.resolve(ACCOUNT_PATH);
     }
 
     private static final JsonWriterFactory WRITER_FACTORY = Json.createWriterFactory(Map.of(JsonGenerator.PRETTY_PRINTING, true));
@@ -33,18 +39,36 @@ public class AccountService {
         })).join();
     }
 
-    public CompletableFuture<Map<String, BigDecimal>> getAvailableCashBalances() {
-        return doAccountsCall().thenApply(accounts -> accounts.stream()
-                .map(o -> o.getJsonObject("securitiesAccount"))
-                .collect(Collectors.toMap(
-                        o -> o.getString("accountId"),
-                        o -> o.getJsonObject("initialBalances")
-                                .getJsonNumber("totalCash").bigDecimalValue()
-                )));
+    public CompletableFuture<Map<String, FixedPoint>> getAvailableCashBalances() {
+        return gateway.doAuthorizedGetForDecoded(accountsEndpoint, accessTokenSource, Collections.emptyMap(), AccountsDecoder.BALANCES)
+                .thenApply(accounts -> accounts.stream().collect(Collectors.toMap(Account::getAccountId, Account::getTotalCash)));
+    }
+
+    public CompletableFuture<List<Account>> getAccounts() {
+        return gateway.doAuthorizedGetForDecoded(accountsEndpoint, accessTokenSource, Map.of(
+                "fields", Collections.singletonList("positions")
+        ), AccountsDecoder.WITH_POSITIONS);
+    }
+
+    public CompletableFuture<Account> getAccount(String accountId) {
+        return gateway.doAuthorizedGetForDecoded(String.format(accountEndpoint, accountId), accessTokenSource, Map.of(
+                "fields", Collections.singletonList("positions")
+        ), AccountsDecoder.WITH_POSITIONS).thenApply(accounts -> accounts.get(0));
+    }
+
+    /**
+     * Makes the next fetch of every account go to the broker, even where the gateway caches account responses.
+     */
+    public void invalidate() {
+        gateway.invalidate(accountsEndpoint);
+    }
+
+    public void invalidate(String accountId) {
+        gateway.invalidate(String.format(accountEndpoint, accountId));
     }
 
     private CompletableFuture<List<JsonObject>> doAccountsCall() {
-        return HttpGateway.doAuthorizedGetForJsonList(ACCOUNTS_ENDPOINT, accessTokenSource, Map.of(
+        return gateway.doAuthorizedGetForJsonList(accountsEndpoint, accessTokenSource, Map.of(
                 "fields", Collections.singletonList("positions")
         ));
     }
@@ -0,0 +1,157 @@
+package systems.cauldron.utility.trading.core;
+
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParsingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Streaming decoder for the {@code /v1/accounts} response, following the securitiesAccount schemas in
+ * {@code accounts.json}, {@code account.json} (MarginAccount) and {@code cashaccount.json} (CashAccount).
+ * Only the fields mapped onto {@link Account} and {@link Position} are read; everything else is skipped by the parser.
+ */
+public class AccountsDecoder implements Function<JsonParser, List<Account>> {
+
+    public static final AccountsDecoder BALANCES = new AccountsDecoder(false);
+    public static final AccountsDecoder WITH_POSITIONS = new AccountsDecoder(true);
+
+    private final boolean includePositions;
+
+    private AccountsDecoder(boolean includePositions) {
+        this.includePositions = includePositions;
+    }
+
+    /**
+     * Accepts both the account list and the single account ({@code /v1/accounts/{id}}) response shapes.
+     */
+    @Override
+    public List<Account> apply(JsonParser parser) {
+        List<Account> accounts = new ArrayList<>();
+        switch (parser.next()) {
+            case START_ARRAY:
+                while (parser.next() == JsonParser.Event.START_OBJECT) {
+                    readAccount(parser, accounts);
+                }
+                break;
+            case START_OBJECT:
+                readAccount(parser, accounts);
+                break;
+            default:
+                throw new JsonParsingException("expected account array or object", parser.getLocation());
+        }
+        return accounts;
+    }
+
+    private void readAccount(JsonParser parser, List<Account> accounts) {
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            if ("securitiesAccount".equals(parser.getString())) {
+                JsonStreams.expect(parser, JsonParser.Event.START_OBJECT);
+                accounts.add(readSecuritiesAccount(parser));
+            } else {
+                JsonStreams.skipValue(parser);
+            }
+        }
+    }
+
+    private Account readSecuritiesAccount(JsonParser parser) {
+        Account.AccountBuilder account = Account.builder().positions(Collections.emptyList());
+        FixedPoint initialTotalCash = null;
+        FixedPoint currentTotalCash = null;
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            switch (parser.getString()) {
+                case "accountId":
+                    account.accountId(JsonStreams.readString(parser));
+                    break;
+                case "type":
+                    account.type(JsonStreams.readString(parser));
+                    break;
+                case "initialBalances":
+                    initialTotalCash = readTotalCash(parser);
+                    break;
+                case "currentBalances":
+                    currentTotalCash = readTotalCash(parser);
+                    break;
+                case "positions":
+                    if (includePositions) {
+                        account.positions(readPositions(parser));
+                    } else {
+                        JsonStreams.skipValue(parser);
+                    }
+                    break;
+                default:
+                    JsonStreams.skipValue(parser);
+                    break;
+            }
+        }
+        // CashAccount initialBalances carries no totalCash, so fall back onto currentBalances
+        return account.totalCash(initialTotalCash != null ? initialTotalCash : currentTotalCash).build();
+    }
+
+    private static FixedPoint readTotalCash(JsonParser parser) {
+        FixedPoint totalCash = null;
+        JsonStreams.expect(parser, JsonParser.Event.START_OBJECT);
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            if ("totalCash".equals(parser.getString())) {
+                JsonStreams.expect(parser, JsonParser.Event.VALUE_NUMBER);
+                totalCash = FixedPoint.parse(parser.getString());
+            } else {
+                JsonStreams.skipValue(parser);
+            }
+        }
+        return totalCash;
+    }
+
+    private static List<Position> readPositions(JsonParser parser) {
+        List<Position> positions = new ArrayList<>();
+        JsonStreams.expect(parser, JsonParser.Event.START_ARRAY);
+        while (parser.next() == JsonParser.Event.START_OBJECT) {
+            positions.add(readPosition(parser));
+        }
+        return positions;
+    }
+
+    private static Position readPosition(JsonParser parser) {
+        Position.PositionBuilder position = Position.builder();
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            switch (parser.getString()) {
+                case "longQuantity":
+                    position.longQuantity(JsonStreams.readDouble(parser));
+                    break;
+                case "shortQuantity":
+                    position.shortQuantity(JsonStreams.readDouble(parser));
+                    break;
+                case "averagePrice":
+                    position.averagePrice(JsonStreams.readDouble(parser));
+                    break;
+                case "currentDayProfitLoss":
+                    position.currentDayProfitLoss(JsonStreams.readDouble(parser));
+                    break;
+                case "marketValue":
+                    position.marketValue(JsonStreams.readDouble(parser));
+                    break;
+                case "instrument":
+                    JsonStreams.expect(parser, JsonParser.Event.START_OBJECT);
+                    while (parser.next() == JsonParser.Event.KEY_NAME) {
+                        switch (parser.getString()) {
+                            case "symbol":
+                                position.symbol(JsonStreams.readString(parser));
+                                break;
+                            case "assetType":
+                                position.assetType(JsonStreams.readString(parser));
+                                break;
+                            default:
+                                JsonStreams.skipValue(parser);
+                                break;
+                        }
+                    }
+                    break;
+                default:
+                    JsonStreams.skipValue(parser);
+                    break;
+            }
+        }
+        return position.build();
+    }
+}
@@ -3,108 +3,248 @@ package systems.cauldron.utility.trading.core;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javax.json.JsonObject;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
-public class AuthenticationService {
+/**
+ * Keeps a valid access token available without blocking. All refreshes run off one scheduler thread and happen a
+ * safety margin ahead of expiry, so in-flight requests never carry a token that is about to lapse. The token and its
+ * prebuilt authorization header are published together in a single atomic swap. Failed renewals, of the access token
+ * and of the refresh token alike, are retried with backoff.
+ */
+public class AuthenticationService implements AutoCloseable {
 
-    private static final String AUTHENTICATION_ENDPOINT = "https://api.tdameritrade.com/v1/oauth2/token";
+    private static final String AUTHENTICATION_PATH = "/v1/oauth2/token";
     private final static Logger LOG = LogManager.getLogger(AuthenticationService.class);
 
+    private static final long REFRESH_MARGIN_SECONDS = 300L;
+    private static final long RETRY_INITIAL_SECONDS = 5L;
+    private static final long RETRY_MAX_SECONDS = 60L;
+
+    private final HttpGateway gateway;
     private final Configuration configuration;
+    private final Consumer<Configuration> configurationStore;
+    private final String authenticationEndpoint;
+    private final Counter initializations;
+    private final Counter refreshes;
+    private final Counter failures;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "token-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<Credential> credential = new AtomicReference<>();
+    private final AccessTokenSource tokenSource = new AccessTokenSource() {
+        @Override
+        public String get() {
+            return current().token;
+        }
 
-    private ScheduledExecutorService reinitializer = null;
-    private final AtomicReference<ScheduledExecutorService> currentRefresher = new AtomicReference<>();
-    private final AtomicReference<String> currentAccessToken = new AtomicReference<>();
+        @Override
+        public String authorizationHeader() {
+            return current().header;
+        }
+    };
+
+    // guarded by this; bumped on every start and stop so that callbacks of a previous run are ignored
+    private long generation;
+    private ScheduledFuture<?> refreshTask;
+    private ScheduledFuture<?> reinitializeTask;
 
-    public AuthenticationService() {
-        this.configuration = ConfigurationFactory.load();
+    public AuthenticationService(HttpGateway gateway) {
+        this(gateway, ConfigurationFactory.load(), ConfigurationFactory::save);
+    }
+
+    /**
+     * @param configurationStore called whenever the refresh token changes, e.g. to persist it
+     */
+    public AuthenticationService(HttpGateway gateway, Configuration configuration, Consumer<Configuration> configurationStore) {
+        this.gateway = gateway;
+        this.configuration = configuration;
+        this.configurationStore = configurationStore;
+        this.authenticationEndpoint = gateway.resolve(AUTHENTICATION_PATH);
+        this.initializations = gateway.getMetrics().counter("auth", "initializations");
+        this.refreshes = gateway.getMetrics().counter("auth", "refreshes");
+        this.failures = gateway.getMetrics().counter("auth", "failures");
     }
 
     /**
      * Blocks until the initial access token is available via the returned supplier.
      */
-    public synchronized Supplier<String> start() {
-        stop();
-        reinitializer = Executors.newSingleThreadScheduledExecutor();
+    public Supplier<String> start() {
+        return startAsync().join();
+    }
+
+    /**
+     * Fetches the initial access token in the background; the returned source is usable once the future completes.
+     */
+    public synchronized CompletableFuture<AccessTokenSource> startAsync() {
+        long run = restart();
         long secondsUntilRefreshTokenExpiry = configuration.getSecondsBeforeRefreshTokenExpiration();
+        CompletableFuture<Void> first;
         if (secondsUntilRefreshTokenExpiry > 0) {
-            ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor();
-            refresh(configuration.getRefreshToken(), refresher).join();
-            reinitializer.schedule(() -> initialize().join(), secondsUntilRefreshTokenExpiry, TimeUnit.SECONDS);
+            first = refresh(run, configuration.getRefreshToken(), RETRY_INITIAL_SECONDS, false);
+            reinitializeTask = scheduler.schedule(() -> initialize(run, RETRY_INITIAL_SECONDS, true), refreshDelay(secondsUntilRefreshTokenExpiry), TimeUnit.SECONDS);
         } else {
-            initialize().join();
+            first = initialize(run, RETRY_INITIAL_SECONDS, false);
         }
-        return currentAccessToken::get;
+        return first.thenApply(x -> tokenSource);
+    }
+
+    /**
+     * Valid once a start has completed; reads always see the latest token.
+     */
+    public AccessTokenSource getTokenSource() {
+        return tokenSource;
     }
 
     public synchronized void stop() {
-        safeShutdown(reinitializer);
-        reinitializer = null;
-        safeShutdown(currentRefresher.getAndSet(null));
-        ConfigurationFactory.save(configuration);
+        restart();
+        configurationStore.accept(configuration);
+    }
+
+    /**
+     * Stops and releases the refresh thread; the service cannot be started again afterwards.
+     */
+    @Override
+    public void close() {
+        stop();
+        scheduler.shutdownNow();
+    }
+
+    private long restart() {
+        Optional.ofNullable(refreshTask).ifPresent(t -> t.cancel(false));
+        Optional.ofNullable(reinitializeTask).ifPresent(t -> t.cancel(false));
+        refreshTask = null;
+        reinitializeTask = null;
+        return ++generation;
     }
 
-    private CompletableFuture<Void> initialize() {
-        return HttpGateway.doUnauthorizedUrlEncodedPostForJsonObject(AUTHENTICATION_ENDPOINT, Map.of(
+    /**
+     * @param retrySeconds backoff for the next attempt should this one fail
+     * @param retry        whether to retry on failure; the first fetch of a start reports its failure instead
+     */
+    private CompletableFuture<Void> initialize(long run, long retrySeconds, boolean retry) {
+        return gateway.doUnauthorizedUrlEncodedPostForJsonObject(authenticationEndpoint, Map.of(
                 "grant_type", Collections.singletonList("authorization_code"),
                 "code", Collections.singletonList(configuration.getAuthorizationCode()),
                 "client_id", Collections.singletonList(configuration.getClientId()),
                 "redirect_uri", Collections.singletonList(configuration.getRedirectUri()),
                 "access_type", Collections.singletonList("offline")
-        )).thenAccept(response -> {
-            String initialAccessToken = response.getString("access_token");
-            int initialTokenExpiresIn = response.getInt("expires_in");
-            String refreshToken = response.getString("refresh_token");
-            int refreshTokenExpiresIn = response.getInt("refresh_token_expires_in");
-            ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor();
-            refresher.schedule(() -> refresh(refreshToken, refresher).join(), initialTokenExpiresIn, TimeUnit.SECONDS);
-            safeShutdown(currentRefresher.getAndSet(refresher));
-            reinitializer.schedule(() -> initialize().join(), refreshTokenExpiresIn, TimeUnit.SECONDS);
-            currentAccessToken.set(initialAccessToken);
-            LOG.info("successfully initialized access token");
-            LOG.info("next access token refresh: {}", Instant.now().plus(initialTokenExpiresIn, ChronoUnit.SECONDS).toString());
-            LOG.info("next refresh token initialization: {}", Instant.now().plus(refreshTokenExpiresIn, ChronoUnit.SECONDS).toString());
-            configuration.setRefreshToken(refreshToken);
-            configuration.setRefreshTokenExpiry(Instant.now().plus(refreshTokenExpiresIn, ChronoUnit.SECONDS));
-            ConfigurationFactory.save(configuration);
-        });
+        )).handle((response, ex) -> {
+            synchronized (this) {
+                if (run != generation) {
+                    return null;
+                }
+                if (ex != null) {
+                    if (retry) {
+                        LOG.warn("failed to initialize refresh token, retrying in {} seconds", retrySeconds, ex);
+                        long nextRetry = Math.min(RETRY_MAX_SECONDS, retrySeconds * 2L);
+                        reinitializeTask = scheduler.schedule(() -> initialize(run, nextRetry, true), retrySeconds, TimeUnit.SECONDS);
+                    }
+                    return ex;
+                }
+                String refreshToken = response.getString("refresh_token");
+                int refreshTokenExpiresIn = response.getInt("refresh_token_expires_in");
+                long refreshIn = publish(response);
+                Optional.ofNullable(refreshTask).ifPresent(t -> t.cancel(false));
+                refreshTask = scheduler.schedule(() -> refresh(run, refreshToken, RETRY_INITIAL_SECONDS, true), refreshIn, TimeUnit.SECONDS);
+                long reinitializeIn = refreshDelay(refreshTokenExpiresIn);
+                reinitializeTask = scheduler.schedule(() -> initialize(run, RETRY_INITIAL_SECONDS, true), reinitializeIn, TimeUnit.SECONDS);
+                initializations.increment();
+                LOG.info("successfully initialized access token");
+                LOG.info("next access token refresh: {}", Instant.now().plus(refreshIn, ChronoUnit.SECONDS).toString());
+                LOG.info("next refresh token initialization: {}", Instant.now().plus(reinitializeIn, ChronoUnit.SECONDS).toString());
+                configuration.setRefreshToken(refreshToken);
+                configuration.setRefreshTokenExpiry(Instant.now().plus(refreshTokenExpiresIn, ChronoUnit.SECONDS));
+                configurationStore.accept(configuration);
+                return null;
+            }
+        }).thenCompose(ex -> ex == null
+                ? CompletableFuture.<Void>completedFuture(null)
+                : CompletableFuture.<Void>failedFuture(ex)).whenComplete(this::countFailure);
     }
 
-    private CompletableFuture<Void> refresh(String refreshToken, ScheduledExecutorService refresher) {
-        return HttpGateway.doUnauthorizedUrlEncodedPostForJsonObject(AUTHENTICATION_ENDPOINT, Map.of(
+    /**
+     * @param retrySeconds backoff for the next attempt should this one fail
+     * @param retry        whether to retry on failure; the first fetch of a start reports its failure instead
+     */
+    private CompletableFuture<Void> refresh(long run, String refreshToken, long retrySeconds, boolean retry) {
+        return gateway.doUnauthorizedUrlEncodedPostForJsonObject(authenticationEndpoint, Map.of(
                 "grant_type", Collections.singletonList("refresh_token"),
                 "refresh_token", Collections.singletonList(refreshToken),
                 "client_id", Collections.singletonList(configuration.getClientId())
-        )).thenAccept(response -> {
-            String accessToken = response.getString("access_token");
-            int nextTokenExpiresIn = response.getInt("expires_in");
-            refresher.schedule(() -> refresh(refreshToken, refresher).join(), nextTokenExpiresIn, TimeUnit.SECONDS);
-            currentAccessToken.set(accessToken);
-            LOG.info("successfully refreshed access token:{}", accessToken);
-            LOG.info("next access token refresh: {}", Instant.now().plus(nextTokenExpiresIn, ChronoUnit.SECONDS).toString());
-        });
+        )).handle((response, ex) -> {
+            synchronized (this) {
+                if (run != generation) {
+                    return null;
+                }
+                if (ex != null) {
+                    if (retry) {
+                        LOG.warn("failed to refresh access token, retrying in {} seconds", retrySeconds, ex);
+                        long nextRetry = Math.min(RETRY_MAX_SECONDS, retrySeconds * 2L);
+                        refreshTask = scheduler.schedule(() -> refresh(run, refreshToken, nextRetry, true), retrySeconds, TimeUnit.SECONDS);
+                    }
+                    return ex;
+                }
+                long refreshIn = publish(response);
+                refreshTask = scheduler.schedule(() -> refresh(run, refreshToken, RETRY_INITIAL_SECONDS, true), refreshIn, TimeUnit.SECONDS);
+                refreshes.increment();
+                LOG.info("successfully refreshed access token");
+                LOG.info("next access token refresh: {}", Instant.now().plus(refreshIn, ChronoUnit.SECONDS).toString());
+                return null;
+            }
+        }).thenCompose(ex -> ex == null
+                ? CompletableFuture.<Void>completedFuture(null)
+                : CompletableFuture.<Void>failedFuture(ex)).whenComplete(this::countFailure);
     }
 
-    private static void safeShutdown(ScheduledExecutorService service) {
-        if (service != null && !service.isTerminated()) {
-            service.shutdown();
-            try {
-                service.awaitTermination(5L, TimeUnit.SECONDS);
-            } catch (InterruptedException ex) {
-                LOG.info("failed to safely terminate process", ex);
-                service.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+    /**
+     * @return seconds until the published token should be refreshed
+     */
+    private long publish(JsonObject response) {
+        credential.set(new Credential(response.getString("access_token")));
+        return refreshDelay(response.getInt("expires_in"));
+    }
+
+    private void countFailure(Void result, Throwable ex) {
+        if (ex != null) {
+            failures.increment();
+        }
+    }
+
+    private Credential current() {
+        Credential current = credential.get();
+        if (current == null) {
+            throw new IllegalStateException("no access token available yet");
         }
+        return current;
     }
 
+    private static long refreshDelay(long expiresInSeconds) {
+        return expiresInSeconds > 2 * REFRESH_MARGIN_SECONDS ? expiresInSeconds - REFRESH_MARGIN_SECONDS : Math.max(1L, expiresInSeconds / 2);
+    }
+
+    private static class Credential {
+        private final String token;
+        private final String header;
+
+        private Credential(String token) {
+            this.token = token;
+            this.header = "Bearer " + token;
+        }
+    }
 }
@@ -0,0 +1,131 @@
+package systems.cauldron.utility.trading.core;
+
+import javax.json.JsonObject;
+import javax.json.stream.JsonParser;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Blocking face of an {@link HttpGateway}, for code that reads top to bottom instead of as a chain of callbacks.
+ * Every call parks the calling thread until the response is in and throws what the request failed with. Parking is
+ * what virtual threads are cheap at, so {@link #fanOut} runs each call on its own thread from
+ * {@link RequestThreads}, which are virtual on JDK 21 and later.
+ */
+public class BlockingGateway implements AutoCloseable {
+
+    private final HttpGateway gateway;
+    private final ExecutorService requestThreads;
+
+    public BlockingGateway(HttpGateway gateway) {
+        this(gateway, RequestThreads.newExecutor("gateway-request"));
+    }
+
+    /**
+     * @param requestThreads runs the calls of {@link #fanOut}; closed along with this gateway
+     */
+    public BlockingGateway(HttpGateway gateway, ExecutorService requestThreads) {
+        this.gateway = gateway;
+        this.requestThreads = requestThreads;
+    }
+
+    public HttpGateway getGateway() {
+        return gateway;
+    }
+
+    public JsonObject getForJsonObject(String url, AccessTokenSource accessTokenSource, Map<String, List<String>> queryParams) {
+        return await(gateway.doAuthorizedGetForJsonObject(url, accessTokenSource, queryParams));
+    }
+
+    public List<JsonObject> getForJsonList(String url, AccessTokenSource accessTokenSource, Map<String, List<String>> queryParams) {
+        return await(gateway.doAuthorizedGetForJsonList(url, accessTokenSource, queryParams));
+    }
+
+    public <T> T getForDecoded(String url, AccessTokenSource accessTokenSource, Map<String, List<String>> queryParams, Function<JsonParser, T> decoder) {
+        return await(gateway.doAuthorizedGetForDecoded(url, accessTokenSource, queryParams, decoder));
+    }
+
+    /**
+     * @return the id of the created resource
+     */
+    public String postJson(String url, AccessTokenSource accessTokenSource, JsonObject payload) {
+        return await(gateway.doAuthorizedJsonPost(url, accessTokenSource, payload));
+    }
+
+    /**
+     * @return the id of the created resource
+     */
+    public String postJson(String url, AccessTokenSource accessTokenSource, byte[] payload, int length) {
+        return await(gateway.doAuthorizedJsonPost(url, accessTokenSource, payload, length));
+    }
+
+    /**
+     * @return the id of the replacement resource
+     */
+    public String putJson(String url, AccessTokenSource accessTokenSource, byte[] payload, int length) {
+        return await(gateway.doAuthorizedJsonPut(url, accessTokenSource, payload, length));
+    }
+
+    public void delete(String url, AccessTokenSource accessTokenSource) {
+        await(gateway.doAuthorizedDelete(url, accessTokenSource));
+    }
+
+    /**
+     * Calls {@code call} for every input at once, each on its own request thread, and waits for all of them.
+     * Callers that want an outcome per input rather than all-or-nothing should catch inside {@code call}.
+     *
+     * @return the results in input order
+     * @throws RuntimeException the first failure, with any others attached as suppressed
+     */
+    public <T, R> List<R> fanOut(Collection<T> inputs, Function<T, R> call) {
+        List<Future<R>> futures = new ArrayList<>(inputs.size());
+        for (T input : inputs) {
+            futures.add(requestThreads.submit(() -> call.apply(input)));
+        }
+        List<R> results = new ArrayList<>(futures.size());
+        RuntimeException failure = null;
+        for (Future<R> future : futures) {
+            try {
+                results.add(await(future));
+            } catch (RuntimeException ex) {
+                if (failure == null) {
+                    failure = ex;
+                } else if (ex != failure) {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        requestThreads.shutdown();
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a response", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package systems.cauldron.utility.trading.core;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Blocking counterpart of {@link OrderService} over a {@link BlockingGateway}, meant to be called from request threads,
+ * e.g. inside {@link BlockingGateway#fanOut}. Requests go straight out without an {@link OrderScheduler}, so pacing
+ * against the broker's rate limit is up to the caller.
+ */
+public class BlockingOrderService {
+
+    private static final String ACCOUNT_ORDERS_PATH = "/v1/accounts/%s/orders";
+    private static final String ACCOUNT_ORDER_PATH = "/v1/accounts/%s/orders/%s";
+    private static final String ACCOUNTS_PATH = "/v1/accounts";
+
+    private final BlockingGateway gateway;
+    private final AccessTokenSource accessTokenSource;
+    private final String accountOrdersEndpoint;
+    private final String accountOrderEndpoint;
+    private final String accountsEndpoint;
+
+    public BlockingOrderService(BlockingGateway gateway, Supplier<String> accessTokenSource) {
+        this.gateway = gateway;
+        this.accessTokenSource = AccessTokenSource.of(accessTokenSource);
+        this.accountOrdersEndpoint = gateway.getGateway().resolve(ACCOUNT_ORDERS_PATH);
+        this.accountOrderEndpoint = gateway.getGateway().resolve(ACCOUNT_ORDER_PATH);
+        this.accountsEndpoint = gateway.getGateway().resolve(ACCOUNTS_PATH);
+    }
+
+    /**
+     * @return the id of the new order
+     */
+    public String createEquityOrder(String accountId, OrderTemplate.Type type, OrderTemplate.Instruction instruction, FixedPoint price, int quantity, String symbol) {
+        OrderPayload payload = OrderTemplate.of(type, instruction, symbol).render(price, quantity);
+        try {
+            return gateway.postJson(String.format(accountOrdersEndpoint, accountId), accessTokenSource, payload.array(), payload.length());
+        } finally {
+            payload.release();
+            invalidateAccounts();
+        }
+    }
+
+    /**
+     * @return the id of the replacement order
+     */
+    public String replaceEquityOrder(String accountId, String orderId, OrderTemplate.Type type, OrderTemplate.Instruction instruction, FixedPoint price, int quantity, String symbol) {
+        OrderPayload payload = OrderTemplate.of(type, instruction, symbol).render(price, quantity);
+        try {
+            return gateway.putJson(String.format(accountOrderEndpoint, accountId, orderId), accessTokenSource, payload.array(), payload.length());
+        } finally {
+            payload.release();
+            invalidateAccounts();
+        }
+    }
+
+    public void deleteOrder(String accountId, String orderId) {
+        try {
+            gateway.delete(String.format(accountOrderEndpoint, accountId, orderId), accessTokenSource);
+        } finally {
+            invalidateAccounts();
+        }
+    }
+
+    /**
+     * @return the account's orders that can still be canceled
+     */
+    public List<WorkingOrder> getWorkingOrders(String accountId) {
+        return gateway.getForJsonList(String.format(accountOrdersEndpoint, accountId), accessTokenSource, Collections.emptyMap()).stream()
+                .map(o -> WorkingOrder.of(accountId, o))
+                .filter(WorkingOrder::isCancelable)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Same as {@link OrderService}: whatever account responses the gateway has cached are stale once an order request
+     * went out, whether or not its response made it back.
+     */
+    private void invalidateAccounts() {
+        gateway.getGateway().invalidate(accountsEndpoint);
+    }
+}
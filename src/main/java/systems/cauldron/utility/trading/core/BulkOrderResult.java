@@ -0,0 +1,39 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * What happened to one order in a {@link BulkOrderService} operation. A failed order listing is reported as one
+ * failed result for the account, with no order id.
+ */
+@Getter
+@Builder
+public class BulkOrderResult {
+
+    public enum Outcome {
+        CANCELED,
+        REPLACED,
+        SKIPPED,
+        FAILED
+    }
+
+    private final String accountId;
+    private final String orderId;
+    private final String symbol;
+    private final Outcome outcome;
+    private final String replacementOrderId;
+    private final long latencyNanos;
+    private final Throwable failure;
+
+    public boolean isSuccessful() {
+        return outcome != Outcome.FAILED;
+    }
+
+    @Override
+    public String toString() {
+        return accountId + " " + orderId + " " + symbol + " " + outcome
+                + (replacementOrderId == null ? "" : " as " + replacementOrderId)
+                + (failure == null ? "" : " (" + failure + ")");
+    }
+}
@@ -0,0 +1,162 @@
+package systems.cauldron.utility.trading.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cancels or re-prices every working order across many accounts at once. Accounts are worked on side by side and
+ * each keeps up to {@code accountConcurrency} requests of its own in flight, so the wall-clock time is set by the
+ * account with the most orders divided by that limit. Requests still go through the {@link OrderScheduler} behind
+ * the {@link OrderService}, whose rate limit has the final say. Individual failures never fail the whole operation;
+ * every order gets a {@link BulkOrderResult}.
+ */
+public class BulkOrderService {
+
+    private final static Logger LOG = LogManager.getLogger(BulkOrderService.class);
+
+    public static final int DEFAULT_ACCOUNT_CONCURRENCY = 4;
+
+    private final OrderService orderService;
+    private final int accountConcurrency;
+
+    public BulkOrderService(OrderService orderService) {
+        this(orderService, DEFAULT_ACCOUNT_CONCURRENCY);
+    }
+
+    public BulkOrderService(OrderService orderService, int accountConcurrency) {
+        if (accountConcurrency < 1) {
+            throw new IllegalArgumentException("account concurrency must be at least 1");
+        }
+        this.orderService = orderService;
+        this.accountConcurrency = accountConcurrency;
+    }
+
+    public CompletableFuture<List<BulkOrderResult>> cancelAll(Collection<String> accountIds) {
+        return cancelAll(accountIds, null);
+    }
+
+    /**
+     * @param symbol only cancel orders for this symbol, or null for all
+     */
+    public CompletableFuture<List<BulkOrderResult>> cancelAll(Collection<String> accountIds, String symbol) {
+        return forEachOrder(accountIds, symbol, order -> orderService.deleteOrder(order.getAccountId(), order.getOrderId())
+                .thenApply(x -> BulkOrderResult.builder().outcome(BulkOrderResult.Outcome.CANCELED)));
+    }
+
+    /**
+     * Replaces each editable limit or stop order with one at the price the repricer picks for it, keeping the
+     * remaining quantity. Orders it prices at null or at their current price are skipped.
+     *
+     * @param symbol only re-price orders for this symbol, or null for all
+     */
+    public CompletableFuture<List<BulkOrderResult>> replaceAll(Collection<String> accountIds, String symbol, Function<WorkingOrder, FixedPoint> repricer) {
+        return forEachOrder(accountIds, symbol, order -> {
+            if (!order.isEditable() || order.getInstruction() == null || order.getRemainingQuantity() <= 0
+                    || (order.getType() != OrderTemplate.Type.LIMIT && order.getType() != OrderTemplate.Type.STOP)) {
+                return skipped();
+            }
+            FixedPoint price = repricer.apply(order);
+            if (price == null || (order.getPrice() != null && price.equals(order.getPrice()))) {
+                return skipped();
+            }
+            return orderService.replaceEquityOrder(order.getAccountId(), order.getOrderId(), order.getType(), order.getInstruction(), price, order.getRemainingQuantity(), order.getSymbol())
+                    .thenApply(replacementId -> BulkOrderResult.builder()
+                            .outcome(BulkOrderResult.Outcome.REPLACED)
+                            .replacementOrderId(replacementId));
+        });
+    }
+
+    private CompletableFuture<List<BulkOrderResult>> forEachOrder(Collection<String> accountIds, String symbol, Function<WorkingOrder, CompletableFuture<BulkOrderResult.BulkOrderResultBuilder>> action) {
+        List<CompletableFuture<List<BulkOrderResult>>> perAccount = new ArrayList<>(accountIds.size());
+        for (String accountId : accountIds) {
+            perAccount.add(orderService.getWorkingOrders(accountId)
+                    .thenCompose(orders -> forEachOrder(orders.stream()
+                            .filter(o -> symbol == null || symbol.equals(o.getSymbol()))
+                            .collect(Collectors.toList()), action))
+                    .exceptionally(ex -> {
+                        LOG.error("failed to list orders for {}", accountId, ex);
+                        return List.of(BulkOrderResult.builder()
+                                .accountId(accountId)
+                                .outcome(BulkOrderResult.Outcome.FAILED)
+                                .failure(ex)
+                                .build());
+                    }));
+        }
+        return CompletableFuture.allOf(perAccount.toArray(CompletableFuture[]::new))
+                .thenApply(x -> perAccount.stream()
+                        .flatMap(f -> f.join().stream())
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Runs the action over one account's orders with at most {@code accountConcurrency} in flight, each worker taking
+     * the next order as soon as its previous one completes.
+     */
+    private CompletableFuture<List<BulkOrderResult>> forEachOrder(List<WorkingOrder> orders, Function<WorkingOrder, CompletableFuture<BulkOrderResult.BulkOrderResultBuilder>> action) {
+        BulkOrderResult[] results = new BulkOrderResult[orders.size()];
+        AtomicInteger cursor = new AtomicInteger();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(accountConcurrency, orders.size())];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = work(orders, cursor, results, action);
+        }
+        return CompletableFuture.allOf(workers).thenApply(x -> Arrays.asList(results));
+    }
+
+    /**
+     * Takes orders until one is still in flight and continues from its completion. Orders whose action is already
+     * done (skips, requests rejected up front) are handled in the loop, so that a long run of them does not grow the
+     * stack.
+     */
+    private CompletableFuture<Void> work(List<WorkingOrder> orders, AtomicInteger cursor, BulkOrderResult[] results, Function<WorkingOrder, CompletableFuture<BulkOrderResult.BulkOrderResultBuilder>> action) {
+        while (true) {
+            int index = cursor.getAndIncrement();
+            if (index >= orders.size()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            WorkingOrder order = orders.get(index);
+            long start = System.nanoTime();
+            CompletableFuture<BulkOrderResult.BulkOrderResultBuilder> attempt;
+            try {
+                attempt = action.apply(order);
+            } catch (RuntimeException ex) {
+                attempt = CompletableFuture.failedFuture(ex);
+            }
+            CompletableFuture<BulkOrderResult> result = attempt.handle((builder, failure) -> finish(order, start, builder, failure));
+            if (!result.isDone()) {
+                return result.thenCompose(r -> {
+                    results[index] = r;
+                    return work(orders, cursor, results, action);
+                });
+            }
+            results[index] = result.join();
+        }
+    }
+
+    private static BulkOrderResult finish(WorkingOrder order, long start, BulkOrderResult.BulkOrderResultBuilder result, Throwable failure) {
+        if (failure != null) {
+            LOG.error("bulk operation on order {} for {} failed", order.getOrderId(), order.getAccountId(), failure);
+            result = BulkOrderResult.builder()
+                    .outcome(BulkOrderResult.Outcome.FAILED)
+                    .failure(failure);
+        }
+        return result
+                .accountId(order.getAccountId())
+                .orderId(order.getOrderId())
+                .symbol(order.getSymbol())
+                .latencyNanos(System.nanoTime() - start)
+                .build();
+    }
+
+    private static CompletableFuture<BulkOrderResult.BulkOrderResultBuilder> skipped() {
+        return CompletableFuture.completedFuture(BulkOrderResult.builder().outcome(BulkOrderResult.Outcome.SKIPPED));
+    }
+}
@@ -0,0 +1,286 @@
+package systems.cauldron.utility.trading.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One symbol's candles on disk, together with the time ranges already fetched, so that ranges the broker returned
+ * nothing for (weekends, holidays) are not fetched again. The file is a header, the ranges, then each field as one
+ * contiguous column, so a load is a binary search over the timestamps plus a bulk copy per column. The file is read
+ * whole into memory and kept there until it changes; it is not mapped, as a live mapping keeps Windows from replacing
+ * it. Updates rewrite the whole file to a temporary one that is moved into place, leaving readers with either version.
+ * <p>
+ * Layout, little-endian: magic, version, range count and candle count as ints; {@code [from, to)} pairs of epoch
+ * milliseconds as longs; then the timestamp, open, high, low, close and volume columns.
+ */
+class CandleCache {
+
+    private final static Logger LOG = LogManager.getLogger(CandleCache.class);
+
+    private static final int MAGIC = 0x4C444E43;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 16;
+    private static final int COLUMN_COUNT = 6;
+
+    private final Path path;
+    // the file as last read or written
+    private volatile Loaded current;
+
+    CandleCache(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @return the fetched ranges, sorted and disjoint, as {@code [from, to)} pairs
+     */
+    long[] ranges() {
+        Loaded loaded = load();
+        return loaded == null ? new long[0] : loaded.ranges();
+    }
+
+    /**
+     * @return the candles in {@code [from, to)}
+     */
+    Candles read(String symbol, long from, long to) {
+        Loaded loaded = load();
+        if (loaded == null) {
+            return new Candles(symbol, 0);
+        }
+        int start = loaded.indexOf(from);
+        int end = Math.max(start, loaded.indexOf(to));
+        Candles candles = new Candles(symbol, end - start);
+        loaded.copy(start, end, candles);
+        return candles;
+    }
+
+    /**
+     * Adds freshly fetched candles, and the ranges they were fetched for, to what is on disk. Candles already stored
+     * at the same timestamps are replaced.
+     *
+     * @param fetched ranges as {@code [from, to)} pairs, each with the candles fetched for it
+     */
+    synchronized void merge(String symbol, List<long[]> ranges, List<Candles> fetched) {
+        Loaded loaded = load();
+        long[] storedRanges = loaded == null ? new long[0] : loaded.ranges();
+        Candles stored = new Candles(symbol, loaded == null ? 0 : loaded.count);
+        if (loaded != null) {
+            loaded.copy(0, loaded.count, stored);
+        }
+        List<long[]> allRanges = new ArrayList<>(ranges);
+        for (int i = 0; i < storedRanges.length; i += 2) {
+            allRanges.add(new long[]{storedRanges[i], storedRanges[i + 1]});
+        }
+        write(union(allRanges), mergeSorted(symbol, stored, fetched));
+    }
+
+    /**
+     * @return the parts of {@code [from, to)} not covered by the ranges, in order
+     */
+    static List<long[]> missing(long[] ranges, long from, long to) {
+        List<long[]> missing = new ArrayList<>();
+        long cursor = from;
+        for (int i = 0; i < ranges.length && cursor < to; i += 2) {
+            if (ranges[i + 1] <= cursor) {
+                continue;
+            }
+            if (ranges[i] > cursor) {
+                missing.add(new long[]{cursor, Math.min(ranges[i], to)});
+            }
+            cursor = Math.max(cursor, ranges[i + 1]);
+        }
+        if (cursor < to) {
+            missing.add(new long[]{cursor, to});
+        }
+        return missing;
+    }
+
+    private static long[] union(List<long[]> ranges) {
+        ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+        long[] merged = new long[ranges.size() * 2];
+        int length = 0;
+        for (long[] range : ranges) {
+            if (range[1] <= range[0]) {
+                continue;
+            }
+            if (length > 0 && range[0] <= merged[length - 1]) {
+                merged[length - 1] = Math.max(merged[length - 1], range[1]);
+            } else {
+                merged[length++] = range[0];
+                merged[length++] = range[1];
+            }
+        }
+        return Arrays.copyOf(merged, length);
+    }
+
+    /**
+     * Both inputs are in time order and the fetched batches follow one another, so one merge pass suffices.
+     */
+    private static Candles mergeSorted(String symbol, Candles stored, List<Candles> fetched) {
+        int total = stored.size();
+        for (Candles batch : fetched) {
+            total += batch.size();
+        }
+        Candles merged = new Candles(symbol, total);
+        int s = 0;
+        for (Candles batch : fetched) {
+            for (int f = 0; f < batch.size(); f++) {
+                long timestamp = batch.getTimestamps()[f];
+                while (s < stored.size() && stored.getTimestamps()[s] < timestamp) {
+                    merged.addFrom(stored, s++);
+                }
+                if (s < stored.size() && stored.getTimestamps()[s] == timestamp) {
+                    s++;
+                }
+                if (merged.size() == 0 || merged.getTimestamps()[merged.size() - 1] < timestamp) {
+                    merged.addFrom(batch, f);
+                }
+            }
+        }
+        while (s < stored.size()) {
+            merged.addFrom(stored, s++);
+        }
+        return merged;
+    }
+
+    private void write(long[] ranges, Candles candles) {
+        int count = candles.size();
+        long length = HEADER_LENGTH + ranges.length * 8L + (long) count * 8L * COLUMN_COUNT;
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(length)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(ranges.length / 2).putInt(count);
+        buffer.asLongBuffer().put(ranges);
+        int at = HEADER_LENGTH + ranges.length * 8;
+        column(buffer, at, count, 0).asLongBuffer().put(candles.getTimestamps(), 0, count);
+        column(buffer, at, count, 1).asDoubleBuffer().put(candles.getOpens(), 0, count);
+        column(buffer, at, count, 2).asDoubleBuffer().put(candles.getHighs(), 0, count);
+        column(buffer, at, count, 3).asDoubleBuffer().put(candles.getLows(), 0, count);
+        column(buffer, at, count, 4).asDoubleBuffer().put(candles.getCloses(), 0, count);
+        column(buffer, at, count, 5).asLongBuffer().put(candles.getVolumes(), 0, count);
+        buffer.position(0);
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            current = new Loaded(buffer, Files.readAttributes(path, BasicFileAttributes.class));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        LOG.info("cached {} candles in {} ranges at {}", count, ranges.length / 2, path);
+    }
+
+    /**
+     * @return a little-endian view starting at the column
+     */
+    private static ByteBuffer column(ByteBuffer buffer, int at, int count, int column) {
+        return buffer.duplicate().position(at + column * count * 8).slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return the file's contents, read again only if it changed since, or null if there is none
+     */
+    private Loaded load() {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        Loaded last = current;
+        if (last != null && last.isCurrent(attributes)) {
+            return last;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(channel.size())).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("truncated candle cache: " + path);
+                }
+            }
+            buffer.flip();
+            if (buffer.limit() < HEADER_LENGTH || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("not a candle cache: " + path);
+            }
+            Loaded loaded = new Loaded(buffer, attributes);
+            current = loaded;
+            return loaded;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static class Loaded {
+        private final ByteBuffer buffer;
+        private final FileTime modified;
+        private final long size;
+        private final int rangeCount;
+        private final int count;
+        private final int columnsAt;
+
+        private Loaded(ByteBuffer buffer, BasicFileAttributes attributes) {
+            this.buffer = buffer;
+            this.modified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.rangeCount = buffer.getInt(8);
+            this.count = buffer.getInt(12);
+            this.columnsAt = HEADER_LENGTH + rangeCount * 16;
+        }
+
+        private boolean isCurrent(BasicFileAttributes attributes) {
+            return modified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+        }
+
+        private long[] ranges() {
+            long[] ranges = new long[rangeCount * 2];
+            buffer.duplicate().position(HEADER_LENGTH).slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(ranges);
+            return ranges;
+        }
+
+        private int indexOf(long timestamp) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (buffer.getLong(columnsAt + middle * 8) < timestamp) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private void copy(int start, int end, Candles into) {
+            int length = end - start;
+            column(buffer, columnsAt, count, 0).asLongBuffer().position(start).get(into.getTimestamps(), 0, length);
+            column(buffer, columnsAt, count, 1).asDoubleBuffer().position(start).get(into.getOpens(), 0, length);
+            column(buffer, columnsAt, count, 2).asDoubleBuffer().position(start).get(into.getHighs(), 0, length);
+            column(buffer, columnsAt, count, 3).asDoubleBuffer().position(start).get(into.getLows(), 0, length);
+            column(buffer, columnsAt, count, 4).asDoubleBuffer().position(start).get(into.getCloses(), 0, length);
+            column(buffer, columnsAt, count, 5).asLongBuffer().position(start).get(into.getVolumes(), 0, length);
+            into.setSize(length);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Price bars of one symbol in time order, one primitive array per field. The arrays may be longer than
+ * {@link #size()}; only the first {@code size()} entries are candles.
+ */
+public class Candles {
+    @Getter
+    private final String symbol;
+    /**
+     * Bar open times in epoch milliseconds, strictly increasing.
+     */
+    @Getter
+    private long[] timestamps;
+    @Getter
+    private double[] opens;
+    @Getter
+    private double[] highs;
+    @Getter
+    private double[] lows;
+    @Getter
+    private double[] closes;
+    @Getter
+    private long[] volumes;
+    private int size;
+
+    Candles(String symbol, int capacity) {
+        this.symbol = symbol;
+        this.timestamps = new long[capacity];
+        this.opens = new double[capacity];
+        this.highs = new double[capacity];
+        this.lows = new double[capacity];
+        this.closes = new double[capacity];
+        this.volumes = new long[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the index of the first candle at or after the timestamp, or {@link #size()} if there is none
+     */
+    public int indexOf(long timestamp) {
+        int index = Arrays.binarySearch(timestamps, 0, size, timestamp);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    void add(long timestamp, double open, double high, double low, double close, long volume) {
+        if (size == timestamps.length) {
+            int capacity = Math.max(16, size << 1);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            opens = Arrays.copyOf(opens, capacity);
+            highs = Arrays.copyOf(highs, capacity);
+            lows = Arrays.copyOf(lows, capacity);
+            closes = Arrays.copyOf(closes, capacity);
+            volumes = Arrays.copyOf(volumes, capacity);
+        }
+        timestamps[size] = timestamp;
+        opens[size] = open;
+        highs[size] = high;
+        lows[size] = low;
+        closes[size] = close;
+        volumes[size] = volume;
+        size++;
+    }
+
+    void addFrom(Candles source, int index) {
+        add(source.timestamps[index], source.opens[index], source.highs[index], source.lows[index], source.closes[index], source.volumes[index]);
+    }
+
+    /**
+     * Sets the size of candles filled in through the arrays directly.
+     */
+    void setSize(int size) {
+        this.size = size;
+    }
+}
@@ -21,6 +21,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.util.Map;
@@ -31,6 +32,7 @@ public class ConfigurationFactory {
     private final static Logger LOG = LogManager.getLogger(ConfigurationFactory.class);
 
     private static final Path CONFIG_PATH = Paths.get(System.getProperty("user.home")).resolve(".tradingutility");
+    private static final Path STREAMER_CONFIG_PATH = Paths.get(System.getProperty("user.home")).resolve(".tradingutility-streamer");
 
     private static final JsonWriterFactory WRITER_FACTORY = Json.createWriterFactory(Map.of(JsonGenerator.PRETTY_PRINTING, true));
 
@@ -70,4 +72,60 @@ public class ConfigurationFactory {
         return configuration;
     }
 
+    public static void saveStreamerConfig(StreamerConfig config) {
+        saveStreamerConfig(config, STREAMER_CONFIG_PATH);
+    }
+
+    /**
+     * Written to a temporary file first and moved into place, so a concurrent or interrupted save never leaves a
+     * half-written config behind.
+     */
+    public static void saveStreamerConfig(StreamerConfig config, Path path) {
+        JsonObjectBuilder jsonObjectBuilder = Json.createObjectBuilder()
+                .add("socketUrl", config.getSocketUrl())
+                .add("appId", config.getAppId())
+                .add("token", config.getToken())
+                .add("accountId", config.getAccountId())
+                .add("credential", config.getCredential())
+                .add("subscriptionKey", config.getSubscriptionKey());
+        Optional.ofNullable(config.getTokenExpiry()).map(Instant::toEpochMilli).ifPresent(x -> jsonObjectBuilder.add("tokenExpiry", x));
+        try {
+            Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temporary); JsonWriter jsonWriter = WRITER_FACTORY.createWriter(writer)) {
+                jsonWriter.write(jsonObjectBuilder.build());
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        LOG.info("streamer config saved to disk");
+    }
+
+    public static Optional<StreamerConfig> loadStreamerConfig() {
+        return loadStreamerConfig(STREAMER_CONFIG_PATH);
+    }
+
+    /**
+     * @return empty if there is no saved config or it cannot be read, which only costs a round trip to fetch it again
+     */
+    public static Optional<StreamerConfig> loadStreamerConfig(Path path) {
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path); JsonReader jsonReader = Json.createReader(reader)) {
+            JsonObject jsonObject = jsonReader.readObject();
+            return Optional.of(StreamerConfig.builder()
+                    .socketUrl(jsonObject.getString("socketUrl"))
+                    .appId(jsonObject.getString("appId"))
+                    .token(jsonObject.getString("token"))
+                    .accountId(jsonObject.getString("accountId"))
+                    .credential(jsonObject.getString("credential"))
+                    .subscriptionKey(jsonObject.getString("subscriptionKey"))
+                    .tokenExpiry(Optional.ofNullable(jsonObject.getJsonNumber("tokenExpiry")).map(JsonNumber::longValue).map(Instant::ofEpochMilli).orElse(null))
+                    .build());
+        } catch (IOException | RuntimeException ex) {
+            LOG.warn("ignoring unreadable streamer config at {}", path, ex);
+            return Optional.empty();
+        }
+    }
 }
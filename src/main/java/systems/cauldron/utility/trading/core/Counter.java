@@ -0,0 +1,21 @@
+package systems.cauldron.utility.trading.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Counter implements CounterMXBean {
+
+    private final AtomicLong count = new AtomicLong();
+
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    public void add(long delta) {
+        count.addAndGet(delta);
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+}
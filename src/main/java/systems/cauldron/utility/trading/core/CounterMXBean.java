@@ -0,0 +1,6 @@
+package systems.cauldron.utility.trading.core;
+
+public interface CounterMXBean {
+
+    long getCount();
+}
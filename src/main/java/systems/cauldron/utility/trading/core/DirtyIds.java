@@ -0,0 +1,77 @@
+package systems.cauldron.utility.trading.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of ids that changed since the last drain, kept as an atomic bitset. Writers on any thread mark ids without
+ * allocating or locking; one reader drains them in a batch, e.g. once per UI frame, so any number of updates to an id
+ * between two drains cost the reader a single visit.
+ */
+public class DirtyIds {
+
+    private final AtomicLongArray words;
+    private final AtomicLong marks = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public DirtyIds(int capacity) {
+        this.words = new AtomicLongArray((capacity + 63) >>> 6);
+    }
+
+    public int capacity() {
+        return words.length() << 6;
+    }
+
+    public void mark(int id) {
+        int index = id >>> 6;
+        long bit = 1L << id;
+        long word = words.get(index);
+        while ((word & bit) == 0L) {
+            long witness = words.compareAndExchange(index, word, word | bit);
+            if (witness == word) {
+                marks.incrementAndGet();
+                return;
+            }
+            word = witness;
+        }
+        coalesced.incrementAndGet();
+    }
+
+    /**
+     * Clears and visits every marked id in ascending order. Ids marked while draining are either visited now or left
+     * for the next drain, never lost.
+     *
+     * @return number of ids visited
+     */
+    public int drain(IntConsumer visitor) {
+        int visited = 0;
+        for (int index = 0; index < words.length(); index++) {
+            if (words.get(index) == 0L) {
+                continue;
+            }
+            long word = words.getAndSet(index, 0L);
+            while (word != 0L) {
+                int bit = Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                visitor.accept((index << 6) | bit);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * @return marks that found the id clean, i.e. the number of visits drains will have made
+     */
+    public long getMarks() {
+        return marks.get();
+    }
+
+    /**
+     * @return marks that found the id already dirty and were absorbed into a pending visit
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
@@ -0,0 +1,301 @@
+package systems.cauldron.utility.trading.core;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Price, cash or quantity held as a whole number of millionths in a {@code long}, good for magnitudes up to about
+ * 9.2 trillion. Arithmetic is exact and overflow throws {@link ArithmeticException}, like {@link Math#addExact}.
+ * Values parse from and format to JSON number text without going through {@link BigDecimal}; digits past the sixth
+ * decimal place round half-even.
+ */
+public final class FixedPoint implements Comparable<FixedPoint> {
+
+    /**
+     * Decimal places held.
+     */
+    public static final int SCALE = 6;
+
+    private static final long UNIT = 1_000_000L;
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, UNIT};
+
+    public static final FixedPoint ZERO = new FixedPoint(0L);
+    public static final FixedPoint ONE = new FixedPoint(UNIT);
+    /**
+     * Minimum price increment for equities quoted at a dollar or more.
+     */
+    public static final FixedPoint PENNY = new FixedPoint(UNIT / 100);
+    /**
+     * Minimum price increment for equities quoted below a dollar.
+     */
+    public static final FixedPoint SUB_PENNY = new FixedPoint(UNIT / 10_000);
+
+    private final long units;
+
+    private FixedPoint(long units) {
+        this.units = units;
+    }
+
+    /**
+     * @param units the value in millionths
+     */
+    public static FixedPoint ofUnits(long units) {
+        return units == 0L ? ZERO : new FixedPoint(units);
+    }
+
+    public static FixedPoint of(long value) {
+        return ofUnits(Math.multiplyExact(value, UNIT));
+    }
+
+    /**
+     * @return the nearest value to the double, which for doubles carrying at most six decimal places is the value
+     * {@link BigDecimal#valueOf(double)} gives
+     */
+    public static FixedPoint valueOf(double value) {
+        double scaled = Math.rint(value * UNIT);
+        if (Double.isNaN(scaled) || scaled >= 0x1p63 || scaled < -0x1p63) {
+            throw new ArithmeticException("out of range: " + value);
+        }
+        return ofUnits((long) scaled);
+    }
+
+    public static FixedPoint valueOf(BigDecimal value) {
+        return ofUnits(value.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Parses JSON number text, e.g. {@code -12.5}, {@code 0.0001} or {@code 1.5E+3}.
+     *
+     * @throws NumberFormatException when the text is not a number
+     * @throws ArithmeticException   when the number is out of range
+     */
+    public static FixedPoint parse(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = i < length && text.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        int digitsStart = i;
+        int point = -1;
+        int digits = 0;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && point < 0) {
+                point = digits;
+            } else {
+                break;
+            }
+        }
+        int digitsEnd = i;
+        if (digits == 0 || point == 0 || point == digits) {
+            throw new NumberFormatException("not a number: " + text);
+        }
+        long exponent = 0L;
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = i < length && text.charAt(i) == '-';
+            if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentStart = i;
+            for (; i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9'; i++) {
+                // past this the value is zero or out of range either way
+                exponent = Math.min(exponent * 10 + (text.charAt(i) - '0'), Integer.MAX_VALUE);
+            }
+            if (i == exponentStart) {
+                throw new NumberFormatException("not a number: " + text);
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (i != length) {
+            throw new NumberFormatException("not a number: " + text);
+        }
+        // digit positions count from the first decimal place, so the integer digits sit at negative positions
+        long firstPosition = -((point < 0 ? digits : point) + exponent);
+        long units = 0L;
+        int roundingDigit = 0;
+        boolean sticky = false;
+        long position = firstPosition;
+        for (i = digitsStart; i < digitsEnd; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                continue;
+            }
+            int digit = c - '0';
+            if (position < SCALE) {
+                units = Math.addExact(Math.multiplyExact(units, 10L), digit);
+            } else if (position == SCALE) {
+                roundingDigit = digit;
+            } else {
+                sticky |= digit != 0;
+            }
+            position++;
+        }
+        if (units != 0L) {
+            for (long p = position; p < SCALE; p++) {
+                units = Math.multiplyExact(units, 10L);
+            }
+        }
+        if (roundingDigit > 5 || (roundingDigit == 5 && (sticky || (units & 1L) != 0L))) {
+            units = Math.addExact(units, 1L);
+        }
+        return ofUnits(negative ? -units : units);
+    }
+
+    /**
+     * @return the value in millionths
+     */
+    public long getUnits() {
+        return units;
+    }
+
+    public FixedPoint plus(FixedPoint other) {
+        return ofUnits(Math.addExact(units, other.units));
+    }
+
+    public FixedPoint minus(FixedPoint other) {
+        return ofUnits(Math.subtractExact(units, other.units));
+    }
+
+    public FixedPoint times(long quantity) {
+        return ofUnits(Math.multiplyExact(units, quantity));
+    }
+
+    public FixedPoint negate() {
+        return ofUnits(Math.negateExact(units));
+    }
+
+    public int signum() {
+        return Long.signum(units);
+    }
+
+    /**
+     * @return how many whole times the divisor fits, truncated toward zero as
+     * {@link BigDecimal#divideToIntegralValue} does
+     * @throws ArithmeticException when the divisor is zero
+     */
+    public long divideToIntegral(FixedPoint divisor) {
+        return units / divisor.units;
+    }
+
+    /**
+     * @return the nearest multiple of the tick in the direction of the rounding mode
+     * @throws ArithmeticException when the mode is {@link RoundingMode#UNNECESSARY} and the value is off the tick
+     */
+    public FixedPoint roundToTick(FixedPoint tick, RoundingMode mode) {
+        if (tick.units <= 0L) {
+            throw new IllegalArgumentException("tick must be positive: " + tick);
+        }
+        long quotient = units / tick.units;
+        long remainder = units % tick.units;
+        if (remainder == 0L) {
+            return this;
+        }
+        int sign = Long.signum(remainder);
+        // compare twice the remainder without overflowing, as |remainder| < tick
+        int half = Long.compare(Math.abs(remainder), tick.units - Math.abs(remainder));
+        boolean awayFromZero;
+        switch (mode) {
+            case UP:
+                awayFromZero = true;
+                break;
+            case DOWN:
+                awayFromZero = false;
+                break;
+            case CEILING:
+                awayFromZero = sign > 0;
+                break;
+            case FLOOR:
+                awayFromZero = sign < 0;
+                break;
+            case HALF_UP:
+                awayFromZero = half >= 0;
+                break;
+            case HALF_DOWN:
+                awayFromZero = half > 0;
+                break;
+            case HALF_EVEN:
+                awayFromZero = half > 0 || (half == 0 && (quotient & 1L) != 0L);
+                break;
+            default:
+                throw new ArithmeticException("rounding necessary: " + this + " to tick " + tick);
+        }
+        return ofUnits(Math.multiplyExact(awayFromZero ? quotient + sign : quotient, tick.units));
+    }
+
+    /**
+     * Rounds onto the equity price grid: pennies from a dollar up, hundredths of a penny below.
+     */
+    public FixedPoint roundToTick(RoundingMode mode) {
+        FixedPoint rounded = roundToTick(SUB_PENNY, mode);
+        return rounded.units < UNIT && rounded.units > -UNIT ? rounded : roundToTick(PENNY, mode);
+    }
+
+    public double doubleValue() {
+        return (double) units / UNIT;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    @Override
+    public int compareTo(FixedPoint other) {
+        return Long.compare(units, other.units);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof FixedPoint && ((FixedPoint) other).units == units;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(units);
+    }
+
+    /**
+     * Plain notation with trailing zeros dropped, e.g. {@code 280}, {@code 280.5} or {@code 0.0001}, the same text as
+     * {@code stripTrailingZeros().toPlainString()} of the equal {@link BigDecimal}. There is no scale to keep, so
+     * {@code 280.50} parses and prints as {@code 280.5}.
+     */
+    @Override
+    public String toString() {
+        int scale = formattedScale();
+        String digits = Long.toString(units / POWERS_OF_TEN[SCALE - scale]);
+        StringBuilder text = new StringBuilder(digits.length() + 3);
+        if (units < 0L) {
+            text.append('-');
+            digits = digits.substring(1);
+        }
+        if (scale == 0) {
+            return text.append(digits).toString();
+        }
+        if (digits.length() <= scale) {
+            text.append("0.");
+            for (int i = digits.length(); i < scale; i++) {
+                text.append('0');
+            }
+            return text.append(digits).toString();
+        }
+        return text.append(digits, 0, digits.length() - scale).append('.').append(digits, digits.length() - scale, digits.length()).toString();
+    }
+
+    void writeTo(OrderPayload payload) {
+        int scale = formattedScale();
+        payload.writeDecimal(units / POWERS_OF_TEN[SCALE - scale], scale);
+    }
+
+    private int formattedScale() {
+        int scale = SCALE;
+        while (scale > 0 && units % POWERS_OF_TEN[SCALE - scale + 1] == 0L) {
+            scale--;
+        }
+        return scale;
+    }
+}
@@ -0,0 +1,83 @@
+package systems.cauldron.utility.trading.core;
+
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reusable character buffer that collects websocket text fragments and is read back as a single frame.
+ */
+class FrameBuffer extends Reader {
+
+    private char[] chars;
+    private int length;
+    private int position;
+
+    FrameBuffer(int initialCapacity) {
+        this.chars = new char[initialCapacity];
+    }
+
+    void append(CharSequence fragment) {
+        int fragmentLength = fragment.length();
+        ensureCapacity(length + fragmentLength);
+        if (fragment instanceof String) {
+            ((String) fragment).getChars(0, fragmentLength, chars, length);
+        } else {
+            for (int i = 0; i < fragmentLength; i++) {
+                chars[length + i] = fragment.charAt(i);
+            }
+        }
+        length += fragmentLength;
+    }
+
+    void clear() {
+        length = 0;
+        position = 0;
+    }
+
+    /**
+     * Rewinds the read position so the same frame can be consumed again.
+     */
+    void rewind() {
+        position = 0;
+    }
+
+    int length() {
+        return length;
+    }
+
+    char[] array() {
+        return chars;
+    }
+
+    @Override
+    public int read(char[] destination, int offset, int count) {
+        if (position >= length) {
+            return -1;
+        }
+        int n = Math.min(count, length - position);
+        System.arraycopy(chars, position, destination, offset, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int read() {
+        return position < length ? chars[position++] : -1;
+    }
+
+    @Override
+    public void close() {
+        // buffer is reused across frames
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(required, chars.length << 1));
+        }
+    }
+}
@@ -1,94 +1,322 @@
 package systems.cauldron.utility.trading.core;
 
+import lombok.Builder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import javax.json.Json;
 import javax.json.JsonObject;
 import javax.json.JsonReader;
 import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Long-lived HTTP engine shared by all services. Holds one HTTP/2 client per host so that
+ * connections, TLS sessions and selector threads are reused across requests.
+ * <p>
+ * Identical authorized GETs that overlap in time share one round trip. Endpoints can additionally be cached for a
+ * short TTL with {@link #enableCache}; anything that changes what an endpoint returns should {@link #invalidate} it.
+ */
 public class HttpGateway {
 
-    public static CompletableFuture<JsonObject> doAuthorizedGetForJsonObject(String url, Supplier<String> accessTokenSource, Map<String, List<String>> queryParams) {
-        HttpRequest request = buildAuthorizedGet(url, accessTokenSource, queryParams);
-        return doJsonResponseRequest(request, HttpGateway::readJsonObject);
+    private final static Logger LOG = LogManager.getLogger(HttpGateway.class);
+
+    private static final String DEFAULT_API_BASE_URL = "https://api.tdameritrade.com";
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5L);
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10L);
+    private static final int MAX_CACHED_RESPONSES = 1024;
+
+    private final Map<String, HttpClient> clients = new ConcurrentHashMap<>();
+    private final String apiBaseUrl;
+    private final Duration connectTimeout;
+    private final Duration requestTimeout;
+    private final Executor executor;
+    private final MetricsRegistry metrics;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter coalesced;
+    // every path handed to resolve, which is what request latencies are recorded against
+    private final List<Endpoint> endpoints = new CopyOnWriteArrayList<>();
+    private final Map<String, Histogram> otherLatencies = new ConcurrentHashMap<>();
+
+    // keyed by request uri and authorization header
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CachedResponse> cache = new ConcurrentHashMap<>();
+    private final Map<String, Long> cacheTtlNanos = new ConcurrentHashMap<>();
+    // bumped by every invalidation, so responses requested before one are not cached after it
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public HttpGateway() {
+        this(null, null, null, null, null);
     }
 
-    public static CompletableFuture<List<JsonObject>> doAuthorizedGetForJsonList(String url, Supplier<String> accessTokenSource, Map<String, List<String>> queryParams) {
-        HttpRequest request = buildAuthorizedGet(url, accessTokenSource, queryParams);
-        return doJsonResponseRequest(request, HttpGateway::readJsonObjectList);
+    /**
+     * @param apiBaseUrl scheme and authority that service endpoint paths are resolved against
+     * @param metrics    where per-endpoint latencies are recorded, defaults to {@link MetricsRegistry#global()}
+     */
+    @Builder
+    private HttpGateway(String apiBaseUrl, Duration connectTimeout, Duration requestTimeout, Executor executor, MetricsRegistry metrics) {
+        this.apiBaseUrl = Optional.ofNullable(apiBaseUrl).orElse(DEFAULT_API_BASE_URL);
+        this.connectTimeout = Optional.ofNullable(connectTimeout).orElse(DEFAULT_CONNECT_TIMEOUT);
+        this.requestTimeout = Optional.ofNullable(requestTimeout).orElse(DEFAULT_REQUEST_TIMEOUT);
+        this.executor = executor;
+        this.metrics = Optional.ofNullable(metrics).orElse(MetricsRegistry.global());
+        this.cacheHits = this.metrics.counter("http", "cache hits");
+        this.cacheMisses = this.metrics.counter("http", "cache misses");
+        this.coalesced = this.metrics.counter("http", "coalesced");
+    }
+
+    public String getApiBaseUrl() {
+        return apiBaseUrl;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
     }
 
-    public static CompletableFuture<String> doAuthorizedJsonPost(String url, Supplier<String> accessTokenSource, JsonObject payload) {
+    /**
+     * Resolves an endpoint path such as {@code /v1/accounts} against the configured api base url. Latencies of requests
+     * to the endpoint are recorded per method under the path, with {@code %s} segments such as account ids or symbols
+     * shown as {@code {id}}.
+     */
+    public String resolve(String path) {
+        synchronized (endpoints) {
+            if (endpoints.stream().noneMatch(e -> e.path.equals(path))) {
+                endpoints.add(new Endpoint(path));
+            }
+        }
+        return apiBaseUrl + path;
+    }
+
+    /**
+     * Serves authorized GETs of the endpoint from memory for the given time after each fetch.
+     *
+     * @param path endpoint path with ids as {@code {id}}, e.g. {@code /v1/accounts/{id}}
+     */
+    public void enableCache(String path, Duration ttl) {
+        cacheTtlNanos.put(path, ttl.toNanos());
+    }
+
+    public void disableCache(String path) {
+        cacheTtlNanos.remove(path);
+        invalidateAll();
+    }
+
+    /**
+     * Drops cached responses for the url and everything below it, e.g. {@code .../v1/accounts/123} also covers
+     * {@code .../v1/accounts/123/orders}, and keeps requests in flight for them from being shared with later callers.
+     */
+    public void invalidate(String url) {
+        invalidations.incrementAndGet();
+        cache.keySet().removeIf(key -> covers(url, key));
+        inFlight.keySet().removeIf(key -> covers(url, key));
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.clear();
+        inFlight.clear();
+    }
+
+    /**
+     * Opens (or reuses) the connection to the host of the given url so the first real request skips the handshake.
+     */
+    public CompletableFuture<Void> warmUp(String url) {
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
-                .header("Authorization", "Bearer " + accessTokenSource.get())
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(payload.toString()))
+                .timeout(requestTimeout)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
                 .build();
-        return HttpClient.newHttpClient()
+        return clientFor(request.uri())
                 .sendAsync(request, HttpResponse.BodyHandlers.discarding())
-                .thenApply(x -> {
-                    String location = x.headers().firstValue("Location").orElseThrow(RuntimeException::new);
-                    return location.substring(location.lastIndexOf('/') + 1);
+                .handle((response, ex) -> {
+                    if (ex != null) {
+                        LOG.warn("failed to warm up connection to {}", url, ex);
+                    } else {
+                        LOG.info("warmed up connection to {} over {}", url, response.version());
+                    }
+                    return null;
                 });
     }
 
-    public static CompletableFuture<Void> doAuthorizedJsonPut(String url, Supplier<String> accessTokenSource, JsonObject payload) {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", "Bearer " + accessTokenSource.get())
+    public WebSocket.Builder newWebSocketBuilder(URI uri) {
+        return clientFor(uri).newWebSocketBuilder()
+                .connectTimeout(connectTimeout);
+    }
+
+    public CompletableFuture<JsonObject> doAuthorizedGetForJsonObject(String url, AccessTokenSource accessTokenSource, Map<String, List<String>> queryParams) {
+        return doAuthorizedGet(url, accessTokenSource, queryParams).thenApply(body -> readJson(body, HttpGateway::readJsonObject));
+    }
+
+    public CompletableFuture<List<JsonObject>> doAuthorizedGetForJsonList(String url, AccessTokenSource accessTokenSource, Map<String, List<String>> queryParams) {
+        return doAuthorizedGet(url, accessTokenSource, queryParams).thenApply(body -> readJson(body, HttpGateway::readJsonObjectList));
+    }
+
+    public <T> CompletableFuture<T> doAuthorizedGetForDecoded(String url, AccessTokenSource accessTokenSource, Map<String, List<String>> queryParams, Function<JsonParser, T> decoder) {
+        return doAuthorizedGet(url, accessTokenSource, queryParams).thenApply(body -> {
+            try (JsonParser parser = Json.createParser(new ByteArrayInputStream(body))) {
+                return decoder.apply(parser);
+            }
+        });
+    }
+
+    /**
+     * Fetches the raw body, from the cache if the endpoint has one, otherwise joining an identical request already in
+     * flight or else sending a new one. Callers each decode their own copy from the shared bytes.
+     */
+    private CompletableFuture<byte[]> doAuthorizedGet(String url, AccessTokenSource accessTokenSource, Map<String, List<String>> queryParams) {
+        HttpRequest request = buildAuthorizedGet(url, accessTokenSource, queryParams);
+        String key = request.uri() + " " + request.headers().firstValue("Authorization").orElse("");
+        Long ttlNanos = cacheTtlNanos.isEmpty() ? null : cacheTtlNanos.get(pathTemplate(request.uri().getPath()));
+        if (ttlNanos != null) {
+            CachedResponse cached = cache.get(key);
+            if (cached != null && cached.expiresNanos - System.nanoTime() > 0L) {
+                cacheHits.increment();
+                return CompletableFuture.completedFuture(cached.body);
+            }
+            cacheMisses.increment();
+        }
+        CompletableFuture<byte[]> pending = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            coalesced.increment();
+            // a copy, so that one caller cancelling does not fail the others
+            return existing.copy();
+        }
+        long generation = invalidations.get();
+        send(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(HttpGateway::requireSuccess)
+                .thenApply(HttpResponse::body)
+                .whenComplete((body, ex) -> {
+                    if (ex == null && ttlNanos != null && invalidations.get() == generation) {
+                        if (cache.size() >= MAX_CACHED_RESPONSES) {
+                            long now = System.nanoTime();
+                            cache.values().removeIf(c -> c.expiresNanos - now <= 0L);
+                        }
+                        cache.put(key, new CachedResponse(body, System.nanoTime() + ttlNanos));
+                    }
+                    inFlight.remove(key, pending);
+                    if (ex != null) {
+                        pending.completeExceptionally(ex);
+                    } else {
+                        pending.complete(body);
+                    }
+                });
+        return pending.copy();
+    }
+
+    public CompletableFuture<String> doAuthorizedJsonPost(String url, AccessTokenSource accessTokenSource, JsonObject payload) {
+        return doAuthorizedJsonPost(url, accessTokenSource, HttpRequest.BodyPublishers.ofString(payload.toString()));
+    }
+
+    /**
+     * Posts {@code length} bytes of {@code payload} without copying them; the array must stay untouched until the
+     * returned future completes.
+     */
+    public CompletableFuture<String> doAuthorizedJsonPost(String url, AccessTokenSource accessTokenSource, byte[] payload, int length) {
+        return doAuthorizedJsonPost(url, accessTokenSource, HttpRequest.BodyPublishers.ofByteArray(payload, 0, length));
+    }
+
+    private CompletableFuture<String> doAuthorizedJsonPost(String url, AccessTokenSource accessTokenSource, HttpRequest.BodyPublisher body) {
+        return doAuthorizedLocationRequest("POST", url, accessTokenSource, body);
+    }
+
+    public CompletableFuture<Void> doAuthorizedJsonPut(String url, AccessTokenSource accessTokenSource, JsonObject payload) {
+        HttpRequest request = newRequestBuilder(url)
+                .header("Authorization", accessTokenSource.authorizationHeader())
                 .header("Content-Type", "application/json")
                 .PUT(HttpRequest.BodyPublishers.ofString(payload.toString()))
                 .build();
         return doEmptyResponseRequest(request);
     }
 
-    public static CompletableFuture<Void> doAuthorizedDelete(String url, Supplier<String> accessTokenSource) {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Authorization", "Bearer " + accessTokenSource.get())
+    /**
+     * Replaces the resource at {@code url}, e.g. an order, in one request; like the byte array
+     * {@link #doAuthorizedJsonPost(String, AccessTokenSource, byte[], int)} it answers with the id of what was created.
+     */
+    public CompletableFuture<String> doAuthorizedJsonPut(String url, AccessTokenSource accessTokenSource, byte[] payload, int length) {
+        return doAuthorizedLocationRequest("PUT", url, accessTokenSource, HttpRequest.BodyPublishers.ofByteArray(payload, 0, length));
+    }
+
+    public CompletableFuture<Void> doAuthorizedDelete(String url, AccessTokenSource accessTokenSource) {
+        HttpRequest request = newRequestBuilder(url)
+                .header("Authorization", accessTokenSource.authorizationHeader())
                 .DELETE()
                 .build();
         return doEmptyResponseRequest(request);
     }
 
-    public static CompletableFuture<JsonObject> doUnauthorizedUrlEncodedPostForJsonObject(String url, Map<String, List<String>> params) {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+    public CompletableFuture<JsonObject> doUnauthorizedUrlEncodedPostForJsonObject(String url, Map<String, List<String>> params) {
+        HttpRequest request = newRequestBuilder(url)
                 .header("Content-Type", "application/x-www-form-urlencoded")
                 .POST(HttpRequest.BodyPublishers.ofString(HttpGateway.urlEncode(params)))
                 .build();
         return doJsonResponseRequest(request, HttpGateway::readJsonObject);
     }
 
-    private static HttpRequest buildAuthorizedGet(String url, Supplier<String> accessTokenSource, Map<String, List<String>> queryParams) {
-        return HttpRequest.newBuilder()
-                .uri(URI.create(queryParams.isEmpty() ? url : url + "?" + urlEncode(queryParams)))
-                .header("Authorization", "Bearer " + accessTokenSource.get())
+    private CompletableFuture<String> doAuthorizedLocationRequest(String method, String url, AccessTokenSource accessTokenSource, HttpRequest.BodyPublisher body) {
+        HttpRequest request = newRequestBuilder(url)
+                .header("Authorization", accessTokenSource.authorizationHeader())
+                .header("Content-Type", "application/json")
+                .method(method, body)
+                .build();
+        return send(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpGateway::requireSuccess)
+                .thenApply(x -> {
+                    String location = x.headers().firstValue("Location").orElseThrow(RuntimeException::new);
+                    return location.substring(location.lastIndexOf('/') + 1);
+                });
+    }
+
+    private HttpRequest buildAuthorizedGet(String url, AccessTokenSource accessTokenSource, Map<String, List<String>> queryParams) {
+        return newRequestBuilder(queryParams.isEmpty() ? url : url + "?" + urlEncode(queryParams))
+                .header("Authorization", accessTokenSource.authorizationHeader())
                 .GET()
                 .build();
     }
 
-    private static CompletableFuture<Void> doEmptyResponseRequest(HttpRequest request) {
-        return HttpClient.newHttpClient()
-                .sendAsync(request, HttpResponse.BodyHandlers.discarding())
+    private HttpRequest.Builder newRequestBuilder(String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(requestTimeout);
+    }
+
+    private CompletableFuture<Void> doEmptyResponseRequest(HttpRequest request) {
+        return send(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpGateway::requireSuccess)
                 .thenApply(HttpResponse::body);
     }
 
-    private static <T> CompletableFuture<T> doJsonResponseRequest(HttpRequest request, Function<JsonReader, T> mapper) {
-        return HttpClient.newHttpClient()
-                .sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+    private static <T> T readJson(byte[] body, Function<JsonReader, T> mapper) {
+        try (JsonReader reader = Json.createReader(new ByteArrayInputStream(body))) {
+            return mapper.apply(reader);
+        }
+    }
+
+    private <T> CompletableFuture<T> doJsonResponseRequest(HttpRequest request, Function<JsonReader, T> mapper) {
+        return send(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(HttpGateway::requireSuccess)
                 .thenApply(HttpResponse::body)
                 .thenApply(is -> {
                     try (JsonReader reader = Json.createReader(is)) {
@@ -97,6 +325,88 @@ public class HttpGateway {
                 });
     }
 
+    private <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        Histogram latency = latencyOf(request);
+        long start = System.nanoTime();
+        return clientFor(request.uri())
+                .sendAsync(request, bodyHandler)
+                .whenComplete((response, ex) -> latency.record(System.nanoTime() - start));
+    }
+
+    private Histogram latencyOf(HttpRequest request) {
+        String path = request.uri().getRawPath();
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.matches(path)) {
+                return latencyOf(endpoint.latencies, request.method(), endpoint.template);
+            }
+        }
+        // urls built without resolve share one histogram per method rather than one per distinct path
+        return latencyOf(otherLatencies, request.method(), "other");
+    }
+
+    private Histogram latencyOf(Map<String, Histogram> byMethod, String method, String endpoint) {
+        Histogram latency = byMethod.get(method);
+        if (latency == null) {
+            latency = byMethod.computeIfAbsent(method, m -> metrics.histogram("http", m + " " + endpoint, MetricsRegistry.NANOSECONDS));
+        }
+        return latency;
+    }
+
+    /**
+     * Collapses numeric path segments such as account and order ids, so that cached endpoints can be named with
+     * {@code {id}}.
+     */
+    static String pathTemplate(String path) {
+        StringBuilder template = new StringBuilder(path.length());
+        int start = 0;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start + 1);
+            if (end < 0) {
+                end = path.length();
+            }
+            boolean numeric = end - start > 1;
+            for (int i = start + 1; i < end && numeric; i++) {
+                numeric = Character.isDigit(path.charAt(i));
+            }
+            if (numeric) {
+                template.append("/{id}");
+            } else {
+                template.append(path, start, end);
+            }
+            start = end;
+        }
+        return template.toString();
+    }
+
+    private HttpClient clientFor(URI uri) {
+        return clients.computeIfAbsent(uri.getScheme() + "://" + uri.getAuthority(), host -> {
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .connectTimeout(connectTimeout);
+            if (executor != null) {
+                builder.executor(executor);
+            }
+            LOG.info("created http client for {}", host);
+            return builder.build();
+        });
+    }
+
+    private static <T> HttpResponse<T> requireSuccess(HttpResponse<T> response) {
+        int status = response.statusCode();
+        if (status < 200 || status > 299) {
+            if (response.body() instanceof Closeable) {
+                try {
+                    ((Closeable) response.body()).close();
+                } catch (IOException ex) {
+                    LOG.debug("failed to discard error body", ex);
+                }
+            }
+            throw new RuntimeException("unexpected status " + status + " from " + response.request().method() + " " + response.request().uri());
+        }
+        return response;
+    }
+
     private static JsonObject readJsonObject(JsonReader reader) {
         return reader.readObject();
     }
@@ -112,4 +422,66 @@ public class HttpGateway {
                 .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "=" + URLEncoder.encode(String.join(",", e.getValue()), StandardCharsets.UTF_8))
                 .collect(Collectors.joining("&"));
     }
+
+    /**
+     * @return whether {@code key}, a request uri plus authorization header, is {@code url} or below it
+     */
+    private static boolean covers(String url, String key) {
+        if (!key.startsWith(url)) {
+            return false;
+        }
+        char next = key.charAt(url.length());
+        return next == ' ' || next == '/' || next == '?';
+    }
+
+    private static class Endpoint {
+        private static final String VARIABLE = "%s";
+
+        private final String path;
+        private final String template;
+        private final String[] segments;
+        private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+
+        private Endpoint(String path) {
+            this.path = path;
+            this.template = path.replace(VARIABLE, "{id}");
+            this.segments = path.substring(path.startsWith("/") ? 1 : 0).split("/", -1);
+        }
+
+        /**
+         * Compares segment by segment in place, since this runs for every request.
+         */
+        private boolean matches(String requestPath) {
+            int position = 0;
+            for (String segment : segments) {
+                if (position >= requestPath.length() || requestPath.charAt(position) != '/') {
+                    return false;
+                }
+                int end = requestPath.indexOf('/', position + 1);
+                if (end < 0) {
+                    end = requestPath.length();
+                }
+                int length = end - position - 1;
+                if (segment.equals(VARIABLE)) {
+                    if (length == 0) {
+                        return false;
+                    }
+                } else if (length != segment.length() || !requestPath.regionMatches(position + 1, segment, 0, length)) {
+                    return false;
+                }
+                position = end;
+            }
+            return position == requestPath.length();
+        }
+    }
+
+    private static class CachedResponse {
+        private final byte[] body;
+        private final long expiresNanos;
+
+        private CachedResponse(byte[] body, long expiresNanos) {
+            this.body = body;
+            this.expiresNanos = expiresNanos;
+        }
+    }
 }
@@ -0,0 +1,70 @@
+package systems.cauldron.utility.trading.core;
+
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParsingException;
+
+/**
+ * Helpers for pulling individual values out of a {@link JsonParser} without materializing the surrounding document.
+ */
+class JsonStreams {
+
+    private JsonStreams() {
+    }
+
+    static void expect(JsonParser parser, JsonParser.Event expected) {
+        JsonParser.Event actual = parser.next();
+        if (actual != expected) {
+            throw new JsonParsingException("expected " + expected + " but found " + actual, parser.getLocation());
+        }
+    }
+
+    /**
+     * Consumes the value following the current key, descending into nothing.
+     */
+    static void skipValue(JsonParser parser) {
+        switch (parser.next()) {
+            case START_OBJECT:
+                parser.skipObject();
+                break;
+            case START_ARRAY:
+                parser.skipArray();
+                break;
+            default:
+                break;
+        }
+    }
+
+    static String readString(JsonParser parser) {
+        return parser.next() == JsonParser.Event.VALUE_NULL ? null : parser.getString();
+    }
+
+    static long readLong(JsonParser parser) {
+        switch (parser.next()) {
+            case VALUE_NUMBER:
+                return parser.isIntegralNumber() ? parser.getLong() : (long) Double.parseDouble(parser.getString());
+            case VALUE_NULL:
+                return 0L;
+            default:
+                throw new JsonParsingException("expected number", parser.getLocation());
+        }
+    }
+
+    static double readDouble(JsonParser parser) {
+        switch (parser.next()) {
+            case VALUE_NUMBER:
+                return numberValue(parser);
+            case VALUE_NULL:
+                return 0.0;
+            default:
+                throw new JsonParsingException("expected number", parser.getLocation());
+        }
+    }
+
+    /**
+     * @return the number the parser is positioned on; its text parses to the same double without building a
+     * BigDecimal first
+     */
+    static double numberValue(JsonParser parser) {
+        return parser.isIntegralNumber() ? parser.getLong() : Double.parseDouble(parser.getString());
+    }
+}
@@ -0,0 +1,91 @@
+package systems.cauldron.utility.trading.core;
+
+import java.util.function.Consumer;
+
+/**
+ * Maps {@code QUOTE} (level one equities) data entries onto a {@link QuoteBook}. Streamer updates only carry the
+ * fields that changed, so each content item is applied as a masked partial update. Optionally every updated row is
+ * also recorded to a {@link TickFileWriter}.
+ */
+public class LevelOneQuoteHandler implements Consumer<StreamerEntry> {
+
+    public static final String FIELDS = "0,1,2,3,4,5,8,9";
+
+    private final QuoteBook book;
+    private final TickFileWriter ticks;
+    private final QuoteSnapshot row = new QuoteSnapshot();
+
+    public LevelOneQuoteHandler(QuoteBook book) {
+        this(book, null);
+    }
+
+    /**
+     * @param ticks receives the full row after each update, may be null
+     */
+    public LevelOneQuoteHandler(QuoteBook book, TickFileWriter ticks) {
+        this.book = book;
+        this.ticks = ticks;
+    }
+
+    @Override
+    public void accept(StreamerEntry entry) {
+        SymbolTable symbols = book.getSymbols();
+        for (int c = 0; c < entry.getContentCount(); c++) {
+            String key = entry.getText(c, "key");
+            if (key == null) {
+                continue;
+            }
+            int mask = 0;
+            double bid = 0.0;
+            double ask = 0.0;
+            double last = 0.0;
+            long bidSize = 0L;
+            long askSize = 0L;
+            long lastSize = 0L;
+            long volume = 0L;
+            for (int i = entry.fieldStart(c), end = entry.fieldEnd(c); i < end; i++) {
+                if (!entry.isNumber(i)) {
+                    continue;
+                }
+                double value = entry.number(i);
+                switch (entry.fieldName(i)) {
+                    case "1":
+                        bid = value;
+                        mask |= QuoteBook.BID;
+                        break;
+                    case "2":
+                        ask = value;
+                        mask |= QuoteBook.ASK;
+                        break;
+                    case "3":
+                        last = value;
+                        mask |= QuoteBook.LAST;
+                        break;
+                    case "4":
+                        bidSize = (long) value;
+                        mask |= QuoteBook.BID_SIZE;
+                        break;
+                    case "5":
+                        askSize = (long) value;
+                        mask |= QuoteBook.ASK_SIZE;
+                        break;
+                    case "8":
+                        volume = (long) value;
+                        mask |= QuoteBook.VOLUME;
+                        break;
+                    case "9":
+                        lastSize = (long) value;
+                        mask |= QuoteBook.LAST_SIZE;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            int id = symbols.intern(key);
+            book.update(id, mask, bid, ask, last, bidSize, askSize, lastSize, volume, entry.getTimestamp());
+            if (ticks != null && book.read(id, row)) {
+                ticks.append(key, row);
+            }
+        }
+    }
+}
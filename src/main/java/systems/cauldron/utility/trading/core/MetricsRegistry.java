@@ -0,0 +1,171 @@
+package systems.cauldron.utility.trading.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Named histograms and counters shared by the gateway, streamer, scheduler and authentication. Components look their
+ * metrics up once and record into them directly, so only creation goes through the registry. Everything can be
+ * exposed as MBeans under the registry's JMX domain and dumped to the log periodically.
+ */
+public class MetricsRegistry {
+
+    private final static Logger LOG = LogManager.getLogger(MetricsRegistry.class);
+
+    public static final String NANOSECONDS = "ns";
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry("systems.cauldron.utility.trading");
+
+    private final String domain;
+    private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final Map<ObjectName, Object> exposed = new ConcurrentHashMap<>();
+
+    private volatile boolean exposing;
+    private ScheduledExecutorService dumper;
+    private ScheduledFuture<?> dump;
+
+    public MetricsRegistry(String domain) {
+        this.domain = domain;
+    }
+
+    /**
+     * Registry used by every component that is not handed one explicitly.
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param group e.g. {@code http} or {@code streamer}
+     * @param name  e.g. {@code GET /v1/accounts} or {@code QUOTE dispatch}
+     */
+    public Histogram histogram(String group, String name, String unit) {
+        return histograms.computeIfAbsent(group + " " + name, key -> {
+            Histogram histogram = new Histogram(unit);
+            if (exposing) {
+                register(objectName("Histogram", group, name), histogram);
+            }
+            return histogram;
+        });
+    }
+
+    public Counter counter(String group, String name) {
+        return counters.computeIfAbsent(group + " " + name, key -> {
+            Counter counter = new Counter();
+            if (exposing) {
+                register(objectName("Counter", group, name), counter);
+            }
+            return counter;
+        });
+    }
+
+    /**
+     * Registers every current and future metric with the platform MBean server.
+     */
+    public synchronized void exposeMBeans() {
+        if (exposing) {
+            return;
+        }
+        exposing = true;
+        histograms.forEach((key, histogram) -> register(objectName("Histogram", key), histogram));
+        counters.forEach((key, counter) -> register(objectName("Counter", key), counter));
+        LOG.info("exposed {} metrics under jmx domain {}", exposed.size(), domain);
+    }
+
+    public synchronized void hideMBeans() {
+        exposing = false;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : new ArrayList<>(exposed.keySet())) {
+            try {
+                server.unregisterMBean(name);
+            } catch (InstanceNotFoundException ex) {
+                LOG.debug("{} was already unregistered", name);
+            } catch (JMException ex) {
+                LOG.warn("failed to unregister {}", name, ex);
+            }
+            exposed.remove(name);
+        }
+    }
+
+    /**
+     * Logs {@link #snapshot()} at the given interval until {@link #stopSnapshotDump()}.
+     */
+    public synchronized void startSnapshotDump(Duration interval) {
+        stopSnapshotDump();
+        if (dumper == null) {
+            dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        long millis = interval.toMillis();
+        dump = dumper.scheduleAtFixedRate(() -> LOG.info("metrics snapshot\n{}", snapshot()), millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopSnapshotDump() {
+        Optional.ofNullable(dump).ifPresent(d -> d.cancel(false));
+        dump = null;
+    }
+
+    /**
+     * One line per metric; nanosecond histograms are reported in microseconds.
+     */
+    public String snapshot() {
+        List<String> lines = new ArrayList<>(histograms.size() + counters.size());
+        histograms.forEach((key, h) -> {
+            boolean nanos = NANOSECONDS.equals(h.getUnit());
+            double scale = nanos ? 1e-3 : 1.0;
+            String unit = nanos ? "us" : h.getUnit();
+            lines.add(String.format(Locale.ROOT, "%s [%s] count=%d mean=%.1f p50=%.1f p90=%.1f p99=%.1f p999=%.1f max=%.1f",
+                    key, unit, h.getCount(), h.getMean() * scale, h.getP50() * scale, h.getP90() * scale,
+                    h.getP99() * scale, h.getP999() * scale, h.getMax() * scale));
+        });
+        counters.forEach((key, c) -> lines.add(key + " count=" + c.getCount()));
+        return String.join("\n", lines);
+    }
+
+    private ObjectName objectName(String type, String key) {
+        int split = key.indexOf(' ');
+        return objectName(type, key.substring(0, split), key.substring(split + 1));
+    }
+
+    private ObjectName objectName(String type, String group, String name) {
+        try {
+            return new ObjectName(domain + ":type=" + type + ",group=" + ObjectName.quote(group) + ",name=" + ObjectName.quote(name));
+        } catch (JMException ex) {
+            throw new IllegalArgumentException("invalid metric name " + group + " " + name, ex);
+        }
+    }
+
+    private void register(ObjectName name, Object metric) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metric, name);
+            exposed.put(name, metric);
+        } catch (InstanceAlreadyExistsException ex) {
+            LOG.warn("{} is already registered", name);
+        } catch (JMException ex) {
+            LOG.warn("failed to register {}", name, ex);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * One order lifecycle event decoded from an {@code ACCT_ACTIVITY} message. Fields that the message type does not
+ * carry are left at zero or null.
+ */
+@Getter
+@Builder
+public class OrderEvent {
+
+    public enum Type {
+        ENTRY,
+        ROUTE,
+        PARTIAL_FILL,
+        FILL,
+        CANCEL_REQUEST,
+        REPLACE_REQUEST,
+        CANCELED,
+        REJECTED,
+        TOO_LATE_TO_CANCEL,
+        OTHER
+    }
+
+    private final Type type;
+    private final String messageType;
+    private final String accountId;
+    private final String orderId;
+    private final String symbol;
+    private final OrderTemplate.Instruction instruction;
+    private final String activityTimestamp;
+    private final long originalQuantity;
+    private final long executionQuantity;
+    private final BigDecimal executionPrice;
+    /**
+     * The broker's id of the execution, the same on every delivery of it.
+     */
+    private final String executionId;
+    private final long leavesQuantity;
+    private final long cancelledQuantity;
+    private final String rejectReason;
+}
@@ -0,0 +1,155 @@
+package systems.cauldron.utility.trading.core;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Decodes the XML bodies of {@code ACCT_ACTIVITY} order messages with a StAX cursor, picking out only the elements an
+ * {@link OrderEvent} needs and never building a document. Element names are matched without their namespace. Thread
+ * safe.
+ */
+public class OrderEventParser {
+
+    private static final Map<String, OrderEvent.Type> TYPES = Map.of(
+            "OrderEntryRequest", OrderEvent.Type.ENTRY,
+            "OrderRoute", OrderEvent.Type.ROUTE,
+            "OrderPartialFill", OrderEvent.Type.PARTIAL_FILL,
+            "OrderFill", OrderEvent.Type.FILL,
+            "OrderCancelRequest", OrderEvent.Type.CANCEL_REQUEST,
+            "OrderCancelReplaceRequest", OrderEvent.Type.REPLACE_REQUEST,
+            "UROUT", OrderEvent.Type.CANCELED,
+            "OrderRejection", OrderEvent.Type.REJECTED,
+            "TooLateToCancel", OrderEvent.Type.TOO_LATE_TO_CANCEL
+    );
+
+    private final XMLInputFactory factory;
+
+    public OrderEventParser() {
+        factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * @return the event, or null if the message does not concern an order
+     * @throws IllegalArgumentException if the body is not well-formed
+     */
+    public OrderEvent parse(String accountId, String messageType, String messageContent) {
+        if (messageContent == null || messageContent.isBlank()) {
+            return null;
+        }
+        OrderEvent.OrderEventBuilder event = OrderEvent.builder()
+                .type(TYPES.getOrDefault(messageType, OrderEvent.Type.OTHER))
+                .messageType(messageType)
+                .accountId(accountId);
+        String orderId = null;
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(messageContent));
+            try {
+                // the only nesting that matters: order details versus execution details
+                boolean inOrder = false;
+                boolean inExecution = false;
+                while (reader.hasNext()) {
+                    int next = reader.next();
+                    if (next == XMLStreamConstants.END_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if ("Order".equals(name)) {
+                            inOrder = false;
+                        } else if ("ExecutionInformation".equals(name)) {
+                            inExecution = false;
+                        }
+                        continue;
+                    }
+                    if (next != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    switch (reader.getLocalName()) {
+                        case "Order":
+                            inOrder = true;
+                            break;
+                        case "ExecutionInformation":
+                            inExecution = true;
+                            break;
+                        case "OrderKey":
+                            if (orderId == null) {
+                                orderId = reader.getElementText().trim();
+                            }
+                            break;
+                        case "Symbol":
+                            if (inOrder) {
+                                event.symbol(reader.getElementText().trim());
+                            }
+                            break;
+                        case "OrderInstructions":
+                            if (inOrder) {
+                                event.instruction(instruction(reader.getElementText().trim()));
+                            }
+                            break;
+                        case "OriginalQuantity":
+                            if (inOrder) {
+                                event.originalQuantity(quantity(reader.getElementText()));
+                            }
+                            break;
+                        case "Quantity":
+                            if (inExecution) {
+                                event.executionQuantity(quantity(reader.getElementText()));
+                            }
+                            break;
+                        case "ExecutionPrice":
+                            if (inExecution) {
+                                event.executionPrice(new BigDecimal(reader.getElementText().trim()));
+                            }
+                            break;
+                        case "ID":
+                            if (inExecution) {
+                                event.executionId(reader.getElementText().trim());
+                            }
+                            break;
+                        case "LeavesQuantity":
+                            event.leavesQuantity(quantity(reader.getElementText()));
+                            break;
+                        case "CancelledQuantity":
+                            event.cancelledQuantity(quantity(reader.getElementText()));
+                            break;
+                        case "RejectReason":
+                            event.rejectReason(reader.getElementText().trim());
+                            break;
+                        case "ActivityTimestamp":
+                            event.activityTimestamp(reader.getElementText().trim());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | NumberFormatException ex) {
+            throw new IllegalArgumentException("malformed " + messageType + " message", ex);
+        }
+        return orderId == null ? null : event.orderId(orderId).build();
+    }
+
+    /**
+     * Buy to cover and sell short only differ from buy and sell in how the broker books them.
+     */
+    private static OrderTemplate.Instruction instruction(String text) {
+        if (text.startsWith("Buy")) {
+            return OrderTemplate.Instruction.BUY;
+        }
+        if (text.startsWith("Sell")) {
+            return OrderTemplate.Instruction.SELL;
+        }
+        return null;
+    }
+
+    private static long quantity(String text) {
+        return new BigDecimal(text.trim()).longValue();
+    }
+}
@@ -0,0 +1,124 @@
+package systems.cauldron.utility.trading.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pooled byte buffer an {@link OrderTemplate} renders into. The buffer backs the request body publisher directly, so
+ * it must only be released once the request carrying it has completed.
+ */
+public class OrderPayload {
+
+    private static final int POOL_LIMIT = 64;
+    private static final Queue<OrderPayload> POOL = new ConcurrentLinkedQueue<>();
+
+    private byte[] bytes = new byte[512];
+    private int length;
+
+    private OrderPayload() {
+    }
+
+    public static OrderPayload acquire() {
+        OrderPayload payload = POOL.poll();
+        if (payload == null) {
+            payload = new OrderPayload();
+        }
+        payload.length = 0;
+        return payload;
+    }
+
+    public void release() {
+        if (POOL.size() < POOL_LIMIT) {
+            POOL.offer(this);
+        }
+    }
+
+    public byte[] array() {
+        return bytes;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    void write(byte[] chunk) {
+        ensureCapacity(length + chunk.length);
+        System.arraycopy(chunk, 0, bytes, length, chunk.length);
+        length += chunk.length;
+    }
+
+    void writeLong(long value) {
+        ensureCapacity(length + 20);
+        if (value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        int start = length;
+        do {
+            bytes[length++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        reverse(start, length - 1);
+    }
+
+    /**
+     * Writes {@code unscaled * 10^-scale} in plain notation.
+     */
+    void writeDecimal(long unscaled, int scale) {
+        if (scale <= 0) {
+            writeLong(unscaled);
+            for (int i = 0; i < -scale; i++) {
+                write((byte) '0');
+            }
+            return;
+        }
+        ensureCapacity(length + 22 + scale);
+        if (unscaled < 0) {
+            bytes[length++] = '-';
+            unscaled = -unscaled;
+        }
+        int start = length;
+        int digits = 0;
+        do {
+            bytes[length++] = (byte) ('0' + unscaled % 10);
+            unscaled /= 10;
+            if (++digits == scale) {
+                bytes[length++] = '.';
+            }
+        } while (unscaled != 0 || digits < scale);
+        if (digits == scale) {
+            bytes[length++] = '0';
+        }
+        reverse(start, length - 1);
+    }
+
+    void writeDecimal(FixedPoint value) {
+        value.writeTo(this);
+    }
+
+    private void write(byte b) {
+        ensureCapacity(length + 1);
+        bytes[length++] = b;
+    }
+
+    private void reverse(int from, int to) {
+        while (from < to) {
+            byte tmp = bytes[from];
+            bytes[from++] = bytes[to];
+            bytes[to--] = tmp;
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length << 1));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Paces broker requests with a token bucket sized to the broker's requests-per-minute allowance and caps the number
+ * in flight. Waiting requests go out highest priority (largest notional) first.
+ */
+public class OrderScheduler implements AutoCloseable {
+
+    private final static Logger LOG = LogManager.getLogger(OrderScheduler.class);
+
+    public static final double DEFAULT_REQUESTS_PER_MINUTE = 120.0;
+    public static final int DEFAULT_BURST = 10;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+    private static final Comparator<Job<?>> ORDERING = Comparator.<Job<?>>comparingDouble(j -> -j.priority)
+            .thenComparingLong(j -> j.sequence);
+
+    private final PriorityBlockingQueue<Job<?>> queue = new PriorityBlockingQueue<>(64, ORDERING);
+    private final AtomicLong sequenceSource = new AtomicLong();
+    private final TokenBucket bucket;
+    private final Semaphore inFlight;
+    private final Consumer<SubmissionReport> listener;
+    private final Thread drainer;
+    private final Histogram queuedTime;
+    private final Histogram ackLatency;
+    private final Counter failures;
+
+    private volatile boolean closed;
+
+    public OrderScheduler() {
+        this(null, null, null, null, null);
+    }
+
+    /**
+     * @param metrics receives queueing time and acknowledgment latency, defaults to {@link MetricsRegistry#global()}
+     */
+    @Builder
+    private OrderScheduler(Double requestsPerMinute, Integer burst, Integer maxInFlight, Consumer<SubmissionReport> listener, MetricsRegistry metrics) {
+        this.bucket = new TokenBucket(
+                Optional.ofNullable(requestsPerMinute).orElse(DEFAULT_REQUESTS_PER_MINUTE) / TimeUnit.MINUTES.toNanos(1L),
+                Optional.ofNullable(burst).orElse(DEFAULT_BURST));
+        this.inFlight = new Semaphore(Optional.ofNullable(maxInFlight).orElse(DEFAULT_MAX_IN_FLIGHT));
+        this.listener = Optional.ofNullable(listener).orElse(OrderScheduler::logReport);
+        MetricsRegistry registry = Optional.ofNullable(metrics).orElse(MetricsRegistry.global());
+        this.queuedTime = registry.histogram("orders", "queued", MetricsRegistry.NANOSECONDS);
+        this.ackLatency = registry.histogram("orders", "ack", MetricsRegistry.NANOSECONDS);
+        this.failures = registry.counter("orders", "failures");
+        this.drainer = new Thread(this::drain, "order-scheduler");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    public <T> CompletableFuture<T> submit(String label, double priority, Supplier<CompletableFuture<T>> request) {
+        return submit(label, priority, System.nanoTime(), request);
+    }
+
+    /**
+     * @param decisionNanos {@link System#nanoTime()} at which the order was decided on; latency is reported from here
+     */
+    public <T> CompletableFuture<T> submit(String label, double priority, long decisionNanos, Supplier<CompletableFuture<T>> request) {
+        return submit(label, priority, decisionNanos, request, () -> {
+        });
+    }
+
+    /**
+     * @param discarded run instead of {@code request} when the scheduler closes before sending it, to free whatever
+     *                  the request would have cleaned up after itself
+     */
+    public <T> CompletableFuture<T> submit(String label, double priority, Supplier<CompletableFuture<T>> request, Runnable discarded) {
+        return submit(label, priority, System.nanoTime(), request, discarded);
+    }
+
+    public <T> CompletableFuture<T> submit(String label, double priority, long decisionNanos, Supplier<CompletableFuture<T>> request, Runnable discarded) {
+        Job<T> job = new Job<>(label, priority, sequenceSource.getAndIncrement(), decisionNanos, request, discarded);
+        if (closed) {
+            reject(job);
+            return job.result;
+        }
+        queue.offer(job);
+        // close() may have drained the queue between the check and the offer; nothing would poll the job then
+        if (closed && queue.remove(job)) {
+            reject(job);
+        }
+        return job.result;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        drainer.interrupt();
+        rejectQueued();
+    }
+
+    private void rejectQueued() {
+        Job<?> job;
+        while ((job = queue.poll()) != null) {
+            reject(job);
+        }
+    }
+
+    private static void reject(Job<?> job) {
+        try {
+            job.discarded.run();
+        } finally {
+            job.result.completeExceptionally(new CancellationException("scheduler closed"));
+        }
+    }
+
+    private void drain() {
+        try {
+            while (!closed) {
+                // wait for work without committing to a job, so later arrivals can still overtake it
+                queue.offer(queue.take());
+                inFlight.acquire();
+                long wait;
+                while ((wait = bucket.tryAcquire(System.nanoTime())) > 0L) {
+                    LockSupport.parkNanos(this, wait);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                Job<?> job = queue.poll();
+                if (job == null) {
+                    inFlight.release();
+                    continue;
+                }
+                launch(job);
+            }
+        } catch (InterruptedException ex) {
+            LOG.debug("order scheduler stopped");
+        } finally {
+            // a job taken for peeking while close() drained was offered back after it
+            rejectQueued();
+        }
+    }
+
+    private <T> void launch(Job<T> job) {
+        long sentNanos = System.nanoTime();
+        CompletableFuture<T> response;
+        try {
+            response = job.request.get();
+        } catch (RuntimeException ex) {
+            response = CompletableFuture.failedFuture(ex);
+        }
+        response.whenComplete((value, failure) -> {
+            inFlight.release();
+            long latencyNanos = System.nanoTime() - job.decisionNanos;
+            queuedTime.record(sentNanos - job.decisionNanos);
+            if (failure != null) {
+                failures.increment();
+            } else {
+                ackLatency.record(latencyNanos);
+            }
+            listener.accept(SubmissionReport.builder()
+                    .label(job.label)
+                    .priority(job.priority)
+                    .queuedNanos(sentNanos - job.decisionNanos)
+                    .latencyNanos(latencyNanos)
+                    .failure(failure)
+                    .build());
+            if (failure != null) {
+                job.result.completeExceptionally(failure);
+            } else {
+                job.result.complete(value);
+            }
+        });
+    }
+
+    private static void logReport(SubmissionReport report) {
+        if (report.isSuccessful()) {
+            LOG.info("{} acknowledged after {} us ({} us queued)", report.getLabel(),
+                    TimeUnit.NANOSECONDS.toMicros(report.getLatencyNanos()), TimeUnit.NANOSECONDS.toMicros(report.getQueuedNanos()));
+        } else {
+            LOG.error("{} failed after {} us", report.getLabel(), TimeUnit.NANOSECONDS.toMicros(report.getLatencyNanos()), report.getFailure());
+        }
+    }
+
+    private static class Job<T> {
+        private final String label;
+        private final double priority;
+        private final long sequence;
+        private final long decisionNanos;
+        private final Supplier<CompletableFuture<T>> request;
+        private final Runnable discarded;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Job(String label, double priority, long sequence, long decisionNanos, Supplier<CompletableFuture<T>> request, Runnable discarded) {
+            this.label = label;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.decisionNanos = decisionNanos;
+            this.request = request;
+            this.discarded = discarded;
+        }
+    }
+
+    /**
+     * Only ever touched by the drainer thread.
+     */
+    private static class TokenBucket {
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        private TokenBucket(double tokensPerNano, int capacity) {
+            this.tokensPerNano = tokensPerNano;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        /**
+         * @return 0 if a token was taken, otherwise the nanoseconds until one will be available
+         */
+        private long tryAcquire(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return 0L;
+            }
+            return Math.max(1L, (long) Math.ceil((1.0 - tokens) / tokensPerNano));
+        }
+    }
+}
@@ -1,56 +1,132 @@
 package systems.cauldron.utility.trading.core;
 
-import javax.json.Json;
-import javax.json.JsonObject;
-import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public class OrderService {
 
-    private static final String ACCOUNT_ORDERS_ENDPOINT = "https://api.tdameritrade.com/v1/accounts/%s/orders";
-    private static final String ACCOUNT_ORDER_ENDPOINT = "https://api.tdameritrade.com/v1/accounts/%s/orders/%s";
+    private static final String ACCOUNT_ORDERS_PATH = "/v1/accounts/%s/orders";
+    private static final String ACCOUNT_ORDER_PATH = "/v1/accounts/%s/orders/%s";
+    private static final String ACCOUNTS_PATH = "/v1/accounts";
 
-    private final Supplier<String> accessTokenSource;
+    private final HttpGateway gateway;
+    private final AccessTokenSource accessTokenSource;
+    private final OrderScheduler scheduler;
+    private final String accountOrdersEndpoint;
+    private final String accountOrderEndpoint;
+    private final String accountsEndpoint;
 
-    public OrderService(Supplier<String> accessTokenSource) {
-        this.accessTokenSource = accessTokenSource;
+    /**
+     * @param scheduler owned and closed by the caller; share one between every service placing orders for the same
+     *                  accounts, so that together they stay within the broker's rate limit
+     */
+    public OrderService(HttpGateway gateway, Supplier<String> accessTokenSource, OrderScheduler scheduler) {
+        this.gateway = gateway;
+        this.accessTokenSource = AccessTokenSource.of(accessTokenSource);
+        this.scheduler = scheduler;
+        this.accountOrdersEndpoint = gateway.resolve(ACCOUNT_ORDERS_PATH);
+        this.accountOrderEndpoint = gateway.resolve(ACCOUNT_ORDER_PATH);
+        this.accountsEndpoint = gateway.resolve(ACCOUNTS_PATH);
     }
 
-    public CompletableFuture<String> createEquityBuyLimitOrder(String accountId, BigDecimal price, int quantity, String symbol) {
-        JsonObject requestBody = Json.createObjectBuilder()
-                .add("orderType", "LIMIT")
-                .add("session", "NORMAL")
-                .add("price", price.toString())
-                .add("duration", "DAY")
-                .add("orderStrategyType", "SINGLE")
-                .add("orderLegCollection", Json.createArrayBuilder()
-                        .add(Json.createObjectBuilder()
-                                .add("instruction", "BUY")
-                                .add("quantity", quantity)
-                                .add("instrument", Json.createObjectBuilder()
-                                        .add("symbol", symbol)
-                                        .add("assetType", "EQUITY")
-                                )
-                        )
-                )
-                .build();
-        return doCreateOrder(accountId, requestBody);
+    public CompletableFuture<String> createEquityBuyLimitOrder(String accountId, FixedPoint price, int quantity, String symbol) {
+        return createEquityOrder(accountId, OrderTemplate.Type.LIMIT, OrderTemplate.Instruction.BUY, price, quantity, symbol);
+    }
+
+    public CompletableFuture<String> createEquitySellLimitOrder(String accountId, FixedPoint price, int quantity, String symbol) {
+        return createEquityOrder(accountId, OrderTemplate.Type.LIMIT, OrderTemplate.Instruction.SELL, price, quantity, symbol);
+    }
+
+    public CompletableFuture<String> createEquityMarketOrder(String accountId, OrderTemplate.Instruction instruction, int quantity, String symbol) {
+        return createEquityOrder(accountId, OrderTemplate.Type.MARKET, instruction, null, quantity, symbol);
+    }
+
+    public CompletableFuture<String> createEquityStopOrder(String accountId, OrderTemplate.Instruction instruction, FixedPoint stopPrice, int quantity, String symbol) {
+        return createEquityOrder(accountId, OrderTemplate.Type.STOP, instruction, stopPrice, quantity, symbol);
+    }
+
+    /**
+     * @param price limit or stop price, ignored for market orders; also used to rank the order by notional
+     */
+    public CompletableFuture<String> createEquityOrder(String accountId, OrderTemplate.Type type, OrderTemplate.Instruction instruction, FixedPoint price, int quantity, String symbol) {
+        OrderPayload payload = OrderTemplate.of(type, instruction, symbol).render(price, quantity);
+        double notional = price == null ? 0.0 : price.doubleValue() * quantity;
+        String label = instruction + " " + quantity + " " + symbol + " " + type + (price == null ? "" : " @ " + price) + " for " + accountId;
+        CompletableFuture<String> result = scheduler.submit(label, notional, releasing(payload, () -> doCreateOrder(accountId, payload)), payload::release);
+        result.whenComplete((orderId, ex) -> invalidateAccounts());
+        return result;
     }
 
     public CompletableFuture<Void> deleteOrder(String accountId, String orderId) {
-        return doDeleteOrder(accountId, orderId);
+        // cancels jump the queue ahead of any pending entries
+        CompletableFuture<Void> result = scheduler.submit("DELETE " + orderId + " for " + accountId, Double.MAX_VALUE, () -> doDeleteOrder(accountId, orderId));
+        result.whenComplete((x, ex) -> invalidateAccounts());
+        return result;
+    }
+
+    /**
+     * Swaps the order for one at a new price and quantity in a single request, so there is no moment with neither
+     * order working.
+     *
+     * @return the id of the replacement order
+     */
+    public CompletableFuture<String> replaceEquityOrder(String accountId, String orderId, OrderTemplate.Type type, OrderTemplate.Instruction instruction, FixedPoint price, int quantity, String symbol) {
+        OrderPayload payload = OrderTemplate.of(type, instruction, symbol).render(price, quantity);
+        double notional = price == null ? 0.0 : price.doubleValue() * quantity;
+        String label = "REPLACE " + orderId + " with " + instruction + " " + quantity + " " + symbol + " " + type + (price == null ? "" : " @ " + price) + " for " + accountId;
+        CompletableFuture<String> result = scheduler.submit(label, notional, releasing(payload, () -> doUpdateOrder(accountId, orderId, payload)), payload::release);
+        result.whenComplete((replacementId, ex) -> invalidateAccounts());
+        return result;
+    }
+
+    /**
+     * @return the account's orders that can still be canceled
+     */
+    public CompletableFuture<List<WorkingOrder>> getWorkingOrders(String accountId) {
+        return gateway.doAuthorizedGetForJsonList(String.format(accountOrdersEndpoint, accountId), accessTokenSource, Collections.emptyMap())
+                .thenApply(orders -> orders.stream()
+                        .map(o -> WorkingOrder.of(accountId, o))
+                        .filter(WorkingOrder::isCancelable)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Orders move balances and order listings, so whatever account responses the gateway has cached are stale now;
+     * failures included, since the broker may have acted on a request whose response was lost.
+     */
+    private void invalidateAccounts() {
+        gateway.invalidate(accountsEndpoint);
+    }
+
+    /**
+     * Hands the payload back to the pool once the request sending it is done with it. The future the caller holds is
+     * no guide to that, since cancelling or timing it out leaves the request going.
+     */
+    private static <T> Supplier<CompletableFuture<T>> releasing(OrderPayload payload, Supplier<CompletableFuture<T>> send) {
+        return () -> {
+            CompletableFuture<T> sending;
+            try {
+                sending = send.get();
+            } catch (RuntimeException ex) {
+                payload.release();
+                throw ex;
+            }
+            return sending.whenComplete((x, ex) -> payload.release());
+        };
     }
 
-    private CompletableFuture<String> doCreateOrder(String accountId, JsonObject payload) {
-        return HttpGateway.doAuthorizedJsonPost(String.format(ACCOUNT_ORDERS_ENDPOINT, accountId), accessTokenSource, payload);
+    private CompletableFuture<String> doCreateOrder(String accountId, OrderPayload payload) {
+        return gateway.doAuthorizedJsonPost(String.format(accountOrdersEndpoint, accountId), accessTokenSource, payload.array(), payload.length());
     }
 
-    private CompletableFuture<Void> doUpdateOrder(String accountId, String orderId, JsonObject payload) {
-        return HttpGateway.doAuthorizedJsonPut(String.format(ACCOUNT_ORDER_ENDPOINT, accountId, orderId), accessTokenSource, payload);
+    private CompletableFuture<String> doUpdateOrder(String accountId, String orderId, OrderPayload payload) {
+        return gateway.doAuthorizedJsonPut(String.format(accountOrderEndpoint, accountId, orderId), accessTokenSource, payload.array(), payload.length());
     }
 
     private CompletableFuture<Void> doDeleteOrder(String accountId, String orderId) {
-        return HttpGateway.doAuthorizedDelete(String.format(ACCOUNT_ORDER_ENDPOINT, accountId, orderId), accessTokenSource);
+        return gateway.doAuthorizedDelete(String.format(accountOrderEndpoint, accountId, orderId), accessTokenSource);
     }
 }
@@ -0,0 +1,13 @@
+package systems.cauldron.utility.trading.core;
+
+public enum OrderState {
+    WORKING,
+    PARTIALLY_FILLED,
+    FILLED,
+    CANCELED,
+    REJECTED;
+
+    public boolean isTerminal() {
+        return this == FILLED || this == CANCELED || this == REJECTED;
+    }
+}
@@ -0,0 +1,119 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable view of one order as of its latest applied {@link OrderEvent}. Quantities are in shares; the average
+ * price is over all executions seen so far, or null before the first one.
+ */
+@Getter
+public class OrderStatus {
+
+    private final String orderId;
+    private final OrderState state;
+    private final long originalQuantity;
+    private final long filledQuantity;
+    private final long leavesQuantity;
+    private final BigDecimal averagePrice;
+    private final OrderEvent lastEvent;
+    /**
+     * Keys of the executions applied so far, by which redelivered ones are recognized.
+     */
+    private final Set<String> executions;
+
+    // running sum of quantity times price, kept so averages stay exact across partial fills
+    private final BigDecimal filledNotional;
+
+    private OrderStatus(String orderId, OrderState state, long originalQuantity, long filledQuantity, long leavesQuantity, BigDecimal filledNotional,
+                        OrderEvent lastEvent, Set<String> executions) {
+        this.orderId = orderId;
+        this.state = state;
+        this.originalQuantity = originalQuantity;
+        this.filledQuantity = filledQuantity;
+        this.leavesQuantity = leavesQuantity;
+        this.filledNotional = filledNotional;
+        this.averagePrice = filledQuantity == 0L ? null : filledNotional.divide(BigDecimal.valueOf(filledQuantity), MathContext.DECIMAL64);
+        this.lastEvent = lastEvent;
+        this.executions = executions;
+    }
+
+    static OrderStatus initial(String orderId) {
+        return new OrderStatus(orderId, OrderState.WORKING, 0L, 0L, -1L, BigDecimal.ZERO, null, Set.of());
+    }
+
+    /**
+     * @return the status after the event, or this same instance if the event would not move the order forward:
+     * anything after a terminal state, executions already applied (i.e. replays), and other events that change neither
+     * the quantities nor the state (e.g. a repeated entry)
+     */
+    OrderStatus apply(OrderEvent event) {
+        if (state.isTerminal()) {
+            return this;
+        }
+        long original = event.getOriginalQuantity() > 0L ? event.getOriginalQuantity() : originalQuantity;
+        switch (event.getType()) {
+            case PARTIAL_FILL:
+            case FILL:
+                return execute(event, original);
+            case CANCELED:
+                return new OrderStatus(orderId, OrderState.CANCELED, original, filledQuantity, 0L, filledNotional, event, executions);
+            case REJECTED:
+                return new OrderStatus(orderId, OrderState.REJECTED, original, filledQuantity, 0L, filledNotional, event, executions);
+            default:
+                long leaves = leavesQuantity < 0L && original > 0L ? original - filledQuantity : leavesQuantity;
+                if (original == originalQuantity && leaves == leavesQuantity) {
+                    return this;
+                }
+                return new OrderStatus(orderId, state, original, filledQuantity, leaves, filledNotional, event, executions);
+        }
+    }
+
+    /**
+     * An execution is a replay if its key was applied before, or if it is a partial fill whose reported leaves quantity
+     * does not go down. Leaves worked out from the quantities only fill in the status.
+     */
+    private OrderStatus execute(OrderEvent event, long original) {
+        long quantity = event.getExecutionQuantity();
+        String key = executionKey(event);
+        // a partial fill cannot leave nothing, so zero means the message did not say
+        boolean reportsLeaves = event.getType() == OrderEvent.Type.FILL || event.getLeavesQuantity() > 0L;
+        long leaves = event.getType() == OrderEvent.Type.FILL ? 0L : event.getLeavesQuantity();
+        if (quantity <= 0L || (key != null && executions.contains(key))
+                || (reportsLeaves && leavesQuantity >= 0L && leaves >= leavesQuantity && event.getType() != OrderEvent.Type.FILL)) {
+            return this;
+        }
+        if (!reportsLeaves) {
+            // without an original quantity either, the leaves stay unknown
+            leaves = original > 0L ? Math.max(0L, original - filledQuantity - quantity) : -1L;
+        }
+        Set<String> applied = executions;
+        if (key != null) {
+            Set<String> copy = new HashSet<>(executions);
+            copy.add(key);
+            applied = Collections.unmodifiableSet(copy);
+        }
+        BigDecimal notional = event.getExecutionPrice() == null ? filledNotional
+                : filledNotional.add(event.getExecutionPrice().multiply(BigDecimal.valueOf(quantity)));
+        OrderState next = leaves == 0L ? OrderState.FILLED : OrderState.PARTIALLY_FILLED;
+        return new OrderStatus(orderId, next, original, filledQuantity + quantity, leaves, notional, event, applied);
+    }
+
+    /**
+     * @return the execution id, else the activity timestamp, which a redelivery repeats as well; null if neither
+     */
+    private static String executionKey(OrderEvent event) {
+        return event.getExecutionId() != null ? event.getExecutionId() : event.getActivityTimestamp();
+    }
+
+    @Override
+    public String toString() {
+        return orderId + " " + state + " " + filledQuantity + "/" + originalQuantity
+                + (averagePrice == null ? "" : " @ " + averagePrice.toPlainString());
+    }
+}
@@ -0,0 +1,99 @@
+package systems.cauldron.utility.trading.core;
+
+import javax.json.Json;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-leg equity order JSON with everything but quantity and price rendered to bytes up front. Rendering an order
+ * only copies the static chunks and writes the two numbers into a pooled {@link OrderPayload}.
+ */
+public class OrderTemplate {
+
+    public enum Type {
+        MARKET,
+        LIMIT,
+        STOP
+    }
+
+    public enum Instruction {
+        BUY,
+        SELL
+    }
+
+    private static final Map<String, OrderTemplate[]> TEMPLATES = new ConcurrentHashMap<>();
+
+    private final Type type;
+    private final byte[] beforeQuantity;
+    private final byte[] afterQuantity;
+    private final byte[] afterPrice;
+
+    private OrderTemplate(Type type, Instruction instruction, String symbol) {
+        this.type = type;
+        this.beforeQuantity = bytes("{\"orderType\":\"" + type.name() + "\"" +
+                ",\"session\":\"NORMAL\"" +
+                ",\"duration\":\"DAY\"" +
+                ",\"orderStrategyType\":\"SINGLE\"" +
+                ",\"orderLegCollection\":[{" +
+                "\"instruction\":\"" + instruction.name() + "\"" +
+                ",\"instrument\":{\"symbol\":" + Json.createValue(symbol) + ",\"assetType\":\"EQUITY\"}" +
+                ",\"quantity\":");
+        switch (type) {
+            case LIMIT:
+                this.afterQuantity = bytes("}],\"price\":\"");
+                this.afterPrice = bytes("\"}");
+                break;
+            case STOP:
+                this.afterQuantity = bytes("}],\"stopPrice\":\"");
+                this.afterPrice = bytes("\"}");
+                break;
+            default:
+                this.afterQuantity = bytes("}]}");
+                this.afterPrice = null;
+                break;
+        }
+    }
+
+    /**
+     * @return the cached template for the symbol, type and instruction, rendering it on first use
+     */
+    public static OrderTemplate of(Type type, Instruction instruction, String symbol) {
+        OrderTemplate[] templates = TEMPLATES.computeIfAbsent(symbol, s -> new OrderTemplate[Type.values().length * Instruction.values().length]);
+        int slot = type.ordinal() * Instruction.values().length + instruction.ordinal();
+        OrderTemplate template = templates[slot];
+        if (template == null) {
+            template = new OrderTemplate(type, instruction, symbol);
+            templates[slot] = template;
+        }
+        return template;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The price is written as {@link FixedPoint#toString()} prints it. This is the one place the text differs from the
+     * {@link java.math.BigDecimal} rendering it replaced, which kept the scale of the price it was handed: a limit of
+     * {@code 280.50} used to go out as {@code "280.50"} and now goes out as {@code "280.5"}, the same price with its
+     * trailing zeros stripped.
+     *
+     * @param price limit or stop price; ignored for market orders
+     */
+    public OrderPayload render(FixedPoint price, int quantity) {
+        OrderPayload payload = OrderPayload.acquire();
+        payload.write(beforeQuantity);
+        payload.writeLong(quantity);
+        payload.write(afterQuantity);
+        if (afterPrice != null) {
+            payload.writeDecimal(price);
+            payload.write(afterPrice);
+        }
+        return payload;
+    }
+
+    private static byte[] bytes(String chunk) {
+        return chunk.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,247 @@
+package systems.cauldron.utility.trading.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Follows order lifecycles from {@code ACCT_ACTIVITY} events. Each order's status sits in its own
+ * {@link AtomicReference} and only ever moves forward (working, partially filled, then one terminal state), so events
+ * replayed after a reconnect or delivered twice are dropped rather than rolling an order back. Callers can wait for a
+ * particular state by order id; since fills can stream in before the order POST returns its id, waits registered
+ * late still see what already happened.
+ * <p>
+ * Orders in a terminal state are kept for a retention window, long enough for late waits and for replays after a
+ * reconnect to be recognized, and then forgotten as further events arrive.
+ */
+public class OrderTracker implements AccountActivityListener {
+
+    private final static Logger LOG = LogManager.getLogger(OrderTracker.class);
+
+    public static final Duration DEFAULT_RETENTION = Duration.ofMinutes(10L);
+
+    private final OrderEventParser parser = new OrderEventParser();
+    private final Map<String, Tracked> orders = new ConcurrentHashMap<>();
+    // in the order the orders ended, which is also the order they expire in
+    private final Queue<Tracked> ended = new ConcurrentLinkedQueue<>();
+    private final long retentionNanos;
+    private final List<Consumer<OrderEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final Counter applied;
+    private final Counter ignored;
+    private final Counter malformed;
+
+    public OrderTracker() {
+        this(MetricsRegistry.global());
+    }
+
+    public OrderTracker(MetricsRegistry metrics) {
+        this(metrics, DEFAULT_RETENTION);
+    }
+
+    /**
+     * @param retention how long orders are remembered after reaching a terminal state
+     */
+    public OrderTracker(MetricsRegistry metrics, Duration retention) {
+        this.retentionNanos = retention.toNanos();
+        this.applied = metrics.counter("orders", "events applied");
+        this.ignored = metrics.counter("orders", "events ignored");
+        this.malformed = metrics.counter("orders", "events malformed");
+    }
+
+    @Override
+    public void onActivity(String accountId, String messageType, String messageContent) {
+        OrderEvent event;
+        try {
+            event = parser.parse(accountId, messageType, messageContent);
+        } catch (IllegalArgumentException ex) {
+            malformed.increment();
+            LOG.warn("could not parse {} for account {}", messageType, accountId, ex);
+            return;
+        }
+        if (event != null) {
+            apply(event);
+        }
+    }
+
+    /**
+     * @return the status after the event, which is unchanged if the event did not move the order forward
+     */
+    public OrderStatus apply(OrderEvent event) {
+        evictExpired();
+        Tracked tracked = track(event.getOrderId());
+        while (true) {
+            OrderStatus current = tracked.status.get();
+            OrderStatus next = current.apply(event);
+            if (next == current) {
+                ignored.increment();
+                LOG.debug("ignored {} for order {} in state {}", event.getType(), event.getOrderId(), current.getState());
+                return current;
+            }
+            if (tracked.status.compareAndSet(current, next)) {
+                applied.increment();
+                tracked.signal(next);
+                if (next.getState().isTerminal()) {
+                    tracked.endedNanos = System.nanoTime();
+                    ended.offer(tracked);
+                }
+                for (Consumer<OrderEvent> listener : listeners) {
+                    listener.accept(event);
+                }
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Listeners see each event that moved an order forward exactly once, on the thread that applied it; duplicates
+     * and replays are filtered out before.
+     */
+    public void addEventListener(Consumer<OrderEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeEventListener(Consumer<OrderEvent> listener) {
+        listeners.remove(listener);
+    }
+
+    public Optional<OrderStatus> getStatus(String orderId) {
+        // orders only waited on so far have no events and no status yet
+        return Optional.ofNullable(orders.get(orderId)).map(t -> t.status.get()).filter(s -> s.getLastEvent() != null);
+    }
+
+    /**
+     * Completes once the order is in the given state, or exceptionally with an {@link IllegalStateException} if it
+     * ends in a different terminal state first. Combine with {@link CompletableFuture#orTimeout} for an upper bound.
+     */
+    public CompletableFuture<OrderStatus> awaitState(String orderId, OrderState state) {
+        Tracked tracked = track(orderId);
+        Waiter waiter = new Waiter(state);
+        tracked.waiters.add(waiter);
+        // re-check after registering, so a transition racing with registration is never missed
+        if (waiter.test(tracked.status.get())) {
+            tracked.waiters.remove(waiter);
+        }
+        return waiter.result;
+    }
+
+    /**
+     * Joins with an order id that is still on its way back from the broker, e.g. from
+     * {@link OrderService#createEquityOrder}.
+     */
+    public CompletableFuture<OrderStatus> awaitState(CompletableFuture<String> orderId, OrderState state) {
+        return orderId.thenCompose(id -> awaitState(id, state));
+    }
+
+    /**
+     * Completes with whichever terminal state the order reaches.
+     */
+    public CompletableFuture<OrderStatus> awaitTerminal(String orderId) {
+        return awaitState(orderId, null);
+    }
+
+    public CompletableFuture<OrderStatus> awaitTerminal(CompletableFuture<String> orderId) {
+        return orderId.thenCompose(this::awaitTerminal);
+    }
+
+    /**
+     * Forgets an order, failing anything still waiting on it.
+     */
+    public void remove(String orderId) {
+        Tracked tracked = orders.remove(orderId);
+        if (tracked != null) {
+            Waiter waiter;
+            while ((waiter = tracked.waiters.poll()) != null) {
+                waiter.result.completeExceptionally(new IllegalStateException("order " + orderId + " is no longer tracked"));
+            }
+        }
+    }
+
+    public int size() {
+        return orders.size();
+    }
+
+    /**
+     * Terminal orders have no waiters left, as reaching the state completed them and later waits complete at once.
+     */
+    private void evictExpired() {
+        long now = System.nanoTime();
+        Tracked oldest;
+        while ((oldest = ended.peek()) != null && now - oldest.endedNanos >= retentionNanos) {
+            if (ended.remove(oldest)) {
+                orders.remove(oldest.orderId, oldest);
+            }
+        }
+    }
+
+    private Tracked track(String orderId) {
+        Tracked tracked = orders.get(orderId);
+        if (tracked == null) {
+            Tracked created = new Tracked(orderId);
+            tracked = orders.putIfAbsent(orderId, created);
+            if (tracked == null) {
+                tracked = created;
+            }
+        }
+        return tracked;
+    }
+
+    private static class Tracked {
+        private final String orderId;
+        private final AtomicReference<OrderStatus> status;
+        private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+        private volatile long endedNanos;
+
+        private Tracked(String orderId) {
+            this.orderId = orderId;
+            this.status = new AtomicReference<>(OrderStatus.initial(orderId));
+        }
+
+        private void signal(OrderStatus status) {
+            if (!waiters.isEmpty()) {
+                waiters.removeIf(waiter -> waiter.test(status));
+            }
+        }
+    }
+
+    private static class Waiter {
+        private final OrderState target;
+        private final CompletableFuture<OrderStatus> result = new CompletableFuture<>();
+
+        /**
+         * @param target state to wait for, or null for any terminal state
+         */
+        private Waiter(OrderState target) {
+            this.target = target;
+        }
+
+        /**
+         * @return whether the waiter completed
+         */
+        private boolean test(OrderStatus status) {
+            if (status.getLastEvent() == null) {
+                return false;
+            }
+            OrderState state = status.getState();
+            if (target == null ? state.isTerminal() : state == target) {
+                result.complete(status);
+                return true;
+            }
+            if (state.isTerminal()) {
+                result.completeExceptionally(new IllegalStateException("order " + status.getOrderId() + " ended " + state + " instead of " + target));
+                return true;
+            }
+            return false;
+        }
+    }
+}
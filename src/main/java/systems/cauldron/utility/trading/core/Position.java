@@ -0,0 +1,16 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+import lombok.Getter;
+
+@Getter
+@Builder
+public class Position {
+    private final String symbol;
+    private final String assetType;
+    private final double longQuantity;
+    private final double shortQuantity;
+    private final double averagePrice;
+    private final double currentDayProfitLoss;
+    private final double marketValue;
+}
@@ -0,0 +1,232 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+
+import javax.json.stream.JsonParser;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Minute candles from the price history endpoint, kept in a local cache of one {@link CandleCache} file per symbol.
+ * Only the parts of a requested range the cache has not seen yet go to the broker, split into windows the endpoint
+ * accepts and spread over a few concurrent request lanes. Candles are decoded straight from the response into primitive
+ * arrays. Bars still forming are neither cached nor returned, and the last few complete ones only count as fetched once
+ * they have arrived, as the broker publishes the newest bars with a delay. Only one service should use a cache
+ * directory at a time.
+ */
+public class PriceHistoryService {
+
+    private static final String PRICE_HISTORY_PATH = "/v1/marketdata/%s/pricehistory";
+    private static final Path DEFAULT_CACHE_DIRECTORY = Paths.get(System.getProperty("user.home")).resolve(".tradingutility-history");
+    private static final Duration DEFAULT_WINDOW = Duration.ofDays(10L);
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+    /**
+     * Complete bars this close to the clock may not be published yet.
+     */
+    private static final int SETTLE_BARS = 3;
+
+    private final HttpGateway gateway;
+    private final AccessTokenSource accessTokenSource;
+    private final String priceHistoryEndpoint;
+    private final Path cacheDirectory;
+    private final int frequencyMinutes;
+    private final boolean extendedHours;
+    private final long windowMillis;
+    private final int maxConcurrency;
+    private final Clock clock;
+    private final Map<String, CandleCache> caches = new ConcurrentHashMap<>();
+    private final Counter windows;
+    private final Counter candlesFetched;
+    private final Histogram cachedLoads;
+
+    /**
+     * @param cacheDirectory   where the cache files go, defaults to {@code ~/.tradingutility-history}
+     * @param frequencyMinutes bar length, one of 1, 5, 10, 15 or 30; defaults to 1
+     * @param extendedHours    whether to include pre- and post-market bars, defaults to false
+     * @param window           longest range fetched in one request, defaults to 10 days
+     * @param maxConcurrency   requests in flight at once per call, defaults to 4
+     * @param clock            decides which bars are complete, defaults to the system clock
+     * @param metrics          defaults to the gateway's
+     */
+    @Builder
+    private PriceHistoryService(HttpGateway gateway, Supplier<String> accessTokenSource, Path cacheDirectory, Integer frequencyMinutes,
+                                Boolean extendedHours, Duration window, Integer maxConcurrency, Clock clock, MetricsRegistry metrics) {
+        this.gateway = gateway;
+        this.accessTokenSource = AccessTokenSource.of(accessTokenSource);
+        this.priceHistoryEndpoint = gateway.resolve(PRICE_HISTORY_PATH);
+        this.cacheDirectory = Optional.ofNullable(cacheDirectory).orElse(DEFAULT_CACHE_DIRECTORY);
+        this.frequencyMinutes = Optional.ofNullable(frequencyMinutes).orElse(1);
+        this.extendedHours = Optional.ofNullable(extendedHours).orElse(false);
+        this.windowMillis = Optional.ofNullable(window).orElse(DEFAULT_WINDOW).toMillis();
+        this.maxConcurrency = Optional.ofNullable(maxConcurrency).orElse(DEFAULT_MAX_CONCURRENCY);
+        this.clock = Optional.ofNullable(clock).orElse(Clock.systemUTC());
+        if (this.windowMillis <= 0L || this.maxConcurrency < 1) {
+            throw new IllegalArgumentException("window and concurrency must be positive");
+        }
+        MetricsRegistry registry = Optional.ofNullable(metrics).orElse(gateway.getMetrics());
+        this.windows = registry.counter("history", "windows");
+        this.candlesFetched = registry.counter("history", "candles fetched");
+        this.cachedLoads = registry.histogram("history", "cached load", MetricsRegistry.NANOSECONDS);
+    }
+
+    /**
+     * @return the complete bars opening in {@code [from, to)}, fetching whatever the cache is missing first
+     */
+    public CompletableFuture<Candles> getCandles(String symbol, Instant from, Instant to) {
+        long start = System.nanoTime();
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        long barMillis = Duration.ofMinutes(frequencyMinutes).toMillis();
+        long horizon = clock.millis() / barMillis * barMillis;
+        CandleCache cache = caches.computeIfAbsent(symbol, s -> new CandleCache(cacheDirectory.resolve(fileName(s))));
+        List<long[]> missing = CandleCache.missing(cache.ranges(), fromMillis, Math.min(toMillis, horizon));
+        if (missing.isEmpty()) {
+            Candles candles = cache.read(symbol, fromMillis, toMillis);
+            cachedLoads.record(System.nanoTime() - start);
+            return CompletableFuture.completedFuture(candles);
+        }
+        List<long[]> requested = split(missing);
+        List<CompletableFuture<Candles>> results = new ArrayList<>(requested.size());
+        // each lane sends its next window once the previous one is done, whether it failed or not
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(maxConcurrency, requested.size())];
+        Arrays.fill(lanes, CompletableFuture.completedFuture(null));
+        for (int i = 0; i < requested.size(); i++) {
+            long[] range = requested.get(i);
+            int lane = i % lanes.length;
+            CompletableFuture<Candles> result = lanes[lane].handle((x, ex) -> null)
+                    .thenCompose(x -> fetch(symbol, range[0], range[1]));
+            lanes[lane] = result;
+            results.add(result);
+        }
+        long settled = horizon - SETTLE_BARS * barMillis;
+        return CompletableFuture.allOf(results.toArray(CompletableFuture<?>[]::new)).handle((x, ignored) -> {
+            // keep what did arrive, so that a retry only fetches the failed windows
+            List<long[]> fetchedRanges = new ArrayList<>(requested.size());
+            List<Candles> fetched = new ArrayList<>(requested.size());
+            Throwable failure = null;
+            for (int i = 0; i < requested.size(); i++) {
+                CompletableFuture<Candles> result = results.get(i);
+                if (result.isCompletedExceptionally()) {
+                    failure = failure != null ? failure : result.handle((c, ex) -> ex).join();
+                } else {
+                    Candles candles = result.join();
+                    long[] range = requested.get(i);
+                    // unsettled bars not received yet stay missing, to be fetched again
+                    long received = candles.size() == 0 ? range[0] : candles.getTimestamps()[candles.size() - 1] + barMillis;
+                    fetchedRanges.add(new long[]{range[0], Math.min(range[1], Math.max(settled, received))});
+                    fetched.add(candles);
+                }
+            }
+            if (!fetched.isEmpty()) {
+                cache.merge(symbol, fetchedRanges, fetched);
+            }
+            if (failure != null) {
+                throw failure instanceof CompletionException ? (CompletionException) failure : new CompletionException(failure);
+            }
+            return cache.read(symbol, fromMillis, toMillis);
+        });
+    }
+
+    private CompletableFuture<Candles> fetch(String symbol, long from, long to) {
+        return gateway.doAuthorizedGetForDecoded(String.format(priceHistoryEndpoint, symbol), accessTokenSource, Map.of(
+                "periodType", List.of("day"),
+                "frequencyType", List.of("minute"),
+                "frequency", List.of(String.valueOf(frequencyMinutes)),
+                "startDate", List.of(String.valueOf(from)),
+                // the broker's end date is inclusive
+                "endDate", List.of(String.valueOf(to - 1L)),
+                "needExtendedHoursData", List.of(String.valueOf(extendedHours))
+        ), parser -> readCandles(parser, symbol, from, to)).thenApply(candles -> {
+            windows.increment();
+            candlesFetched.add(candles.size());
+            return candles;
+        });
+    }
+
+    /**
+     * @return the ranges cut into windows, in order
+     */
+    private List<long[]> split(List<long[]> ranges) {
+        List<long[]> split = new ArrayList<>();
+        for (long[] range : ranges) {
+            for (long from = range[0]; from < range[1]; from += windowMillis) {
+                split.add(new long[]{from, Math.min(from + windowMillis, range[1])});
+            }
+        }
+        return split;
+    }
+
+    private String fileName(String symbol) {
+        return symbol.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + frequencyMinutes + "m" + (extendedHours ? "-ext" : "") + ".candles";
+    }
+
+    /**
+     * Keeps the candles opening in {@code [from, to)}, in the order received, dropping any that do not move forward
+     * in time.
+     */
+    private static Candles readCandles(JsonParser parser, String symbol, long from, long to) {
+        Candles candles = new Candles(symbol, 0);
+        JsonStreams.expect(parser, JsonParser.Event.START_OBJECT);
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            if ("candles".equals(parser.getString())) {
+                JsonStreams.expect(parser, JsonParser.Event.START_ARRAY);
+                while (parser.next() == JsonParser.Event.START_OBJECT) {
+                    readCandle(parser, candles, from, to);
+                }
+            } else {
+                JsonStreams.skipValue(parser);
+            }
+        }
+        return candles;
+    }
+
+    private static void readCandle(JsonParser parser, Candles candles, long from, long to) {
+        long timestamp = Long.MIN_VALUE;
+        double open = 0.0;
+        double high = 0.0;
+        double low = 0.0;
+        double close = 0.0;
+        long volume = 0L;
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            switch (parser.getString()) {
+                case "datetime":
+                    timestamp = JsonStreams.readLong(parser);
+                    break;
+                case "open":
+                    open = JsonStreams.readDouble(parser);
+                    break;
+                case "high":
+                    high = JsonStreams.readDouble(parser);
+                    break;
+                case "low":
+                    low = JsonStreams.readDouble(parser);
+                    break;
+                case "close":
+                    close = JsonStreams.readDouble(parser);
+                    break;
+                case "volume":
+                    volume = JsonStreams.readLong(parser);
+                    break;
+                default:
+                    JsonStreams.skipValue(parser);
+                    break;
+            }
+        }
+        int size = candles.size();
+        if (timestamp >= from && timestamp < to && (size == 0 || timestamp > candles.getTimestamps()[size - 1])) {
+            candles.add(timestamp, open, high, low, close, volume);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * P&L of a position, an account or everything, as of one moment in a {@link ProfitLossEngine}.
+ */
+@Getter
+@Builder
+public class ProfitLoss {
+    private final double marketValue;
+    private final double unrealized;
+    private final double realized;
+    /**
+     * Change in value since the previous close, as reported by the broker when seeded and carried forward since.
+     */
+    private final double day;
+}
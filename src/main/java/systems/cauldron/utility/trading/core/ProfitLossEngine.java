@@ -0,0 +1,307 @@
+package systems.cauldron.utility.trading.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntConsumer;
+
+/**
+ * Position, account and portfolio P&L kept current by applying each change as a delta rather than re-summing. State
+ * lives in primitive arrays indexed by position slot, and the slots holding a symbol are chained per
+ * {@link SymbolTable} id, so a price tick touches only the positions in that symbol, at constant work each, plus
+ * their accounts and the total. Seeded from the accounts response; after that, prices come from a {@link QuoteBook}
+ * and fills from an {@link OrderTracker}. All methods are synchronized: ticks and fills arrive on different streamer
+ * threads and the lock is otherwise uncontended.
+ */
+public class ProfitLossEngine {
+
+    private static final int INITIAL_POSITIONS = 256;
+    private static final int INITIAL_ACCOUNTS = 16;
+
+    private final SymbolTable symbols;
+    private final int[] firstOfSymbol;
+    private final double[] lastPrice;
+    private final Counter ticks;
+    private final Counter fills;
+
+    private final Map<String, Integer> accountIndex = new HashMap<>();
+    private double[] accountMarketValue = new double[INITIAL_ACCOUNTS];
+    private double[] accountUnrealized = new double[INITIAL_ACCOUNTS];
+    private double[] accountRealized = new double[INITIAL_ACCOUNTS];
+    private double[] accountDay = new double[INITIAL_ACCOUNTS];
+
+    private int positionCount;
+    private int[] positionAccount = new int[INITIAL_POSITIONS];
+    private int[] nextOfSymbol = new int[INITIAL_POSITIONS];
+    private double[] quantity = new double[INITIAL_POSITIONS];
+    private double[] averagePrice = new double[INITIAL_POSITIONS];
+    private double[] mark = new double[INITIAL_POSITIONS];
+    private double[] unrealized = new double[INITIAL_POSITIONS];
+    private double[] realized = new double[INITIAL_POSITIONS];
+    private double[] day = new double[INITIAL_POSITIONS];
+
+    private double totalMarketValue;
+    private double totalUnrealized;
+    private double totalRealized;
+    private double totalDay;
+
+    private QuoteBook book;
+    private IntConsumer priceListener;
+
+    public ProfitLossEngine(SymbolTable symbols) {
+        this(symbols, MetricsRegistry.global());
+    }
+
+    public ProfitLossEngine(SymbolTable symbols, MetricsRegistry metrics) {
+        this.symbols = symbols;
+        this.firstOfSymbol = new int[symbols.capacity()];
+        Arrays.fill(firstOfSymbol, -1);
+        this.lastPrice = new double[symbols.capacity()];
+        this.ticks = metrics.counter("pnl", "ticks");
+        this.fills = metrics.counter("pnl", "fills");
+    }
+
+    /**
+     * Replaces all state with the positions of the given accounts, valued at the broker's market value and carrying
+     * its day P&L. Realized P&L starts from zero.
+     */
+    public synchronized void seed(Collection<Account> accounts) {
+        Arrays.fill(firstOfSymbol, -1);
+        Arrays.fill(lastPrice, 0.0);
+        accountIndex.clear();
+        positionCount = 0;
+        totalMarketValue = 0.0;
+        totalUnrealized = 0.0;
+        totalRealized = 0.0;
+        totalDay = 0.0;
+        for (Account account : accounts) {
+            int a = account(account.getAccountId());
+            for (Position position : account.getPositions()) {
+                double held = position.getLongQuantity() - position.getShortQuantity();
+                int symbolId = symbols.intern(position.getSymbol());
+                int slot = addPosition(a, symbolId, held != 0.0 ? position.getMarketValue() / held : position.getAveragePrice());
+                lastPrice[symbolId] = mark[slot];
+                quantity[slot] = held;
+                averagePrice[slot] = position.getAveragePrice();
+                unrealized[slot] = held * (mark[slot] - averagePrice[slot]);
+                day[slot] = position.getCurrentDayProfitLoss();
+                add(slot, held * mark[slot], unrealized[slot], 0.0, day[slot]);
+            }
+        }
+    }
+
+    /**
+     * Marks every position in the symbol to the given price; non-positive prices are ignored.
+     */
+    public synchronized void onPrice(int symbolId, double price) {
+        if (!(price > 0.0)) {
+            return;
+        }
+        lastPrice[symbolId] = price;
+        for (int slot = firstOfSymbol[symbolId]; slot >= 0; slot = nextOfSymbol[slot]) {
+            double change = price - mark[slot];
+            if (change == 0.0) {
+                continue;
+            }
+            double delta = quantity[slot] * change;
+            mark[slot] = price;
+            unrealized[slot] += delta;
+            day[slot] += delta;
+            add(slot, delta, delta, 0.0, delta);
+        }
+        ticks.increment();
+    }
+
+    /**
+     * Applies fills from an {@link OrderTracker} event listener; other events are ignored.
+     */
+    public void onFill(OrderEvent event) {
+        if ((event.getType() != OrderEvent.Type.FILL && event.getType() != OrderEvent.Type.PARTIAL_FILL)
+                || event.getInstruction() == null || event.getSymbol() == null || event.getExecutionPrice() == null) {
+            return;
+        }
+        long executed = event.getExecutionQuantity();
+        applyFill(event.getAccountId(), event.getSymbol(), event.getInstruction() == OrderTemplate.Instruction.BUY ? executed : -executed,
+                event.getExecutionPrice().doubleValue());
+    }
+
+    /**
+     * Adds a fill to a position, opening it if needed. The part of the fill that reduces the position realizes
+     * against the average price; the part that opens or flips it moves the average price.
+     *
+     * @param signedQuantity positive for buys, negative for sells
+     */
+    public synchronized void applyFill(String accountId, String symbol, double signedQuantity, double price) {
+        int a = account(accountId);
+        int symbolId = symbols.intern(symbol);
+        int slot = find(a, symbolId);
+        if (slot < 0) {
+            slot = addPosition(a, symbolId, lastPrice[symbolId] > 0.0 ? lastPrice[symbolId] : price);
+        }
+        double held = quantity[slot];
+        double after = held + signedQuantity;
+        double realizedDelta = 0.0;
+        if (held != 0.0 && Math.signum(signedQuantity) != Math.signum(held)) {
+            double closed = Math.min(Math.abs(signedQuantity), Math.abs(held)) * Math.signum(held);
+            realizedDelta = (price - averagePrice[slot]) * closed;
+            if (after != 0.0 && Math.signum(after) != Math.signum(held)) {
+                averagePrice[slot] = price;
+            }
+        } else if (after != 0.0) {
+            averagePrice[slot] = (averagePrice[slot] * held + price * signedQuantity) / after;
+        }
+        quantity[slot] = after;
+        double unrealizedAfter = after * (mark[slot] - averagePrice[slot]);
+        double unrealizedDelta = unrealizedAfter - unrealized[slot];
+        double dayDelta = signedQuantity * (mark[slot] - price);
+        unrealized[slot] = unrealizedAfter;
+        realized[slot] += realizedDelta;
+        day[slot] += dayDelta;
+        add(slot, signedQuantity * mark[slot], unrealizedDelta, realizedDelta, dayDelta);
+        fills.increment();
+    }
+
+    /**
+     * Takes prices from the book's writer thread from now on. Only one book at a time.
+     */
+    public synchronized void attach(QuoteBook book) {
+        detach();
+        IntConsumer listener = id -> onPrice(id, book.getLast(id));
+        book.addUpdateListener(listener);
+        this.book = book;
+        this.priceListener = listener;
+    }
+
+    public synchronized void detach() {
+        if (book != null) {
+            book.removeUpdateListener(priceListener);
+            book = null;
+            priceListener = null;
+        }
+    }
+
+    public synchronized ProfitLoss getTotal() {
+        return ProfitLoss.builder()
+                .marketValue(totalMarketValue)
+                .unrealized(totalUnrealized)
+                .realized(totalRealized)
+                .day(totalDay)
+                .build();
+    }
+
+    public synchronized Optional<ProfitLoss> getAccount(String accountId) {
+        return Optional.ofNullable(accountIndex.get(accountId)).map(a -> ProfitLoss.builder()
+                .marketValue(accountMarketValue[a])
+                .unrealized(accountUnrealized[a])
+                .realized(accountRealized[a])
+                .day(accountDay[a])
+                .build());
+    }
+
+    public synchronized Optional<ProfitLoss> getPosition(String accountId, String symbol) {
+        Integer a = accountIndex.get(accountId);
+        int symbolId = symbols.lookup(symbol);
+        int slot = a == null || symbolId < 0 ? -1 : find(a, symbolId);
+        return slot < 0 ? Optional.empty() : Optional.of(ProfitLoss.builder()
+                .marketValue(quantity[slot] * mark[slot])
+                .unrealized(unrealized[slot])
+                .realized(realized[slot])
+                .day(day[slot])
+                .build());
+    }
+
+    public synchronized int size() {
+        return positionCount;
+    }
+
+    /**
+     * Re-sums accounts and the total from the positions, shedding the rounding error that summing many deltas
+     * accumulates. Linear in the number of positions, so meant for an occasional timer rather than every tick.
+     */
+    public synchronized void recompute() {
+        Arrays.fill(accountMarketValue, 0.0);
+        Arrays.fill(accountUnrealized, 0.0);
+        Arrays.fill(accountRealized, 0.0);
+        Arrays.fill(accountDay, 0.0);
+        totalMarketValue = 0.0;
+        totalUnrealized = 0.0;
+        totalRealized = 0.0;
+        totalDay = 0.0;
+        for (int slot = 0; slot < positionCount; slot++) {
+            unrealized[slot] = quantity[slot] * (mark[slot] - averagePrice[slot]);
+            add(slot, quantity[slot] * mark[slot], unrealized[slot], realized[slot], day[slot]);
+        }
+    }
+
+    private void add(int slot, double marketValue, double unrealized, double realized, double day) {
+        int a = positionAccount[slot];
+        accountMarketValue[a] += marketValue;
+        accountUnrealized[a] += unrealized;
+        accountRealized[a] += realized;
+        accountDay[a] += day;
+        totalMarketValue += marketValue;
+        totalUnrealized += unrealized;
+        totalRealized += realized;
+        totalDay += day;
+    }
+
+    private int find(int account, int symbolId) {
+        for (int slot = firstOfSymbol[symbolId]; slot >= 0; slot = nextOfSymbol[slot]) {
+            if (positionAccount[slot] == account) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int account(String accountId) {
+        Integer existing = accountIndex.get(accountId);
+        if (existing != null) {
+            return existing;
+        }
+        int a = accountIndex.size();
+        accountIndex.put(accountId, a);
+        if (a == accountDay.length) {
+            int capacity = a * 2;
+            accountMarketValue = Arrays.copyOf(accountMarketValue, capacity);
+            accountUnrealized = Arrays.copyOf(accountUnrealized, capacity);
+            accountRealized = Arrays.copyOf(accountRealized, capacity);
+            accountDay = Arrays.copyOf(accountDay, capacity);
+        }
+        accountMarketValue[a] = 0.0;
+        accountUnrealized[a] = 0.0;
+        accountRealized[a] = 0.0;
+        accountDay[a] = 0.0;
+        return a;
+    }
+
+    /**
+     * @return the slot of a new flat position marked at the given price
+     */
+    private int addPosition(int account, int symbolId, double price) {
+        int slot = positionCount++;
+        if (slot == quantity.length) {
+            int capacity = slot * 2;
+            positionAccount = Arrays.copyOf(positionAccount, capacity);
+            nextOfSymbol = Arrays.copyOf(nextOfSymbol, capacity);
+            quantity = Arrays.copyOf(quantity, capacity);
+            averagePrice = Arrays.copyOf(averagePrice, capacity);
+            mark = Arrays.copyOf(mark, capacity);
+            unrealized = Arrays.copyOf(unrealized, capacity);
+            realized = Arrays.copyOf(realized, capacity);
+            day = Arrays.copyOf(day, capacity);
+        }
+        positionAccount[slot] = account;
+        nextOfSymbol[slot] = firstOfSymbol[symbolId];
+        firstOfSymbol[symbolId] = slot;
+        quantity[slot] = 0.0;
+        averagePrice[slot] = price;
+        mark[slot] = price;
+        unrealized[slot] = 0.0;
+        realized[slot] = 0.0;
+        day[slot] = 0.0;
+        return slot;
+    }
+}
@@ -0,0 +1,149 @@
+package systems.cauldron.utility.trading.core;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Level one quotes for a fixed universe of symbols, stored column-wise in primitive arrays indexed by
+ * {@link SymbolTable} id. A single writer updates rows under a per-row sequence lock; any number of readers take
+ * consistent snapshots without locking or allocating.
+ */
+public class QuoteBook {
+
+    public static final int BID = 1;
+    public static final int ASK = 1 << 1;
+    public static final int LAST = 1 << 2;
+    public static final int BID_SIZE = 1 << 3;
+    public static final int ASK_SIZE = 1 << 4;
+    public static final int LAST_SIZE = 1 << 5;
+    public static final int VOLUME = 1 << 6;
+
+    private final SymbolTable symbols;
+
+    private final AtomicLongArray sequences;
+    private final double[] bids;
+    private final double[] asks;
+    private final double[] lasts;
+    private final long[] bidSizes;
+    private final long[] askSizes;
+    private final long[] lastSizes;
+    private final long[] volumes;
+    private final long[] timestamps;
+
+    private volatile IntConsumer[] updateListeners = new IntConsumer[0];
+
+    public QuoteBook(int capacity) {
+        this(new SymbolTable(capacity));
+    }
+
+    public QuoteBook(SymbolTable symbols) {
+        int capacity = symbols.capacity();
+        this.symbols = symbols;
+        this.sequences = new AtomicLongArray(capacity);
+        this.bids = new double[capacity];
+        this.asks = new double[capacity];
+        this.lasts = new double[capacity];
+        this.bidSizes = new long[capacity];
+        this.askSizes = new long[capacity];
+        this.lastSizes = new long[capacity];
+        this.volumes = new long[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @param listener called on the writer thread with the id of every row just updated, so it must be cheap, e.g.
+     *                 {@link DirtyIds#mark}
+     */
+    public synchronized void addUpdateListener(IntConsumer listener) {
+        IntConsumer[] current = updateListeners;
+        IntConsumer[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = listener;
+        updateListeners = next;
+    }
+
+    public synchronized void removeUpdateListener(IntConsumer listener) {
+        updateListeners = Arrays.stream(updateListeners).filter(l -> l != listener).toArray(IntConsumer[]::new);
+    }
+
+    /**
+     * Last price of a row without the sequence lock, only consistent on the writer thread, e.g. inside an update
+     * listener.
+     */
+    public double getLast(int id) {
+        return lasts[id];
+    }
+
+    /**
+     * Applies the fields selected by {@code mask} to a row. Must only be called from the single writer thread.
+     */
+    public void update(int id, int mask, double bid, double ask, double last, long bidSize, long askSize, long lastSize, long volume, long timestamp) {
+        long sequence = sequences.get(id);
+        sequences.set(id, sequence + 1);
+        VarHandle.storeStoreFence();
+        if ((mask & BID) != 0) {
+            bids[id] = bid;
+        }
+        if ((mask & ASK) != 0) {
+            asks[id] = ask;
+        }
+        if ((mask & LAST) != 0) {
+            lasts[id] = last;
+        }
+        if ((mask & BID_SIZE) != 0) {
+            bidSizes[id] = bidSize;
+        }
+        if ((mask & ASK_SIZE) != 0) {
+            askSizes[id] = askSize;
+        }
+        if ((mask & LAST_SIZE) != 0) {
+            lastSizes[id] = lastSize;
+        }
+        if ((mask & VOLUME) != 0) {
+            volumes[id] = volume;
+        }
+        timestamps[id] = timestamp;
+        sequences.set(id, sequence + 2);
+        for (IntConsumer listener : updateListeners) {
+            listener.accept(id);
+        }
+    }
+
+    /**
+     * Copies a consistent view of the row into {@code snapshot}, retrying while the writer is mid-update.
+     *
+     * @return false if the symbol has never been updated
+     */
+    public boolean read(int id, QuoteSnapshot snapshot) {
+        while (true) {
+            long before = sequences.get(id);
+            if ((before & 1L) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            double bid = bids[id];
+            double ask = asks[id];
+            double last = lasts[id];
+            long bidSize = bidSizes[id];
+            long askSize = askSizes[id];
+            long lastSize = lastSizes[id];
+            long volume = volumes[id];
+            long timestamp = timestamps[id];
+            VarHandle.loadLoadFence();
+            if (sequences.get(id) == before) {
+                snapshot.set(id, bid, ask, last, bidSize, askSize, lastSize, volume, timestamp);
+                return before != 0L;
+            }
+        }
+    }
+
+    public boolean read(String symbol, QuoteSnapshot snapshot) {
+        int id = symbols.lookup(symbol);
+        return id >= 0 && read(id, snapshot);
+    }
+}
@@ -0,0 +1,31 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Getter;
+
+/**
+ * Reusable holder for a consistent copy of one {@link QuoteBook} row.
+ */
+@Getter
+public class QuoteSnapshot {
+    private int symbolId = -1;
+    private double bid;
+    private double ask;
+    private double last;
+    private long bidSize;
+    private long askSize;
+    private long lastSize;
+    private long volume;
+    private long timestamp;
+
+    void set(int symbolId, double bid, double ask, double last, long bidSize, long askSize, long lastSize, long volume, long timestamp) {
+        this.symbolId = symbolId;
+        this.bid = bid;
+        this.ask = ask;
+        this.last = last;
+        this.bidSize = bidSize;
+        this.askSize = askSize;
+        this.lastSize = lastSize;
+        this.volume = volume;
+        this.timestamp = timestamp;
+    }
+}
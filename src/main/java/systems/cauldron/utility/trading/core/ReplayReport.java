@@ -0,0 +1,38 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * Outcome of one {@link StreamerReplay} run. Per service dispatch latency and handler time are in the metrics, along
+ * with how far behind schedule paced frames were released ({@code replay lag}).
+ */
+@Getter
+@Builder
+public class ReplayReport {
+    private final long frames;
+    private final long entries;
+    private final long firstTimestamp;
+    private final long lastTimestamp;
+    private final long elapsedNanos;
+    private final MetricsRegistry metrics;
+
+    public double getEntriesPerSecond() {
+        return elapsedNanos == 0L ? 0.0 : entries * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Recorded time span divided by replay time.
+     */
+    public double getEffectiveSpeed() {
+        return elapsedNanos == 0L ? 0.0 : (double) (lastTimestamp - firstTimestamp) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d frames, %d entries in %.3f s (%.0f entries/s, %.2fx recorded pace)",
+                frames, entries, elapsedNanos / 1e9, getEntriesPerSecond(), getEffectiveSpeed());
+    }
+}
@@ -0,0 +1,35 @@
+package systems.cauldron.utility.trading.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads that blocking-style requests run on. This is the Java 11 variant, starting a platform thread per task;
+ * the multi-release jar carries a JDK 21 variant under {@code META-INF/versions/21} that starts virtual threads
+ * instead, picked up automatically when the jar runs on 21 or later.
+ */
+public final class RequestThreads {
+
+    private RequestThreads() {
+    }
+
+    /**
+     * @return whether {@link #newExecutor(String)} hands out virtual threads on this runtime
+     */
+    public static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * @return an executor starting a new daemon thread (reused while idle) for every task, named {@code name-N}
+     */
+    public static ExecutorService newExecutor(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
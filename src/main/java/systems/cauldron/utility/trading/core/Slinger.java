@@ -1,22 +1,47 @@
 package systems.cauldron.utility.trading.core;
 
-import java.math.BigDecimal;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 public class Slinger {
 
-    private final AccountService accountService;
+    private final Supplier<CompletableFuture<Map<String, FixedPoint>>> balanceSource;
     private final OrderService orderService;
 
     public Slinger(AccountService accountService, OrderService orderService) {
-        this.accountService = accountService;
+        this.balanceSource = accountService::getAvailableCashBalances;
         this.orderService = orderService;
     }
 
-    public CompletableFuture<CompletableFuture<?>[]> execute(String symbol, BigDecimal price) {
-        return accountService.getAvailableCashBalances().thenApply(x -> x.entrySet().stream().map(e -> {
-            int quantity = e.getValue().divideToIntegralValue(price).intValue();
-            return orderService.createEquityBuyLimitOrder(e.getKey(), price, quantity, symbol);
-        }).toArray(CompletableFuture<?>[]::new));
+    /**
+     * Sizes orders off cached balances, so no account round trip sits in front of the first order.
+     */
+    public Slinger(AccountCache accountCache, OrderService orderService) {
+        this.balanceSource = () -> accountCache.getAvailableCashBalances(AccountCache.Freshness.CACHED);
+        this.orderService = orderService;
+    }
+
+    /**
+     * Prices the orders at the current ask held in the quote book.
+     */
+    public CompletableFuture<CompletableFuture<?>[]> execute(String symbol, QuoteBook quotes) {
+        QuoteSnapshot quote = new QuoteSnapshot();
+        if (!quotes.read(symbol, quote) || quote.getAsk() <= 0.0) {
+            return CompletableFuture.failedFuture(new IllegalStateException("no ask available for " + symbol));
+        }
+        return execute(symbol, FixedPoint.valueOf(quote.getAsk()));
+    }
+
+    /**
+     * Sizes one limit order per account and hands them to the order service largest notional first.
+     */
+    public CompletableFuture<CompletableFuture<?>[]> execute(String symbol, FixedPoint price) {
+        return balanceSource.get().thenApply(x -> x.entrySet().stream()
+                .sorted(Map.Entry.<String, FixedPoint>comparingByValue().reversed())
+                .map(e -> {
+                    int quantity = (int) e.getValue().divideToIntegral(price);
+                    return orderService.createEquityBuyLimitOrder(e.getKey(), price, quantity, symbol);
+                }).toArray(CompletableFuture<?>[]::new));
     }
 }
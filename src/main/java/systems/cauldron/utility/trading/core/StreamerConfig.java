@@ -4,6 +4,9 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.Duration;
+import java.time.Instant;
+
 @Getter
 @Setter
 @Builder
@@ -14,4 +17,15 @@ public class StreamerConfig {
     private String accountId;
     private String credential;
     private String subscriptionKey;
+    /**
+     * When the broker stops accepting the token at login, null if unknown.
+     */
+    private Instant tokenExpiry;
+
+    /**
+     * @return whether the token is known to stay valid for at least {@code margin} from now
+     */
+    public boolean isValidFor(Duration margin) {
+        return tokenExpiry != null && Instant.now().plus(margin).isBefore(tokenExpiry);
+    }
 }
@@ -0,0 +1,231 @@
+package systems.cauldron.utility.trading.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.http.WebSocket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Moves parsed streamer entries off the websocket thread. Each service gets its own bounded single-producer,
+ * single-consumer ring of preallocated entries drained by a dedicated consumer thread. Socket reads are paced with
+ * {@link WebSocket#request(long)} so that a new message is only requested once every lane has room for it.
+ */
+public class StreamerDispatcher implements AutoCloseable {
+
+    private final static Logger LOG = LogManager.getLogger(StreamerDispatcher.class);
+
+    private static final int DEFAULT_LANE_CAPACITY = 1024;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private final int laneCapacity;
+    private final int highWaterMark;
+    private final Consumer<StreamerEntry> handler;
+    private final MetricsRegistry metrics;
+
+    // only touched by the producing socket thread
+    private final Map<String, Lane> lanesByService = new HashMap<>();
+    private final List<Lane> lanes = new CopyOnWriteArrayList<>();
+    private final AtomicReference<WebSocket> pausedSocket = new AtomicReference<>();
+    private final AtomicLong producerStalls = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public StreamerDispatcher(Consumer<StreamerEntry> handler) {
+        this(DEFAULT_LANE_CAPACITY, handler);
+    }
+
+    public StreamerDispatcher(Consumer<StreamerEntry> handler, MetricsRegistry metrics) {
+        this(DEFAULT_LANE_CAPACITY, handler, metrics);
+    }
+
+    public StreamerDispatcher(int laneCapacity, Consumer<StreamerEntry> handler) {
+        this(laneCapacity, handler, MetricsRegistry.global());
+    }
+
+    /**
+     * @param metrics receives per service dispatch latency (publish to handler), queue depth at publish and handler time
+     */
+    public StreamerDispatcher(int laneCapacity, Consumer<StreamerEntry> handler, MetricsRegistry metrics) {
+        if (Integer.bitCount(laneCapacity) != 1) {
+            throw new IllegalArgumentException("lane capacity must be a power of two: " + laneCapacity);
+        }
+        this.laneCapacity = laneCapacity;
+        this.highWaterMark = laneCapacity >> 1;
+        this.handler = handler;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Copies the entry into the ring of its service. Must only be called from the single producing thread.
+     */
+    public void publish(StreamerEntry entry) {
+        String key = entry.getService() != null ? entry.getService() : entry.getKind().name();
+        Lane lane = lanesByService.get(key);
+        if (lane == null) {
+            lane = new Lane(key);
+            lanesByService.put(key, lane);
+            lanes.add(lane);
+            lane.thread.start();
+        }
+        long publishedNanos = System.nanoTime();
+        if (!lane.offer(entry, publishedNanos)) {
+            producerStalls.incrementAndGet();
+            do {
+                LockSupport.unpark(lane.thread);
+                Thread.onSpinWait();
+            } while (!lane.offer(entry, publishedNanos) && !closed);
+        }
+    }
+
+    /**
+     * Asks the socket for its next message now if all lanes are below their high-water mark, otherwise leaves the
+     * request to whichever consumer drains its lane first.
+     */
+    public void requestNext(WebSocket webSocket) {
+        if (!isSaturated()) {
+            webSocket.request(1L);
+            return;
+        }
+        pausedSocket.set(webSocket);
+        // a consumer may have drained between the check and the pause becoming visible
+        if (!isSaturated()) {
+            resume();
+        }
+    }
+
+    public int getQueueDepth(String service) {
+        for (Lane lane : lanes) {
+            if (lane.service.equals(service)) {
+                return lane.depth();
+            }
+        }
+        return 0;
+    }
+
+    public long getProducerStalls() {
+        return producerStalls.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Lane lane : lanes) {
+            LockSupport.unpark(lane.thread);
+        }
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join(TimeUnit.SECONDS.toMillis(5L));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean isSaturated() {
+        for (Lane lane : lanes) {
+            if (lane.depth() >= highWaterMark) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void resume() {
+        WebSocket webSocket = pausedSocket.getAndSet(null);
+        if (webSocket != null) {
+            webSocket.request(1L);
+        }
+    }
+
+    private class Lane implements Runnable {
+
+        private final String service;
+        private final StreamerEntry[] slots;
+        private final long[] publishedNanos;
+        private final int mask;
+        private final AtomicLong produced = new AtomicLong();
+        private final AtomicLong consumed = new AtomicLong();
+        private final Thread thread;
+        private final Histogram dispatchLatency;
+        private final Histogram queueDepth;
+        private final Histogram handlerTime;
+
+        private Lane(String service) {
+            this.service = service;
+            this.slots = new StreamerEntry[laneCapacity];
+            for (int i = 0; i < laneCapacity; i++) {
+                slots[i] = new StreamerEntry();
+            }
+            this.publishedNanos = new long[laneCapacity];
+            this.mask = laneCapacity - 1;
+            this.dispatchLatency = metrics.histogram("streamer", service + " dispatch", MetricsRegistry.NANOSECONDS);
+            this.queueDepth = metrics.histogram("streamer", service + " queue depth", "entries");
+            this.handlerTime = metrics.histogram("streamer", service + " handler", MetricsRegistry.NANOSECONDS);
+            this.thread = new Thread(this, "streamer-" + service);
+            this.thread.setDaemon(true);
+        }
+
+        private boolean offer(StreamerEntry entry, long nanos) {
+            long sequence = produced.get();
+            long depth = sequence - consumed.get();
+            if (depth >= slots.length) {
+                return false;
+            }
+            queueDepth.record(depth);
+            int index = (int) (sequence & mask);
+            slots[index].copyFrom(entry);
+            publishedNanos[index] = nanos;
+            produced.lazySet(sequence + 1);
+            LockSupport.unpark(thread);
+            return true;
+        }
+
+        private int depth() {
+            return (int) (produced.get() - consumed.get());
+        }
+
+        @Override
+        public void run() {
+            long sequence = consumed.get();
+            while (true) {
+                long available = produced.get();
+                if (sequence == available) {
+                    if (closed) {
+                        return;
+                    }
+                    if (pausedSocket.get() != null && !isSaturated()) {
+                        resume();
+                    }
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                    continue;
+                }
+                while (sequence < available) {
+                    int index = (int) (sequence & mask);
+                    StreamerEntry entry = slots[index];
+                    long begin = System.nanoTime();
+                    dispatchLatency.record(begin - publishedNanos[index]);
+                    try {
+                        handler.accept(entry);
+                    } catch (RuntimeException ex) {
+                        LOG.error("handler failed for {} entry of service {}", entry.getKind(), entry.getService(), ex);
+                    }
+                    handlerTime.record(System.nanoTime() - begin);
+                    consumed.lazySet(++sequence);
+                }
+                if (pausedSocket.get() != null && !isSaturated()) {
+                    resume();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package systems.cauldron.utility.trading.core;
+
+import java.util.Arrays;
+
+/**
+ * Mutable, reusable view over a single {@code response}, {@code data} or {@code notify} entry of a streamer message.
+ * Content fields are flattened into parallel arrays; a handler must copy anything it wants to keep because the
+ * instance is overwritten by the next entry.
+ */
+public class StreamerEntry {
+
+    public enum Kind {
+        RESPONSE,
+        DATA,
+        NOTIFY
+    }
+
+    private Kind kind;
+    private String service;
+    private String command;
+    private String requestId;
+    private long timestamp;
+
+    private int contentCount;
+    private int[] contentStarts = new int[8];
+
+    private int fieldCount;
+    private String[] fieldNames = new String[32];
+    private String[] texts = new String[32];
+    private double[] numbers = new double[32];
+
+    void reset(Kind kind) {
+        this.kind = kind;
+        this.service = null;
+        this.command = null;
+        this.requestId = null;
+        this.timestamp = 0L;
+        this.contentCount = 0;
+        Arrays.fill(texts, 0, fieldCount, null);
+        this.fieldCount = 0;
+    }
+
+    /**
+     * Overwrites this entry with the contents of another, reusing the existing arrays where they are large enough.
+     */
+    void copyFrom(StreamerEntry other) {
+        this.kind = other.kind;
+        this.service = other.service;
+        this.command = other.command;
+        this.requestId = other.requestId;
+        this.timestamp = other.timestamp;
+        if (contentStarts.length < other.contentStarts.length) {
+            contentStarts = new int[other.contentStarts.length];
+        }
+        System.arraycopy(other.contentStarts, 0, contentStarts, 0, other.contentCount);
+        this.contentCount = other.contentCount;
+        if (fieldNames.length < other.fieldCount) {
+            fieldNames = new String[other.fieldNames.length];
+            texts = new String[other.fieldNames.length];
+            numbers = new double[other.fieldNames.length];
+        } else if (fieldCount > other.fieldCount) {
+            Arrays.fill(texts, other.fieldCount, fieldCount, null);
+        }
+        System.arraycopy(other.fieldNames, 0, fieldNames, 0, other.fieldCount);
+        System.arraycopy(other.texts, 0, texts, 0, other.fieldCount);
+        System.arraycopy(other.numbers, 0, numbers, 0, other.fieldCount);
+        this.fieldCount = other.fieldCount;
+    }
+
+    void setService(String service) {
+        this.service = service;
+    }
+
+    void setCommand(String command) {
+        this.command = command;
+    }
+
+    void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    void beginContent() {
+        if (contentCount + 1 >= contentStarts.length) {
+            contentStarts = Arrays.copyOf(contentStarts, contentStarts.length << 1);
+        }
+        contentStarts[contentCount++] = fieldCount;
+    }
+
+    void addText(String name, String value) {
+        int i = nextField(name);
+        texts[i] = value;
+        numbers[i] = Double.NaN;
+    }
+
+    void addNumber(String name, double value) {
+        int i = nextField(name);
+        texts[i] = null;
+        numbers[i] = value;
+    }
+
+    private int nextField(String name) {
+        if (fieldCount == fieldNames.length) {
+            int capacity = fieldNames.length << 1;
+            fieldNames = Arrays.copyOf(fieldNames, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+        }
+        fieldNames[fieldCount] = name;
+        return fieldCount++;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getContentCount() {
+        return contentCount;
+    }
+
+    /**
+     * Index of the first field belonging to the given content item.
+     */
+    public int fieldStart(int content) {
+        return contentStarts[content];
+    }
+
+    /**
+     * Index one past the last field belonging to the given content item.
+     */
+    public int fieldEnd(int content) {
+        return content + 1 < contentCount ? contentStarts[content + 1] : fieldCount;
+    }
+
+    public String fieldName(int field) {
+        return fieldNames[field];
+    }
+
+    public boolean isNumber(int field) {
+        return texts[field] == null && !Double.isNaN(numbers[field]);
+    }
+
+    public String text(int field) {
+        return texts[field];
+    }
+
+    public double number(int field) {
+        return numbers[field];
+    }
+
+    public int indexOf(int content, String name) {
+        for (int i = fieldStart(content), end = fieldEnd(content); i < end; i++) {
+            if (name.equals(fieldNames[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String getText(int content, String name) {
+        int i = indexOf(content, name);
+        return i < 0 ? null : texts[i];
+    }
+
+    public double getNumber(int content, String name, double defaultValue) {
+        int i = indexOf(content, name);
+        return i < 0 || !isNumber(i) ? defaultValue : numbers[i];
+    }
+}
@@ -0,0 +1,71 @@
+package systems.cauldron.utility.trading.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.json.JsonException;
+import java.util.function.Consumer;
+
+/**
+ * Reassembles websocket text fragments into complete streamer messages and parses each one into entry callbacks.
+ * Not thread safe; meant to be driven by the single websocket listener thread.
+ */
+public class StreamerFramePipeline {
+
+    private final static Logger LOG = LogManager.getLogger(StreamerFramePipeline.class);
+
+    private static final int INITIAL_FRAME_CAPACITY = 16 * 1024;
+
+    private final FrameBuffer buffer = new FrameBuffer(INITIAL_FRAME_CAPACITY);
+    private final StreamerMessageParser parser = new StreamerMessageParser();
+    private final Consumer<StreamerEntry> sink;
+    private final StreamerJournal journal;
+
+    private long messageCount;
+    private long entryCount;
+
+    public StreamerFramePipeline(Consumer<StreamerEntry> sink) {
+        this(sink, null);
+    }
+
+    /**
+     * @param journal receives every complete message before it is parsed, may be null
+     */
+    public StreamerFramePipeline(Consumer<StreamerEntry> sink, StreamerJournal journal) {
+        this.sink = sink;
+        this.journal = journal;
+    }
+
+    /**
+     * @return true once the fragment completed a message and that message was dispatched
+     */
+    public boolean onFragment(CharSequence fragment, boolean last) {
+        buffer.append(fragment);
+        if (!last) {
+            return false;
+        }
+        if (journal != null) {
+            journal.append(buffer.array(), 0, buffer.length());
+        }
+        try {
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("message received: {}", buffer);
+            }
+            entryCount += parser.parse(buffer, sink);
+            messageCount++;
+        } catch (JsonException ex) {
+            LOG.warn("discarding malformed streamer message", ex);
+        } finally {
+            buffer.clear();
+        }
+        return true;
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+}
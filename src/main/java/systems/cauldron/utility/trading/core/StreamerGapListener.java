@@ -0,0 +1,28 @@
+package systems.cauldron.utility.trading.core;
+
+/**
+ * Told when streamer data may have been missed, so that anything derived from the stream can resync.
+ */
+@FunctionalInterface
+public interface StreamerGapListener {
+
+    enum Cause {
+        /**
+         * The socket dropped and has been re-established with all subscriptions replayed.
+         */
+        RECONNECT,
+        /**
+         * Nothing, not even a heartbeat, arrived within the timeout; the socket has been re-established.
+         */
+        HEARTBEAT_TIMEOUT,
+        /**
+         * A message sequence number was skipped.
+         */
+        SEQUENCE
+    }
+
+    /**
+     * @param service the affected service, or {@code null} if every subscription may have missed data
+     */
+    void onGap(String service, Cause cause);
+}
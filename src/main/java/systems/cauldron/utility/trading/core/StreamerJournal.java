@@ -0,0 +1,309 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of raw streamer messages in rolling, preallocated, memory-mapped segment files. Appending is a
+ * handful of stores into the current mapping, so the only syscalls happen when a segment fills up and the next one is
+ * mapped. Must be fed from a single writer thread; any number of {@link StreamerJournalReader}s may tail it
+ * concurrently, from this or another process.
+ * <p>
+ * A segment starts with a {@value #SEGMENT_HEADER_LENGTH} byte header (magic, version, segment index) followed by
+ * 8-byte aligned records: payload length, CRC32C of the payload, timestamp in epoch nanoseconds and the UTF-8
+ * payload. The length is stored last with release semantics, which publishes the record to readers; a length of
+ * {@value #END_OF_SEGMENT} marks a segment that was rolled over. On opening, the tail of the newest segment is
+ * scanned and anything after the last intact record, e.g. left behind by a crash mid-append, is wiped.
+ */
+public class StreamerJournal implements AutoCloseable {
+
+    private final static Logger LOG = LogManager.getLogger(StreamerJournal.class);
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024L * 1024L;
+
+    static final int MAGIC = 0x4E524A53;
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_LENGTH = 16;
+    static final int RECORD_HEADER_LENGTH = 16;
+    static final int END_OF_SEGMENT = -1;
+    static final VarHandle LENGTH = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final CRC32C checksum = new CRC32C();
+    private final long epochBaseNanos;
+    private final long clockBaseNanos;
+    private final Counter frames;
+    private final Counter dropped;
+    private final Counter segments;
+
+    private long segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private ByteBuffer view;
+    private int position;
+
+    /**
+     * @param directory   where segments are kept; created if missing
+     * @param segmentSize bytes per segment file, defaults to {@value #DEFAULT_SEGMENT_SIZE}; also caps the size of a
+     *                    single frame
+     * @param metrics     receives frame, drop and segment counts, defaults to {@link MetricsRegistry#global()}
+     */
+    @Builder
+    private StreamerJournal(Path directory, Long segmentSize, MetricsRegistry metrics) {
+        this.directory = directory;
+        this.segmentSize = (int) (Math.min(Integer.MAX_VALUE, Optional.ofNullable(segmentSize).orElse(DEFAULT_SEGMENT_SIZE)) & ~7L);
+        if (this.segmentSize < SEGMENT_HEADER_LENGTH + RECORD_HEADER_LENGTH + 8) {
+            throw new IllegalArgumentException("segment size too small: " + segmentSize);
+        }
+        Instant now = Instant.now();
+        this.clockBaseNanos = System.nanoTime();
+        this.epochBaseNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        MetricsRegistry registry = Optional.ofNullable(metrics).orElse(MetricsRegistry.global());
+        this.frames = registry.counter("journal", "frames");
+        this.dropped = registry.counter("journal", "dropped");
+        this.segments = registry.counter("journal", "segments");
+        try {
+            Files.createDirectories(directory);
+            List<Path> existing = segmentPaths(directory);
+            if (existing.isEmpty()) {
+                map(0L);
+            } else {
+                Path last = existing.get(existing.size() - 1);
+                map(segmentIndexOf(last));
+                recover();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Current wall clock time in epoch nanoseconds, derived from {@link System#nanoTime()} so it never goes backwards.
+     */
+    public long now() {
+        return epochBaseNanos + (System.nanoTime() - clockBaseNanos);
+    }
+
+    /**
+     * Appends a frame stamped with {@link #now()}.
+     */
+    public boolean append(char[] chars, int offset, int length) {
+        return append(now(), chars, offset, length);
+    }
+
+    /**
+     * @return false if the frame was dropped because it does not fit in an empty segment
+     */
+    public boolean append(long timestamp, char[] chars, int offset, int length) {
+        int payloadLength = encodedLength(chars, offset, length);
+        int recordLength = align(RECORD_HEADER_LENGTH + payloadLength);
+        if (recordLength > segmentSize - SEGMENT_HEADER_LENGTH - RECORD_HEADER_LENGTH) {
+            dropped.increment();
+            LOG.warn("dropping {} byte frame that exceeds the journal segment size", payloadLength);
+            return false;
+        }
+        // always leave room for the end of segment marker
+        if (position + recordLength > segmentSize - RECORD_HEADER_LENGTH) {
+            roll();
+        }
+        int payloadStart = position + RECORD_HEADER_LENGTH;
+        encode(chars, offset, length, payloadStart);
+        view.limit(payloadStart + payloadLength).position(payloadStart);
+        checksum.reset();
+        checksum.update(view);
+        buffer.putInt(position + 4, (int) checksum.getValue());
+        buffer.putLong(position + 8, timestamp);
+        LENGTH.setRelease(buffer, position, payloadLength);
+        position += recordLength;
+        frames.increment();
+        return true;
+    }
+
+    /**
+     * Forces the current segment to storage; appended frames survive a process crash without this, but not
+     * necessarily a power loss.
+     */
+    public void flush() {
+        buffer.force();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            LOG.warn("failed to close journal segment {}", segmentIndex, ex);
+        }
+    }
+
+    private void roll() {
+        MappedByteBuffer previous = buffer;
+        int previousPosition = position;
+        try {
+            channel.close();
+            map(segmentIndex + 1);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        // the next segment exists before readers are told to move on to it
+        LENGTH.setRelease(previous, previousPosition, END_OF_SEGMENT);
+    }
+
+    private void map(long index) throws IOException {
+        Path path = segmentPath(directory, index);
+        boolean created = !Files.exists(path);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, segmentSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        view = buffer.duplicate();
+        segmentIndex = index;
+        position = SEGMENT_HEADER_LENGTH;
+        if (created) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, index);
+            segments.increment();
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("not a journal segment: " + path);
+        }
+    }
+
+    /**
+     * Finds the end of the intact records in the current segment and wipes everything after it.
+     */
+    private void recover() throws IOException {
+        int intact = 0;
+        while (true) {
+            int length = buffer.getInt(position);
+            if (length == END_OF_SEGMENT) {
+                LOG.info("journal segment {} was complete, starting a new one", segmentIndex);
+                channel.close();
+                map(segmentIndex + 1);
+                return;
+            }
+            if (length <= 0 || position + align(RECORD_HEADER_LENGTH + length) > segmentSize - RECORD_HEADER_LENGTH) {
+                break;
+            }
+            int payloadStart = position + RECORD_HEADER_LENGTH;
+            view.limit(payloadStart + length).position(payloadStart);
+            checksum.reset();
+            checksum.update(view);
+            if ((int) checksum.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            position += align(RECORD_HEADER_LENGTH + length);
+            intact++;
+        }
+        int wiped = 0;
+        for (int i = position; i < segmentSize; i += 8) {
+            if (buffer.getLong(i) != 0L) {
+                buffer.putLong(i, 0L);
+                wiped = i + 8 - position;
+            }
+        }
+        if (wiped > 0) {
+            buffer.force();
+            LOG.warn("wiped {} bytes of partial journal data after {} intact frames in segment {}", wiped, intact, segmentIndex);
+        } else {
+            LOG.info("resuming journal segment {} after {} frames", segmentIndex, intact);
+        }
+    }
+
+    private void encode(char[] chars, int offset, int length, int at) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                buffer.put(at++, (byte) c);
+            } else if (c < 0x800) {
+                buffer.put(at++, (byte) (0xC0 | c >> 6));
+                buffer.put(at++, (byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                int codePoint = Character.toCodePoint(c, chars[++i]);
+                buffer.put(at++, (byte) (0xF0 | codePoint >> 18));
+                buffer.put(at++, (byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put(at++, (byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put(at++, (byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put(at++, (byte) '?');
+            } else {
+                buffer.put(at++, (byte) (0xE0 | c >> 12));
+                buffer.put(at++, (byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put(at++, (byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private static int encodedLength(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int bytes = length;
+        for (int i = offset; i < end; i++) {
+            char c = chars[i];
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                    bytes += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    static int align(int length) {
+        return (length + 7) & ~7;
+    }
+
+    static Path segmentPath(Path directory, long index) {
+        return directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+    }
+
+    static long segmentIndexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * @return segment files in the directory, oldest first
+     */
+    static List<Path> segmentPaths(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().matches("\\d{20}" + SEGMENT_SUFFIX.replace(".", "\\.")))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
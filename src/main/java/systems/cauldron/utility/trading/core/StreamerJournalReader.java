@@ -0,0 +1,209 @@
+package systems.cauldron.utility.trading.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads a {@link StreamerJournal} from its oldest segment onwards and keeps following it as it grows. Each reader
+ * has its own position; readers are not thread safe.
+ */
+public class StreamerJournalReader implements AutoCloseable {
+
+    private final static Logger LOG = LogManager.getLogger(StreamerJournalReader.class);
+
+    @FunctionalInterface
+    public interface FrameHandler {
+
+        /**
+         * @param timestamp epoch nanoseconds at which the frame was journaled
+         * @param frame     only valid for the duration of the call
+         */
+        void onFrame(long timestamp, CharSequence frame);
+    }
+
+    private final Path directory;
+    private final CRC32C checksum = new CRC32C();
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private CharBuffer chars = CharBuffer.allocate(16 * 1024);
+    private long segmentIndex = -1L;
+    private MappedByteBuffer buffer;
+    private ByteBuffer view;
+    private int position;
+    private boolean corrupt;
+
+    public StreamerJournalReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Hands the next frame to the handler if one has been appended.
+     *
+     * @return false if the reader has caught up with the writer
+     */
+    public boolean read(FrameHandler handler) {
+        if (corrupt || (buffer == null && !openFirst())) {
+            return false;
+        }
+        while (true) {
+            if (position > buffer.capacity() - StreamerJournal.RECORD_HEADER_LENGTH) {
+                return false;
+            }
+            int length = (int) StreamerJournal.LENGTH.getAcquire(buffer, position);
+            if (length == 0) {
+                return false;
+            }
+            if (length == StreamerJournal.END_OF_SEGMENT) {
+                if (!open(segmentIndex + 1)) {
+                    return false;
+                }
+                continue;
+            }
+            int payloadStart = position + StreamerJournal.RECORD_HEADER_LENGTH;
+            view.limit(payloadStart + length).position(payloadStart);
+            checksum.reset();
+            checksum.update(view);
+            if ((int) checksum.getValue() != buffer.getInt(position + 4)) {
+                corrupt = true;
+                LOG.error("checksum mismatch in journal segment {} at offset {}, stopping", segmentIndex, position);
+                return false;
+            }
+            long timestamp = buffer.getLong(position + 8);
+            view.position(payloadStart);
+            if (chars.capacity() < length) {
+                chars = CharBuffer.allocate(Math.max(length, chars.capacity() << 1));
+            }
+            chars.clear();
+            decoder.reset();
+            decoder.decode(view, chars, true);
+            decoder.flush(chars);
+            chars.flip();
+            position += StreamerJournal.align(StreamerJournal.RECORD_HEADER_LENGTH + length);
+            handler.onFrame(timestamp, chars);
+            return true;
+        }
+    }
+
+    /**
+     * Reads frames until caught up or {@code limit} frames were read.
+     *
+     * @return number of frames read
+     */
+    public int readAvailable(FrameHandler handler, int limit) {
+        int count = 0;
+        while (count < limit && read(handler)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Positions the reader on the first frame journaled at or after the given time, or at the end if there is none.
+     *
+     * @param timestamp epoch nanoseconds
+     */
+    public void seek(long timestamp) {
+        try {
+            List<Path> segments = StreamerJournal.segmentPaths(directory);
+            // the last segment starting at or before the timestamp is the only one that can hold the frame
+            long start = -1L;
+            for (Path segment : segments) {
+                long index = StreamerJournal.segmentIndexOf(segment);
+                if (!open(index)) {
+                    break;
+                }
+                int length = (int) StreamerJournal.LENGTH.getAcquire(buffer, position);
+                if (start >= 0L && (length <= 0 || buffer.getLong(position + 8) > timestamp)) {
+                    break;
+                }
+                start = index;
+            }
+            corrupt = false;
+            if (start < 0L || !open(start)) {
+                buffer = null;
+                return;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        while (position <= buffer.capacity() - StreamerJournal.RECORD_HEADER_LENGTH) {
+            int length = (int) StreamerJournal.LENGTH.getAcquire(buffer, position);
+            if (length == StreamerJournal.END_OF_SEGMENT) {
+                if (!open(segmentIndex + 1)) {
+                    return;
+                }
+                continue;
+            }
+            if (length == 0 || buffer.getLong(position + 8) >= timestamp) {
+                return;
+            }
+            position += StreamerJournal.align(StreamerJournal.RECORD_HEADER_LENGTH + length);
+        }
+    }
+
+    public long getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    @Override
+    public void close() {
+        // mappings are released once unreachable
+        buffer = null;
+        view = null;
+    }
+
+    private boolean openFirst() {
+        try {
+            List<Path> segments = StreamerJournal.segmentPaths(directory);
+            return !segments.isEmpty() && open(StreamerJournal.segmentIndexOf(segments.get(0)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @return false if the segment does not exist or is not initialized yet
+     */
+    private boolean open(long index) {
+        Path path = StreamerJournal.segmentPath(directory, index);
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < StreamerJournal.SEGMENT_HEADER_LENGTH + StreamerJournal.RECORD_HEADER_LENGTH) {
+                return false;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt(0) != StreamerJournal.MAGIC || mapped.getInt(4) != StreamerJournal.VERSION) {
+                return false;
+            }
+            buffer = mapped;
+            view = mapped.duplicate();
+            segmentIndex = index;
+            position = StreamerJournal.SEGMENT_HEADER_LENGTH;
+            return true;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
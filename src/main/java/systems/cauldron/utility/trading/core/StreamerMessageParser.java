@@ -0,0 +1,130 @@
+package systems.cauldron.utility.trading.core;
+
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParserFactory;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+/**
+ * Walks a streamer message with a pull parser and hands each entry to a sink as a reused {@link StreamerEntry},
+ * without building an intermediate JSON object model.
+ */
+class StreamerMessageParser {
+
+    private static final JsonParserFactory PARSER_FACTORY = Json.createParserFactory(Collections.emptyMap());
+
+    private final StreamerEntry entry = new StreamerEntry();
+
+    /**
+     * @return the number of entries handed to the sink
+     */
+    int parse(Reader message, Consumer<StreamerEntry> sink) {
+        int entries = 0;
+        try (JsonParser parser = PARSER_FACTORY.createParser(message)) {
+            JsonStreams.expect(parser, JsonParser.Event.START_OBJECT);
+            while (parser.next() == JsonParser.Event.KEY_NAME) {
+                StreamerEntry.Kind kind;
+                switch (parser.getString()) {
+                    case "response":
+                        kind = StreamerEntry.Kind.RESPONSE;
+                        break;
+                    case "data":
+                        kind = StreamerEntry.Kind.DATA;
+                        break;
+                    case "notify":
+                        kind = StreamerEntry.Kind.NOTIFY;
+                        break;
+                    default:
+                        JsonStreams.skipValue(parser);
+                        continue;
+                }
+                JsonStreams.expect(parser, JsonParser.Event.START_ARRAY);
+                while (parser.next() == JsonParser.Event.START_OBJECT) {
+                    entry.reset(kind);
+                    readEntry(parser, entry);
+                    sink.accept(entry);
+                    entries++;
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static void readEntry(JsonParser parser, StreamerEntry entry) {
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            switch (parser.getString()) {
+                case "service":
+                    entry.setService(JsonStreams.readString(parser));
+                    break;
+                case "command":
+                    entry.setCommand(JsonStreams.readString(parser));
+                    break;
+                case "requestid":
+                    entry.setRequestId(JsonStreams.readString(parser));
+                    break;
+                case "timestamp":
+                    entry.setTimestamp((long) JsonStreams.readDouble(parser));
+                    break;
+                case "heartbeat":
+                    String heartbeat = JsonStreams.readString(parser);
+                    entry.setTimestamp(heartbeat == null ? 0L : Long.parseLong(heartbeat));
+                    break;
+                case "content":
+                    readContent(parser, entry);
+                    break;
+                default:
+                    JsonStreams.skipValue(parser);
+                    break;
+            }
+        }
+    }
+
+    private static void readContent(JsonParser parser, StreamerEntry entry) {
+        switch (parser.next()) {
+            case START_OBJECT:
+                readContentItem(parser, entry);
+                break;
+            case START_ARRAY:
+                while (parser.next() == JsonParser.Event.START_OBJECT) {
+                    readContentItem(parser, entry);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void readContentItem(JsonParser parser, StreamerEntry entry) {
+        entry.beginContent();
+        while (parser.next() == JsonParser.Event.KEY_NAME) {
+            String name = parser.getString();
+            switch (parser.next()) {
+                case VALUE_STRING:
+                    entry.addText(name, parser.getString());
+                    break;
+                case VALUE_NUMBER:
+                    entry.addNumber(name, JsonStreams.numberValue(parser));
+                    break;
+                case VALUE_TRUE:
+                    entry.addText(name, "true");
+                    break;
+                case VALUE_FALSE:
+                    entry.addText(name, "false");
+                    break;
+                case VALUE_NULL:
+                    entry.addText(name, null);
+                    break;
+                case START_OBJECT:
+                    parser.skipObject();
+                    break;
+                case START_ARRAY:
+                    parser.skipArray();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Plays a {@link StreamerJournal} recording back through the same frame pipeline and {@link StreamerDispatcher} lanes
+ * as live traffic, without a socket or credentials. Every handler sees its service's entries in recorded order, so a
+ * replay of the same recording is repeatable; frames are released at the recorded pace scaled by the speed, or as
+ * fast as the handlers keep up.
+ */
+public class StreamerReplay {
+
+    private final static Logger LOG = LogManager.getLogger(StreamerReplay.class);
+
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100L);
+
+    private final Path directory;
+    private final double speed;
+    private final long from;
+    private final long to;
+    private final MetricsRegistry metrics;
+
+    private volatile boolean stopped;
+
+    /**
+     * @param directory journal to replay
+     * @param speed     multiple of the recorded pace, defaults to 1; {@link #AS_FAST_AS_POSSIBLE} drops pacing
+     * @param from      epoch nanoseconds to start at, defaults to the start of the recording
+     * @param to        epoch nanoseconds to stop before, defaults to the end of the recording
+     * @param metrics   receives dispatch, handler and pacing lag histograms, defaults to a registry of its own so that
+     *                  live metrics are left alone
+     */
+    @Builder
+    private StreamerReplay(Path directory, Double speed, Long from, Long to, MetricsRegistry metrics) {
+        this.directory = directory;
+        this.speed = Optional.ofNullable(speed).orElse(1.0);
+        if (!(this.speed > 0.0)) {
+            throw new IllegalArgumentException("speed must be positive: " + speed);
+        }
+        this.from = Optional.ofNullable(from).orElse(Long.MIN_VALUE);
+        this.to = Optional.ofNullable(to).orElse(Long.MAX_VALUE);
+        this.metrics = Optional.ofNullable(metrics).orElseGet(() -> new MetricsRegistry("systems.cauldron.utility.trading.replay"));
+    }
+
+    /**
+     * Drives the service's data and response handlers, including quote books set up with
+     * {@link StreamerService#routeQuotes(QuoteBook)} and account activity listeners.
+     */
+    public ReplayReport run(StreamerService service) {
+        return run(service::dispatch);
+    }
+
+    /**
+     * Blocks until the recording is exhausted, {@link #stop()} is called or {@code to} is reached, and every replayed
+     * entry has been handled.
+     */
+    public ReplayReport run(Consumer<StreamerEntry> handler) {
+        stopped = false;
+        Histogram lag = metrics.histogram("replay", "lag", MetricsRegistry.NANOSECONDS);
+        StreamerDispatcher dispatcher = new StreamerDispatcher(handler, metrics);
+        StreamerFramePipeline pipeline = new StreamerFramePipeline(dispatcher::publish);
+        Pacer pacer = new Pacer(pipeline, lag);
+        long start = System.nanoTime();
+        try (StreamerJournalReader reader = new StreamerJournalReader(directory)) {
+            if (from != Long.MIN_VALUE) {
+                reader.seek(from);
+            }
+            while (!stopped && !pacer.finished && reader.read(pacer)) {
+                // each read hands one frame to the pacer
+            }
+        } finally {
+            dispatcher.close();
+        }
+        long elapsed = System.nanoTime() - start;
+        ReplayReport report = ReplayReport.builder()
+                .frames(pipeline.getMessageCount())
+                .entries(pipeline.getEntryCount())
+                .firstTimestamp(pacer.firstTimestamp)
+                .lastTimestamp(pacer.lastTimestamp)
+                .elapsedNanos(elapsed)
+                .metrics(metrics)
+                .build();
+        LOG.info("replayed {}", report);
+        return report;
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    private class Pacer implements StreamerJournalReader.FrameHandler {
+
+        private final StreamerFramePipeline pipeline;
+        private final Histogram lag;
+        private long firstTimestamp;
+        private long lastTimestamp;
+        private long startNanos;
+        private boolean started;
+        private boolean finished;
+
+        private Pacer(StreamerFramePipeline pipeline, Histogram lag) {
+            this.pipeline = pipeline;
+            this.lag = lag;
+        }
+
+        @Override
+        public void onFrame(long timestamp, CharSequence frame) {
+            if (timestamp >= to) {
+                finished = true;
+                return;
+            }
+            if (!started) {
+                started = true;
+                firstTimestamp = timestamp;
+                startNanos = System.nanoTime();
+            }
+            lastTimestamp = timestamp;
+            if (speed != AS_FAST_AS_POSSIBLE) {
+                long due = startNanos + (long) ((timestamp - firstTimestamp) / speed);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0L) {
+                    if (wait > SPIN_NANOS) {
+                        LockSupport.parkNanos(wait - SPIN_NANOS);
+                    } else {
+                        Thread.onSpinWait();
+                    }
+                }
+                lag.record(-wait);
+            }
+            pipeline.onFragment(frame, true);
+        }
+    }
+}
@@ -1,134 +1,421 @@
 package systems.cauldron.utility.trading.core;
 
+import lombok.Builder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.json.Json;
-import javax.json.JsonArray;
-import javax.json.JsonNumber;
+import javax.json.JsonArrayBuilder;
 import javax.json.JsonObject;
-import javax.json.JsonReader;
-import java.io.StringReader;
+import javax.json.JsonObjectBuilder;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
-public class StreamerService {
+/**
+ * Streamer session with a supervisor that keeps it alive. A dropped or silent socket is re-established with jittered
+ * exponential backoff using the cached {@link StreamerConfig}; the config is only fetched again if the broker rejects
+ * the login. Every (re)connect sends LOGIN and all active subscriptions in one batched request, and registered
+ * {@link StreamerGapListener}s are told whenever data may have been missed.
+ */
+public class StreamerService implements AutoCloseable {
 
     private final static Logger LOG = LogManager.getLogger(StreamerService.class);
 
-    private final StreamerConfig config;
+    private static final String QUOTE_SERVICE = "QUOTE";
+    private static final String ACCOUNT_ACTIVITY_SERVICE = "ACCT_ACTIVITY";
+
+    private static final Duration DEFAULT_HEARTBEAT_TIMEOUT = Duration.ofSeconds(30L);
+    private static final Duration DEFAULT_MIN_BACKOFF = Duration.ofMillis(250L);
+    private static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(30L);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10L);
+
+    private final HttpGateway gateway;
+    private final Supplier<CompletableFuture<StreamerConfig>> configSource;
+    private final long heartbeatTimeoutNanos;
+    private final long minBackoffNanos;
+    private final long maxBackoffNanos;
+    private final StreamerJournal journal;
+    private final TickFileWriter ticks;
+    private volatile StreamerConfig config;
 
     private final AtomicReference<WebSocket> socket = new AtomicReference<>();
+    private final AtomicReference<Connection> connection = new AtomicReference<>();
     private final AtomicLong requestIdSource = new AtomicLong();
-    private final Map<String, Consumer<JsonObject>> requestHandlers = new ConcurrentHashMap<>();
-    private final Map<String, Consumer<JsonObject>> dataHandlers = new ConcurrentHashMap<>();
+    private final Map<String, Consumer<StreamerEntry>> requestHandlers = new ConcurrentHashMap<>();
+    private final Map<String, Consumer<StreamerEntry>> dataHandlers = new ConcurrentHashMap<>();
+    private final AtomicLong lastHeartbeat = new AtomicLong();
+    private final Set<String> quoteSymbols = ConcurrentHashMap.newKeySet();
+    private final List<AccountActivityListener> accountActivityListeners = new CopyOnWriteArrayList<>();
+    private final List<StreamerGapListener> gapListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService supervisor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "streamer-supervisor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Histogram reconnectTime;
+    private final Counter disconnects;
+    private final Counter gaps;
+
+    private volatile boolean running;
+    private volatile long lastReceivedNanos;
+    // only touched by the ACCT_ACTIVITY consumer thread
+    private long lastAccountActivitySequence = -1L;
+
+    private final CompletableFuture<Long> firstQuote = new CompletableFuture<>();
 
-    public StreamerService(StreamerConfig config) {
+    private StreamerDispatcher dispatcher;
+    private ScheduledFuture<?> heartbeatMonitor;
+    private CompletableFuture<Void> started;
+
+    public StreamerService(HttpGateway gateway, StreamerConfig config) {
+        this(gateway, config, null, null, null, null, null, null);
+    }
+
+    /**
+     * @param configSource     fetches a fresh config when the cached one is rejected at login; without it the cached
+     *                         config is retried as is
+     * @param heartbeatTimeout silence after which the socket is considered dead, defaults to 30 seconds
+     * @param minBackoff       first reconnect delay, doubled per failed attempt, defaults to 250 milliseconds
+     * @param maxBackoff       cap on the reconnect delay, defaults to 30 seconds
+     * @param journal          records every raw message received, may be null; appended to from the socket thread and
+     *                         left open on stop
+     * @param ticks            records every quote update, may be null; appended to from the QUOTE consumer thread and
+     *                         left open on stop
+     */
+    @Builder
+    private StreamerService(HttpGateway gateway, StreamerConfig config, Supplier<CompletableFuture<StreamerConfig>> configSource,
+                            Duration heartbeatTimeout, Duration minBackoff, Duration maxBackoff, StreamerJournal journal,
+                            TickFileWriter ticks) {
+        this.gateway = gateway;
         this.config = config;
+        this.configSource = configSource;
+        this.heartbeatTimeoutNanos = Optional.ofNullable(heartbeatTimeout).orElse(DEFAULT_HEARTBEAT_TIMEOUT).toNanos();
+        this.minBackoffNanos = Optional.ofNullable(minBackoff).orElse(DEFAULT_MIN_BACKOFF).toNanos();
+        this.maxBackoffNanos = Optional.ofNullable(maxBackoff).orElse(DEFAULT_MAX_BACKOFF).toNanos();
+        this.journal = journal;
+        this.ticks = ticks;
+        this.reconnectTime = gateway.getMetrics().histogram("streamer", "reconnect", MetricsRegistry.NANOSECONDS);
+        this.disconnects = gateway.getMetrics().counter("streamer", "disconnects");
+        this.gaps = gateway.getMetrics().counter("streamer", "gaps");
+        this.dataHandlers.put(ACCOUNT_ACTIVITY_SERVICE, this::onAccountActivity);
     }
 
-    // TODO: do this properly
+    /**
+     * Blocks until logged in and subscribed to account activity.
+     */
     public void start() {
-        CountDownLatch openLatch = new CountDownLatch(1);
-        HttpClient.newHttpClient().newWebSocketBuilder().buildAsync(URI.create("wss://" + config.getSocketUrl() + "/ws"), new WebSocket.Listener() {
-            @Override
-            public CompletionStage<?> onText(WebSocket webSocket, CharSequence payload, boolean last) {
-                LOG.info("message received: {}", payload.toString());
-                JsonObject jsonObject;
-                try (JsonReader reader = Json.createReader(new StringReader(payload.toString()))) {
-                    jsonObject = reader.readObject();
-                }
-                JsonArray responses = jsonObject.getJsonArray("response");
-                if (responses != null) {
-                    JsonObject response = responses.get(0).asJsonObject();
-                    String service = response.getString("service");
-                    String requestId = response.getString("requestid");
-                    Consumer<JsonObject> handler = null;
-                    switch (service) {
-                        case "ADMIN":
-                            handler = requestHandlers.remove(requestId);
-                            break;
-                        default:
-                            break;
+        try {
+            startAsync().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            stop();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("failed to start streamer", ex.getCause());
+        }
+    }
+
+    /**
+     * Connects in the background; the returned future completes once logged in and subscribed to account activity,
+     * or fails within the connect timeout after which the service is stopped again. If the login is rejected and a
+     * config source is set, one more attempt is made with a fresh config, e.g. when a config saved to disk has gone
+     * stale.
+     */
+    public synchronized CompletableFuture<Void> startAsync() {
+        if (running) {
+            return Optional.ofNullable(started).orElseGet(() -> CompletableFuture.completedFuture(null));
+        }
+        running = true;
+        StreamerDispatcher run = new StreamerDispatcher(this::dispatch, gateway.getMetrics());
+        dispatcher = run;
+        long period = Math.max(1L, heartbeatTimeoutNanos / 4);
+        heartbeatMonitor = supervisor.scheduleAtFixedRate(this::checkHeartbeat, period, period, TimeUnit.NANOSECONDS);
+        Connection first = connect();
+        CompletableFuture<WebSocket> ready = first.ready.handle((webSocket, ex) -> {
+            if (ex == null) {
+                return CompletableFuture.completedFuture(webSocket);
+            }
+            if (first.loginRejected && configSource != null) {
+                LOG.warn("streamer login rejected, fetching a fresh config", ex);
+                return configSource.get().thenCompose(fresh -> {
+                    config = fresh;
+                    Connection retry = connect();
+                    return retry == null
+                            ? CompletableFuture.<WebSocket>failedFuture(new IllegalStateException("streamer stopped"))
+                            : retry.ready;
+                });
+            }
+            return CompletableFuture.<WebSocket>failedFuture(ex);
+        }).thenCompose(x -> x);
+        started = ready.handle((webSocket, ex) -> {
+            if (ex != null) {
+                synchronized (this) {
+                    if (dispatcher == run) {
+                        stop();
                     }
-                    if (handler != null) {
-                        handler.accept(response);
+                }
+                throw new CompletionException(ex);
+            }
+            LOG.info("streamer started successfully");
+            return null;
+        });
+        return started;
+    }
+
+    /**
+     * Completes with the {@link System#nanoTime()} at which the first quote since construction was written into the
+     * book, e.g. to measure time to first quote on startup.
+     */
+    public CompletableFuture<Long> firstQuote() {
+        return firstQuote;
+    }
+
+    /**
+     * The broker hands out a bare host name; a full uri (e.g. {@code ws://localhost:8080/ws}) is used as given.
+     */
+    static URI socketUri(String socketUrl) {
+        return URI.create(socketUrl.contains("://") ? socketUrl : "wss://" + socketUrl + "/ws");
+    }
+
+    /**
+     * Runs on the supervisor and config source threads as well as in {@link #startAsync}, so it takes the lock to see
+     * a consistent {@code running} and dispatcher.
+     *
+     * @return the attempt, or null if the service was stopped in the meantime
+     */
+    private synchronized Connection connect() {
+        if (!running || dispatcher == null) {
+            return null;
+        }
+        Connection attempt = new Connection(dispatcher);
+        connection.set(attempt);
+        URI uri = socketUri(config.getSocketUrl());
+        gateway.newWebSocketBuilder(uri).buildAsync(uri, attempt).whenComplete((webSocket, ex) -> {
+            if (ex != null) {
+                attempt.ready.completeExceptionally(ex);
+            }
+        });
+        attempt.ready.orTimeout(CONNECT_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS).whenComplete((webSocket, ex) -> {
+            if (ex != null && attempt.webSocket != null) {
+                attempt.webSocket.abort();
+            }
+        });
+        return attempt;
+    }
+
+    /**
+     * Called for an established connection that went away; failures of a connection attempt are left to the
+     * reconnect loop.
+     */
+    private void onDisconnect(Connection lost, String reason, StreamerGapListener.Cause cause) {
+        if (!running || !lost.isEstablished() || !connection.compareAndSet(lost, null)) {
+            return;
+        }
+        socket.compareAndSet(lost.webSocket, null);
+        disconnects.increment();
+        LOG.warn("streamer disconnected ({}), reconnecting", reason);
+        scheduleReconnect(0, System.nanoTime(), cause);
+    }
+
+    private void scheduleReconnect(int attempt, long disconnectedNanos, StreamerGapListener.Cause cause) {
+        if (!running) {
+            return;
+        }
+        long ceiling = Math.min(maxBackoffNanos, minBackoffNanos << Math.min(attempt, 20));
+        long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        supervisor.schedule(() -> reconnect(attempt, disconnectedNanos, cause), delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void reconnect(int attempt, long disconnectedNanos, StreamerGapListener.Cause cause) {
+        if (!running) {
+            return;
+        }
+        Connection next = connect();
+        if (next == null) {
+            return;
+        }
+        next.ready.whenComplete((webSocket, ex) -> {
+            if (ex == null) {
+                long elapsed = System.nanoTime() - disconnectedNanos;
+                reconnectTime.record(elapsed);
+                LOG.info("streamer reconnected after {} attempts in {} ms", attempt + 1, TimeUnit.NANOSECONDS.toMillis(elapsed));
+                fireGap(null, cause);
+            } else if (next.loginRejected && configSource != null) {
+                LOG.warn("streamer login rejected, fetching a fresh config", ex);
+                configSource.get().whenComplete((fresh, configEx) -> {
+                    if (fresh != null) {
+                        config = fresh;
+                    } else {
+                        LOG.error("failed to fetch streamer config", configEx);
                     }
+                    scheduleReconnect(attempt + 1, disconnectedNanos, cause);
+                });
+            } else {
+                LOG.warn("streamer reconnect attempt {} failed", attempt + 1, ex);
+                scheduleReconnect(attempt + 1, disconnectedNanos, cause);
+            }
+        });
+    }
+
+    private void checkHeartbeat() {
+        Connection current = connection.get();
+        if (current != null && current.isEstablished() && System.nanoTime() - lastReceivedNanos > heartbeatTimeoutNanos) {
+            onDisconnect(current, "no traffic for " + TimeUnit.NANOSECONDS.toMillis(heartbeatTimeoutNanos) + " ms",
+                    StreamerGapListener.Cause.HEARTBEAT_TIMEOUT);
+            current.webSocket.abort();
+        }
+    }
+
+    /**
+     * Runs on the consumer thread of the entry's service, never on the socket thread. Also driven by
+     * {@link StreamerReplay} with recorded entries.
+     */
+    void dispatch(StreamerEntry entry) {
+        Consumer<StreamerEntry> handler = null;
+        switch (entry.getKind()) {
+            case RESPONSE:
+                handler = requestHandlers.remove(entry.getRequestId());
+                break;
+            case DATA:
+                handler = dataHandlers.get(entry.getService());
+                break;
+            case NOTIFY:
+                if (entry.getService() == null) {
+                    lastHeartbeat.set(entry.getTimestamp());
                 } else {
-                    JsonArray data = jsonObject.getJsonArray("data");
-                    if (data != null) {
-                        JsonObject dataItem = data.get(0).asJsonObject();
-                        String service = dataItem.getString("service");
-                        Consumer<JsonObject> dataHandler = dataHandlers.get(service);
-                        if (dataHandler != null) {
-                            dataHandler.accept(dataItem);
-                        }
-                    }
+                    LOG.warn("notification from {}: {}", entry.getService(), entry.getText(0, "msg"));
                 }
-                return WebSocket.Listener.super.onText(webSocket, payload, last);
-            }
+                break;
+            default:
+                break;
+        }
+        if (handler != null) {
+            handler.accept(entry);
+        }
+    }
 
-            @Override
-            public void onOpen(WebSocket webSocket) {
-                LOG.info("socket opened");
-                doLoginRequest(webSocket, openLatch);
-                WebSocket.Listener.super.onOpen(webSocket);
+    private void onAccountActivity(StreamerEntry entry) {
+        for (int i = 0; i < entry.getContentCount(); i++) {
+            long sequence = (long) entry.getNumber(i, "seq", -1.0);
+            String accountId = entry.getText(i, "1");
+            String messageType = entry.getText(i, "2");
+            String messageContent = entry.getText(i, "3");
+            LOG.info("accountId: {} messageType: {} messageContent: {}", accountId, messageType, messageContent);
+            if ("SUBSCRIBED".equals(messageType)) {
+                lastAccountActivitySequence = sequence;
+                Connection current = connection.get();
+                if (current != null) {
+                    socket.set(current.webSocket);
+                    current.ready.complete(current.webSocket);
+                }
+                continue;
+            }
+            if (sequence >= 0L) {
+                if (lastAccountActivitySequence >= 0L && sequence > lastAccountActivitySequence + 1) {
+                    LOG.warn("account activity skipped from sequence {} to {}", lastAccountActivitySequence, sequence);
+                    fireGap(ACCOUNT_ACTIVITY_SERVICE, StreamerGapListener.Cause.SEQUENCE);
+                }
+                lastAccountActivitySequence = sequence;
             }
+            for (AccountActivityListener listener : accountActivityListeners) {
+                listener.onActivity(accountId, messageType, messageContent);
+            }
+        }
+    }
 
-            @Override
-            public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
-                LOG.error("socket closed with statusCode: {} and reason: {}", statusCode, reason);
-                return WebSocket.Listener.super.onClose(webSocket, statusCode, reason);
+    private void fireGap(String service, StreamerGapListener.Cause cause) {
+        gaps.increment();
+        for (StreamerGapListener listener : gapListeners) {
+            try {
+                listener.onGap(service, cause);
+            } catch (RuntimeException ex) {
+                LOG.error("gap listener failed", ex);
             }
-        }).join();
-        try {
-            openLatch.await(5L, TimeUnit.SECONDS);
-        } catch (InterruptedException ex) {
-            throw new RuntimeException(ex);
         }
-        LOG.info("streamer started successfully");
     }
 
-    // TODO: do this properly
-    public void stop() {
+    /**
+     * Listeners are called on the ACCT_ACTIVITY consumer thread.
+     */
+    public void addAccountActivityListener(AccountActivityListener listener) {
+        accountActivityListeners.add(listener);
+    }
+
+    public void removeAccountActivityListener(AccountActivityListener listener) {
+        accountActivityListeners.remove(listener);
+    }
+
+    /**
+     * Listeners are called on the ACCT_ACTIVITY consumer thread, once the replacement socket is subscribed in case of
+     * a reconnect.
+     */
+    public void addGapListener(StreamerGapListener listener) {
+        gapListeners.add(listener);
+    }
+
+    public void removeGapListener(StreamerGapListener listener) {
+        gapListeners.remove(listener);
+    }
+
+    public long getLastHeartbeat() {
+        return lastHeartbeat.get();
+    }
+
+    public boolean isConnected() {
+        return socket.get() != null;
+    }
+
+    public synchronized void stop() {
+        running = false;
+        Optional.ofNullable(heartbeatMonitor).ifPresent(m -> m.cancel(false));
+        heartbeatMonitor = null;
+        // an attempt still logging in has not published its socket; one that has not opened yet aborts in onOpen
+        Optional.ofNullable(connection.getAndSet(null))
+                .map(pending -> pending.webSocket)
+                .filter(webSocket -> webSocket != socket.get())
+                .ifPresent(WebSocket::abort);
         Optional.ofNullable(socket.getAndSet(null)).ifPresent(s -> {
             if (!s.isOutputClosed()) {
                 if (!s.isInputClosed()) {
                     // attempt clean disconnect
                     CountDownLatch latch = new CountDownLatch(1);
                     String requestId = String.valueOf(requestIdSource.getAndIncrement());
-                    JsonObject logoutRequest = Json.createObjectBuilder()
-                            .add("service", "ADMIN")
-                            .add("command", "LOGOUT")
-                            .add("requestid", requestId)
-                            .add("account", config.getAccountId())
-                            .add("source", config.getAppId())
-                            .build();
                     requestHandlers.put(requestId, response -> {
-                        JsonNumber code = response.getJsonObject("content").getJsonNumber("code");
-                        if (code != null) {
-                            switch (code.intValue()) {
-                                case 0:
-                                    latch.countDown();
-                                    break;
-                                case 3:
-                                default:
-                                    throw new RuntimeException(response.getString("msg"));
-                            }
+                        int code = (int) response.getNumber(0, "code", -1);
+                        switch (code) {
+                            case -1:
+                                break;
+                            case 0:
+                                latch.countDown();
+                                break;
+                            case 3:
+                            default:
+                                throw new RuntimeException(response.getText(0, "msg"));
                         }
                     });
-                    s.sendText(logoutRequest.toString(), true)
+                    s.sendText(request("ADMIN", "LOGOUT", requestId).build().toString(), true)
                             .thenCompose(x -> {
                                 try {
                                     latch.await(5L, TimeUnit.SECONDS);
@@ -147,67 +434,197 @@ public class StreamerService {
                 }
             }
         });
+        Optional.ofNullable(dispatcher).ifPresent(StreamerDispatcher::close);
+        dispatcher = null;
+        started = null;
         LOG.info("streamer stopped successfully");
     }
 
-    private void doLoginRequest(WebSocket webSocket, CountDownLatch openLatch) {
+    /**
+     * Stops and releases the supervisor thread; the service cannot be started again afterwards.
+     */
+    @Override
+    public void close() {
+        stop();
+        supervisor.shutdownNow();
+    }
+
+    /**
+     * Adds level one quote subscriptions for the given symbols; updates are written into the given book from the
+     * QUOTE consumer thread. Subscriptions are replayed automatically after a reconnect.
+     */
+    public CompletableFuture<Void> subscribeQuotes(Collection<String> symbols, QuoteBook book) {
+        WebSocket webSocket = Optional.ofNullable(socket.get()).orElseThrow(() -> new IllegalStateException("streamer not connected"));
+        routeQuotes(book);
+        String command = quoteSymbols.isEmpty() ? "SUBS" : "ADD";
+        symbols.forEach(symbol -> book.getSymbols().intern(symbol));
+        quoteSymbols.addAll(symbols);
+        return doQuoteRequest(webSocket, command, symbols, Json.createObjectBuilder()
+                .add("keys", String.join(",", symbols))
+                .add("fields", LevelOneQuoteHandler.FIELDS));
+    }
+
+    /**
+     * Writes QUOTE data into the given book without subscribing to anything, e.g. when replaying a recording.
+     */
+    public void routeQuotes(QuoteBook book) {
+        LevelOneQuoteHandler handler = new LevelOneQuoteHandler(book, ticks);
+        dataHandlers.put(QUOTE_SERVICE, entry -> {
+            handler.accept(entry);
+            if (!firstQuote.isDone()) {
+                firstQuote.complete(System.nanoTime());
+            }
+        });
+    }
+
+    public CompletableFuture<Void> unsubscribeQuotes(Collection<String> symbols) {
+        WebSocket webSocket = Optional.ofNullable(socket.get()).orElseThrow(() -> new IllegalStateException("streamer not connected"));
+        quoteSymbols.removeAll(symbols);
+        return doQuoteRequest(webSocket, "UNSUBS", symbols, Json.createObjectBuilder()
+                .add("keys", String.join(",", symbols)));
+    }
+
+    private CompletableFuture<Void> doQuoteRequest(WebSocket webSocket, String command, Collection<String> symbols, JsonObjectBuilder parameters) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
         String requestId = String.valueOf(requestIdSource.getAndIncrement());
-        JsonObject loginRequest = Json.createObjectBuilder()
-                .add("service", "ADMIN")
-                .add("command", "LOGIN")
-                .add("requestid", requestId)
-                .add("account", config.getAccountId())
-                .add("source", config.getAppId())
-                .add("parameters", Json.createObjectBuilder()
-                        .add("credential", config.getCredential())
-                        .add("token", config.getToken())
-                        .add("version", "1.0"))
+        JsonObject request = request(QUOTE_SERVICE, command, requestId)
+                .add("parameters", parameters)
                 .build();
         requestHandlers.put(requestId, response -> {
-            JsonNumber code = response.getJsonObject("content")
-                    .getJsonNumber("code");
-            if (code != null) {
-                switch (code.intValue()) {
-                    case 0:
-                        doAccountActivitySubscriptionRequest(webSocket, openLatch);
-                        break;
-                    case 3:
-                    default:
-                        throw new RuntimeException(response.getString("msg"));
-                }
+            int code = (int) response.getNumber(0, "code", -1);
+            if (code == 0) {
+                LOG.info("{} for {} quote symbols succeeded", command, symbols.size());
+                result.complete(null);
+            } else {
+                result.completeExceptionally(new RuntimeException(response.getText(0, "msg")));
             }
         });
-        webSocket.sendText(loginRequest.toString(), true);
+        webSocket.sendText(request.toString(), true);
+        return result;
     }
 
-    private void doAccountActivitySubscriptionRequest(WebSocket webSocket, CountDownLatch openLatch) {
-        String requestId = String.valueOf(requestIdSource.getAndIncrement());
-        JsonObject loginRequest = Json.createObjectBuilder()
-                .add("service", "ACCT_ACTIVITY")
-                .add("command", "SUBS")
-                .add("requestid", requestId)
-                .add("account", config.getAccountId())
-                .add("source", config.getAppId())
+    /**
+     * LOGIN followed by every active subscription, sent as one message.
+     */
+    private String connectRequest(Connection attempt) {
+        StreamerConfig current = config;
+        JsonArrayBuilder requests = Json.createArrayBuilder();
+
+        String loginId = String.valueOf(requestIdSource.getAndIncrement());
+        requestHandlers.put(loginId, response -> {
+            int code = (int) response.getNumber(0, "code", -1);
+            if (code != 0) {
+                attempt.loginRejected = true;
+                attempt.ready.completeExceptionally(new RuntimeException("login rejected with code " + code + ": " + response.getText(0, "msg")));
+            }
+        });
+        requests.add(request("ADMIN", "LOGIN", loginId)
                 .add("parameters", Json.createObjectBuilder()
-                        .add("keys", config.getSubscriptionKey())
-                        .add("fields", "1,2,3"))
-                .build();
-        dataHandlers.put("ACCT_ACTIVITY", dataResponse -> {
-            JsonArray contentList = dataResponse.getJsonArray("content");
-            JsonObject content = contentList.getJsonObject(0);
-            String accountId = content.getString("1");
-            String messageType = content.getString("2");
-            String messageContent = content.getString("3");
-            LOG.info("accountId: {} messageType: {} messageContent: {}", accountId, messageType, messageContent);
-            switch (messageType) {
-                case "SUBSCRIBED":
-                    socket.set(webSocket);
-                    openLatch.countDown();
-                    break;
-                default:
-                    break;
+                        .add("credential", current.getCredential())
+                        .add("token", current.getToken())
+                        .add("version", "1.0")));
+
+        String accountActivityId = String.valueOf(requestIdSource.getAndIncrement());
+        requestHandlers.put(accountActivityId, response -> {
+            int code = (int) response.getNumber(0, "code", -1);
+            if (code != 0) {
+                attempt.ready.completeExceptionally(new RuntimeException("account activity subscription failed: " + response.getText(0, "msg")));
             }
         });
-        webSocket.sendText(loginRequest.toString(), true);
+        requests.add(request(ACCOUNT_ACTIVITY_SERVICE, "SUBS", accountActivityId)
+                .add("parameters", Json.createObjectBuilder()
+                        .add("keys", current.getSubscriptionKey())
+                        .add("fields", "1,2,3")));
+
+        if (!quoteSymbols.isEmpty()) {
+            String quoteId = String.valueOf(requestIdSource.getAndIncrement());
+            int count = quoteSymbols.size();
+            requestHandlers.put(quoteId, response -> {
+                int code = (int) response.getNumber(0, "code", -1);
+                if (code == 0) {
+                    LOG.info("replayed {} quote subscriptions", count);
+                } else {
+                    LOG.error("failed to replay quote subscriptions: {}", response.getText(0, "msg"));
+                }
+            });
+            requests.add(request(QUOTE_SERVICE, "SUBS", quoteId)
+                    .add("parameters", Json.createObjectBuilder()
+                            .add("keys", String.join(",", quoteSymbols))
+                            .add("fields", LevelOneQuoteHandler.FIELDS)));
+        }
+        return Json.createObjectBuilder().add("requests", requests).build().toString();
+    }
+
+    private JsonObjectBuilder request(String service, String command, String requestId) {
+        StreamerConfig current = config;
+        return Json.createObjectBuilder()
+                .add("service", service)
+                .add("command", command)
+                .add("requestid", requestId)
+                .add("account", current.getAccountId())
+                .add("source", current.getAppId());
+    }
+
+    /**
+     * One socket's lifetime, from opening to the point it is replaced.
+     */
+    private class Connection implements WebSocket.Listener {
+
+        private final StreamerDispatcher dispatcher;
+        private final StreamerFramePipeline pipeline;
+        private final CompletableFuture<WebSocket> ready = new CompletableFuture<>();
+        private volatile WebSocket webSocket;
+        private volatile boolean loginRejected;
+
+        private Connection(StreamerDispatcher dispatcher) {
+            this.dispatcher = dispatcher;
+            this.pipeline = new StreamerFramePipeline(dispatcher::publish, journal);
+        }
+
+        private boolean isEstablished() {
+            return ready.isDone() && !ready.isCompletedExceptionally();
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket) {
+            this.webSocket = webSocket;
+            if (connection.get() != this) {
+                // replaced or stopped while the handshake was under way
+                LOG.info("socket opened after its connection was abandoned, aborting");
+                webSocket.abort();
+                ready.completeExceptionally(new IllegalStateException("connection abandoned"));
+                return;
+            }
+            LOG.info("socket opened");
+            lastReceivedNanos = System.nanoTime();
+            webSocket.sendText(connectRequest(this), true);
+            webSocket.request(1L);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence payload, boolean last) {
+            lastReceivedNanos = System.nanoTime();
+            if (pipeline.onFragment(payload, last)) {
+                dispatcher.requestNext(webSocket);
+            } else {
+                webSocket.request(1L);
+            }
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            LOG.warn("socket closed with statusCode: {} and reason: {}", statusCode, reason);
+            onDisconnect(this, "closed with " + statusCode, StreamerGapListener.Cause.RECONNECT);
+            ready.completeExceptionally(new IllegalStateException("socket closed with statusCode " + statusCode));
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            LOG.error("socket failed", error);
+            onDisconnect(this, error.toString(), StreamerGapListener.Cause.RECONNECT);
+            ready.completeExceptionally(error);
+        }
     }
 }
@@ -0,0 +1,21 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Timing of one request pushed through an {@link OrderScheduler}, measured from the moment the order was decided on.
+ */
+@Getter
+@Builder
+public class SubmissionReport {
+    private final String label;
+    private final double priority;
+    private final long queuedNanos;
+    private final long latencyNanos;
+    private final Throwable failure;
+
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,59 @@
+package systems.cauldron.utility.trading.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Assigns dense integer ids to symbols so that per-symbol state can live in primitive arrays.
+ */
+public class SymbolTable {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicReferenceArray<String> symbols;
+
+    public SymbolTable(int capacity) {
+        this.symbols = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * @return the id of the symbol, assigning the next free one on first sight
+     */
+    public int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(symbol, s -> {
+            int next = nextId.getAndIncrement();
+            if (next >= symbols.length()) {
+                nextId.decrementAndGet();
+                throw new IllegalStateException("symbol table capacity exhausted: " + symbols.length());
+            }
+            symbols.set(next, s);
+            return next;
+        });
+    }
+
+    /**
+     * @return the id of the symbol or -1 if it was never interned
+     */
+    public int lookup(String symbol) {
+        Integer id = ids.get(symbol);
+        return id == null ? -1 : id;
+    }
+
+    public String symbol(int id) {
+        return symbols.get(id);
+    }
+
+    public int size() {
+        return nextId.get();
+    }
+
+    public int capacity() {
+        return symbols.length();
+    }
+}
@@ -0,0 +1,70 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Getter;
+
+/**
+ * Reusable holder for the decoded columns of one tick file block. Only the ticks from {@code start} (inclusive) to
+ * {@code end} (exclusive) fall in the requested time range; columns that were not requested hold stale data. Prices
+ * are fixed-point, see {@link TickFileWriter#fromFixedPoint(long)}.
+ */
+@Getter
+public class TickColumns {
+    private String symbol;
+    private int start;
+    private int end;
+    private long[] timestamps = new long[0];
+    private long[] bids = new long[0];
+    private long[] asks = new long[0];
+    private long[] lasts = new long[0];
+    private long[] bidSizes = new long[0];
+    private long[] askSizes = new long[0];
+    private long[] lastSizes = new long[0];
+    private long[] volumes = new long[0];
+
+    public int size() {
+        return end - start;
+    }
+
+    void reset(String symbol, int count) {
+        this.symbol = symbol;
+        if (timestamps.length < count) {
+            timestamps = new long[count];
+            bids = new long[count];
+            asks = new long[count];
+            lasts = new long[count];
+            bidSizes = new long[count];
+            askSizes = new long[count];
+            lastSizes = new long[count];
+            volumes = new long[count];
+        }
+    }
+
+    void range(int start, int end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @param column position in the file, timestamps being 0
+     */
+    long[] column(int column) {
+        switch (column) {
+            case 0:
+                return timestamps;
+            case 1:
+                return bids;
+            case 2:
+                return asks;
+            case 3:
+                return lasts;
+            case 4:
+                return bidSizes;
+            case 5:
+                return askSizes;
+            case 6:
+                return lastSizes;
+            default:
+                return volumes;
+        }
+    }
+}
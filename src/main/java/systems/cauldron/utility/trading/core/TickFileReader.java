@@ -0,0 +1,336 @@
+package systems.cauldron.utility.trading.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Scans a file written by {@link TickFileWriter} through memory mappings, decoding blocks into a reusable
+ * {@link TickColumns}. Only the requested columns are decoded, the rest are skipped by their length prefix, and the
+ * block index narrows time-range scans down to the overlapping blocks. Files without a footer, e.g. from a writer
+ * that did not close, are indexed by walking their blocks. Not thread safe.
+ */
+public class TickFileReader implements AutoCloseable {
+
+    private final static Logger LOG = LogManager.getLogger(TickFileReader.class);
+
+    /**
+     * Column selection for scans, in {@link QuoteBook} field flags; timestamps are always decoded.
+     */
+    public static final int ALL_COLUMNS = QuoteBook.BID | QuoteBook.ASK | QuoteBook.LAST | QuoteBook.BID_SIZE
+            | QuoteBook.ASK_SIZE | QuoteBook.LAST_SIZE | QuoteBook.VOLUME;
+
+    private static final long WINDOW_SIZE = 1L << 30;
+    private static final long WINDOW_OVERLAP = TickFileWriter.maxBlockLength(TickFileWriter.MAX_BLOCK_SIZE);
+
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] windows;
+    private final List<String> symbols = new ArrayList<>();
+    private final Map<String, Blocks> blocksBySymbol = new HashMap<>();
+    private final List<long[]> blocks = new ArrayList<>();
+    private final TickColumns columns = new TickColumns();
+    private long tickCount;
+
+    public TickFileReader(Path path) {
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        try {
+            this.size = channel.size();
+            this.windows = new MappedByteBuffer[(int) ((size + WINDOW_SIZE - 1) / WINDOW_SIZE)];
+            if (size < TickFileWriter.FILE_HEADER_LENGTH) {
+                throw new IOException("not a tick file: " + path);
+            }
+            // read rather than mapped so that nothing is mapped for a file that is not a tick file
+            ByteBuffer header = ByteBuffer.allocate(TickFileWriter.FILE_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0L);
+            if (header.getInt(0) != TickFileWriter.MAGIC || header.getInt(4) != TickFileWriter.VERSION
+                    || header.getLong(8) != TickFileWriter.PRICE_SCALE) {
+                throw new IOException("not a tick file: " + path);
+            }
+            if (!readFooter()) {
+                LOG.warn("tick file {} has no footer, indexing by scanning its blocks", path);
+                scanBlocks();
+            }
+        } catch (IOException | RuntimeException ex) {
+            try {
+                channel.close();
+            } catch (IOException closeEx) {
+                ex.addSuppressed(closeEx);
+            }
+            if (ex instanceof IOException) {
+                throw new UncheckedIOException((IOException) ex);
+            }
+            throw (RuntimeException) ex;
+        }
+        for (Blocks symbolBlocks : blocksBySymbol.values()) {
+            symbolBlocks.trim();
+        }
+    }
+
+    public List<String> getSymbols() {
+        return Collections.unmodifiableList(symbols);
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Hands every block of the symbol overlapping {@code [from, to)} to the handler, trimmed to that range.
+     *
+     * @param columnMask {@link QuoteBook} field flags of the columns to decode
+     * @return number of ticks in range
+     */
+    public long scan(String symbol, long from, long to, int columnMask, Consumer<TickColumns> handler) {
+        Blocks symbolBlocks = blocksBySymbol.get(symbol);
+        if (symbolBlocks == null) {
+            return 0L;
+        }
+        long ticks = 0L;
+        // blocks are in time order per symbol, so skip straight to the first one that can overlap
+        int first = Arrays.binarySearch(symbolBlocks.lastTimestamps, 0, symbolBlocks.count, from);
+        for (int i = first < 0 ? -first - 1 : backtrack(symbolBlocks, first); i < symbolBlocks.count; i++) {
+            if (symbolBlocks.firstTimestamps[i] >= to) {
+                break;
+            }
+            decode(symbol, symbolBlocks.offsets[i], columnMask);
+            long[] timestamps = columns.getTimestamps();
+            int end = columns.getEnd();
+            int start = 0;
+            while (start < end && timestamps[start] < from) {
+                start++;
+            }
+            while (end > start && timestamps[end - 1] >= to) {
+                end--;
+            }
+            if (end > start) {
+                columns.range(start, end);
+                ticks += end - start;
+                handler.accept(columns);
+            }
+        }
+        return ticks;
+    }
+
+    /**
+     * Hands every block to the handler in file order.
+     *
+     * @return number of ticks
+     */
+    public long scanAll(int columnMask, Consumer<TickColumns> handler) {
+        long ticks = 0L;
+        for (long[] block : blocks) {
+            decode(symbols.get((int) block[0]), block[1], columnMask);
+            ticks += columns.size();
+            handler.accept(columns);
+        }
+        return ticks;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            LOG.warn("failed to close tick file", ex);
+        }
+    }
+
+    private static int backtrack(Blocks symbolBlocks, int index) {
+        while (index > 0 && symbolBlocks.lastTimestamps[index - 1] == symbolBlocks.lastTimestamps[index]) {
+            index--;
+        }
+        return index;
+    }
+
+    private void decode(String symbol, long offset, int columnMask) {
+        ByteBuffer buffer = window(offset);
+        int at = (int) (offset % WINDOW_SIZE);
+        int count = buffer.getInt(at + 4);
+        long first = buffer.getLong(at + 8);
+        int symbolLength = buffer.getShort(at + 24);
+        columns.reset(symbol, count);
+        columns.range(0, count);
+        at += TickFileWriter.BLOCK_HEADER_LENGTH + symbolLength;
+        for (int c = 0; c < TickFileWriter.COLUMN_COUNT; c++) {
+            long length = 0L;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(at++);
+                length |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (c == 0 || (columnMask & (1 << (c - 1))) != 0) {
+                long[] values = columns.column(c);
+                long previous = c == 0 ? first : 0L;
+                long divisor = 0L;
+                shift = 0;
+                do {
+                    b = buffer.get(at++);
+                    divisor |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                for (int i = 0; i < count; i++) {
+                    long raw = 0L;
+                    shift = 0;
+                    do {
+                        b = buffer.get(at++);
+                        raw |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    previous += TickFileWriter.unzigzag(raw) * divisor;
+                    values[i] = previous;
+                }
+            } else {
+                at += (int) length;
+            }
+        }
+    }
+
+    private ByteBuffer window(long offset) {
+        int window = (int) (offset / WINDOW_SIZE);
+        MappedByteBuffer mapped = windows[window];
+        if (mapped == null) {
+            long start = window * WINDOW_SIZE;
+            long length = Math.min(size - start, WINDOW_SIZE + WINDOW_OVERLAP);
+            try {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            windows[window] = mapped;
+        }
+        return mapped;
+    }
+
+    private boolean readFooter() throws IOException {
+        if (size < TickFileWriter.FILE_HEADER_LENGTH + TickFileWriter.TRAILER_LENGTH) {
+            return false;
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TickFileWriter.TRAILER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(trailer, size - TickFileWriter.TRAILER_LENGTH);
+        trailer.flip();
+        long footerOffset = trailer.getLong();
+        if (trailer.getInt() != TickFileWriter.FOOTER_MAGIC || footerOffset < TickFileWriter.FILE_HEADER_LENGTH
+                || footerOffset > size - TickFileWriter.TRAILER_LENGTH) {
+            return false;
+        }
+        ByteBuffer footer = ByteBuffer.allocate((int) (size - footerOffset)).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(footer, footerOffset);
+        footer.flip();
+        if (footer.getInt() != TickFileWriter.FOOTER_MAGIC) {
+            return false;
+        }
+        int symbolCount = (int) getVarint(footer);
+        for (int i = 0; i < symbolCount; i++) {
+            byte[] encoded = new byte[(int) getVarint(footer)];
+            footer.get(encoded);
+            symbols.add(new String(encoded, StandardCharsets.UTF_8));
+        }
+        int blockCount = (int) getVarint(footer);
+        for (int i = 0; i < blockCount; i++) {
+            long symbolId = getVarint(footer);
+            long offset = footer.getLong();
+            long count = getVarint(footer);
+            long first = footer.getLong();
+            long last = footer.getLong();
+            addBlock(symbolId, offset, count, first, last);
+        }
+        return true;
+    }
+
+    private void scanBlocks() {
+        Map<String, Integer> ids = new HashMap<>();
+        long offset = TickFileWriter.FILE_HEADER_LENGTH;
+        while (offset + TickFileWriter.BLOCK_HEADER_LENGTH <= size) {
+            ByteBuffer buffer = window(offset);
+            int at = (int) (offset % WINDOW_SIZE);
+            int bodyLength = buffer.getInt(at);
+            if (bodyLength <= 0 || offset + TickFileWriter.BLOCK_HEADER_LENGTH + bodyLength > size) {
+                break;
+            }
+            int symbolLength = buffer.getShort(at + 24);
+            byte[] encoded = new byte[symbolLength];
+            for (int i = 0; i < symbolLength; i++) {
+                encoded[i] = buffer.get(at + TickFileWriter.BLOCK_HEADER_LENGTH + i);
+            }
+            String symbol = new String(encoded, StandardCharsets.UTF_8);
+            Integer id = ids.get(symbol);
+            if (id == null) {
+                id = symbols.size();
+                ids.put(symbol, id);
+                symbols.add(symbol);
+            }
+            addBlock(id, offset, buffer.getInt(at + 4), buffer.getLong(at + 8), buffer.getLong(at + 16));
+            offset += TickFileWriter.BLOCK_HEADER_LENGTH + bodyLength;
+        }
+    }
+
+    private void addBlock(long symbolId, long offset, long count, long first, long last) {
+        blocks.add(new long[]{symbolId, offset, count, first, last});
+        blocksBySymbol.computeIfAbsent(symbols.get((int) symbolId), s -> new Blocks()).add(offset, first, last);
+        tickCount += count;
+    }
+
+    private static long getVarint(ByteBuffer buffer) {
+        long value = 0L;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Block offsets and time bounds of one symbol, in file order.
+     */
+    private static class Blocks {
+        private long[] offsets = new long[16];
+        private long[] firstTimestamps = new long[16];
+        private long[] lastTimestamps = new long[16];
+        private int count;
+
+        private void add(long offset, long first, long last) {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count << 1);
+                firstTimestamps = Arrays.copyOf(firstTimestamps, count << 1);
+                lastTimestamps = Arrays.copyOf(lastTimestamps, count << 1);
+            }
+            offsets[count] = offset;
+            firstTimestamps[count] = first;
+            lastTimestamps[count] = last;
+            count++;
+        }
+
+        private void trim() {
+            offsets = Arrays.copyOf(offsets, count);
+            firstTimestamps = Arrays.copyOf(firstTimestamps, count);
+            lastTimestamps = Arrays.copyOf(lastTimestamps, count);
+        }
+    }
+}
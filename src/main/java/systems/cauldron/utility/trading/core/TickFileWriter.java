@@ -0,0 +1,286 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Writes quote and trade ticks into a columnar tick file. Ticks are buffered per symbol and written as a block once
+ * {@code blockSize} of them have accumulated. Within a block every column is stored separately: timestamps, prices
+ * (as fixed-point longs with {@value #PRICE_SCALE} units per dollar) and sizes as zigzag varint deltas from the
+ * previous tick. Deltas are further divided by their greatest common divisor within the column, so cent-ticked prices
+ * and round-lot sizes move in steps of one, which shrinks a typical tick to a handful of bytes. Closing writes the
+ * partial blocks and a footer with the symbol table and a block index for time-range seeks; a file without a footer
+ * can still be read by scanning its blocks. Not thread safe; meant to be fed from the QUOTE consumer thread.
+ * <p>
+ * A block is a {@value #BLOCK_HEADER_LENGTH} byte header (body length, tick count, first and last timestamp, symbol
+ * length) followed by the symbol and {@value #COLUMN_COUNT} columns, each a varint byte length, a varint divisor and
+ * the divided deltas.
+ */
+public class TickFileWriter implements AutoCloseable {
+
+    private final static Logger LOG = LogManager.getLogger(TickFileWriter.class);
+
+    public static final long PRICE_SCALE = 10_000L;
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    static final int MAGIC = 0x4B434954;
+    static final int FOOTER_MAGIC = 0x544F4F46;
+    static final int VERSION = 1;
+    static final int FILE_HEADER_LENGTH = 16;
+    static final int BLOCK_HEADER_LENGTH = 26;
+    static final int TRAILER_LENGTH = 12;
+    static final int COLUMN_COUNT = 8;
+    static final int MAX_BLOCK_SIZE = 65_536;
+    static final int MAX_SYMBOL_LENGTH = 64;
+    static final int MAX_VARINT_LENGTH = 10;
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final ByteBuffer block;
+    private final ByteBuffer column;
+    private final Map<String, Columns> bySymbol = new HashMap<>();
+    private final List<String> symbols = new ArrayList<>();
+    private final List<long[]> index = new ArrayList<>();
+    private final Counter ticks;
+    private final Counter bytes;
+
+    private long position;
+    private boolean closed;
+
+    /**
+     * @param path      created, or truncated if it exists
+     * @param blockSize ticks per block, defaults to {@value #DEFAULT_BLOCK_SIZE}; larger blocks compress slightly
+     *                  better, smaller ones seek more precisely
+     * @param metrics   receives tick and byte counts, defaults to {@link MetricsRegistry#global()}
+     */
+    @Builder
+    private TickFileWriter(Path path, Integer blockSize, MetricsRegistry metrics) {
+        this.blockSize = Optional.ofNullable(blockSize).orElse(DEFAULT_BLOCK_SIZE);
+        if (this.blockSize < 1 || this.blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("block size must be between 1 and " + MAX_BLOCK_SIZE + ": " + blockSize);
+        }
+        MetricsRegistry registry = Optional.ofNullable(metrics).orElse(MetricsRegistry.global());
+        this.ticks = registry.counter("ticks", "written");
+        this.bytes = registry.counter("ticks", "bytes");
+        this.column = ByteBuffer.allocateDirect((this.blockSize + 1) * MAX_VARINT_LENGTH);
+        this.block = ByteBuffer.allocateDirect(maxBlockLength(this.blockSize)).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(PRICE_SCALE).flip();
+            write(header);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public void append(String symbol, QuoteSnapshot quote) {
+        append(symbol, quote.getTimestamp(), quote.getBid(), quote.getAsk(), quote.getLast(),
+                quote.getBidSize(), quote.getAskSize(), quote.getLastSize(), quote.getVolume());
+    }
+
+    /**
+     * @param timestamp epoch milliseconds; expected to be non-decreasing per symbol
+     */
+    public void append(String symbol, long timestamp, double bid, double ask, double last,
+                       long bidSize, long askSize, long lastSize, long volume) {
+        Columns columns = bySymbol.get(symbol);
+        if (columns == null) {
+            if (symbol.length() > MAX_SYMBOL_LENGTH) {
+                throw new IllegalArgumentException("symbol too long: " + symbol);
+            }
+            columns = new Columns(symbol, symbols.size(), blockSize);
+            bySymbol.put(symbol, columns);
+            symbols.add(symbol);
+        }
+        int i = columns.count++;
+        columns.values[0][i] = timestamp;
+        columns.values[1][i] = toFixedPoint(bid);
+        columns.values[2][i] = toFixedPoint(ask);
+        columns.values[3][i] = toFixedPoint(last);
+        columns.values[4][i] = bidSize;
+        columns.values[5][i] = askSize;
+        columns.values[6][i] = lastSize;
+        columns.values[7][i] = volume;
+        ticks.increment();
+        if (columns.count == blockSize) {
+            writeBlock(columns);
+        }
+    }
+
+    /**
+     * Writes every partially filled block; the file stays readable by block scan without a footer.
+     */
+    public void flush() {
+        for (String symbol : symbols) {
+            Columns columns = bySymbol.get(symbol);
+            if (columns.count > 0) {
+                writeBlock(columns);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+            writeFooter();
+            channel.force(false);
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        LOG.info("closed tick file with {} symbols in {} blocks, {} bytes", symbols.size(), index.size(), position);
+    }
+
+    public static long toFixedPoint(double price) {
+        return Math.round(price * PRICE_SCALE);
+    }
+
+    public static double fromFixedPoint(long price) {
+        return (double) price / PRICE_SCALE;
+    }
+
+    private void writeBlock(Columns columns) {
+        int count = columns.count;
+        long first = columns.values[0][0];
+        long last = columns.values[0][count - 1];
+        block.clear();
+        block.position(BLOCK_HEADER_LENGTH);
+        block.put(columns.symbolBytes);
+        for (long[] values : columns.values) {
+            long origin = values == columns.values[0] ? first : 0L;
+            long divisor = 0L;
+            long previous = origin;
+            for (int i = 0; i < count && divisor != 1L; i++) {
+                divisor = gcd(divisor, Math.abs(values[i] - previous));
+                previous = values[i];
+            }
+            divisor = Math.max(1L, divisor);
+            column.clear();
+            putVarint(column, divisor);
+            previous = origin;
+            for (int i = 0; i < count; i++) {
+                putVarint(column, zigzag((values[i] - previous) / divisor));
+                previous = values[i];
+            }
+            column.flip();
+            putVarint(block, column.remaining());
+            block.put(column);
+        }
+        block.putInt(0, block.position() - BLOCK_HEADER_LENGTH);
+        block.putInt(4, count);
+        block.putLong(8, first);
+        block.putLong(16, last);
+        block.putShort(24, (short) columns.symbolBytes.length);
+        block.flip();
+        index.add(new long[]{columns.id, position, count, first, last});
+        try {
+            write(block);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        columns.count = 0;
+    }
+
+    private void writeFooter() throws IOException {
+        long footerOffset = position;
+        int length = 4 + 2 * MAX_VARINT_LENGTH + TRAILER_LENGTH;
+        for (String symbol : symbols) {
+            length += MAX_VARINT_LENGTH + symbol.length() * 3;
+        }
+        length += index.size() * (3 * MAX_VARINT_LENGTH + 16);
+        ByteBuffer footer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        footer.putInt(FOOTER_MAGIC);
+        putVarint(footer, symbols.size());
+        for (String symbol : symbols) {
+            byte[] encoded = symbol.getBytes(StandardCharsets.UTF_8);
+            putVarint(footer, encoded.length);
+            footer.put(encoded);
+        }
+        putVarint(footer, index.size());
+        for (long[] entry : index) {
+            putVarint(footer, entry[0]);
+            footer.putLong(entry[1]);
+            putVarint(footer, entry[2]);
+            footer.putLong(entry[3]);
+            footer.putLong(entry[4]);
+        }
+        footer.putLong(footerOffset);
+        footer.putInt(FOOTER_MAGIC);
+        footer.flip();
+        write(footer);
+    }
+
+    private void write(ByteBuffer source) throws IOException {
+        int length = source.remaining();
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+        position += length;
+        bytes.add(length);
+    }
+
+    static int maxBlockLength(int blockSize) {
+        return BLOCK_HEADER_LENGTH + MAX_SYMBOL_LENGTH * 3
+                + COLUMN_COUNT * (2 * MAX_VARINT_LENGTH + blockSize * MAX_VARINT_LENGTH);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0L) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0L) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static class Columns {
+        private final byte[] symbolBytes;
+        private final int id;
+        private final long[][] values;
+        private int count;
+
+        private Columns(String symbol, int id, int blockSize) {
+            this.symbolBytes = symbol.getBytes(StandardCharsets.UTF_8);
+            this.id = id;
+            this.values = new long[COLUMN_COUNT][blockSize];
+        }
+    }
+}
@@ -12,6 +12,7 @@ import java.time.format.DateTimeFormatterBuilder;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
@@ -19,8 +20,8 @@ public class UserPrincipalsService {
 
     private final static Logger LOG = LogManager.getLogger(UserPrincipalsService.class);
 
-    private static final String USER_PRINCIPALS_ENDPOINT = "https://api.tdameritrade.com/v1/userprincipals";
-    private static final String STREAMER_SUBSCRIPTION_KEYS_ENDPOINT = "https://api.tdameritrade.com/v1/userprincipals/streamersubscriptionkeys";
+    private static final String USER_PRINCIPALS_PATH = "/v1/userprincipals";
+    private static final String STREAMER_SUBSCRIPTION_KEYS_PATH = "/v1/userprincipals/streamersubscriptionkeys";
 
     private static final DateTimeFormatter TIMESTAMP_FORMAT = new DateTimeFormatterBuilder()
             .parseCaseInsensitive()
@@ -30,10 +31,14 @@ public class UserPrincipalsService {
             .parseStrict()
             .toFormatter();
 
-    private final Supplier<String> accessTokenSource;
+    private final HttpGateway gateway;
+    private final AccessTokenSource accessTokenSource;
+    private final String userPrincipalsEndpoint;
 
-    public UserPrincipalsService(Supplier<String> accessTokenSource) {
-        this.accessTokenSource = accessTokenSource;
+    public UserPrincipalsService(HttpGateway gateway, Supplier<String> accessTokenSource) {
+        this.gateway = gateway;
+        this.accessTokenSource = AccessTokenSource.of(accessTokenSource);
+        this.userPrincipalsEndpoint = gateway.resolve(USER_PRINCIPALS_PATH);
     }
 
     public CompletableFuture<StreamerConfig> getStreamerConfig() {
@@ -77,19 +82,22 @@ public class UserPrincipalsService {
                             .credential(credential)
                             .token(token)
                             .subscriptionKey(subscriptionKey)
+                            .tokenExpiry(Optional.ofNullable(response.getJsonString("tokenExpirationTime"))
+                                    .map(x -> TIMESTAMP_FORMAT.parse(x.getString(), Instant::from))
+                                    .orElse(null))
                             .build();
                 }
         );
     }
 
     private CompletableFuture<JsonObject> doUserPrincipalsCall() {
-        return HttpGateway.doAuthorizedGetForJsonObject(USER_PRINCIPALS_ENDPOINT, accessTokenSource, Map.of(
+        return gateway.doAuthorizedGetForJsonObject(userPrincipalsEndpoint, accessTokenSource, Map.of(
                 "fields", Arrays.asList("streamerConnectionInfo", "streamerSubscriptionKeys")
         ));
     }
 
     private CompletableFuture<JsonObject> doStreamerSubscriptionKeyCall(String accountId) {
-        return HttpGateway.doAuthorizedGetForJsonObject(USER_PRINCIPALS_ENDPOINT, accessTokenSource, Map.of(
+        return gateway.doAuthorizedGetForJsonObject(userPrincipalsEndpoint, accessTokenSource, Map.of(
                 "accountIds", Collections.singletonList(accountId)
         ));
     }
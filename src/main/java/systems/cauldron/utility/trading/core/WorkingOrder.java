@@ -0,0 +1,58 @@
+package systems.cauldron.utility.trading.core;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+
+/**
+ * A single-leg order as listed by the account orders endpoint. {@code type} and {@code instruction} are null when
+ * the broker reports something the {@link OrderTemplate} cannot render, e.g. a trailing stop or a short sale.
+ */
+@Getter
+@Builder
+public class WorkingOrder {
+    private final String accountId;
+    private final String orderId;
+    private final String status;
+    private final String symbol;
+    private final OrderTemplate.Type type;
+    private final OrderTemplate.Instruction instruction;
+    private final FixedPoint price;
+    private final int remainingQuantity;
+    private final boolean cancelable;
+    private final boolean editable;
+
+    static WorkingOrder of(String accountId, JsonObject order) {
+        JsonArray legs = order.getJsonArray("orderLegCollection");
+        JsonObject leg = legs == null || legs.size() != 1 ? null : legs.getJsonObject(0);
+        OrderTemplate.Type type = valueOf(OrderTemplate.Type.class, order.getString("orderType", null));
+        JsonNumber price = order.getJsonNumber(type == OrderTemplate.Type.STOP ? "stopPrice" : "price");
+        JsonNumber remaining = order.getJsonNumber("remainingQuantity");
+        return WorkingOrder.builder()
+                .accountId(accountId)
+                .orderId(order.get("orderId").toString())
+                .status(order.getString("status", null))
+                .symbol(leg == null ? null : leg.getJsonObject("instrument").getString("symbol", null))
+                .type(leg == null ? null : type)
+                .instruction(leg == null ? null : valueOf(OrderTemplate.Instruction.class, leg.getString("instruction", null)))
+                .price(price == null ? null : FixedPoint.parse(price.toString()))
+                .remainingQuantity(remaining == null ? 0 : remaining.intValue())
+                .cancelable(order.getBoolean("cancelable", false))
+                .editable(order.getBoolean("editable", false))
+                .build();
+    }
+
+    private static <E extends Enum<E>> E valueOf(Class<E> type, String name) {
+        if (name != null) {
+            for (E constant : type.getEnumConstants()) {
+                if (constant.name().equals(name)) {
+                    return constant;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+package systems.cauldron.utility.trading.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * JDK 21 variant of the class: one virtual thread per task, so blocking on a request costs no platform thread.
+ */
+public final class RequestThreads {
+
+    private RequestThreads() {
+    }
+
+    public static boolean isVirtual() {
+        return true;
+    }
+
+    public static ExecutorService newExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1L).factory());
+    }
+}
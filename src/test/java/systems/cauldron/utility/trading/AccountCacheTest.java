@@ -0,0 +1,141 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.Account;
+import systems.cauldron.utility.trading.core.AccountCache;
+import systems.cauldron.utility.trading.core.FixedPoint;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AccountCacheTest {
+
+    private final AtomicInteger fullLoads = new AtomicInteger();
+    private final AtomicInteger singleLoads = new AtomicInteger();
+    private volatile FixedPoint cashA = FixedPoint.of(1000);
+
+    @Test
+    public void ensureCachedReadsSkipTheBroker() {
+        try (AccountCache cache = newCache(Duration.ofHours(1L))) {
+            assertEquals(FixedPoint.of(1000), cache.getAvailableCashBalances(AccountCache.Freshness.CACHED).join().get("A"));
+            cashA = FixedPoint.of(1);
+            assertEquals(FixedPoint.of(1000), cache.getAvailableCashBalances(AccountCache.Freshness.CACHED).join().get("A"));
+            assertEquals(1, fullLoads.get());
+
+            assertEquals(FixedPoint.of(1), cache.getAvailableCashBalances(AccountCache.Freshness.FRESH).join().get("A"));
+            assertEquals(2, fullLoads.get());
+        }
+    }
+
+    @Test
+    public void ensureActivityRefreshesOnlyTheAffectedAccount() {
+        try (AccountCache cache = newCache(Duration.ofHours(1L))) {
+            cache.getAccounts(AccountCache.Freshness.CACHED).join();
+            cashA = FixedPoint.of(250);
+
+            cache.onActivity("A", "SUBSCRIBED", "");
+            cache.onActivity("A", "ERROR", "");
+            assertEquals(0, singleLoads.get());
+
+            cache.onActivity("A", "OrderFill", "<EMS/>");
+            cache.invalidate("A").join();
+            Map<String, FixedPoint> balances = cache.getAvailableCashBalances(AccountCache.Freshness.CACHED).join();
+            assertEquals(FixedPoint.of(250), balances.get("A"));
+            assertEquals(FixedPoint.of(500), balances.get("B"));
+            assertEquals(1, fullLoads.get());
+        }
+    }
+
+    @Test
+    public void ensureOlderFullLoadKeepsNewerRefresh() {
+        CompletableFuture<List<Account>> slowLoad = new CompletableFuture<>();
+        try (AccountCache cache = new AccountCache(() -> slowLoad,
+                id -> CompletableFuture.completedFuture(account(id, FixedPoint.of(250))), Duration.ofHours(1L))) {
+            CompletableFuture<Map<String, Account>> resync = cache.resync();
+            cache.invalidate("A").join();
+            slowLoad.complete(List.of(account("A", FixedPoint.of(1000)), account("B", FixedPoint.of(500))));
+
+            Map<String, Account> accounts = resync.join();
+            assertEquals(FixedPoint.of(250), accounts.get("A").getTotalCash());
+            assertEquals(FixedPoint.of(500), accounts.get("B").getTotalCash());
+        }
+    }
+
+    @Test
+    public void ensureInvalidationMidRefreshIsAnsweredByTheFollowUp() {
+        List<CompletableFuture<Account>> loads = new CopyOnWriteArrayList<>();
+        try (AccountCache cache = new AccountCache(() -> CompletableFuture.completedFuture(List.of()), id -> {
+            CompletableFuture<Account> load = new CompletableFuture<>();
+            loads.add(load);
+            return load;
+        }, Duration.ofHours(1L))) {
+            CompletableFuture<Account> first = cache.invalidate("A");
+            CompletableFuture<Account> second = cache.invalidate("A");
+            CompletableFuture<Account> third = cache.invalidate("A");
+            assertEquals(1, loads.size());
+
+            loads.get(0).complete(account("A", FixedPoint.of(1000)));
+            assertEquals(FixedPoint.of(1000), first.join().getTotalCash());
+            assertFalse(second.isDone());
+            assertEquals(2, loads.size());
+
+            loads.get(1).complete(account("A", FixedPoint.of(250)));
+            assertEquals(FixedPoint.of(250), second.join().getTotalCash());
+            assertEquals(FixedPoint.of(250), third.join().getTotalCash());
+            assertEquals(2, loads.size());
+        }
+    }
+
+    @Test
+    public void ensureThrowingReloaderDoesNotStallLaterRefreshes() {
+        AtomicInteger attempts = new AtomicInteger();
+        try (AccountCache cache = new AccountCache(() -> CompletableFuture.completedFuture(List.of()), id -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("not signed in");
+            }
+            return CompletableFuture.completedFuture(account(id, FixedPoint.of(250)));
+        }, Duration.ofHours(1L))) {
+            assertThrows(CompletionException.class, () -> cache.invalidate("A").join());
+            assertEquals(FixedPoint.of(250), cache.invalidate("A").join().getTotalCash());
+        }
+    }
+
+    @Test
+    public void ensureTtlTriggersFullResync() throws InterruptedException {
+        try (AccountCache cache = newCache(Duration.ofMillis(50L))) {
+            cache.getAccounts(AccountCache.Freshness.CACHED).join();
+            Thread.sleep(300L);
+            assertTrue(fullLoads.get() > 1);
+        }
+    }
+
+    private AccountCache newCache(Duration ttl) {
+        return new AccountCache(() -> {
+            fullLoads.incrementAndGet();
+            return CompletableFuture.completedFuture(List.of(account("A", cashA), account("B", FixedPoint.of(500))));
+        }, id -> {
+            singleLoads.incrementAndGet();
+            return CompletableFuture.completedFuture(account(id, "A".equals(id) ? cashA : FixedPoint.of(500)));
+        }, ttl);
+    }
+
+    private static Account account(String id, FixedPoint cash) {
+        return Account.builder()
+                .accountId(id)
+                .type("CASH")
+                .totalCash(cash)
+                .positions(Collections.emptyList())
+                .build();
+    }
+}
@@ -0,0 +1,61 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.Account;
+import systems.cauldron.utility.trading.core.AccountsDecoder;
+import systems.cauldron.utility.trading.core.FixedPoint;
+import systems.cauldron.utility.trading.core.Position;
+
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AccountsDecoderTest {
+
+    @Test
+    public void ensureBalancesDecodeWithoutPositions() {
+        List<Account> accounts = decode(AccountsDecoder.BALANCES);
+        assertEquals(2, accounts.size());
+
+        Account margin = accounts.get(0);
+        assertEquals("123456789", margin.getAccountId());
+        assertEquals("MARGIN", margin.getType());
+        assertEquals(FixedPoint.parse("10000.15"), margin.getTotalCash());
+        assertTrue(margin.getPositions().isEmpty());
+
+        Account cash = accounts.get(1);
+        assertEquals("987654321", cash.getAccountId());
+        assertEquals("CASH", cash.getType());
+        assertEquals(FixedPoint.of(512), cash.getTotalCash());
+    }
+
+    @Test
+    public void ensurePositionsDecode() {
+        List<Account> accounts = decode(AccountsDecoder.WITH_POSITIONS);
+        List<Position> positions = accounts.get(0).getPositions();
+        assertEquals(2, positions.size());
+
+        Position equity = positions.get(0);
+        assertEquals("QQQ", equity.getSymbol());
+        assertEquals("EQUITY", equity.getAssetType());
+        assertEquals(10.0, equity.getLongQuantity());
+        assertEquals(280.25, equity.getAveragePrice());
+        assertEquals(12.5, equity.getCurrentDayProfitLoss());
+        assertEquals(2815.0, equity.getMarketValue());
+
+        Position moneyMarket = positions.get(1);
+        assertEquals("MMDA1", moneyMarket.getSymbol());
+        assertEquals(150.0, moneyMarket.getLongQuantity());
+
+        assertTrue(accounts.get(1).getPositions().isEmpty());
+    }
+
+    private static List<Account> decode(AccountsDecoder decoder) {
+        try (JsonParser parser = Json.createParser(AccountsDecoderTest.class.getResourceAsStream("/accounts-response.json"))) {
+            return decoder.apply(parser);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.AccessTokenSource;
+import systems.cauldron.utility.trading.core.AuthenticationService;
+import systems.cauldron.utility.trading.core.Configuration;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AuthenticationServiceTest {
+
+    @Test
+    public void ensureStartDoesNotBlock() {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().latency(Duration.ofMillis(300L)).build().start()) {
+            AuthenticationService service = newService(standIn, new MetricsRegistry("auth-test-start"));
+            CompletableFuture<AccessTokenSource> started = service.startAsync();
+            assertFalse(started.isDone());
+            AccessTokenSource tokens = started.join();
+            assertEquals(BrokerStandIn.ACCESS_TOKEN, tokens.get());
+            assertEquals("Bearer " + BrokerStandIn.ACCESS_TOKEN, tokens.authorizationHeader());
+            assertSame(tokens.authorizationHeader(), tokens.authorizationHeader());
+            service.close();
+        }
+    }
+
+    @Test
+    public void ensureTokenIsRefreshedBeforeExpiry() throws InterruptedException {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().tokenLifetime(Duration.ofSeconds(2L)).build().start()) {
+            MetricsRegistry metrics = new MetricsRegistry("auth-test-refresh");
+            AuthenticationService service = newService(standIn, metrics);
+            service.startAsync().join();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+            while (metrics.counter("auth", "refreshes").getCount() == 0L && System.nanoTime() < deadline) {
+                Thread.sleep(10L);
+            }
+            // a 2 second token is refreshed after half its lifetime, well before it lapses
+            assertTrue(metrics.counter("auth", "refreshes").getCount() >= 1L);
+            assertEquals(1L, metrics.counter("auth", "initializations").getCount());
+            service.close();
+            long issued = standIn.getTokenCount();
+            Thread.sleep(1_500L);
+            assertEquals(issued, standIn.getTokenCount());
+        }
+    }
+
+    private static AuthenticationService newService(BrokerStandIn standIn, MetricsRegistry metrics) {
+        HttpGateway gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).metrics(metrics).build();
+        Configuration configuration = new Configuration();
+        configuration.setClientId("stand-in-client");
+        configuration.setRedirectUri("https://localhost");
+        configuration.setAuthorizationCode("stand-in-code");
+        return new AuthenticationService(gateway, configuration, c -> {
+        });
+    }
+}
@@ -2,6 +2,7 @@ package systems.cauldron.utility.trading;
 
 import org.junit.jupiter.api.Test;
 import systems.cauldron.utility.trading.core.AuthenticationService;
+import systems.cauldron.utility.trading.core.HttpGateway;
 
 import java.util.function.Supplier;
 
@@ -13,7 +14,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 public class AuthenticationTest {
     @Test
     public void ensureSavedRefreshTokenWorks() {
-        AuthenticationService authenticator = new AuthenticationService();
+        AuthenticationService authenticator = new AuthenticationService(new HttpGateway());
 
         Supplier<String> tokenSource = authenticator.start();
 
@@ -26,7 +27,7 @@ public class AuthenticationTest {
 
     @Test
     public void ensureTokenRefreshWorks() throws InterruptedException {
-        AuthenticationService authenticator = new AuthenticationService();
+        AuthenticationService authenticator = new AuthenticationService(new HttpGateway());
 
         Supplier<String> tokenSource = authenticator.start();
 
@@ -0,0 +1,72 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.BlockingGateway;
+import systems.cauldron.utility.trading.core.BlockingOrderService;
+import systems.cauldron.utility.trading.core.FixedPoint;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.OrderTemplate;
+import systems.cauldron.utility.trading.core.WorkingOrder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlockingGatewayTest {
+
+    @Test
+    public void ensureFanOutSubmitsToEveryAccountAtOnce() {
+        Duration latency = Duration.ofMillis(100L);
+        try (BrokerStandIn standIn = BrokerStandIn.builder().accounts(50).latency(latency).build().start();
+             BlockingGateway gateway = new BlockingGateway(HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).build())) {
+            BlockingOrderService orders = new BlockingOrderService(gateway, () -> BrokerStandIn.ACCESS_TOKEN);
+            long start = System.nanoTime();
+            List<String> orderIds = gateway.fanOut(standIn.getAccountIds(), accountId ->
+                    orders.createEquityOrder(accountId, OrderTemplate.Type.LIMIT, OrderTemplate.Instruction.BUY, FixedPoint.parse("100.00"), 5, "QQQ"));
+            long elapsedNanos = System.nanoTime() - start;
+
+            assertEquals(50, orderIds.stream().distinct().count());
+            assertEquals(50L, standIn.getOrderCount());
+            // fifty round trips one after the other would take five seconds
+            assertTrue(elapsedNanos < latency.toNanos() * 10L, elapsedNanos + " ns");
+
+            String accountId = standIn.getAccountIds().get(7);
+            List<WorkingOrder> working = orders.getWorkingOrders(accountId);
+            assertEquals(List.of(orderIds.get(7)), working.stream().map(WorkingOrder::getOrderId).collect(Collectors.toList()));
+            orders.deleteOrder(accountId, orderIds.get(7));
+            assertTrue(orders.getWorkingOrders(accountId).isEmpty());
+        }
+    }
+
+    @Test
+    public void ensureOrdersInvalidateCachedAccountResponses() {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().accounts(1).build().start();
+             BlockingGateway gateway = new BlockingGateway(HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).build())) {
+            gateway.getGateway().enableCache("/v1/accounts/{id}/orders", Duration.ofMinutes(1L));
+            BlockingOrderService orders = new BlockingOrderService(gateway, () -> BrokerStandIn.ACCESS_TOKEN);
+            String accountId = standIn.getAccountIds().get(0);
+            assertTrue(orders.getWorkingOrders(accountId).isEmpty());
+
+            String orderId = orders.createEquityOrder(accountId, OrderTemplate.Type.LIMIT, OrderTemplate.Instruction.BUY, FixedPoint.parse("100.00"), 5, "QQQ");
+            assertEquals(List.of(orderId), orders.getWorkingOrders(accountId).stream().map(WorkingOrder::getOrderId).collect(Collectors.toList()));
+
+            orders.deleteOrder(accountId, orderId);
+            assertTrue(orders.getWorkingOrders(accountId).isEmpty());
+        }
+    }
+
+    @Test
+    public void ensureFailuresSurfaceAsExceptions() {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().accounts(3).errorRate(1.0).build().start();
+             BlockingGateway gateway = new BlockingGateway(HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).build())) {
+            BlockingOrderService orders = new BlockingOrderService(gateway, () -> BrokerStandIn.ACCESS_TOKEN);
+            RuntimeException ex = assertThrows(RuntimeException.class, () -> gateway.fanOut(standIn.getAccountIds(), orders::getWorkingOrders));
+            assertTrue(ex.getMessage().contains("unexpected status 500"), ex::getMessage);
+            assertEquals(2, ex.getSuppressed().length);
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package systems.cauldron.utility.trading;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Builder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the broker REST api and streamer, for end-to-end tests and latency measurements without
+ * touching a real account. Every REST response is delayed by the configured latency, fails with a 500 at the
+ * configured error rate and is answered with a 429 once the configured requests per second are exceeded.
+ */
+public class BrokerStandIn implements AutoCloseable {
+
+    private final static Logger LOG = LogManager.getLogger(BrokerStandIn.class);
+
+    public static final String ACCESS_TOKEN = "stand-in-access-token";
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final DateTimeFormatter STREAMER_TOKEN_EXPIRY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxx");
+
+    static {
+        // without this the JDK server leaves Nagle on and every small response waits out the client's delayed ack
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final List<String> accountIds;
+    private final long latencyNanos;
+    private final long latencyJitterNanos;
+    private final double errorRate;
+    private final int requestsPerSecond;
+    private final long tokenLifetimeSeconds;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "stand-in-http");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final StandInStreamer streamer;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong injectedErrorCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong orderCount = new AtomicLong();
+    private final AtomicLong tokenCount = new AtomicLong();
+    private final AtomicLong priceHistoryCount = new AtomicLong();
+    private final AtomicLong windowStart = new AtomicLong();
+    private final AtomicLong windowCount = new AtomicLong();
+    private final Map<Long, Order> orders = new ConcurrentHashMap<>();
+    private volatile long historyPublishedUntil = Long.MAX_VALUE;
+
+    /**
+     * @param accounts          number of accounts returned by the accounts endpoint, defaults to 1
+     * @param latency           fixed delay before every REST response, defaults to none
+     * @param latencyJitter     uniformly distributed extra delay on top of the latency, defaults to none
+     * @param errorRate         fraction of REST requests answered with a 500, defaults to none
+     * @param requestsPerSecond REST requests served per second before answering with a 429, 0 (default) for no limit
+     * @param tokenLifetime     {@code expires_in} of issued access tokens, defaults to 30 minutes
+     * @param heartbeatInterval period of streamer heartbeats, defaults to 10 seconds
+     */
+    @Builder
+    private BrokerStandIn(Integer accounts, Duration latency, Duration latencyJitter, Double errorRate, Integer requestsPerSecond, Duration tokenLifetime,
+                          Duration heartbeatInterval) {
+        int accountCount = Optional.ofNullable(accounts).orElse(1);
+        List<String> ids = new ArrayList<>(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            ids.add(String.valueOf(100_000_000 + i));
+        }
+        this.accountIds = Collections.unmodifiableList(ids);
+        this.latencyNanos = Optional.ofNullable(latency).orElse(Duration.ZERO).toNanos();
+        this.latencyJitterNanos = Optional.ofNullable(latencyJitter).orElse(Duration.ZERO).toNanos();
+        this.errorRate = Optional.ofNullable(errorRate).orElse(0.0);
+        this.requestsPerSecond = Optional.ofNullable(requestsPerSecond).orElse(0);
+        this.tokenLifetimeSeconds = Optional.ofNullable(tokenLifetime).orElse(Duration.ofMinutes(30L)).toSeconds();
+        try {
+            this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            this.streamer = new StandInStreamer(accountIds.get(0), Optional.ofNullable(heartbeatInterval).orElse(Duration.ofSeconds(10L)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        server.createContext("/v1/oauth2/token", guarded((exchange, body) -> handleToken(exchange)));
+        server.createContext("/v1/userprincipals", guarded((exchange, body) -> handleUserPrincipals(exchange)));
+        server.createContext("/v1/accounts", guarded(this::handleAccounts));
+        server.createContext("/v1/marketdata", guarded((exchange, body) -> handlePriceHistory(exchange)));
+        server.setExecutor(executor);
+    }
+
+    public BrokerStandIn start() {
+        server.start();
+        streamer.start();
+        LOG.info("broker stand-in listening on {} with streamer on {}", getBaseUrl(), streamer.getUrl());
+        return this;
+    }
+
+    @Override
+    public void close() {
+        streamer.close();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * To be handed to {@code HttpGateway.builder().apiBaseUrl(...)}.
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public StandInStreamer getStreamer() {
+        return streamer;
+    }
+
+    public List<String> getAccountIds() {
+        return accountIds;
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getInjectedErrorCount() {
+        return injectedErrorCount.get();
+    }
+
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    public long getOrderCount() {
+        return orderCount.get();
+    }
+
+    public long getTokenCount() {
+        return tokenCount.get();
+    }
+
+    public long getPriceHistoryCount() {
+        return priceHistoryCount.get();
+    }
+
+    /**
+     * Holds back the price history bars opening at or after the time, as the broker does for the newest bars until
+     * they are published.
+     */
+    public void setHistoryPublishedUntil(Instant time) {
+        this.historyPublishedUntil = time.toEpochMilli();
+    }
+
+    /**
+     * @return whether the price history endpoint has a bar opening at the time: every minute of a weekday from 14:30
+     * to 21:00 UTC
+     */
+    public static boolean isHistoryBar(long timestamp) {
+        long minuteOfDay = Math.floorMod(timestamp, MILLIS_PER_DAY) / 60_000L;
+        // the epoch fell on a Thursday
+        long dayOfWeek = Math.floorMod(Math.floorDiv(timestamp, MILLIS_PER_DAY) + 3L, 7L);
+        return dayOfWeek < 5L && minuteOfDay >= 14L * 60L + 30L && minuteOfDay < 21L * 60L;
+    }
+
+    /**
+     * @return the close of the price history bar opening at the time; open, high and low are derived from it
+     */
+    public static double historyClose(long timestamp) {
+        return 100.0 + Math.floorMod(timestamp / 60_000L, 10_000L) / 100.0;
+    }
+
+    private HttpHandler guarded(BodyHandler handler) {
+        return exchange -> {
+            try {
+                requestCount.incrementAndGet();
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                delay();
+                if (isThrottled()) {
+                    throttledCount.incrementAndGet();
+                    respond(exchange, 429, "{\"error\":\"throttled\"}");
+                } else if (errorRate > 0.0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    injectedErrorCount.incrementAndGet();
+                    respond(exchange, 500, "{\"error\":\"injected failure\"}");
+                } else {
+                    handler.handle(exchange, body);
+                }
+            } catch (RuntimeException ex) {
+                LOG.error("stand-in failed to handle {}", exchange.getRequestURI(), ex);
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private void delay() {
+        long nanos = latencyNanos + (latencyJitterNanos > 0 ? ThreadLocalRandom.current().nextLong(latencyJitterNanos) : 0L);
+        if (nanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean isThrottled() {
+        if (requestsPerSecond <= 0) {
+            return false;
+        }
+        long second = System.nanoTime() / TimeUnit.SECONDS.toNanos(1L);
+        long start = windowStart.get();
+        if (start != second && windowStart.compareAndSet(start, second)) {
+            windowCount.set(0L);
+        }
+        return windowCount.incrementAndGet() > requestsPerSecond;
+    }
+
+    private void handleToken(HttpExchange exchange) throws IOException {
+        tokenCount.incrementAndGet();
+        respond(exchange, 200, "{\"access_token\":\"" + ACCESS_TOKEN + "\",\"refresh_token\":\"stand-in-refresh-token\"," +
+                "\"token_type\":\"Bearer\",\"expires_in\":" + tokenLifetimeSeconds + ",\"scope\":\"PlaceTrades AccountAccess MoveMoney\"," +
+                "\"refresh_token_expires_in\":7776000}");
+    }
+
+    private void handleUserPrincipals(HttpExchange exchange) throws IOException {
+        String tokenExpiry = STREAMER_TOKEN_EXPIRY_FORMAT.format(Instant.now().plus(Duration.ofDays(1L)).atOffset(ZoneOffset.UTC));
+        respond(exchange, 200, "{\"userId\":\"standin\",\"primaryAccountId\":\"" + accountIds.get(0) + "\"," +
+                "\"tokenExpirationTime\":\"" + tokenExpiry + "\"," +
+                "\"streamerInfo\":{\"streamerBinaryUrl\":\"\",\"streamerSocketUrl\":\"" + streamer.getUrl() + "\"," +
+                "\"token\":\"stand-in-streamer-token\",\"tokenTimestamp\":\"2021-04-10T12:00:00+0000\",\"userGroup\":\"ACCT\"," +
+                "\"accessLevel\":\"ACCT\",\"acl\":\"AKBRDRDTESF7G1GKGLH1M1MAPNQ2QSRFSLSPTETFTOTTUAURXBXNXO\",\"appId\":\"standin\"}," +
+                "\"streamerSubscriptionKeys\":{\"keys\":[{\"key\":\"" + StandInStreamer.SUBSCRIPTION_KEY + "\"}]}," +
+                "\"accounts\":[{\"accountId\":\"" + accountIds.get(0) + "\",\"company\":\"AMER\",\"segment\":\"AMER\"," +
+                "\"accountCdDomainId\":\"A000000000000000\"}]}");
+    }
+
+    private void handlePriceHistory(HttpExchange exchange) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        if (path.length != 5 || !"pricehistory".equals(path[4])) {
+            respond(exchange, 404, "{\"error\":\"unknown endpoint\"}");
+            return;
+        }
+        priceHistoryCount.incrementAndGet();
+        Map<String, String> query = new HashMap<>();
+        for (String pair : exchange.getRequestURI().getRawQuery().split("&")) {
+            String[] keyValue = pair.split("=", 2);
+            query.put(keyValue[0], keyValue.length > 1 ? keyValue[1] : "");
+        }
+        long barMillis = Long.parseLong(query.get("frequency")) * 60_000L;
+        long startDate = Long.parseLong(query.get("startDate"));
+        long endDate = Long.parseLong(query.get("endDate"));
+        StringBuilder body = new StringBuilder().append("{\"candles\":[");
+        boolean empty = true;
+        long end = Math.min(endDate, historyPublishedUntil - 1L);
+        for (long t = Math.floorDiv(startDate + barMillis - 1L, barMillis) * barMillis; t <= end; t += barMillis) {
+            if (isHistoryBar(t)) {
+                double close = historyClose(t);
+                body.append(empty ? "" : ",")
+                        .append("{\"open\":").append(close - 0.01)
+                        .append(",\"high\":").append(close + 0.05)
+                        .append(",\"low\":").append(close - 0.05)
+                        .append(",\"close\":").append(close)
+                        .append(",\"volume\":").append(100L + Math.floorMod(t / 60_000L, 5_000L))
+                        .append(",\"datetime\":").append(t).append('}');
+                empty = false;
+            }
+        }
+        respond(exchange, 200, body.append("],\"symbol\":\"").append(path[3]).append("\",\"empty\":")
+                .append(empty).append('}').toString());
+    }
+
+    private void handleAccounts(HttpExchange exchange, byte[] payload) throws IOException {
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        String method = exchange.getRequestMethod();
+        if (path.length == 3 && "GET".equals(method)) {
+            StringBuilder body = new StringBuilder(accountIds.size() * 160).append('[');
+            for (int i = 0; i < accountIds.size(); i++) {
+                if (i > 0) {
+                    body.append(',');
+                }
+                appendAccount(body, i);
+            }
+            respond(exchange, 200, body.append(']').toString());
+        } else if (path.length == 4 && "GET".equals(method)) {
+            int index = accountIds.indexOf(path[3]);
+            if (index < 0) {
+                respond(exchange, 404, "{\"error\":\"unknown account\"}");
+            } else {
+                respond(exchange, 200, appendAccount(new StringBuilder(), index).toString());
+            }
+        } else if (path.length == 5 && "GET".equals(method)) {
+            StringBuilder body = new StringBuilder().append('[');
+            orders.values().stream()
+                    .filter(o -> o.accountId.equals(path[3]))
+                    .sorted((a, b) -> Long.compare(a.orderId, b.orderId))
+                    .forEach(o -> body.append(body.length() > 1 ? "," : "").append(o.render()));
+            respond(exchange, 200, body.append(']').toString());
+        } else if (path.length == 5 && "POST".equals(method)) {
+            long orderId = enter(path[3], payload);
+            exchange.getResponseHeaders().add("Location", exchange.getRequestURI().getPath() + "/" + orderId);
+            exchange.sendResponseHeaders(201, -1);
+        } else if (path.length == 6 && "DELETE".equals(method)) {
+            Order order = orders.get(parseOrderId(path[5]));
+            if (order != null) {
+                order.status = "CANCELED";
+            }
+            exchange.sendResponseHeaders(200, -1);
+        } else if (path.length == 6 && "PUT".equals(method)) {
+            // a replace cancels the original and enters the new order in one go
+            Order order = orders.get(parseOrderId(path[5]));
+            if (order != null) {
+                order.status = "REPLACED";
+            }
+            long orderId = enter(path[3], payload);
+            exchange.getResponseHeaders().add("Location", "/v1/accounts/" + path[3] + "/orders/" + orderId);
+            exchange.sendResponseHeaders(201, -1);
+        } else {
+            respond(exchange, 404, "{\"error\":\"not found\"}");
+        }
+    }
+
+    /**
+     * Enters orders directly, for tests that need more of them than is practical to post.
+     */
+    public void enter(String accountId, String payload, int count) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < count; i++) {
+            enter(accountId, bytes);
+        }
+    }
+
+    private long enter(String accountId, byte[] payload) {
+        long orderId = 4_100_000_000L + orderCount.incrementAndGet();
+        orders.put(orderId, new Order(orderId, accountId, payload));
+        return orderId;
+    }
+
+    private static long parseOrderId(String orderId) {
+        try {
+            return Long.parseLong(orderId);
+        } catch (NumberFormatException ex) {
+            return -1L;
+        }
+    }
+
+    private StringBuilder appendAccount(StringBuilder body, int index) {
+        return body.append("{\"securitiesAccount\":{\"type\":\"CASH\",\"accountId\":\"").append(accountIds.get(index))
+                .append("\",\"positions\":[],\"initialBalances\":{\"totalCash\":").append(1_000 + index * 10)
+                .append(".0},\"currentBalances\":{\"totalCash\":").append(1_000 + index * 10).append(".0}}}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    @FunctionalInterface
+    private interface BodyHandler {
+        void handle(HttpExchange exchange, byte[] body) throws IOException;
+    }
+
+    /**
+     * An entered order, kept as the payload it was entered with and rendered the way the orders endpoint lists it.
+     */
+    private static class Order {
+        private final long orderId;
+        private final String accountId;
+        private final byte[] payload;
+        private volatile String status = "WORKING";
+
+        private Order(long orderId, String accountId, byte[] payload) {
+            this.orderId = orderId;
+            this.accountId = accountId;
+            this.payload = payload;
+        }
+
+        private String render() {
+            JsonObject entered;
+            try (JsonReader reader = Json.createReader(new ByteArrayInputStream(payload))) {
+                entered = reader.readObject();
+            } catch (RuntimeException ex) {
+                entered = Json.createObjectBuilder().build();
+            }
+            boolean working = "WORKING".equals(status);
+            JsonObjectBuilder order = Json.createObjectBuilder(entered)
+                    .add("orderId", orderId)
+                    .add("accountId", accountId)
+                    .add("status", status)
+                    .add("cancelable", working)
+                    .add("editable", working);
+            int quantity = 0;
+            JsonArrayBuilder legs = Json.createArrayBuilder();
+            if (entered.containsKey("orderLegCollection")) {
+                for (JsonObject leg : entered.getJsonArray("orderLegCollection").getValuesAs(JsonObject.class)) {
+                    quantity += leg.getInt("quantity", 0);
+                    legs.add(leg);
+                }
+            }
+            order.add("orderLegCollection", legs)
+                    .add("quantity", quantity)
+                    .add("filledQuantity", 0)
+                    .add("remainingQuantity", working ? quantity : 0);
+            for (String field : new String[]{"price", "stopPrice"}) {
+                if (entered.containsKey(field)) {
+                    order.add(field, new BigDecimal(entered.getString(field)));
+                }
+            }
+            return order.build().toString();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.AccountService;
+import systems.cauldron.utility.trading.core.AuthenticationService;
+import systems.cauldron.utility.trading.core.Configuration;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.OrderScheduler;
+import systems.cauldron.utility.trading.core.OrderService;
+import systems.cauldron.utility.trading.core.QuoteBook;
+import systems.cauldron.utility.trading.core.QuoteSnapshot;
+import systems.cauldron.utility.trading.core.Slinger;
+import systems.cauldron.utility.trading.core.StreamerConfig;
+import systems.cauldron.utility.trading.core.StreamerService;
+import systems.cauldron.utility.trading.core.UserPrincipalsService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BrokerStandInTest {
+
+    @Test
+    public void ensureFullSessionRunsAgainstStandIn() throws InterruptedException {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().accounts(5).build().start()) {
+            HttpGateway gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).build();
+
+            Configuration configuration = new Configuration();
+            configuration.setClientId("stand-in-client");
+            configuration.setRedirectUri("https://localhost");
+            configuration.setAuthorizationCode("stand-in-code");
+            AuthenticationService authenticationService = new AuthenticationService(gateway, configuration, c -> {
+            });
+            Supplier<String> tokenSupplier = authenticationService.start();
+            assertEquals(BrokerStandIn.ACCESS_TOKEN, tokenSupplier.get());
+
+            StreamerConfig streamerConfig = new UserPrincipalsService(gateway, tokenSupplier).getStreamerConfig().join();
+            StreamerService streamerService = new StreamerService(gateway, streamerConfig);
+            streamerService.start();
+            QuoteBook book = new QuoteBook(16);
+            streamerService.subscribeQuotes(List.of("QQQ"), book).join();
+            long sent = standIn.getStreamer().publishQuotes(1_000, Duration.ofMillis(100L));
+            assertTrue(sent > 0);
+            QuoteSnapshot quote = new QuoteSnapshot();
+            long deadline = System.nanoTime() + Duration.ofSeconds(5L).toNanos();
+            while ((!book.read("QQQ", quote) || quote.getVolume() < standIn.getStreamer().getQuoteSequence()) && System.nanoTime() < deadline) {
+                Thread.sleep(5L);
+            }
+            assertEquals(standIn.getStreamer().getQuoteSequence(), quote.getVolume());
+
+            try (OrderScheduler scheduler = OrderScheduler.builder().requestsPerMinute(60_000.0).burst(100).build()) {
+                Slinger slinger = new Slinger(new AccountService(gateway, tokenSupplier), new OrderService(gateway, tokenSupplier, scheduler));
+                CompletableFuture<?>[] orders = slinger.execute("QQQ", book).join();
+                CompletableFuture.allOf(orders).join();
+                assertEquals(5, orders.length);
+                assertEquals(5L, standIn.getOrderCount());
+            }
+
+            streamerService.close();
+            authenticationService.close();
+        }
+    }
+
+    @Test
+    public void ensureInjectedErrorsSurfaceAsFailures() {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().errorRate(1.0).build().start()) {
+            HttpGateway gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).build();
+            AccountService accountService = new AccountService(gateway, () -> BrokerStandIn.ACCESS_TOKEN);
+            assertThrows(CompletionException.class, () -> accountService.getAvailableCashBalances().join());
+            assertEquals(1L, standIn.getInjectedErrorCount());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.BulkOrderResult;
+import systems.cauldron.utility.trading.core.BulkOrderService;
+import systems.cauldron.utility.trading.core.FixedPoint;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.OrderScheduler;
+import systems.cauldron.utility.trading.core.OrderService;
+import systems.cauldron.utility.trading.core.WorkingOrder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BulkOrderServiceTest {
+
+    private static final Duration LATENCY = Duration.ofMillis(100L);
+    private static final int ORDERS_PER_SYMBOL = 4;
+
+    @Test
+    public void ensureBulkOperationsRunInParallelPerAccount() {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().accounts(3).latency(LATENCY).build().start();
+             OrderScheduler scheduler = OrderScheduler.builder().requestsPerMinute(60_000.0).burst(100).maxInFlight(64).metrics(new MetricsRegistry("test")).build()) {
+            HttpGateway gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).build();
+            OrderService orders = new OrderService(gateway, () -> BrokerStandIn.ACCESS_TOKEN, scheduler);
+            List<CompletableFuture<String>> entered = new ArrayList<>();
+            for (String accountId : standIn.getAccountIds()) {
+                for (int i = 0; i < ORDERS_PER_SYMBOL; i++) {
+                    entered.add(orders.createEquityBuyLimitOrder(accountId, FixedPoint.parse("330.00"), 10 + i, "QQQ"));
+                    entered.add(orders.createEquityBuyLimitOrder(accountId, FixedPoint.parse("410.00"), 10 + i, "SPY"));
+                }
+            }
+            CompletableFuture.allOf(entered.toArray(CompletableFuture[]::new)).join();
+
+            BulkOrderService bulk = new BulkOrderService(orders, ORDERS_PER_SYMBOL);
+            long start = System.nanoTime();
+            List<BulkOrderResult> canceled = bulk.cancelAll(standIn.getAccountIds(), "QQQ").join();
+            long elapsedNanos = System.nanoTime() - start;
+
+            assertEquals(3 * ORDERS_PER_SYMBOL, canceled.size());
+            assertTrue(canceled.stream().allMatch(r -> r.getOutcome() == BulkOrderResult.Outcome.CANCELED), canceled::toString);
+            // one listing plus one round of cancels per account, where one by one would take twelve round trips
+            assertTrue(elapsedNanos < LATENCY.toNanos() * 6L, () -> TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms");
+            for (String accountId : standIn.getAccountIds()) {
+                List<WorkingOrder> working = orders.getWorkingOrders(accountId).join();
+                assertEquals(ORDERS_PER_SYMBOL, working.size());
+                assertTrue(working.stream().allMatch(o -> "SPY".equals(o.getSymbol())));
+            }
+
+            List<BulkOrderResult> replaced = bulk.replaceAll(standIn.getAccountIds(), null, o -> o.getPrice().plus(FixedPoint.parse("0.05"))).join();
+            assertEquals(3 * ORDERS_PER_SYMBOL, replaced.size());
+            for (BulkOrderResult result : replaced) {
+                assertEquals(BulkOrderResult.Outcome.REPLACED, result.getOutcome(), result::toString);
+                assertNotEquals(result.getOrderId(), result.getReplacementOrderId());
+            }
+            for (String accountId : standIn.getAccountIds()) {
+                List<WorkingOrder> working = orders.getWorkingOrders(accountId).join();
+                assertEquals(ORDERS_PER_SYMBOL, working.size());
+                assertTrue(working.stream().allMatch(o -> FixedPoint.parse("410.05").equals(o.getPrice())));
+                assertEquals(List.of(10, 11, 12, 13), working.stream().map(WorkingOrder::getRemainingQuantity).sorted().collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    public void ensureLongRunsOfSkippedOrdersDoNotGrowTheStack() {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().accounts(1).build().start();
+             OrderScheduler scheduler = OrderScheduler.builder().requestsPerMinute(60_000.0).burst(100).maxInFlight(64).metrics(new MetricsRegistry("test")).build()) {
+            String accountId = standIn.getAccountIds().get(0);
+            standIn.enter(accountId, "{\"orderType\":\"LIMIT\",\"price\":\"330.00\",\"orderLegCollection\":"
+                    + "[{\"instruction\":\"BUY\",\"quantity\":1,\"instrument\":{\"symbol\":\"QQQ\",\"assetType\":\"EQUITY\"}}]}", 100_000);
+            HttpGateway gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).build();
+            OrderService orders = new OrderService(gateway, () -> BrokerStandIn.ACCESS_TOKEN, scheduler);
+
+            List<BulkOrderResult> results = new BulkOrderService(orders, 1).replaceAll(List.of(accountId), null, o -> null).join();
+            assertEquals(100_000, results.size());
+            assertTrue(results.stream().allMatch(r -> r.getOutcome() == BulkOrderResult.Outcome.SKIPPED));
+        }
+    }
+}
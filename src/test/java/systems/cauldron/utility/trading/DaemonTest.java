@@ -0,0 +1,104 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import systems.cauldron.utility.trading.core.AuthenticationService;
+import systems.cauldron.utility.trading.core.Configuration;
+import systems.cauldron.utility.trading.core.ConfigurationFactory;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.QuoteSnapshot;
+import systems.cauldron.utility.trading.core.StreamerConfig;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DaemonTest {
+
+    private static final Duration LATENCY = Duration.ofMillis(500L);
+
+    private final MetricsRegistry metrics = new MetricsRegistry("test");
+
+    @Test
+    public void ensureSavedStreamerConfigSkipsTheTokenOnTheWayToTheFirstQuote(@TempDir Path directory) {
+        Path saved = directory.resolve("streamer.json");
+        try (BrokerStandIn standIn = BrokerStandIn.builder().latency(LATENCY).build().start()) {
+            // a cold start has to wait for the token and the user principals before it can connect
+            long cold = run(standIn, saved);
+            assertTrue(cold > 2 * LATENCY.toNanos(), cold + " ns");
+            assertTrue(Files.exists(saved));
+            assertEquals(1L, metrics.counter("startup", "streamer config fetches").getCount());
+
+            long warm = run(standIn, saved);
+            assertTrue(warm < LATENCY.toNanos(), warm + " ns");
+            assertEquals(1L, metrics.counter("startup", "streamer config fetches").getCount());
+            assertEquals(1L, metrics.counter("startup", "streamer config reuses").getCount());
+            assertEquals(2L, metrics.histogram("startup", "time to first quote", MetricsRegistry.NANOSECONDS).getCount());
+            assertEquals(2, standIn.getStreamer().getLoginCount());
+        }
+    }
+
+    @Test
+    public void ensureStreamerConfigRoundTripsThroughDisk(@TempDir Path directory) {
+        Path path = directory.resolve("streamer.json");
+        assertFalse(ConfigurationFactory.loadStreamerConfig(path).isPresent());
+        StreamerConfig config = StreamerConfig.builder()
+                .socketUrl("streamer.example.com")
+                .appId("app")
+                .token("token")
+                .accountId("123")
+                .credential("userid=123&token=token")
+                .subscriptionKey("key")
+                .tokenExpiry(Instant.ofEpochMilli(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1L)))
+                .build();
+        ConfigurationFactory.saveStreamerConfig(config, path);
+
+        StreamerConfig loaded = ConfigurationFactory.loadStreamerConfig(path).orElseThrow();
+        assertEquals(config.getCredential(), loaded.getCredential());
+        assertEquals(config.getTokenExpiry(), loaded.getTokenExpiry());
+        assertTrue(loaded.isValidFor(Duration.ofMinutes(59L)));
+        assertFalse(loaded.isValidFor(Duration.ofMinutes(61L)));
+    }
+
+    private long run(BrokerStandIn standIn, Path saved) {
+        HttpGateway gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).metrics(metrics).build();
+        Daemon daemon = Daemon.builder()
+                .gateway(gateway)
+                .authentication(new AuthenticationService(gateway, configuration(), c -> {
+                }))
+                .streamerConfigLoader(() -> ConfigurationFactory.loadStreamerConfig(saved))
+                .streamerConfigStore(c -> ConfigurationFactory.saveStreamerConfig(c, saved))
+                .symbols(List.of("QQQ", "SPY"))
+                .quoteCapacity(16)
+                .build();
+        try {
+            CompletableFuture<Long> firstQuote = daemon.start();
+            while (!firstQuote.isDone()) {
+                standIn.getStreamer().publishQuotes(1_000, Duration.ofMillis(5L));
+            }
+            long elapsed = firstQuote.join();
+            QuoteSnapshot quote = new QuoteSnapshot();
+            assertTrue(daemon.getBook().read("QQQ", quote) || daemon.getBook().read("SPY", quote));
+            return elapsed;
+        } finally {
+            daemon.stop();
+        }
+    }
+
+    private static Configuration configuration() {
+        Configuration configuration = new Configuration();
+        configuration.setClientId("stand-in-client");
+        configuration.setRedirectUri("https://localhost");
+        configuration.setAuthorizationCode("stand-in-code");
+        return configuration;
+    }
+}
@@ -0,0 +1,70 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.DirtyIds;
+import systems.cauldron.utility.trading.core.QuoteBook;
+import systems.cauldron.utility.trading.core.QuoteSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DirtyIdsTest {
+
+    @Test
+    public void ensureRepeatedMarksAreVisitedOnceInOrder() {
+        DirtyIds dirty = new DirtyIds(200);
+        assertEquals(256, dirty.capacity());
+        for (int id : new int[]{130, 3, 64, 3, 63, 199, 130}) {
+            dirty.mark(id);
+        }
+        List<Integer> visited = new ArrayList<>();
+        assertEquals(5, dirty.drain(visited::add));
+        assertEquals(List.of(3, 63, 64, 130, 199), visited);
+        assertEquals(5L, dirty.getMarks());
+        assertEquals(2L, dirty.getCoalesced());
+        assertEquals(0, dirty.drain(id -> visited.add(-1)));
+    }
+
+    @Test
+    public void ensureNoUpdateIsLostWhileDraining() throws InterruptedException {
+        QuoteBook book = new QuoteBook(512);
+        for (int i = 0; i < 512; i++) {
+            book.getSymbols().intern("S" + i);
+        }
+        DirtyIds dirty = new DirtyIds(512);
+        book.addUpdateListener(dirty::mark);
+        int updates = 2_000_000;
+        long[] lastVolume = new long[512];
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= updates; i++) {
+                book.update(i % 512, QuoteBook.VOLUME, 0.0, 0.0, 0.0, 0L, 0L, 0L, i, 0L);
+            }
+            done.set(true);
+        });
+        writer.start();
+        QuoteSnapshot quote = new QuoteSnapshot();
+        long visits = 0L;
+        boolean finished;
+        do {
+            finished = done.get();
+            visits += dirty.drain(id -> {
+                book.read(id, quote);
+                lastVolume[id] = quote.getVolume();
+            });
+        } while (!finished);
+        writer.join();
+
+        // a drain after the writer is done sees the final value of every row
+        for (int id = 0; id < 512; id++) {
+            assertEquals(updates - (updates - id) % 512, lastVolume[id], "row " + id);
+        }
+        assertEquals(visits, dirty.getMarks());
+        assertEquals(updates, dirty.getMarks() + dirty.getCoalesced());
+        assertTrue(dirty.getCoalesced() > 0L);
+    }
+}
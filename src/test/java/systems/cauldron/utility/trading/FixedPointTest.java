@@ -0,0 +1,191 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.FixedPoint;
+import systems.cauldron.utility.trading.core.OrderPayload;
+import systems.cauldron.utility.trading.core.OrderTemplate;
+
+import javax.json.Json;
+import javax.json.JsonReader;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Properties checked against {@link BigDecimal}, which the fixed-point type replaced, over seeded random inputs.
+ */
+public class FixedPointTest {
+
+    private static final int TRIES = 100_000;
+
+    @Test
+    public void ensureParsingMatchesBigDecimal() {
+        SplittableRandom random = new SplittableRandom(24L);
+        for (int i = 0; i < TRIES; i++) {
+            String text = number(random);
+            BigDecimal expected = new BigDecimal(text).setScale(FixedPoint.SCALE, RoundingMode.HALF_EVEN);
+            assertEquals(expected, FixedPoint.parse(text).toBigDecimal(), text);
+        }
+    }
+
+    @Test
+    public void ensureFormattingRoundTripsAsStrippedPlainBigDecimal() {
+        SplittableRandom random = new SplittableRandom(25L);
+        for (int i = 0; i < TRIES; i++) {
+            FixedPoint value = value(random);
+            String expected = value.toBigDecimal().stripTrailingZeros().toPlainString();
+            assertEquals(expected, value.toString());
+            assertEquals(value, FixedPoint.parse(value.toString()));
+        }
+    }
+
+    @Test
+    public void ensureArithmeticAndOrderingMatchBigDecimal() {
+        SplittableRandom random = new SplittableRandom(26L);
+        for (int i = 0; i < TRIES; i++) {
+            FixedPoint a = value(random);
+            FixedPoint b = value(random);
+            long quantity = random.nextInt(-10_000, 10_000);
+            assertEquals(a.toBigDecimal().add(b.toBigDecimal()), a.plus(b).toBigDecimal());
+            assertEquals(a.toBigDecimal().subtract(b.toBigDecimal()), a.minus(b).toBigDecimal());
+            assertEquals(a.toBigDecimal().multiply(BigDecimal.valueOf(quantity)).setScale(FixedPoint.SCALE), a.times(quantity).toBigDecimal());
+            assertEquals(Integer.signum(a.toBigDecimal().compareTo(b.toBigDecimal())), Integer.signum(a.compareTo(b)));
+        }
+    }
+
+    @Test
+    public void ensureSizingMatchesBigDecimal() {
+        SplittableRandom random = new SplittableRandom(27L);
+        for (int i = 0; i < TRIES; i++) {
+            String cash = random.nextInt(10_000_000) + "." + pad(random.nextInt(100), 2);
+            String price = random.nextInt(5_000) + "." + pad(random.nextInt(1, 10_000), 4);
+            int expected = new BigDecimal(cash).divideToIntegralValue(new BigDecimal(price)).intValue();
+            assertEquals(expected, (int) FixedPoint.parse(cash).divideToIntegral(FixedPoint.parse(price)), cash + " / " + price);
+        }
+        assertThrows(ArithmeticException.class, () -> FixedPoint.ONE.divideToIntegral(FixedPoint.ZERO));
+    }
+
+    @Test
+    public void ensureTickRoundingMatchesBigDecimal() {
+        SplittableRandom random = new SplittableRandom(28L);
+        FixedPoint[] ticks = {FixedPoint.PENNY, FixedPoint.SUB_PENNY, FixedPoint.parse("0.05"), FixedPoint.parse("0.25"), FixedPoint.ONE};
+        for (int i = 0; i < TRIES; i++) {
+            FixedPoint value = FixedPoint.ofUnits(random.nextLong(-10_000_000_000L, 10_000_000_000L));
+            FixedPoint tick = ticks[random.nextInt(ticks.length)];
+            for (RoundingMode mode : RoundingMode.values()) {
+                BigDecimal expected;
+                try {
+                    expected = value.toBigDecimal().divide(tick.toBigDecimal(), 0, mode).multiply(tick.toBigDecimal());
+                } catch (ArithmeticException e) {
+                    assertThrows(ArithmeticException.class, () -> value.roundToTick(tick, mode), value + " " + mode);
+                    continue;
+                }
+                assertEquals(0, expected.compareTo(value.roundToTick(tick, mode).toBigDecimal()), value + " to " + tick + " " + mode);
+            }
+        }
+    }
+
+    @Test
+    public void ensureTrailingZerosAreNotKept() {
+        // unlike BigDecimal, which renders 280.50 at its scale, see OrderTemplate#render
+        assertEquals("280.5", FixedPoint.parse("280.50").toString());
+        assertEquals("280", FixedPoint.parse("280.00").toString());
+        assertEquals("280", FixedPoint.parse("2.8E+2").toString());
+        OrderPayload payload = OrderTemplate.of(OrderTemplate.Type.LIMIT, OrderTemplate.Instruction.BUY, "QQQ").render(FixedPoint.parse("280.50"), 1);
+        try (JsonReader reader = Json.createReader(new ByteArrayInputStream(payload.array(), 0, payload.length()))) {
+            assertEquals("280.5", reader.readObject().getString("price"));
+        } finally {
+            payload.release();
+        }
+    }
+
+    @Test
+    public void ensureEquityTicksFollowThePriceLevel() {
+        assertEquals(FixedPoint.parse("280.37"), FixedPoint.parse("280.3749").roundToTick(RoundingMode.HALF_EVEN));
+        assertEquals(FixedPoint.parse("280.38"), FixedPoint.parse("280.3701").roundToTick(RoundingMode.CEILING));
+        assertEquals(FixedPoint.parse("0.4321"), FixedPoint.parse("0.43219").roundToTick(RoundingMode.FLOOR));
+        assertEquals(FixedPoint.parse("1.00"), FixedPoint.parse("0.99996").roundToTick(RoundingMode.UP));
+        assertEquals(FixedPoint.parse("1.00"), FixedPoint.parse("1.009").roundToTick(RoundingMode.DOWN));
+    }
+
+    @Test
+    public void ensureQuotedDoublesConvertAsBigDecimalDoes() {
+        SplittableRandom random = new SplittableRandom(29L);
+        for (int i = 0; i < TRIES; i++) {
+            double ask = random.nextLong(1L, 100_000_000_000L) / 10_000.0;
+            BigDecimal expected = BigDecimal.valueOf(ask).setScale(FixedPoint.SCALE, RoundingMode.HALF_EVEN);
+            assertEquals(expected, FixedPoint.valueOf(ask).toBigDecimal(), String.valueOf(ask));
+        }
+    }
+
+    @Test
+    public void ensureRenderedPricesMatchFormatting() {
+        SplittableRandom random = new SplittableRandom(30L);
+        for (int i = 0; i < 10_000; i++) {
+            FixedPoint price = FixedPoint.ofUnits(random.nextLong(1L, 10_000_000_000L));
+            OrderPayload payload = OrderTemplate.of(OrderTemplate.Type.LIMIT, OrderTemplate.Instruction.BUY, "QQQ").render(price, 1);
+            try (JsonReader reader = Json.createReader(new ByteArrayInputStream(payload.array(), 0, payload.length()))) {
+                assertEquals(price.toString(), reader.readObject().getString("price"));
+            } finally {
+                payload.release();
+            }
+        }
+    }
+
+    @Test
+    public void ensureMalformedAndOversizedNumbersAreRejected() {
+        for (String text : new String[]{"", "-", "1.", ".5", "1e", "1e+", "abc", "1.2.3", "1,5", "+1", "--1"}) {
+            assertThrows(NumberFormatException.class, () -> FixedPoint.parse(text), text);
+        }
+        assertThrows(ArithmeticException.class, () -> FixedPoint.parse("10000000000000"));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.parse("1e400"));
+        assertEquals(FixedPoint.ZERO, FixedPoint.parse("1e-400"));
+        assertEquals(FixedPoint.ZERO, FixedPoint.parse("0e400"));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.valueOf(Double.NaN));
+    }
+
+    /**
+     * @return JSON number text of up to 12 integer digits once the exponent is applied
+     */
+    private static String number(SplittableRandom random) {
+        StringBuilder text = new StringBuilder();
+        if (random.nextBoolean()) {
+            text.append('-');
+        }
+        int integerDigits = random.nextInt(1, 10);
+        text.append(random.nextInt(1, 10));
+        for (int d = 1; d < integerDigits; d++) {
+            text.append(random.nextInt(10));
+        }
+        int fractionDigits = random.nextInt(0, 12);
+        if (fractionDigits > 0) {
+            text.append('.');
+            for (int d = 0; d < fractionDigits; d++) {
+                // runs of zeros and fives reach the rounding ties
+                int pick = random.nextInt(4);
+                text.append(pick == 0 ? 0 : pick == 1 ? 5 : random.nextInt(10));
+            }
+        }
+        if (random.nextInt(4) == 0) {
+            text.append(random.nextBoolean() ? 'e' : 'E').append(random.nextInt(-12, 4));
+        }
+        return text.toString();
+    }
+
+    private static FixedPoint value(SplittableRandom random) {
+        long bound = 1L << random.nextInt(1, 44);
+        return FixedPoint.ofUnits(random.nextLong(-bound, bound));
+    }
+
+    private static String pad(int value, int width) {
+        StringBuilder text = new StringBuilder(Integer.toString(value));
+        while (text.length() < width) {
+            text.insert(0, '0');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.AccountService;
+import systems.cauldron.utility.trading.core.FixedPoint;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.OrderScheduler;
+import systems.cauldron.utility.trading.core.OrderService;
+import systems.cauldron.utility.trading.core.UserPrincipalsService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HttpGatewayTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry("test");
+
+    @Test
+    public void ensureConcurrentIdenticalGetsShareOneRequest() {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().accounts(3).latency(Duration.ofMillis(200L)).build().start()) {
+            HttpGateway gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).metrics(metrics).build();
+            AccountService accounts = new AccountService(gateway, () -> BrokerStandIn.ACCESS_TOKEN);
+            UserPrincipalsService principals = new UserPrincipalsService(gateway, () -> BrokerStandIn.ACCESS_TOKEN);
+            List<CompletableFuture<?>> requests = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                requests.add(accounts.getAccounts());
+                requests.add(principals.getStreamerConfig());
+            }
+            CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).join();
+
+            assertEquals(2L, standIn.getRequestCount());
+            assertEquals(18L, metrics.counter("http", "coalesced").getCount());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(3, ((List<?>) requests.get(2 * i).join()).size());
+            }
+
+            // without overlap each call goes out again
+            accounts.getAccounts().join();
+            assertEquals(3L, standIn.getRequestCount());
+        }
+    }
+
+    @Test
+    public void ensureCachedEndpointIsServedUntilExpiryOrInvalidation() throws InterruptedException {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().accounts(2).build().start()) {
+            HttpGateway gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).metrics(metrics).build();
+            gateway.enableCache("/v1/accounts", Duration.ofMillis(500L));
+            AccountService accounts = new AccountService(gateway, () -> BrokerStandIn.ACCESS_TOKEN);
+
+            assertEquals(FixedPoint.parse("1010.0"), accounts.getAvailableCashBalances().join().get(standIn.getAccountIds().get(1)));
+            accounts.getAvailableCashBalances().join();
+            accounts.getAccounts().join();
+            // balances and positions differ by query, so they are cached separately
+            assertEquals(2L, standIn.getRequestCount());
+            assertEquals(1L, metrics.counter("http", "cache hits").getCount());
+            assertEquals(2L, metrics.counter("http", "cache misses").getCount());
+
+            // placing an order makes cached balances stale
+            try (OrderScheduler scheduler = new OrderScheduler()) {
+                new OrderService(gateway, () -> BrokerStandIn.ACCESS_TOKEN, scheduler)
+                        .createEquityBuyLimitOrder(standIn.getAccountIds().get(0), FixedPoint.ONE, 1, "QQQ").join();
+            }
+            accounts.getAvailableCashBalances().join();
+            assertEquals(4L, standIn.getRequestCount());
+
+            accounts.getAvailableCashBalances().join();
+            assertEquals(4L, standIn.getRequestCount());
+            Thread.sleep(600L);
+            accounts.getAvailableCashBalances().join();
+            assertEquals(5L, standIn.getRequestCount());
+            assertEquals(2L, metrics.counter("http", "cache hits").getCount());
+        }
+    }
+}
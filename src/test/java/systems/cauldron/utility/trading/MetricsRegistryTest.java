@@ -0,0 +1,81 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.Histogram;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void ensurePercentilesStayWithinOnePercent() {
+        Histogram histogram = new Histogram(MetricsRegistry.NANOSECONDS);
+        for (long i = 1; i <= 1_000_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+        assertEquals(1_000_000L, histogram.getCount());
+        assertEquals(1_000_000_000L, histogram.getMax());
+        assertEquals(500_000_000.0, histogram.getP50(), 500_000_000.0 * 0.01);
+        assertEquals(990_000_000.0, histogram.getP99(), 990_000_000.0 * 0.01);
+        assertEquals(999_000_000.0, histogram.getP999(), 999_000_000.0 * 0.01);
+        assertEquals(500_000_500.0, histogram.getMean(), 1.0);
+    }
+
+    @Test
+    public void ensureSmallValuesAreExact() {
+        Histogram histogram = new Histogram("entries");
+        for (int i = 0; i < 100; i++) {
+            histogram.record(i % 10);
+        }
+        assertEquals(4L, histogram.getP50());
+        assertEquals(9L, histogram.getP99());
+        assertEquals(0L, new Histogram("entries").getP99());
+    }
+
+    @Test
+    public void ensureRecordingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Histogram histogram = new Histogram(MetricsRegistry.NANOSECONDS);
+        long[] values = new Random(7L).longs(10_000, 0L, 10_000_000_000L).toArray();
+        for (long value : values) {
+            histogram.record(value);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int round = 0; round < 100; round++) {
+            for (long value : values) {
+                histogram.record(value);
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(allocated < 1_024L, "recording allocated " + allocated + " bytes");
+    }
+
+    @Test
+    public void ensureMetricsAreExposedAsMBeans() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry("systems.cauldron.utility.trading.test");
+        registry.histogram("http", "GET /v1/accounts", MetricsRegistry.NANOSECONDS).record(2_000L);
+        registry.exposeMBeans();
+        registry.counter("auth", "refreshes").increment();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName histogram = new ObjectName("systems.cauldron.utility.trading.test:type=Histogram,group=\"http\",name=\"GET /v1/accounts\"");
+            ObjectName counter = new ObjectName("systems.cauldron.utility.trading.test:type=Counter,group=\"auth\",name=\"refreshes\"");
+            assertEquals(1L, server.getAttribute(histogram, "Count"));
+            assertEquals(2_000L, server.getAttribute(histogram, "P99"));
+            assertEquals(1L, server.getAttribute(counter, "Count"));
+            assertTrue(registry.snapshot().contains("http GET /v1/accounts [us] count=1"));
+        } finally {
+            registry.hideMBeans();
+        }
+        assertFalse(server.queryNames(new ObjectName("systems.cauldron.utility.trading.test:*"), null).iterator().hasNext());
+    }
+}
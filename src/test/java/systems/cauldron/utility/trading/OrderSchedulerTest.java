@@ -0,0 +1,171 @@
+package systems.cauldron.utility.trading;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.OrderScheduler;
+import systems.cauldron.utility.trading.core.SubmissionReport;
+
+import javax.json.Json;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderSchedulerTest {
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final HttpGateway gateway = new HttpGateway();
+    private final List<String> arrivals = new CopyOnWriteArrayList<>();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+    @BeforeEach
+    public void startStubServer() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/accounts/", exchange -> {
+            int now = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(now, Math::max);
+            String path = exchange.getRequestURI().getPath();
+            arrivals.add(path.split("/")[3]);
+            try {
+                Thread.sleep(20L);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Location", path + "/" + arrivals.size());
+            concurrent.decrementAndGet();
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @AfterEach
+    public void stopStubServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void ensureInFlightRequestsAreCapped() {
+        List<SubmissionReport> reports = new CopyOnWriteArrayList<>();
+        try (OrderScheduler scheduler = OrderScheduler.builder()
+                .requestsPerMinute(60_000.0)
+                .burst(100)
+                .maxInFlight(3)
+                .listener(reports::add)
+                .build()) {
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String account = "A" + i;
+                results.add(scheduler.submit(account, i, () -> post(account)));
+            }
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+        }
+        assertEquals(20, arrivals.size());
+        assertTrue(maxConcurrent.get() <= 3);
+        assertEquals(20, reports.size());
+        assertTrue(reports.stream().allMatch(r -> r.isSuccessful() && r.getLatencyNanos() >= r.getQueuedNanos()));
+    }
+
+    @Test
+    public void ensureLargestNotionalGoesFirst() {
+        CompletableFuture<String> gate = new CompletableFuture<>();
+        try (OrderScheduler scheduler = OrderScheduler.builder()
+                .requestsPerMinute(60_000.0)
+                .maxInFlight(1)
+                .build()) {
+            CompletableFuture<String> blocker = scheduler.submit("blocker", 0.0, () -> gate);
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            results.add(scheduler.submit("small", 1_000.0, () -> post("small")));
+            results.add(scheduler.submit("large", 30_000.0, () -> post("large")));
+            results.add(scheduler.submit("medium", 5_000.0, () -> post("medium")));
+            gate.complete("done");
+            blocker.join();
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+        }
+        assertEquals(List.of("large", "medium", "small"), arrivals);
+    }
+
+    @Test
+    public void ensureRequestRateIsLimited() {
+        long start = System.nanoTime();
+        try (OrderScheduler scheduler = OrderScheduler.builder()
+                .requestsPerMinute(600.0)
+                .burst(1)
+                .build()) {
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                String account = "R" + i;
+                results.add(scheduler.submit(account, 1.0, () -> post(account)));
+            }
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(5, arrivals.size());
+        assertTrue(elapsedMillis >= 350L, "five requests at ten per second took only " + elapsedMillis + "ms");
+    }
+
+    @Test
+    public void ensureSubmissionsRacingCloseComplete() throws InterruptedException {
+        CompletableFuture<String> gate = new CompletableFuture<>();
+        OrderScheduler scheduler = OrderScheduler.builder().maxInFlight(1).build();
+        scheduler.submit("blocker", 0.0, () -> gate);
+        List<CompletableFuture<String>> results = new CopyOnWriteArrayList<>();
+        ExecutorService submitters = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            submitters.execute(() -> {
+                for (int i = 0; i < 500; i++) {
+                    results.add(scheduler.submit("racer", 1.0, () -> gate));
+                }
+            });
+        }
+        scheduler.close();
+        submitters.shutdown();
+        assertTrue(submitters.awaitTermination(5L, TimeUnit.SECONDS));
+        gate.complete("done");
+        assertEquals(2_000, results.size());
+        assertTrue(results.stream().allMatch(CompletableFuture::isDone));
+    }
+
+    @Test
+    public void ensureUnsentJobsAreDiscardedOnClose() {
+        CompletableFuture<String> gate = new CompletableFuture<>();
+        AtomicInteger discarded = new AtomicInteger();
+        CompletableFuture<Void> launched = new CompletableFuture<>();
+        CompletableFuture<String> queued;
+        try (OrderScheduler scheduler = OrderScheduler.builder().maxInFlight(1).build()) {
+            scheduler.submit("blocker", 0.0, () -> {
+                launched.complete(null);
+                return gate;
+            }, discarded::incrementAndGet);
+            launched.join();
+            queued = scheduler.submit("queued", 1.0, () -> gate, discarded::incrementAndGet);
+            queued.cancel(false);
+        }
+        gate.complete("done");
+        assertTrue(queued.isCancelled());
+        assertEquals(1, discarded.get());
+    }
+
+    private CompletableFuture<String> post(String account) {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/accounts/" + account + "/orders";
+        return gateway.doAuthorizedJsonPost(url, () -> "token", Json.createObjectBuilder().add("orderType", "LIMIT").build());
+    }
+}
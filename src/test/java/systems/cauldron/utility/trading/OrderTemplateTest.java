@@ -0,0 +1,72 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.FixedPoint;
+import systems.cauldron.utility.trading.core.OrderPayload;
+import systems.cauldron.utility.trading.core.OrderTemplate;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class OrderTemplateTest {
+
+    @Test
+    public void ensureLimitOrdersMatchBuiltPayload() {
+        for (String price : new String[]{"280", "280.5", "280.50", "0.05", "1234.5678", "0.0001"}) {
+            for (OrderTemplate.Instruction instruction : OrderTemplate.Instruction.values()) {
+                JsonObject expected = expectedOrder("LIMIT", instruction.name(), 17, "QQQ")
+                        .add("price", new BigDecimal(price).stripTrailingZeros().toPlainString())
+                        .build();
+                assertEquals(expected, render(OrderTemplate.Type.LIMIT, instruction, FixedPoint.parse(price), 17, "QQQ"));
+            }
+        }
+    }
+
+    @Test
+    public void ensureMarketAndStopOrdersMatchBuiltPayload() {
+        assertEquals(expectedOrder("MARKET", "SELL", 3, "BRK.B").build(),
+                render(OrderTemplate.Type.MARKET, OrderTemplate.Instruction.SELL, null, 3, "BRK.B"));
+        assertEquals(expectedOrder("STOP", "SELL", 250, "SPY").add("stopPrice", "401.25").build(),
+                render(OrderTemplate.Type.STOP, OrderTemplate.Instruction.SELL, FixedPoint.parse("401.25"), 250, "SPY"));
+    }
+
+    @Test
+    public void ensureTemplatesAreCached() {
+        assertSame(OrderTemplate.of(OrderTemplate.Type.LIMIT, OrderTemplate.Instruction.BUY, "QQQ"),
+                OrderTemplate.of(OrderTemplate.Type.LIMIT, OrderTemplate.Instruction.BUY, "QQQ"));
+    }
+
+    private static JsonObjectBuilder expectedOrder(String orderType, String instruction, int quantity, String symbol) {
+        return Json.createObjectBuilder()
+                .add("orderType", orderType)
+                .add("session", "NORMAL")
+                .add("duration", "DAY")
+                .add("orderStrategyType", "SINGLE")
+                .add("orderLegCollection", Json.createArrayBuilder()
+                        .add(Json.createObjectBuilder()
+                                .add("instruction", instruction)
+                                .add("quantity", quantity)
+                                .add("instrument", Json.createObjectBuilder()
+                                        .add("symbol", symbol)
+                                        .add("assetType", "EQUITY")
+                                )
+                        )
+                );
+    }
+
+    private static JsonObject render(OrderTemplate.Type type, OrderTemplate.Instruction instruction, FixedPoint price, int quantity, String symbol) {
+        OrderPayload payload = OrderTemplate.of(type, instruction, symbol).render(price, quantity);
+        try (JsonReader reader = Json.createReader(new ByteArrayInputStream(payload.array(), 0, payload.length()))) {
+            return reader.readObject();
+        } finally {
+            payload.release();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.FixedPoint;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.OrderEvent;
+import systems.cauldron.utility.trading.core.OrderEventParser;
+import systems.cauldron.utility.trading.core.OrderScheduler;
+import systems.cauldron.utility.trading.core.OrderService;
+import systems.cauldron.utility.trading.core.OrderState;
+import systems.cauldron.utility.trading.core.OrderStatus;
+import systems.cauldron.utility.trading.core.OrderTemplate;
+import systems.cauldron.utility.trading.core.OrderTracker;
+import systems.cauldron.utility.trading.core.StreamerConfig;
+import systems.cauldron.utility.trading.core.StreamerService;
+import systems.cauldron.utility.trading.core.UserPrincipalsService;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrderTrackerTest {
+
+    static final String ACCOUNT_ID = "123456789";
+
+    private final MetricsRegistry metrics = new MetricsRegistry("test");
+
+    @Test
+    public void ensureFillMessageIsParsed() {
+        OrderEvent event = new OrderEventParser().parse(ACCOUNT_ID, "OrderPartialFill", fill("OrderPartialFill", "4100000001", 3, "330.12", 7));
+        assertEquals(OrderEvent.Type.PARTIAL_FILL, event.getType());
+        assertEquals(ACCOUNT_ID, event.getAccountId());
+        assertEquals("4100000001", event.getOrderId());
+        assertEquals("QQQ", event.getSymbol());
+        assertEquals(OrderTemplate.Instruction.BUY, event.getInstruction());
+        assertEquals(10L, event.getOriginalQuantity());
+        // the contra party's quantity must not be taken for the execution quantity
+        assertEquals(3L, event.getExecutionQuantity());
+        assertEquals(new BigDecimal("330.12"), event.getExecutionPrice());
+        assertEquals(7L, event.getLeavesQuantity());
+        assertEquals("2021-04-13T14:06:53.402-05:00", event.getActivityTimestamp());
+        assertEquals("4100000001-3-7", event.getExecutionId());
+
+        assertNull(new OrderEventParser().parse(ACCOUNT_ID, "OrderEntryRequest", "<EMS/>"));
+        assertThrows(IllegalArgumentException.class, () -> new OrderEventParser().parse(ACCOUNT_ID, "OrderFill", "<Order><OrderKey>1"));
+    }
+
+    @Test
+    public void ensureStateOnlyMovesForward() {
+        OrderTracker tracker = new OrderTracker(metrics);
+        CompletableFuture<OrderStatus> partial = tracker.awaitState("4100000001", OrderState.PARTIALLY_FILLED);
+        CompletableFuture<OrderStatus> terminal = tracker.awaitTerminal("4100000001");
+        assertFalse(tracker.getStatus("4100000001").isPresent());
+
+        tracker.onActivity(ACCOUNT_ID, "OrderEntryRequest", entry("4100000001"));
+        assertEquals(OrderState.WORKING, tracker.getStatus("4100000001").orElseThrow().getState());
+        assertFalse(partial.isDone());
+
+        tracker.onActivity(ACCOUNT_ID, "OrderPartialFill", fill("OrderPartialFill", "4100000001", 4, "330.00", 6));
+        assertEquals(4L, partial.join().getFilledQuantity());
+        // delivered again after a reconnect
+        tracker.onActivity(ACCOUNT_ID, "OrderPartialFill", fill("OrderPartialFill", "4100000001", 4, "330.00", 6));
+        assertEquals(4L, tracker.getStatus("4100000001").orElseThrow().getFilledQuantity());
+        assertFalse(terminal.isDone());
+
+        tracker.onActivity(ACCOUNT_ID, "OrderFill", fill("OrderFill", "4100000001", 6, "330.50", 0));
+        OrderStatus filled = terminal.join();
+        assertEquals(OrderState.FILLED, filled.getState());
+        assertEquals(10L, filled.getFilledQuantity());
+        assertEquals(0L, filled.getLeavesQuantity());
+        assertEquals(0, new BigDecimal("330.30").compareTo(filled.getAveragePrice()));
+
+        tracker.onActivity(ACCOUNT_ID, "UROUT", entry("4100000001"));
+        assertEquals(OrderState.FILLED, tracker.getStatus("4100000001").orElseThrow().getState());
+        CompletionException ex = assertThrows(CompletionException.class, () -> tracker.awaitState("4100000001", OrderState.CANCELED).join());
+        assertTrue(ex.getCause() instanceof IllegalStateException);
+        assertEquals(2L, metrics.counter("orders", "events ignored").getCount());
+    }
+
+    @Test
+    public void ensureRepeatedEntryIsIgnored() {
+        OrderTracker tracker = new OrderTracker(metrics);
+        OrderStatus entered = tracker.apply(new OrderEventParser().parse(ACCOUNT_ID, "OrderEntryRequest", entry("4100000002")));
+        assertEquals(10L, entered.getLeavesQuantity());
+
+        assertSame(entered, tracker.apply(new OrderEventParser().parse(ACCOUNT_ID, "OrderEntryRequest", entry("4100000002"))));
+        assertEquals(1L, metrics.counter("orders", "events applied").getCount());
+        assertEquals(1L, metrics.counter("orders", "events ignored").getCount());
+    }
+
+    @Test
+    public void ensurePartialFillWithoutLeavesIsNotTakenForFill() {
+        OrderTracker tracker = new OrderTracker(metrics);
+        String partial = fill("OrderPartialFill", "4100000003", 4, "330.00", 0).replace("<LeavesQuantity>0</LeavesQuantity>", "");
+        OrderStatus status = tracker.apply(new OrderEventParser().parse(ACCOUNT_ID, "OrderPartialFill", partial));
+        assertEquals(OrderState.PARTIALLY_FILLED, status.getState());
+        assertEquals(6L, status.getLeavesQuantity());
+
+        String rest = fill("OrderPartialFill", "4100000003", 6, "330.00", 0).replace("<LeavesQuantity>0</LeavesQuantity>", "");
+        status = tracker.apply(new OrderEventParser().parse(ACCOUNT_ID, "OrderPartialFill", rest));
+        assertEquals(OrderState.FILLED, status.getState());
+        assertEquals(10L, status.getFilledQuantity());
+    }
+
+    @Test
+    public void ensureRedeliveredPartialFillWithoutLeavesIsIgnored() {
+        OrderTracker tracker = new OrderTracker(metrics);
+        tracker.onActivity(ACCOUNT_ID, "OrderEntryRequest", entry("4100000004"));
+        String partial = fill("OrderPartialFill", "4100000004", 4, "330.00", 0).replace("<LeavesQuantity>0</LeavesQuantity>", "");
+        for (int i = 0; i < 3; i++) {
+            tracker.onActivity(ACCOUNT_ID, "OrderPartialFill", partial);
+        }
+        OrderStatus status = tracker.getStatus("4100000004").orElseThrow();
+        assertEquals(OrderState.PARTIALLY_FILLED, status.getState());
+        assertEquals(4L, status.getFilledQuantity());
+        assertEquals(6L, status.getLeavesQuantity());
+
+        // without an execution id, the activity timestamp still tells a redelivery apart
+        String anonymous = partial.replace("<ID>4100000004-4-0</ID>", "");
+        tracker.onActivity(ACCOUNT_ID, "OrderPartialFill", anonymous.replace("53.402", "54.000"));
+        tracker.onActivity(ACCOUNT_ID, "OrderPartialFill", anonymous.replace("53.402", "54.000"));
+        assertEquals(8L, tracker.getStatus("4100000004").orElseThrow().getFilledQuantity());
+    }
+
+    @Test
+    public void ensureEndedOrdersAreForgottenAfterRetention() {
+        OrderTracker tracker = new OrderTracker(metrics, Duration.ZERO);
+        CompletableFuture<OrderStatus> terminal = tracker.awaitTerminal("4100000005");
+        tracker.onActivity(ACCOUNT_ID, "OrderEntryRequest", entry("4100000005"));
+        tracker.onActivity(ACCOUNT_ID, "OrderFill", fill("OrderFill", "4100000005", 10, "330.00", 0));
+        assertEquals(OrderState.FILLED, terminal.join().getState());
+        assertEquals(1, tracker.size());
+
+        tracker.onActivity(ACCOUNT_ID, "OrderEntryRequest", entry("4100000006"));
+        assertFalse(tracker.getStatus("4100000005").isPresent());
+        assertEquals(1, tracker.size());
+    }
+
+    @Test
+    public void ensureStreamedEventsJoinPostedOrderIds() throws Exception {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().build().start()) {
+            HttpGateway gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).metrics(metrics).build();
+            StreamerConfig config = new UserPrincipalsService(gateway, () -> BrokerStandIn.ACCESS_TOKEN).getStreamerConfig().join();
+            StreamerService streamer = new StreamerService(gateway, config);
+            OrderTracker tracker = new OrderTracker(metrics);
+            streamer.addAccountActivityListener(tracker);
+            streamer.start();
+            try (OrderScheduler scheduler = new OrderScheduler()) {
+                OrderService orders = new OrderService(gateway, () -> BrokerStandIn.ACCESS_TOKEN, scheduler);
+                CompletableFuture<String> orderId = orders.createEquityBuyLimitOrder(ACCOUNT_ID, FixedPoint.parse("330.00"), 10, "QQQ");
+                CompletableFuture<OrderStatus> filled = tracker.awaitState(orderId, OrderState.FILLED);
+
+                String id = orderId.get(5L, TimeUnit.SECONDS);
+                standIn.getStreamer().publishAccountActivity("OrderEntryRequest", entry(id));
+                standIn.getStreamer().publishAccountActivity("OrderFill", fill("OrderFill", id, 10, "329.98", 0));
+
+                OrderStatus status = filled.get(5L, TimeUnit.SECONDS);
+                assertEquals(id, status.getOrderId());
+                assertEquals(10L, status.getFilledQuantity());
+                assertEquals(0, new BigDecimal("329.98").compareTo(status.getAveragePrice()));
+            } finally {
+                streamer.close();
+            }
+        }
+    }
+
+    private static String entry(String orderId) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><OrderEntryRequestMessage xmlns=\"urn:xmlns:beb.ameritrade.com\">"
+                + "<OrderGroupID><Firm>310</Firm><Branch>864</Branch><AccountKey>" + ACCOUNT_ID + "</AccountKey></OrderGroupID>"
+                + "<ActivityTimestamp>2021-04-13T14:06:53.101-05:00</ActivityTimestamp>"
+                + order(orderId) + "<LastUpdated>2021-04-13T14:06:53.101-05:00</LastUpdated></OrderEntryRequestMessage>";
+    }
+
+    static String fill(String messageType, String orderId, long quantity, String price, long leaves) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><" + messageType + "Message xmlns=\"urn:xmlns:beb.ameritrade.com\">"
+                + "<OrderGroupID><Firm>310</Firm><Branch>864</Branch><AccountKey>" + ACCOUNT_ID + "</AccountKey></OrderGroupID>"
+                + "<ActivityTimestamp>2021-04-13T14:06:53.402-05:00</ActivityTimestamp>" + order(orderId)
+                + "<OrderCompletionCode>Normal Completion</OrderCompletionCode>"
+                + "<ContraInformation><Contra><AccountKey>" + ACCOUNT_ID + "</AccountKey><Quantity>10</Quantity></Contra></ContraInformation>"
+                + "<ExecutionInformation><Type>Bought</Type><Timestamp>2021-04-13T14:06:53.000-05:00</Timestamp>"
+                + "<Quantity>" + quantity + "</Quantity><ExecutionPrice>" + price + "</ExecutionPrice>"
+                + "<AveragePriceIndicator>false</AveragePriceIndicator><LeavesQuantity>" + leaves + "</LeavesQuantity>"
+                + "<ID>" + orderId + "-" + quantity + "-" + leaves + "</ID></ExecutionInformation></" + messageType + "Message>";
+    }
+
+    private static String order(String orderId) {
+        return "<Order><OrderKey>" + orderId + "</OrderKey><Security><CUSIP>46090E103</CUSIP><Symbol>QQQ</Symbol>"
+                + "<SecurityType>Common Stock</SecurityType></Security><OrderPricing><Limit>330.0</Limit></OrderPricing>"
+                + "<OrderType>Limit</OrderType><OrderDuration>Day</OrderDuration><OrderInstructions>Buy</OrderInstructions>"
+                + "<OriginalQuantity>10</OriginalQuantity></Order>";
+    }
+}
@@ -0,0 +1,139 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import systems.cauldron.utility.trading.core.Candles;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.PriceHistoryService;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PriceHistoryServiceTest {
+
+    private static final Duration WINDOW = Duration.ofDays(10L);
+
+    private final MetricsRegistry metrics = new MetricsRegistry("test");
+
+    @Test
+    public void ensureOnlyMissingRangesAreFetched(@TempDir Path directory) {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().build().start()) {
+            Clock clock = Clock.fixed(Instant.parse("2024-06-01T00:00:00Z"), ZoneOffset.UTC);
+            PriceHistoryService history = service(standIn, directory, clock);
+
+            // 60 days in 10 day windows
+            assertCandles(history, "2024-01-01T00:00:00Z", "2024-03-01T00:00:00Z");
+            assertEquals(6L, standIn.getPriceHistoryCount());
+
+            assertCandles(history, "2024-01-01T00:00:00Z", "2024-03-01T00:00:00Z");
+            assertEquals(6L, standIn.getPriceHistoryCount());
+            assertEquals(1L, metrics.histogram("history", "cached load", MetricsRegistry.NANOSECONDS).getCount());
+
+            // 31 days before and 14 after
+            assertCandles(history, "2023-12-01T00:00:00Z", "2024-03-15T00:00:00Z");
+            assertEquals(12L, standIn.getPriceHistoryCount());
+
+            // the cache outlives the service
+            assertCandles(service(standIn, directory, clock), "2024-01-15T10:00:00Z", "2024-02-15T20:00:00Z");
+            assertEquals(12L, standIn.getPriceHistoryCount());
+        }
+    }
+
+    @Test
+    public void ensureBarsStillFormingAreFetchedOnceComplete(@TempDir Path directory) {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().build().start()) {
+            Clock early = Clock.fixed(Instant.parse("2024-01-03T15:00:30Z"), ZoneOffset.UTC);
+            Candles candles = service(standIn, directory, early).getCandles("QQQ",
+                    Instant.parse("2024-01-03T14:00:00Z"), Instant.parse("2024-01-03T16:00:00Z")).join();
+            assertEquals(30, candles.size());
+
+            Clock later = Clock.fixed(Instant.parse("2024-01-03T15:30:00Z"), ZoneOffset.UTC);
+            candles = service(standIn, directory, later).getCandles("QQQ",
+                    Instant.parse("2024-01-03T14:00:00Z"), Instant.parse("2024-01-03T16:00:00Z")).join();
+            assertEquals(60, candles.size());
+            assertEquals(2L, standIn.getPriceHistoryCount());
+        }
+    }
+
+    @Test
+    public void ensureBarsPublishedLateAreFetchedAgain(@TempDir Path directory) {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().build().start()) {
+            Clock clock = Clock.fixed(Instant.parse("2024-01-03T15:00:30Z"), ZoneOffset.UTC);
+            standIn.setHistoryPublishedUntil(Instant.parse("2024-01-03T14:59:00Z"));
+            Candles candles = service(standIn, directory, clock).getCandles("QQQ",
+                    Instant.parse("2024-01-03T14:00:00Z"), Instant.parse("2024-01-03T16:00:00Z")).join();
+            assertEquals(29, candles.size());
+
+            standIn.setHistoryPublishedUntil(clock.instant());
+            assertCandles(service(standIn, directory, clock), "2024-01-03T14:00:00Z", "2024-01-03T15:00:00Z");
+            assertEquals(2L, standIn.getPriceHistoryCount());
+        }
+    }
+
+    @Test
+    public void ensureWindowsThatArrivedAreKeptWhenOthersFail(@TempDir Path directory) {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().errorRate(0.5).build().start()) {
+            PriceHistoryService history = service(standIn, directory, Clock.fixed(Instant.parse("2024-06-01T00:00:00Z"), ZoneOffset.UTC));
+            int failures = 0;
+            while (true) {
+                try {
+                    history.getCandles("QQQ", Instant.parse("2024-01-01T00:00:00Z"), Instant.parse("2024-03-01T00:00:00Z")).join();
+                    break;
+                } catch (CompletionException ex) {
+                    assertTrue(++failures < 100);
+                }
+            }
+            assertEquals(6L, metrics.counter("history", "windows").getCount());
+            assertCandles(history, "2024-01-01T00:00:00Z", "2024-03-01T00:00:00Z");
+        }
+    }
+
+    @Test
+    public void ensureLatenciesAreKeptPerEndpointNotPerSymbol(@TempDir Path directory) {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().build().start()) {
+            PriceHistoryService history = service(standIn, directory, Clock.fixed(Instant.parse("2024-06-01T00:00:00Z"), ZoneOffset.UTC));
+            for (String symbol : new String[]{"QQQ", "SPY", "IWM"}) {
+                history.getCandles(symbol, Instant.parse("2024-01-01T00:00:00Z"), Instant.parse("2024-01-05T00:00:00Z")).join();
+            }
+            assertEquals(3L, metrics.histogram("http", "GET /v1/marketdata/{id}/pricehistory", MetricsRegistry.NANOSECONDS).getCount());
+            assertFalse(metrics.snapshot().contains("QQQ"));
+        }
+    }
+
+    private PriceHistoryService service(BrokerStandIn standIn, Path directory, Clock clock) {
+        return PriceHistoryService.builder()
+                .gateway(HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).metrics(metrics).build())
+                .accessTokenSource(() -> BrokerStandIn.ACCESS_TOKEN)
+                .cacheDirectory(directory)
+                .window(WINDOW)
+                .maxConcurrency(3)
+                .clock(clock)
+                .metrics(metrics)
+                .build();
+    }
+
+    private static void assertCandles(PriceHistoryService history, String from, String to) {
+        long start = Instant.parse(from).toEpochMilli();
+        long end = Instant.parse(to).toEpochMilli();
+        Candles candles = history.getCandles("QQQ", Instant.parse(from), Instant.parse(to)).join();
+        int i = 0;
+        for (long t = start; t < end; t += 60_000L) {
+            if (BrokerStandIn.isHistoryBar(t)) {
+                assertEquals(t, candles.getTimestamps()[i], "candle " + i);
+                assertEquals(BrokerStandIn.historyClose(t), candles.getCloses()[i], 1e-9);
+                assertEquals(BrokerStandIn.historyClose(t) + 0.05, candles.getHighs()[i], 1e-9);
+                i++;
+            }
+        }
+        assertEquals(i, candles.size());
+    }
+}
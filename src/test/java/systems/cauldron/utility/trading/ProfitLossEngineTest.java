@@ -0,0 +1,163 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.Account;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.OrderTracker;
+import systems.cauldron.utility.trading.core.Position;
+import systems.cauldron.utility.trading.core.ProfitLoss;
+import systems.cauldron.utility.trading.core.ProfitLossEngine;
+import systems.cauldron.utility.trading.core.QuoteBook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class ProfitLossEngineTest {
+
+    private static final double EPSILON = 1e-6;
+
+    private final MetricsRegistry metrics = new MetricsRegistry("test");
+
+    @Test
+    public void ensureTicksMoveSeededPositionsAccountsAndTotal() {
+        QuoteBook book = new QuoteBook(16);
+        ProfitLossEngine engine = new ProfitLossEngine(book.getSymbols(), metrics);
+        engine.seed(List.of(
+                account("1", position("QQQ", 10, 0, 300.0, 3_100.0, 50.0), position("SPY", 0, 5, 400.0, -1_950.0, -25.0)),
+                account("2", position("QQQ", 20, 0, 320.0, 6_200.0, 100.0))));
+        engine.attach(book);
+
+        assertTotal(engine.getTotal(), 7_350.0, 100.0 + 50.0 - 200.0, 0.0, 125.0);
+
+        int qqq = book.getSymbols().lookup("QQQ");
+        book.update(qqq, QuoteBook.LAST, 0.0, 0.0, 312.0, 0L, 0L, 0L, 0L, 0L);
+        // QQQ was marked at 310, so 30 shares gain 60
+        assertTotal(engine.getTotal(), 7_410.0, 10.0, 0.0, 185.0);
+        assertTotal(engine.getAccount("1").orElseThrow(), 3_120.0 - 1_950.0, 120.0 + 50.0, 0.0, 70.0 - 25.0);
+        assertTotal(engine.getPosition("2", "QQQ").orElseThrow(), 6_240.0, -160.0, 0.0, 140.0);
+
+        // a quote without a last price leaves P&L alone
+        book.update(qqq, QuoteBook.BID, 311.0, 0.0, 0.0, 0L, 0L, 0L, 0L, 0L);
+        assertTotal(engine.getTotal(), 7_410.0, 10.0, 0.0, 185.0);
+
+        engine.detach();
+        book.update(qqq, QuoteBook.LAST, 0.0, 0.0, 400.0, 0L, 0L, 0L, 0L, 0L);
+        assertEquals(7_410.0, engine.getTotal().getMarketValue(), EPSILON);
+    }
+
+    @Test
+    public void ensureFillsOpenAddReduceAndFlip() {
+        QuoteBook book = new QuoteBook(16);
+        ProfitLossEngine engine = new ProfitLossEngine(book.getSymbols(), metrics);
+        engine.applyFill("1", "QQQ", 10, 100.0);
+        engine.applyFill("1", "QQQ", 10, 110.0);
+        // the first fill marked the position at 100
+        assertTotal(engine.getTotal(), 2_000.0, -100.0, 0.0, -100.0);
+
+        engine.onPrice(book.getSymbols().lookup("QQQ"), 120.0);
+        assertTotal(engine.getTotal(), 2_400.0, 300.0, 0.0, 300.0);
+
+        // selling 5 realizes against the average of 105
+        engine.applyFill("1", "QQQ", -5, 121.0);
+        assertTotal(engine.getTotal(), 1_800.0, 225.0, 80.0, 305.0);
+
+        // selling 20 closes the remaining 15 and opens a 5 share short at 119
+        engine.applyFill("1", "QQQ", -20, 119.0);
+        assertTotal(engine.getTotal(), -600.0, -5.0, 80.0 + 210.0, 285.0);
+        assertTotal(engine.getPosition("1", "QQQ").orElseThrow(), -600.0, -5.0, 290.0, 285.0);
+        assertFalse(engine.getPosition("2", "QQQ").isPresent());
+    }
+
+    @Test
+    public void ensureIncrementalTotalsMatchFullRecomputation() {
+        QuoteBook book = new QuoteBook(64);
+        ProfitLossEngine engine = new ProfitLossEngine(book.getSymbols(), metrics);
+        Random random = new Random(7L);
+        List<Account> accounts = new ArrayList<>();
+        for (int a = 0; a < 20; a++) {
+            List<Position> positions = new ArrayList<>();
+            for (int s = 0; s < 30; s++) {
+                if (random.nextInt(3) > 0) {
+                    double held = 1 + random.nextInt(500);
+                    positions.add(position("S" + s, held, 0, 50.0 + random.nextInt(100), held * 100.0, random.nextGaussian() * 100.0));
+                }
+            }
+            accounts.add(account("A" + a, positions.toArray(Position[]::new)));
+        }
+        engine.seed(accounts);
+        engine.attach(book);
+        for (int i = 0; i < 200_000; i++) {
+            if (i % 100 == 0) {
+                engine.applyFill("A" + random.nextInt(20), "S" + random.nextInt(30), random.nextInt(200) - 100, 90.0 + random.nextInt(2_000) / 100.0);
+            } else {
+                int id = book.getSymbols().intern("S" + random.nextInt(30));
+                book.update(id, QuoteBook.LAST, 0.0, 0.0, 90.0 + random.nextInt(2_000) / 100.0, 0L, 0L, 0L, 0L, 0L);
+            }
+        }
+        ProfitLoss incremental = engine.getTotal();
+        ProfitLoss accountIncremental = engine.getAccount("A3").orElseThrow();
+        engine.recompute();
+        ProfitLoss recomputed = engine.getTotal();
+        assertEquals(recomputed.getMarketValue(), incremental.getMarketValue(), 1e-3);
+        assertEquals(recomputed.getUnrealized(), incremental.getUnrealized(), 1e-3);
+        assertEquals(recomputed.getRealized(), incremental.getRealized(), 1e-3);
+        assertEquals(recomputed.getDay(), incremental.getDay(), 1e-3);
+        assertEquals(engine.getAccount("A3").orElseThrow().getUnrealized(), accountIncremental.getUnrealized(), 1e-3);
+        assertEquals(198_000L, metrics.counter("pnl", "ticks").getCount());
+    }
+
+    @Test
+    public void ensureTrackedFillsAreAppliedOnce() {
+        ProfitLossEngine engine = new ProfitLossEngine(new QuoteBook(16).getSymbols(), metrics);
+        OrderTracker tracker = new OrderTracker(metrics);
+        tracker.addEventListener(engine::onFill);
+        String fill = OrderTrackerTest.fill("OrderFill", "4100000001", 10, "330.50", 0);
+        tracker.onActivity(OrderTrackerTest.ACCOUNT_ID, "OrderFill", fill);
+        tracker.onActivity(OrderTrackerTest.ACCOUNT_ID, "OrderFill", fill);
+
+        assertTotal(engine.getPosition(OrderTrackerTest.ACCOUNT_ID, "QQQ").orElseThrow(), 3_305.0, 0.0, 0.0, 0.0);
+        assertEquals(1L, metrics.counter("pnl", "fills").getCount());
+    }
+
+    @Test
+    public void ensureRedeliveredPartialFillsAreAppliedOnce() {
+        ProfitLossEngine engine = new ProfitLossEngine(new QuoteBook(16).getSymbols(), metrics);
+        OrderTracker tracker = new OrderTracker(metrics);
+        tracker.addEventListener(engine::onFill);
+        String partial = OrderTrackerTest.fill("OrderPartialFill", "4100000001", 4, "330.50", 0)
+                .replace("<LeavesQuantity>0</LeavesQuantity>", "");
+        tracker.onActivity(OrderTrackerTest.ACCOUNT_ID, "OrderPartialFill", partial);
+        tracker.onActivity(OrderTrackerTest.ACCOUNT_ID, "OrderPartialFill", partial);
+        tracker.onActivity(OrderTrackerTest.ACCOUNT_ID, "OrderPartialFill", partial);
+
+        assertTotal(engine.getPosition(OrderTrackerTest.ACCOUNT_ID, "QQQ").orElseThrow(), 1_322.0, 0.0, 0.0, 0.0);
+        assertEquals(1L, metrics.counter("pnl", "fills").getCount());
+    }
+
+    private static void assertTotal(ProfitLoss actual, double marketValue, double unrealized, double realized, double day) {
+        assertEquals(marketValue, actual.getMarketValue(), EPSILON, "market value");
+        assertEquals(unrealized, actual.getUnrealized(), EPSILON, "unrealized");
+        assertEquals(realized, actual.getRealized(), EPSILON, "realized");
+        assertEquals(day, actual.getDay(), EPSILON, "day");
+    }
+
+    private static Account account(String accountId, Position... positions) {
+        return Account.builder().accountId(accountId).type("MARGIN").positions(List.of(positions)).build();
+    }
+
+    private static Position position(String symbol, double longQuantity, double shortQuantity, double averagePrice, double marketValue, double day) {
+        return Position.builder()
+                .symbol(symbol)
+                .assetType("EQUITY")
+                .longQuantity(longQuantity)
+                .shortQuantity(shortQuantity)
+                .averagePrice(averagePrice)
+                .marketValue(marketValue)
+                .currentDayProfitLoss(day)
+                .build();
+    }
+}
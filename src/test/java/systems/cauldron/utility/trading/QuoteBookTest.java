@@ -0,0 +1,82 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.LevelOneQuoteHandler;
+import systems.cauldron.utility.trading.core.QuoteBook;
+import systems.cauldron.utility.trading.core.QuoteSnapshot;
+import systems.cauldron.utility.trading.core.StreamerFramePipeline;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuoteBookTest {
+
+    @Test
+    public void ensurePartialUpdatesKeepUntouchedFields() throws IOException {
+        QuoteBook book = new QuoteBook(16);
+        LevelOneQuoteHandler handler = new LevelOneQuoteHandler(book);
+        StreamerFramePipeline pipeline = new StreamerFramePipeline(e -> {
+            if ("QUOTE".equals(e.getService())) {
+                handler.accept(e);
+            }
+        });
+        StreamerFramePipelineTest.loadRecordedFeed().forEach(frame -> pipeline.onFragment(frame, true));
+
+        QuoteSnapshot quote = new QuoteSnapshot();
+        assertTrue(book.read("QQQ", quote));
+        assertEquals(330.11, quote.getBid());
+        assertEquals(330.12, quote.getAsk());
+        assertEquals(330.12, quote.getLast());
+        assertEquals(2L, quote.getBidSize());
+        assertEquals(3L, quote.getAskSize());
+        assertEquals(200L, quote.getLastSize());
+        assertEquals(12345678L, quote.getVolume());
+        assertEquals(1618000001004L, quote.getTimestamp());
+
+        assertTrue(book.read("SPY", quote));
+        assertEquals(412.3, quote.getBid());
+        assertEquals(412.32, quote.getAsk());
+        assertEquals(9L, quote.getAskSize());
+
+        assertFalse(book.read("MSFT", quote));
+    }
+
+    @Test
+    public void ensureReadersNeverSeeTornRows() throws InterruptedException {
+        QuoteBook book = new QuoteBook(4);
+        int id = book.getSymbols().intern("QQQ");
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong torn = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+        Thread[] readers = new Thread[2];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                QuoteSnapshot quote = new QuoteSnapshot();
+                while (running.get()) {
+                    if (book.read(id, quote)) {
+                        long n = quote.getBidSize();
+                        if (quote.getBid() != n || quote.getAsk() != n || quote.getLast() != n || quote.getTimestamp() != n) {
+                            torn.incrementAndGet();
+                        }
+                        reads.incrementAndGet();
+                    }
+                }
+            });
+            readers[r].start();
+        }
+        for (long n = 1; n <= 2_000_000; n++) {
+            book.update(id, QuoteBook.BID | QuoteBook.ASK | QuoteBook.LAST | QuoteBook.BID_SIZE, n, n, n, n, 0L, 0L, 0L, n);
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue(reads.get() > 0);
+        assertEquals(0L, torn.get());
+    }
+}
@@ -5,12 +5,14 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import systems.cauldron.utility.trading.core.AccountService;
 import systems.cauldron.utility.trading.core.AuthenticationService;
+import systems.cauldron.utility.trading.core.FixedPoint;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.OrderScheduler;
 import systems.cauldron.utility.trading.core.OrderService;
 import systems.cauldron.utility.trading.core.Slinger;
 import systems.cauldron.utility.trading.core.StreamerService;
 import systems.cauldron.utility.trading.core.UserPrincipalsService;
 
-import java.math.BigDecimal;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
@@ -20,25 +22,27 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 public class ServiceTest {
 
+    static HttpGateway gateway;
     static AuthenticationService authenticator;
     static Supplier<String> tokenSource;
 
     @BeforeAll
     public static void setup() {
-        authenticator = new AuthenticationService();
+        gateway = new HttpGateway();
+        authenticator = new AuthenticationService(gateway);
         tokenSource = authenticator.start();
     }
 
     @AfterAll
     public static void cleanup() {
-        authenticator.stop();
+        authenticator.close();
     }
 
     @Test
     public void ensureAccountDataWorks() {
-        AccountService accountData = new AccountService(tokenSource);
+        AccountService accountData = new AccountService(gateway, tokenSource);
         accountData.printRawResponse();
-        Map<String, BigDecimal> availableCashBalances = accountData.getAvailableCashBalances().join();
+        Map<String, FixedPoint> availableCashBalances = accountData.getAvailableCashBalances().join();
         assertFalse(availableCashBalances.isEmpty());
         System.out.println(availableCashBalances);
     }
@@ -46,21 +50,23 @@ public class ServiceTest {
     @Test
     public void ensureSlingerWorks() {
 
-        AccountService accountService = new AccountService(tokenSource);
-        OrderService orderService = new OrderService(tokenSource);
+        AccountService accountService = new AccountService(gateway, tokenSource);
+        try (OrderScheduler scheduler = new OrderScheduler()) {
+            OrderService orderService = new OrderService(gateway, tokenSource, scheduler);
 
-        Slinger slinger = new Slinger(accountService, orderService);
+            Slinger slinger = new Slinger(accountService, orderService);
 
-        slinger.execute("QQQ", BigDecimal.valueOf(280)).thenAccept(CompletableFuture::allOf).join();
+            slinger.execute("QQQ", FixedPoint.of(280)).thenAccept(CompletableFuture::allOf).join();
+        }
 
-        Map<String, BigDecimal> availableCashBalances = accountService.getAvailableCashBalances().join();
+        Map<String, FixedPoint> availableCashBalances = accountService.getAvailableCashBalances().join();
         assertFalse(availableCashBalances.isEmpty());
         System.out.println(availableCashBalances);
     }
 
     @Test
     public void ensureUserPrincipalsWorks() {
-        UserPrincipalsService service = new UserPrincipalsService(tokenSource);
+        UserPrincipalsService service = new UserPrincipalsService(gateway, tokenSource);
         service.getStreamerConfig().thenAccept(config -> {
             assertNotNull(config.getAccountId());
             assertNotNull(config.getAppId());
@@ -74,11 +80,11 @@ public class ServiceTest {
 
     @Test
     public void ensureStreamerWorks() {
-        UserPrincipalsService service = new UserPrincipalsService(tokenSource);
+        UserPrincipalsService service = new UserPrincipalsService(gateway, tokenSource);
         service.getStreamerConfig().thenAccept(config -> {
-            StreamerService streamerService = new StreamerService(config);
+            StreamerService streamerService = new StreamerService(gateway, config);
             streamerService.start();
-            streamerService.stop();
+            streamerService.close();
         }).join();
     }
 }
\ No newline at end of file
@@ -0,0 +1,435 @@
+package systems.cauldron.utility.trading;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Minimal RFC 6455 server speaking enough of the streamer protocol for {@code StreamerService}: ADMIN LOGIN/LOGOUT,
+ * ACCT_ACTIVITY SUBS and QUOTE SUBS/ADD/UNSUBS, plus heartbeats and data pushes driven by the test. Tests can also
+ * break sessions on purpose: drop them, silence them or skip account activity sequence numbers.
+ */
+public class StandInStreamer implements AutoCloseable {
+
+    private final static Logger LOG = LogManager.getLogger(StandInStreamer.class);
+
+    public static final String SUBSCRIPTION_KEY = "stand-in-subscription-key";
+
+    private static final String HANDSHAKE_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final String accountId;
+    private final Duration heartbeatInterval;
+    private final ServerSocket serverSocket;
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private final AtomicLong quoteSequence = new AtomicLong();
+    private final AtomicInteger loginCount = new AtomicInteger();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "stand-in-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running;
+
+    StandInStreamer(String accountId, Duration heartbeatInterval) throws IOException {
+        this.accountId = accountId;
+        this.heartbeatInterval = heartbeatInterval;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    }
+
+    void start() {
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "stand-in-streamer");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        long interval = heartbeatInterval.toMillis();
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeat, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        heartbeat.shutdownNow();
+        try {
+            serverSocket.close();
+        } catch (IOException ex) {
+            LOG.debug("failed to close stand-in streamer socket", ex);
+        }
+        sessions.forEach(Session::close);
+    }
+
+    public String getUrl() {
+        return "ws://127.0.0.1:" + serverSocket.getLocalPort() + "/ws";
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Successful ADMIN LOGINs over the stand-in's lifetime, i.e. one per (re)connect.
+     */
+    public int getLoginCount() {
+        return loginCount.get();
+    }
+
+    /**
+     * Volume of every pushed quote carries this sequence, so a client can tell how far it has caught up.
+     */
+    public long getQuoteSequence() {
+        return quoteSequence.get();
+    }
+
+    public void sendHeartbeat() {
+        String frame = "{\"notify\":[{\"heartbeat\":\"" + System.currentTimeMillis() + "\"}]}";
+        for (Session session : sessions) {
+            if (session.loggedIn) {
+                session.send(frame);
+            }
+        }
+    }
+
+    /**
+     * Pushes single-quote data frames round-robin over each session's subscribed symbols at the given rate, blocking
+     * the caller for the duration.
+     *
+     * @return number of frames sent
+     */
+    public long publishQuotes(int messagesPerSecond, Duration duration) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1L) / messagesPerSecond;
+        long total = duration.toNanos() / intervalNanos;
+        long next = System.nanoTime();
+        long sent = 0L;
+        for (long i = 0; i < total; i++) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+            }
+            next += intervalNanos;
+            for (Session session : sessions) {
+                List<String> symbols = new ArrayList<>(session.quoteSymbols);
+                if (!symbols.isEmpty()) {
+                    session.send(quoteFrame(symbols.get((int) (i % symbols.size()))));
+                    sent++;
+                }
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * Each session numbers its account activity messages from 1, the SUBSCRIBED message being 0.
+     */
+    public void publishAccountActivity(String messageType, String messageContent) {
+        for (Session session : sessions) {
+            if (session.accountActivity) {
+                session.send("{\"data\":[{\"service\":\"ACCT_ACTIVITY\",\"timestamp\":" + System.currentTimeMillis() +
+                        ",\"command\":\"SUBS\",\"content\":[{\"seq\":" + session.accountActivitySequence.incrementAndGet() +
+                        ",\"key\":\"" + SUBSCRIPTION_KEY + "\",\"1\":\"" + accountId + "\",\"2\":\"" + messageType +
+                        "\",\"3\":" + Json.createValue(messageContent) + "}]}]}");
+            }
+        }
+    }
+
+    /**
+     * Burns sequence numbers as if messages had been lost on the way.
+     */
+    public void skipAccountActivity(int messages) {
+        sessions.forEach(session -> session.accountActivitySequence.addAndGet(messages));
+    }
+
+    /**
+     * Closes every session's socket without a close handshake.
+     */
+    public void dropSessions() {
+        sessions.forEach(Session::close);
+    }
+
+    /**
+     * Keeps every current session's socket open but stops sending anything on it, heartbeats included.
+     */
+    public void silenceSessions() {
+        sessions.forEach(session -> session.silenced = true);
+    }
+
+    private String quoteFrame(String symbol) {
+        long sequence = quoteSequence.incrementAndGet();
+        double last = 100.0 + (sequence % 200) / 100.0;
+        return "{\"data\":[{\"service\":\"QUOTE\",\"timestamp\":" + System.currentTimeMillis() +
+                ",\"command\":\"SUBS\",\"content\":[{\"key\":\"" + symbol + "\",\"1\":" + (last - 0.01) +
+                ",\"2\":" + (last + 0.01) + ",\"3\":" + last + ",\"4\":1,\"5\":1,\"8\":" + sequence + ",\"9\":100}]}]}";
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Session session = new Session(socket);
+                Thread reader = new Thread(session::run, "stand-in-session");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException ex) {
+                if (running) {
+                    LOG.error("stand-in streamer failed to accept connection", ex);
+                }
+            }
+        }
+    }
+
+    private class Session {
+
+        private final Socket socket;
+        private final OutputStream out;
+        private final Set<String> quoteSymbols = ConcurrentHashMap.newKeySet();
+        private final AtomicLong accountActivitySequence = new AtomicLong();
+        private volatile boolean loggedIn;
+        private volatile boolean accountActivity;
+        private volatile boolean silenced;
+
+        Session(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        void run() {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                handshake(in);
+                sessions.add(this);
+                ByteArrayOutputStream message = new ByteArrayOutputStream();
+                while (true) {
+                    int head = in.readUnsignedByte();
+                    int opcode = head & 0x0F;
+                    byte[] payload = readPayload(in);
+                    if (opcode == 0x8) {
+                        sendFrame(0x8, payload);
+                        break;
+                    } else if (opcode == 0x9) {
+                        sendFrame(0xA, payload);
+                    } else if (opcode == 0x1 || opcode == 0x0) {
+                        message.write(payload);
+                        if ((head & 0x80) != 0) {
+                            handle(message.toString(StandardCharsets.UTF_8));
+                            message.reset();
+                        }
+                    }
+                }
+            } catch (EOFException | SocketException ex) {
+                LOG.debug("stand-in session ended", ex);
+            } catch (IOException ex) {
+                LOG.error("stand-in session failed", ex);
+            } finally {
+                sessions.remove(this);
+                close();
+            }
+        }
+
+        private void handshake(DataInputStream in) throws IOException {
+            String key = null;
+            String line;
+            while (!(line = readLine(in)).isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                    key = line.substring(colon + 1).trim();
+                }
+            }
+            if (key == null) {
+                throw new IOException("missing websocket key");
+            }
+            String accept;
+            try {
+                MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+                accept = Base64.getEncoder().encodeToString(sha1.digest((key + HANDSHAKE_GUID).getBytes(StandardCharsets.US_ASCII)));
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+            synchronized (this) {
+                out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n" +
+                        "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            }
+        }
+
+        private void handle(String text) {
+            JsonObject message;
+            try (JsonReader reader = Json.createReader(new StringReader(text))) {
+                message = reader.readObject();
+            }
+            if (message.containsKey("requests")) {
+                for (JsonValue request : message.getJsonArray("requests")) {
+                    handleRequest(request.asJsonObject());
+                }
+            } else {
+                handleRequest(message);
+            }
+        }
+
+        private void handleRequest(JsonObject request) {
+            String service = request.getString("service");
+            String command = request.getString("command");
+            String requestId = request.getString("requestid");
+            JsonObject parameters = request.getJsonObject("parameters");
+            switch (service + " " + command) {
+                case "ADMIN LOGIN":
+                    loggedIn = true;
+                    loginCount.incrementAndGet();
+                    respond(service, command, requestId, 0, "stand-in");
+                    break;
+                case "ADMIN LOGOUT":
+                    loggedIn = false;
+                    respond(service, command, requestId, 0, "SUCCESS");
+                    break;
+                case "ACCT_ACTIVITY SUBS":
+                    respond(service, command, requestId, 0, "SUBS command succeeded");
+                    accountActivity = true;
+                    publishSubscribed();
+                    break;
+                case "QUOTE SUBS":
+                    quoteSymbols.clear();
+                    quoteSymbols.addAll(keys(parameters));
+                    respond(service, command, requestId, 0, "SUBS command succeeded");
+                    break;
+                case "QUOTE ADD":
+                    quoteSymbols.addAll(keys(parameters));
+                    respond(service, command, requestId, 0, "ADD command succeeded");
+                    break;
+                case "QUOTE UNSUBS":
+                    quoteSymbols.removeAll(keys(parameters));
+                    respond(service, command, requestId, 0, "UNSUBS command succeeded");
+                    break;
+                default:
+                    respond(service, command, requestId, 11, "not supported by stand-in");
+                    break;
+            }
+        }
+
+        private void publishSubscribed() {
+            accountActivitySequence.set(0L);
+            send("{\"data\":[{\"service\":\"ACCT_ACTIVITY\",\"timestamp\":" + System.currentTimeMillis() +
+                    ",\"command\":\"SUBS\",\"content\":[{\"seq\":0,\"key\":\"" + SUBSCRIPTION_KEY +
+                    "\",\"1\":\"\",\"2\":\"SUBSCRIBED\",\"3\":\"\"}]}]}");
+        }
+
+        private void respond(String service, String command, String requestId, int code, String msg) {
+            send("{\"response\":[{\"service\":\"" + service + "\",\"requestid\":\"" + requestId + "\",\"command\":\"" +
+                    command + "\",\"timestamp\":" + System.currentTimeMillis() + ",\"content\":{\"code\":" + code +
+                    ",\"msg\":\"" + msg + "\"}}]}");
+        }
+
+        void send(String text) {
+            if (silenced) {
+                return;
+            }
+            try {
+                sendFrame(0x1, text.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ex) {
+                LOG.debug("stand-in failed to send frame", ex);
+                close();
+            }
+        }
+
+        private synchronized void sendFrame(int opcode, byte[] payload) throws IOException {
+            out.write(0x80 | opcode);
+            if (payload.length < 126) {
+                out.write(payload.length);
+            } else if (payload.length <= 0xFFFF) {
+                out.write(126);
+                out.write(payload.length >>> 8);
+                out.write(payload.length);
+            } else {
+                out.write(127);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) ((long) payload.length >>> shift));
+                }
+            }
+            out.write(payload);
+            out.flush();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                LOG.debug("failed to close stand-in session", ex);
+            }
+        }
+    }
+
+    private static List<String> keys(JsonObject parameters) {
+        List<String> keys = new ArrayList<>();
+        for (String key : parameters.getString("keys").split(",")) {
+            if (!key.isBlank()) {
+                keys.add(key.trim());
+            }
+        }
+        return keys;
+    }
+
+    private static byte[] readPayload(DataInputStream in) throws IOException {
+        int second = in.readUnsignedByte();
+        long length = second & 0x7F;
+        if (length == 126) {
+            length = in.readUnsignedShort();
+        } else if (length == 127) {
+            length = in.readLong();
+        }
+        byte[] mask = new byte[4];
+        boolean masked = (second & 0x80) != 0;
+        if (masked) {
+            in.readFully(mask);
+        }
+        byte[] payload = new byte[(int) length];
+        in.readFully(payload);
+        if (masked) {
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] ^= mask[i & 3];
+            }
+        }
+        return payload;
+    }
+
+    private static String readLine(DataInputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException();
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,141 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.StreamerDispatcher;
+import systems.cauldron.utility.trading.core.StreamerEntry;
+import systems.cauldron.utility.trading.core.StreamerFramePipeline;
+
+import java.io.IOException;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamerDispatcherTest {
+
+    @Test
+    public void ensureEveryEntryIsDispatchedOffTheProducerThread() throws IOException, InterruptedException {
+        List<String> feed = StreamerFramePipelineTest.loadRecordedFeed();
+        Map<String, List<String>> received = new ConcurrentHashMap<>();
+        List<Thread> handlerThreads = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(9);
+        try (StreamerDispatcher dispatcher = new StreamerDispatcher(16, e -> {
+            handlerThreads.add(Thread.currentThread());
+            String service = e.getService() == null ? e.getKind().name() : e.getService();
+            List<String> values = received.computeIfAbsent(e.getKind() + " " + service, k -> new CopyOnWriteArrayList<>());
+            if (e.getContentCount() == 0) {
+                values.add(String.valueOf(e.getTimestamp()));
+            }
+            for (int c = 0; c < e.getContentCount(); c++) {
+                values.add(e.getKind() == StreamerEntry.Kind.RESPONSE ? e.getText(c, "msg") : e.getText(c, "key"));
+            }
+            done.countDown();
+        })) {
+            StreamerFramePipeline pipeline = new StreamerFramePipeline(dispatcher::publish);
+            feed.forEach(frame -> pipeline.onFragment(frame, true));
+            assertTrue(done.await(5L, TimeUnit.SECONDS));
+        }
+        assertFalse(handlerThreads.contains(Thread.currentThread()));
+        assertEquals(List.of("28-4"), received.get("RESPONSE ADMIN"));
+        assertEquals(List.of("SUBS command succeeded"), received.get("RESPONSE ACCT_ACTIVITY"));
+        assertEquals(List.of("QQQ", "SPY", "QQQ", "AAPL", "SPY"), received.get("DATA QUOTE"));
+        assertEquals(List.of("b6c8a1e0f4", "b6c8a1e0f4", "b6c8a1e0f4"), received.get("DATA ACCT_ACTIVITY"));
+        assertEquals(List.of("1618000000500"), received.get("NOTIFY NOTIFY"));
+    }
+
+    @Test
+    public void ensureReadsFollowConsumerProgress() throws InterruptedException {
+        CountingWebSocket socket = new CountingWebSocket();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong handled = new AtomicLong();
+        try (StreamerDispatcher dispatcher = new StreamerDispatcher(8, e -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            handled.incrementAndGet();
+        })) {
+            StreamerFramePipeline pipeline = new StreamerFramePipeline(dispatcher::publish);
+            String frame = "{\"data\":[{\"service\":\"QUOTE\",\"timestamp\":1,\"content\":[{\"key\":\"QQQ\",\"1\":1.0}]}]}";
+            for (int i = 0; i < 6; i++) {
+                pipeline.onFragment(frame, true);
+                dispatcher.requestNext(socket);
+            }
+            long requestedWhileBlocked = socket.requested.get();
+            assertTrue(requestedWhileBlocked < 6);
+
+            release.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+            while (socket.requested.get() < requestedWhileBlocked + 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1L);
+            }
+            assertEquals(requestedWhileBlocked + 1, socket.requested.get());
+        }
+        assertEquals(6, handled.get());
+    }
+
+    private static class CountingWebSocket implements WebSocket {
+
+        private final AtomicLong requested = new AtomicLong();
+
+        @Override
+        public void request(long n) {
+            requested.addAndGet(n);
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendText(CharSequence data, boolean last) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendBinary(ByteBuffer data, boolean last) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendPing(ByteBuffer message) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendPong(ByteBuffer message) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public CompletableFuture<WebSocket> sendClose(int statusCode, String reason) {
+            return CompletableFuture.completedFuture(this);
+        }
+
+        @Override
+        public String getSubprotocol() {
+            return "";
+        }
+
+        @Override
+        public boolean isOutputClosed() {
+            return false;
+        }
+
+        @Override
+        public boolean isInputClosed() {
+            return false;
+        }
+
+        @Override
+        public void abort() {
+        }
+    }
+}
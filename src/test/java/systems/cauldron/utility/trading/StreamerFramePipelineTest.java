@@ -0,0 +1,79 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.StreamerEntry;
+import systems.cauldron.utility.trading.core.StreamerFramePipeline;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamerFramePipelineTest {
+
+    @Test
+    public void ensureFragmentedFramesReassemble() throws IOException {
+        List<String> feed = loadRecordedFeed();
+        List<String> whole = new ArrayList<>();
+        List<String> fragmented = new ArrayList<>();
+
+        StreamerFramePipeline wholePipeline = new StreamerFramePipeline(e -> whole.add(describe(e)));
+        StreamerFramePipeline fragmentedPipeline = new StreamerFramePipeline(e -> fragmented.add(describe(e)));
+        for (String frame : feed) {
+            assertTrue(wholePipeline.onFragment(frame, true));
+            for (int i = 0; i < frame.length(); i += 7) {
+                boolean last = i + 7 >= frame.length();
+                assertEquals(last, fragmentedPipeline.onFragment(new StringBuilder(frame.substring(i, Math.min(frame.length(), i + 7))), last));
+            }
+        }
+
+        assertFalse(whole.isEmpty());
+        assertEquals(whole, fragmented);
+        assertEquals(feed.size(), fragmentedPipeline.getMessageCount());
+    }
+
+    @Test
+    public void ensureContentFieldsAreReadable() throws IOException {
+        List<String> quotes = new ArrayList<>();
+        StreamerFramePipeline pipeline = new StreamerFramePipeline(e -> {
+            if ("QUOTE".equals(e.getService())) {
+                for (int c = 0; c < e.getContentCount(); c++) {
+                    quotes.add(e.getText(c, "key") + "@" + e.getNumber(c, "1", Double.NaN));
+                }
+            }
+        });
+        for (String frame : loadRecordedFeed()) {
+            pipeline.onFragment(frame, true);
+        }
+        assertTrue(quotes.contains("QQQ@330.1"));
+        assertTrue(quotes.contains("AAPL@133.05"));
+    }
+
+    private static String describe(StreamerEntry entry) {
+        StringBuilder sb = new StringBuilder()
+                .append(entry.getKind()).append(' ')
+                .append(entry.getService()).append(' ')
+                .append(entry.getRequestId()).append(' ')
+                .append(entry.getTimestamp());
+        for (int c = 0; c < entry.getContentCount(); c++) {
+            for (int i = entry.fieldStart(c); i < entry.fieldEnd(c); i++) {
+                sb.append(' ').append(entry.fieldName(i)).append('=')
+                        .append(entry.isNumber(i) ? String.valueOf(entry.number(i)) : entry.text(i));
+            }
+        }
+        return sb.toString();
+    }
+
+    static List<String> loadRecordedFeed() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(StreamerFramePipelineTest.class.getResourceAsStream("/streamer-feed.txt"), StandardCharsets.UTF_8))) {
+            return reader.lines().filter(l -> !l.isBlank()).collect(Collectors.toList());
+        }
+    }
+}
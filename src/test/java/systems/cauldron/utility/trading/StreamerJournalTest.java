@@ -0,0 +1,132 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.StreamerJournal;
+import systems.cauldron.utility.trading.core.StreamerJournalReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamerJournalTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry("test");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void ensureFramesRollAcrossSegmentsInOrder() {
+        List<String> written = new ArrayList<>();
+        try (StreamerJournal journal = newJournal()) {
+            for (int i = 0; i < 200; i++) {
+                String frame = "{\"notify\":[{\"heartbeat\":\"" + i + "\"}],\"note\":\"caf\u00e9 \ud83d\udcc8\"}";
+                assertTrue(journal.append(frame.toCharArray(), 0, frame.length()));
+                written.add(frame);
+            }
+        }
+        assertTrue(segmentCount() > 1);
+        assertEquals(written, readAll());
+    }
+
+    @Test
+    public void ensureReaderTailsWriter() throws InterruptedException {
+        int count = 50_000;
+        List<String> read = new ArrayList<>();
+        long[] lastTimestamp = {Long.MIN_VALUE};
+        boolean[] ordered = {true};
+        try (StreamerJournal journal = newJournal()) {
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    char[] frame = String.valueOf(i).toCharArray();
+                    journal.append(frame, 0, frame.length);
+                }
+            });
+            writer.start();
+            try (StreamerJournalReader reader = new StreamerJournalReader(directory)) {
+                long deadline = System.nanoTime() + 10_000_000_000L;
+                while (read.size() < count && System.nanoTime() < deadline) {
+                    reader.readAvailable((timestamp, frame) -> {
+                        ordered[0] &= timestamp >= lastTimestamp[0];
+                        lastTimestamp[0] = timestamp;
+                        read.add(frame.toString());
+                    }, 1_000);
+                }
+            }
+            writer.join();
+        }
+        assertEquals(count, read.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(String.valueOf(i), read.get(i));
+        }
+        assertTrue(ordered[0]);
+    }
+
+    @Test
+    public void ensurePartialFrameIsWipedOnReopen() throws IOException {
+        try (StreamerJournal journal = newJournal()) {
+            journal.append("first".toCharArray(), 0, 5);
+            journal.append("second".toCharArray(), 0, 6);
+        }
+        // a torn append: length published but payload never fully written
+        Path segment = segments().get(0);
+        int end = 16 + 24 + 24;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN);
+            torn.putInt(8).putInt(0x12345678).putLong(1L).put("thi".getBytes());
+            torn.flip();
+            channel.write(torn, end);
+        }
+        try (StreamerJournalReader reader = new StreamerJournalReader(directory)) {
+            assertTrue(reader.read((timestamp, frame) -> assertEquals("first", frame.toString())));
+            assertTrue(reader.read((timestamp, frame) -> assertEquals("second", frame.toString())));
+            assertFalse(reader.read((timestamp, frame) -> {
+            }));
+        }
+
+        try (StreamerJournal journal = newJournal()) {
+            journal.append("third".toCharArray(), 0, 5);
+        }
+        assertEquals(List.of("first", "second", "third"), readAll());
+    }
+
+    private StreamerJournal newJournal() {
+        return StreamerJournal.builder().directory(directory).segmentSize(4096L).metrics(metrics).build();
+    }
+
+    private List<String> readAll() {
+        List<String> frames = new ArrayList<>();
+        try (StreamerJournalReader reader = new StreamerJournalReader(directory)) {
+            reader.readAvailable((timestamp, frame) -> frames.add(frame.toString()), Integer.MAX_VALUE);
+        }
+        return frames;
+    }
+
+    private long segmentCount() {
+        try {
+            return segments().size();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.QuoteBook;
+import systems.cauldron.utility.trading.core.QuoteSnapshot;
+import systems.cauldron.utility.trading.core.StreamerConfig;
+import systems.cauldron.utility.trading.core.StreamerGapListener;
+import systems.cauldron.utility.trading.core.StreamerService;
+import systems.cauldron.utility.trading.core.UserPrincipalsService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamerReconnectTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry("test");
+    private final BlockingQueue<String> gaps = new LinkedBlockingQueue<>();
+
+    @Test
+    public void ensureDroppedSocketReconnectsAndReplaysSubscriptions() throws InterruptedException {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().build().start()) {
+            StreamerService streamer = newStreamer(standIn, Duration.ofSeconds(30L));
+            streamer.start();
+            try {
+                QuoteBook book = new QuoteBook(16);
+                streamer.subscribeQuotes(List.of("QQQ"), book).join();
+
+                standIn.getStreamer().dropSessions();
+                assertEquals("null RECONNECT", gaps.poll(5L, TimeUnit.SECONDS));
+                assertEquals(2, standIn.getStreamer().getLoginCount());
+                assertEquals(1L, metrics.counter("streamer", "disconnects").getCount());
+                assertEquals(1L, metrics.histogram("streamer", "reconnect", MetricsRegistry.NANOSECONDS).getCount());
+
+                standIn.getStreamer().publishQuotes(1_000, Duration.ofMillis(50L));
+                QuoteSnapshot quote = new QuoteSnapshot();
+                assertTrue(await(() -> book.read("QQQ", quote) && quote.getVolume() == standIn.getStreamer().getQuoteSequence()));
+            } finally {
+                streamer.close();
+            }
+        }
+    }
+
+    @Test
+    public void ensureSilentSocketIsReplaced() throws InterruptedException {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().heartbeatInterval(Duration.ofMillis(50L)).build().start()) {
+            StreamerService streamer = newStreamer(standIn, Duration.ofMillis(500L));
+            streamer.start();
+            try {
+                assertNull(gaps.poll(1L, TimeUnit.SECONDS));
+
+                standIn.getStreamer().silenceSessions();
+                assertEquals("null HEARTBEAT_TIMEOUT", gaps.poll(5L, TimeUnit.SECONDS));
+                assertEquals(2, standIn.getStreamer().getLoginCount());
+                assertTrue(streamer.isConnected());
+            } finally {
+                streamer.close();
+            }
+        }
+    }
+
+    @Test
+    public void ensureSkippedSequenceIsReported() throws InterruptedException {
+        try (BrokerStandIn standIn = BrokerStandIn.builder().build().start()) {
+            StreamerService streamer = newStreamer(standIn, Duration.ofSeconds(30L));
+            BlockingQueue<String> activity = new LinkedBlockingQueue<>();
+            streamer.addAccountActivityListener((accountId, messageType, messageContent) -> activity.add(messageType));
+            streamer.start();
+            try {
+                standIn.getStreamer().publishAccountActivity("OrderEntryRequest", "<EMS/>");
+                assertNotNull(activity.poll(5L, TimeUnit.SECONDS));
+                assertNull(gaps.poll(200L, TimeUnit.MILLISECONDS));
+
+                standIn.getStreamer().skipAccountActivity(2);
+                standIn.getStreamer().publishAccountActivity("OrderFill", "<EMS/>");
+                assertEquals("ACCT_ACTIVITY SEQUENCE", gaps.poll(5L, TimeUnit.SECONDS));
+                assertEquals("OrderFill", activity.poll(5L, TimeUnit.SECONDS));
+            } finally {
+                streamer.close();
+            }
+        }
+    }
+
+    private StreamerService newStreamer(BrokerStandIn standIn, Duration heartbeatTimeout) {
+        HttpGateway gateway = HttpGateway.builder().apiBaseUrl(standIn.getBaseUrl()).metrics(metrics).build();
+        StreamerConfig config = new UserPrincipalsService(gateway, () -> BrokerStandIn.ACCESS_TOKEN).getStreamerConfig().join();
+        StreamerService streamer = StreamerService.builder()
+                .gateway(gateway)
+                .config(config)
+                .heartbeatTimeout(heartbeatTimeout)
+                .minBackoff(Duration.ofMillis(10L))
+                .maxBackoff(Duration.ofMillis(100L))
+                .build();
+        streamer.addGapListener((service, cause) -> gaps.add(service + " " + cause));
+        return streamer;
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(5L);
+        }
+        return true;
+    }
+}
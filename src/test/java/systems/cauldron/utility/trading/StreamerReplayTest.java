@@ -0,0 +1,101 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import systems.cauldron.utility.trading.core.HttpGateway;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.QuoteBook;
+import systems.cauldron.utility.trading.core.QuoteSnapshot;
+import systems.cauldron.utility.trading.core.ReplayReport;
+import systems.cauldron.utility.trading.core.StreamerJournal;
+import systems.cauldron.utility.trading.core.StreamerReplay;
+import systems.cauldron.utility.trading.core.StreamerService;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamerReplayTest {
+
+    private static final long START = TimeUnit.SECONDS.toNanos(1_600_000_000L);
+    private static final long STEP = TimeUnit.MILLISECONDS.toNanos(10L);
+    private static final int FRAMES = 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void ensureReplayDrivesLiveHandlers() {
+        record();
+        StreamerService service = new StreamerService(HttpGateway.builder().metrics(new MetricsRegistry("test")).build(), null);
+        QuoteBook book = new QuoteBook(4);
+        service.routeQuotes(book);
+        List<String> activity = new ArrayList<>();
+        service.addAccountActivityListener((accountId, messageType, messageContent) -> activity.add(messageType + " " + messageContent));
+
+        ReplayReport report = StreamerReplay.builder()
+                .directory(directory)
+                .speed(StreamerReplay.AS_FAST_AS_POSSIBLE)
+                .build()
+                .run(service);
+
+        assertEquals(FRAMES + 1, report.getFrames());
+        assertEquals(FRAMES + 1, report.getEntries());
+        QuoteSnapshot quote = new QuoteSnapshot();
+        assertTrue(book.read("QQQ", quote));
+        assertEquals(FRAMES, quote.getVolume());
+        assertEquals(List.of("OrderFill <EMS/>"), activity);
+        assertEquals(FRAMES, report.getMetrics().histogram("streamer", "QUOTE handler", MetricsRegistry.NANOSECONDS).getCount());
+    }
+
+    @Test
+    public void ensureReplayKeepsRecordedPace() {
+        record();
+        long recorded = (FRAMES - 1) * STEP;
+
+        ReplayReport real = StreamerReplay.builder().directory(directory).build().run(entry -> {
+        });
+        assertTrue(real.getElapsedNanos() >= recorded);
+
+        ReplayReport fast = StreamerReplay.builder().directory(directory).speed(4.0).build().run(entry -> {
+        });
+        assertTrue(fast.getElapsedNanos() >= recorded / 4);
+        assertTrue(fast.getElapsedNanos() < real.getElapsedNanos());
+    }
+
+    @Test
+    public void ensureSeekSkipsEarlierFrames() {
+        record();
+        int[] seen = {0};
+        ReplayReport report = StreamerReplay.builder()
+                .directory(directory)
+                .speed(StreamerReplay.AS_FAST_AS_POSSIBLE)
+                .from(START + 5 * STEP)
+                .to(START + 15 * STEP)
+                .build()
+                .run(entry -> seen[0]++);
+        assertEquals(10, report.getFrames());
+        assertEquals(10, seen[0]);
+        assertEquals(START + 5 * STEP, report.getFirstTimestamp());
+        assertEquals(START + 14 * STEP, report.getLastTimestamp());
+    }
+
+    private void record() {
+        try (StreamerJournal journal = StreamerJournal.builder().directory(directory).segmentSize(2048L).metrics(new MetricsRegistry("test")).build()) {
+            for (int i = 1; i <= FRAMES; i++) {
+                append(journal, START + (i - 1) * STEP, "{\"data\":[{\"service\":\"QUOTE\",\"timestamp\":1,\"command\":\"SUBS\"," +
+                        "\"content\":[{\"key\":\"QQQ\",\"1\":100.0,\"2\":100.02,\"3\":100.01,\"8\":" + i + "}]}]}");
+            }
+            append(journal, START + FRAMES * STEP, "{\"data\":[{\"service\":\"ACCT_ACTIVITY\",\"timestamp\":1,\"command\":\"SUBS\"," +
+                    "\"content\":[{\"seq\":1,\"key\":\"k\",\"1\":\"123\",\"2\":\"OrderFill\",\"3\":\"<EMS/>\"}]}]}");
+        }
+    }
+
+    private static void append(StreamerJournal journal, long timestamp, String frame) {
+        journal.append(timestamp, frame.toCharArray(), 0, frame.length());
+    }
+}
@@ -0,0 +1,141 @@
+package systems.cauldron.utility.trading;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import systems.cauldron.utility.trading.core.MetricsRegistry;
+import systems.cauldron.utility.trading.core.QuoteBook;
+import systems.cauldron.utility.trading.core.TickColumns;
+import systems.cauldron.utility.trading.core.TickFileReader;
+import systems.cauldron.utility.trading.core.TickFileWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TickFileTest {
+
+    private static final long START = 1_600_000_000_000L;
+    private static final int TICKS = 10_000;
+    private static final List<String> SYMBOLS = List.of("QQQ", "SPY", "IWM");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void ensureTicksRoundTrip() {
+        Path file = write(true);
+        try (TickFileReader reader = new TickFileReader(file)) {
+            assertEquals(SYMBOLS, reader.getSymbols());
+            assertEquals(TICKS * SYMBOLS.size(), reader.getTickCount());
+            int[] seen = {0};
+            long ticks = reader.scan("SPY", Long.MIN_VALUE, Long.MAX_VALUE, TickFileReader.ALL_COLUMNS, columns -> {
+                for (int i = columns.getStart(); i < columns.getEnd(); i++) {
+                    assertTick(1, seen[0]++, columns, i);
+                }
+            });
+            assertEquals(TICKS, ticks);
+            assertEquals(TICKS, seen[0]);
+        }
+        // against roughly 100 bytes per tick as streamer json
+        assertTrue(size(file) < TICKS * SYMBOLS.size() * 10L, () -> size(file) + " bytes");
+    }
+
+    @Test
+    public void ensureTimeRangeScanReturnsOnlyThatRange() {
+        Path file = write(true);
+        try (TickFileReader reader = new TickFileReader(file)) {
+            long[] firstAndLast = {Long.MAX_VALUE, Long.MIN_VALUE};
+            long ticks = reader.scan("QQQ", timestamp(2_500), timestamp(7_500), QuoteBook.LAST, columns -> {
+                firstAndLast[0] = Math.min(firstAndLast[0], columns.getTimestamps()[columns.getStart()]);
+                firstAndLast[1] = Math.max(firstAndLast[1], columns.getTimestamps()[columns.getEnd() - 1]);
+                for (int i = columns.getStart(); i < columns.getEnd(); i++) {
+                    assertEquals(TickFileWriter.toFixedPoint(price(0, tickOf(columns.getTimestamps()[i]))), columns.getLasts()[i]);
+                }
+            });
+            assertEquals(5_000, ticks);
+            assertEquals(timestamp(2_500), firstAndLast[0]);
+            assertEquals(timestamp(7_499), firstAndLast[1]);
+        }
+    }
+
+    @Test
+    public void ensureFileWithoutFooterIsStillReadable() throws IOException {
+        Path file = write(false);
+        try (TickFileReader reader = new TickFileReader(file)) {
+            assertEquals(SYMBOLS, reader.getSymbols());
+            assertEquals(TICKS * SYMBOLS.size(), reader.scanAll(TickFileReader.ALL_COLUMNS, columns -> {
+            }));
+        }
+    }
+
+    @Test
+    public void ensureGarbageFileIsRejectedAndReleased() throws IOException {
+        Path file = directory.resolve("garbage.dat");
+        byte[] garbage = new byte[4_096];
+        new Random(42L).nextBytes(garbage);
+        Files.write(file, garbage);
+        assertThrows(UncheckedIOException.class, () -> new TickFileReader(file));
+        // fails on windows while the reader's channel is still open
+        Files.delete(file);
+    }
+
+    private Path write(boolean close) {
+        Path file = directory.resolve("ticks.dat");
+        TickFileWriter writer = TickFileWriter.builder().path(file).blockSize(1_000).metrics(new MetricsRegistry("test")).build();
+        for (int t = 0; t < TICKS; t++) {
+            for (int s = 0; s < SYMBOLS.size(); s++) {
+                double price = price(s, t);
+                writer.append(SYMBOLS.get(s), timestamp(t), price - 0.01, price + 0.01, price, 100 + t % 7, 200 + t % 5, t % 3 * 100, 1_000L * t);
+            }
+        }
+        if (close) {
+            writer.close();
+        } else {
+            // leaves the blocks on disk, as a crashed process would after its last flush
+            writer.flush();
+        }
+        return file;
+    }
+
+    private static void assertTick(int symbol, int t, TickColumns columns, int i) {
+        double price = price(symbol, t);
+        assertEquals(timestamp(t), columns.getTimestamps()[i]);
+        assertEquals(TickFileWriter.toFixedPoint(price - 0.01), columns.getBids()[i]);
+        assertEquals(TickFileWriter.toFixedPoint(price + 0.01), columns.getAsks()[i]);
+        assertEquals(price, TickFileWriter.fromFixedPoint(columns.getLasts()[i]));
+        assertEquals(100 + t % 7, columns.getBidSizes()[i]);
+        assertEquals(200 + t % 5, columns.getAskSizes()[i]);
+        assertEquals(t % 3 * 100, columns.getLastSizes()[i]);
+        assertEquals(1_000L * t, columns.getVolumes()[i]);
+    }
+
+    private static long timestamp(int t) {
+        return START + t * 10L;
+    }
+
+    private static int tickOf(long timestamp) {
+        return (int) ((timestamp - START) / 10L);
+    }
+
+    private static double price(int symbol, int t) {
+        // cent-ticked, like most listed prices
+        return Math.round(10_000.0 * (symbol + 1) + 100.0 * Math.sin(t / 100.0)) / 100.0;
+    }
+
+    private static long size(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.size();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}